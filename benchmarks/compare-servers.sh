@@ -0,0 +1,52 @@
+#!/bin/sh
+#
+# Compares throughput, latency and memory footprint of the application built with the Tomcat, Undertow and Jetty
+# embedded servers. Every server is built by 'mvn package -Dcontainer=...', started with the same JVM options and
+# loaded by the HttpLoadGenerator of the test sources. Logging of the served greetings and the concurrency limiter
+# are switched off, so only the request processing is compared.
+#
+# Usage (from the project directory): benchmarks/compare-servers.sh [seconds] [threads] [port]
+#   JAVA_OPTS - JVM options of the server, default '-Xmx256m'
+#   SERVER_OPTS - additional application properties, e.g. '--server.undertow.worker-threads=16'
+#
+set -e
+
+SECONDS_MEASURED=${1:-20}
+THREADS=${2:-8}
+PORT=${3:-8089}
+JAVA_OPTS=${JAVA_OPTS:--Xmx256m}
+WORK_DIR=target/server-benchmark
+
+mkdir -p "$WORK_DIR"
+RESULTS="$WORK_DIR/results.txt"
+: > "$RESULTS"
+
+for CONTAINER in tomcat undertow jetty; do
+    echo "### Building with $CONTAINER"
+    mvn -B -q -DskipTests -Dcontainer="$CONTAINER" package
+    cp target/greetings-0.0.1-SNAPSHOT.jar "$WORK_DIR/greetings-$CONTAINER.jar"
+
+    echo "### Running $CONTAINER"
+    java $JAVA_OPTS -jar "$WORK_DIR/greetings-$CONTAINER.jar" --server.port="$PORT" --spring.profiles.active=default \
+         --logging.level.cz.trask.vaclavek=WARN --greetings.concurrency-limit.enabled=false $SERVER_OPTS \
+         > "$WORK_DIR/server-$CONTAINER.log" 2>&1 &
+    SERVER_PID=$!
+
+    RESULT=$(java -cp target/test-classes:target/classes cz.trask.vaclavek.greetings.benchmarks.HttpLoadGenerator \
+                  "http://localhost:$PORT" "$SECONDS_MEASURED" "$THREADS") || RESULT="load failed"
+
+    # resident set size after the load, and the peak one where /proc is available
+    RSS_KB=$(ps -o rss= -p "$SERVER_PID" | tr -d ' ')
+    PEAK_KB=$(grep VmHWM "/proc/$SERVER_PID/status" 2>/dev/null | awk '{print $2}') || true
+    kill "$SERVER_PID"
+    wait "$SERVER_PID" 2>/dev/null || true
+
+    printf '%-9s %s, RSS %d MB, peak RSS %s MB\n' "$CONTAINER" "$RESULT" $((RSS_KB / 1024)) \
+           "${PEAK_KB:+$((PEAK_KB / 1024))}" >> "$RESULTS"
+done
+
+# leave the default (Tomcat) build in the target directory
+mvn -B -q -DskipTests package
+
+echo
+cat "$RESULTS"
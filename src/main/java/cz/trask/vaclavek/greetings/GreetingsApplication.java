@@ -1,15 +1,31 @@
 package cz.trask.vaclavek.greetings;
 
+import java.util.Arrays;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import cz.trask.vaclavek.greetings.accesslog.AccessLogAnalyzer;
+import cz.trask.vaclavek.greetings.loganalysis.TextLogAnalyzer;
+
 /**
  * Main entry point of the application.
+ * <p>
+ * If the first argument is {@code analyze-access-log} or {@code analyze-logs}, the {@link AccessLogAnalyzer}<br>
+ * or {@link TextLogAnalyzer} is started instead of the web application.
  */
 @SpringBootApplication
 public class GreetingsApplication {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && AccessLogAnalyzer.COMMAND.equals(args[0])) {
+			AccessLogAnalyzer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && TextLogAnalyzer.COMMAND.equals(args[0])) {
+			TextLogAnalyzer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		SpringApplication.run(GreetingsApplication.class, args);
 	}
 
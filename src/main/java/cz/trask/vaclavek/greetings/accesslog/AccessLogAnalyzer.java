@@ -0,0 +1,167 @@
+package cz.trask.vaclavek.greetings.accesslog;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * Offline analyzer of the binary access log files written by the {@link MappedAccessLog}.
+ * <p>
+ * Files are memory-mapped read-only and split into the slices of {@link #SLICE_RECORDS} records, which are scanned<br>
+ * in parallel. Every slice is counted into its own {@link AccessLogSummary}, the summaries are merged at the end.
+ * <p>
+ * Started from the command line as:<br>
+ * {@code java -jar greetings.jar analyze-access-log <file or directory>...}
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class AccessLogAnalyzer
+{
+    /**
+     * First command line argument of the application starting the analyzer instead of the web application
+     */
+    public static final String COMMAND = "analyze-access-log";
+
+    static final int SLICE_RECORDS = 1 << 20;
+
+    private static final int STATUS_CODES = 600;
+
+    private AccessLogAnalyzer() {
+    }
+
+    /**
+     * Analyzes the files given as the arguments and prints the summary to the standard output.
+     *
+     * @param args - access log files or directories containing the files
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        PrintStream out = System.out;
+        if (args.length == 0) {
+            out.println("Usage: java -jar greetings.jar " + COMMAND + " <file or directory>...");
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                files.addAll(MappedAccessLog.listFiles(path));
+            } else {
+                files.add(path);
+            }
+        }
+
+        long start = System.nanoTime();
+        AccessLogSummary summary = analyze(files, Runtime.getRuntime().availableProcessors());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        out.printf("Analyzed %d files in %d ms.%n", files.size(), elapsedMillis);
+        summary.print(out);
+    }
+
+    /**
+     * Scans the {@code files} in parallel.
+     *
+     * @param files - access log files
+     * @param parallelism - number of threads scanning the files
+     * @return summary of all records of the files
+     * @throws IOException if any file can not be read or it is not an access log file
+     */
+    public static AccessLogSummary analyze(List<Path> files, int parallelism) throws IOException, InterruptedException {
+
+        List<Callable<AccessLogSummary>> slices = new ArrayList<>();
+        for (Path file : files) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            List<String> tags;
+            try {
+                tags = AccessLogFormat.readLocaleTags(buffer);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(file + ": " + ex.getMessage(), ex);
+            }
+            String[] localeTags = tags.toArray(new String[0]);
+            long records = (buffer.limit() - AccessLogFormat.HEADER_SIZE) / AccessLogFormat.RECORD_SIZE;
+            for (long first = 0; first < records; first += SLICE_RECORDS) {
+                int from = (int) first;
+                int to = (int) Math.min(records, first + SLICE_RECORDS);
+                slices.add(() -> scan(buffer.duplicate(), localeTags, from, to));
+            }
+        }
+
+        AccessLogSummary summary = new AccessLogSummary();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(parallelism, 1));
+        try {
+            for (Future<AccessLogSummary> slice : executor.invokeAll(slices)) {
+                summary.add(slice.get());
+            }
+        } catch (ExecutionException ex) {
+            throw new IOException("Access log scan failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return summary;
+    }
+
+    /**
+     * Scans records {@code from} - {@code to} (exclusive) of one file.
+     */
+    private static AccessLogSummary scan(ByteBuffer buffer, String[] localeTags, int from, int to) {
+
+        LatencyHistogram[] localeHistograms = new LatencyHistogram[Math.max(localeTags.length, 1)];
+        for (int i = 0; i < localeHistograms.length; i++) {
+            localeHistograms[i] = new LatencyHistogram();
+        }
+        long[] statusCounts = new long[STATUS_CODES];
+        long[] endpointCounts = new long[3];
+        long[] periodCounts = new long[TimePeriod.values().length + 1];
+
+        long records = 0;
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int record = from; record < to; record++) {
+            int offset = AccessLogFormat.HEADER_SIZE + record * AccessLogFormat.RECORD_SIZE;
+            long timestamp = buffer.getLong(offset + AccessLogFormat.OFFSET_TIMESTAMP);
+            if (timestamp == 0) {
+                continue;
+            }
+            records++;
+            first = Math.min(first, timestamp);
+            last = Math.max(last, timestamp);
+
+            int localeId = buffer.getShort(offset + AccessLogFormat.OFFSET_LOCALE);
+            localeHistograms[(localeId >= 0 && localeId < localeHistograms.length) ? localeId : 0]
+                .record(buffer.getInt(offset + AccessLogFormat.OFFSET_LATENCY));
+
+            int status = buffer.getShort(offset + AccessLogFormat.OFFSET_STATUS);
+            statusCounts[(status >= 0 && status < STATUS_CODES) ? status : 0]++;
+
+            int endpoint = buffer.get(offset + AccessLogFormat.OFFSET_ENDPOINT);
+            endpointCounts[(endpoint >= 0 && endpoint < endpointCounts.length) ? endpoint : 0]++;
+
+            int period = buffer.get(offset + AccessLogFormat.OFFSET_PERIOD);
+            periodCounts[(period >= 0 && period < periodCounts.length) ? period : 0]++;
+        }
+
+        AccessLogSummary summary = new AccessLogSummary();
+        summary.add(records, first, last, localeHistograms, localeTags, statusCounts, endpointCounts, periodCounts);
+        return summary;
+    }
+}
@@ -0,0 +1,133 @@
+package cz.trask.vaclavek.greetings.accesslog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.warmup.WarmupRequestFilter;
+
+/**
+ * Servlet filter writing one {@link MappedAccessLog} record for every greetings request.
+ * <p>
+ * Locale of the record is the locale of the {@code lang} parameter mapped onto the locales having their messages file<br>
+ * by the {@link LocaleGuardMessageSource}, so the locale dictionary of the log is small and fixed. Time period<br>
+ * is reported by the controller or the filter serving the greeting as the {@value #TIME_PERIOD_ATTRIBUTE} request attribute.
+ * <p>
+ * Startup warm-up requests tagged by the {@link WarmupRequestFilter} are not logged.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class AccessLogFilter extends OncePerRequestFilter
+{
+    /**
+     * Request attribute holding the {@link TimePeriod} of the served greeting
+     */
+    public static final String TIME_PERIOD_ATTRIBUTE = AccessLogFilter.class.getName() + ".timePeriod";
+
+    private final MappedAccessLog accessLog;
+
+    private final LocaleGuardMessageSource localeGuard;
+
+    private final Map<Locale, Integer> localeIds = new HashMap<>();
+
+
+    /**
+     * @param accessLog - log the records are written to
+     * @param localeGuard - maps the requested locales onto the locales of the messages files, can be null
+     */
+    public AccessLogFilter(MappedAccessLog accessLog, LocaleGuardMessageSource localeGuard) {
+        super();
+        this.accessLog = accessLog;
+        this.localeGuard = localeGuard;
+        List<String> tags = accessLog.getLocaleTags();
+        for (int i = 0; i < tags.size(); i++) {
+            localeIds.put(Locale.forLanguageTag(tags.get(i)), i);
+        }
+    }
+
+    /**
+     * Creates the locale dictionary of the access log.
+     *
+     * @param catalogLocales - locales having their messages file
+     * @return language tags of the locales sorted, the first one is the empty tag of the unknown and not supported locales
+     */
+    public static List<String> createLocaleTags(Collection<Locale> catalogLocales) {
+
+        List<String> tags = new ArrayList<>();
+        catalogLocales.stream().map(Locale::toLanguageTag).sorted(Comparator.naturalOrder()).forEach(tags::add);
+        tags.remove(Locale.ROOT.toLanguageTag());
+        tags.add(0, "");
+        return tags;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        int status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            if (!WarmupRequestFilter.isWarmupRequest(request)) {
+                long latencyMicros = (System.nanoTime() - start) / 1000;
+                accessLog.append(System.currentTimeMillis(), (int) Math.min(latencyMicros, Integer.MAX_VALUE), status,
+                                 localeId(request.getParameter("lang")), endpoint(request.getRequestURI()), period(request));
+            }
+        }
+    }
+
+    private static byte period(HttpServletRequest request) {
+
+        Object timePeriod = request.getAttribute(TIME_PERIOD_ATTRIBUTE);
+        return (timePeriod instanceof TimePeriod) ? (byte) (((TimePeriod) timePeriod).ordinal() + 1) : 0;
+    }
+
+    private int localeId(String lang) {
+
+        if (lang == null || lang.isEmpty()) {
+            return 0;
+        }
+        Locale locale;
+        try {
+            locale = StringUtils.parseLocale(lang);
+        } catch (IllegalArgumentException ex) {
+            return 0;
+        }
+        if (locale == null) {
+            return 0;
+        }
+        if (localeGuard != null) {
+            locale = localeGuard.guard(locale);
+        }
+        return localeIds.getOrDefault(locale, 0);
+    }
+
+    private static byte endpoint(String uri) {
+
+        if (uri.endsWith("/timesensitive")) {
+            return AccessLogFormat.ENDPOINT_TIMESENSITIVE;
+        }
+        if (uri.endsWith("/timeinsensitive")) {
+            return AccessLogFormat.ENDPOINT_TIMEINSENSITIVE;
+        }
+        return AccessLogFormat.ENDPOINT_OTHER;
+    }
+}
@@ -0,0 +1,119 @@
+package cz.trask.vaclavek.greetings.accesslog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format of the access log files written by the {@link MappedAccessLog}.
+ * <p>
+ * Every file starts with the header of {@link #HEADER_SIZE} bytes:
+ * <ul>
+ *   <li>{@code int} magic number {@link #MAGIC}</li>
+ *   <li>{@code short} format version, {@code short} record size</li>
+ *   <li>{@code long} creation time of the file in epoch milliseconds</li>
+ *   <li>{@code short} number of the locales, followed by the locale dictionary - language tags of the locales<br>
+ *       as {@code short} length and UTF-8 bytes. Index of the tag in the dictionary is the locale id of the records.</li>
+ * </ul>
+ * The header is followed by the fixed-size records of {@link #RECORD_SIZE} bytes:
+ * <ul>
+ *   <li>{@code long} timestamp of the request in epoch milliseconds, 0 marks the unused slot</li>
+ *   <li>{@code int} latency in microseconds</li>
+ *   <li>{@code short} HTTP status</li>
+ *   <li>{@code short} locale id</li>
+ *   <li>{@code byte} endpoint, see {@link #ENDPOINT_TIMESENSITIVE}, {@link #ENDPOINT_TIMEINSENSITIVE}</li>
+ *   <li>{@code byte} time period ordinal + 1, 0 if the period was not evaluated</li>
+ *   <li>6 reserved bytes</li>
+ * </ul>
+ * All values are in the big-endian byte order.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class AccessLogFormat
+{
+    public static final int MAGIC = 0x4752414C; // "GRAL"
+
+    public static final short VERSION = 1;
+
+    public static final int HEADER_SIZE = 4096;
+
+    public static final int RECORD_SIZE = 24;
+
+    public static final String FILE_PREFIX = "access-";
+
+    public static final String FILE_SUFFIX = ".bin";
+
+    public static final byte ENDPOINT_OTHER = 0;
+    public static final byte ENDPOINT_TIMESENSITIVE = 1;
+    public static final byte ENDPOINT_TIMEINSENSITIVE = 2;
+
+    static final int OFFSET_TIMESTAMP = 0;
+    static final int OFFSET_LATENCY = 8;
+    static final int OFFSET_STATUS = 12;
+    static final int OFFSET_LOCALE = 14;
+    static final int OFFSET_ENDPOINT = 16;
+    static final int OFFSET_PERIOD = 17;
+
+    private AccessLogFormat() {
+    }
+
+    /**
+     * Writes the file header into the {@code buffer} starting at its position 0.
+     *
+     * @param buffer - buffer of the file
+     * @param createdMillis - creation time of the file
+     * @param localeTags - locale dictionary
+     */
+    static void writeHeader(ByteBuffer buffer, long createdMillis, List<String> localeTags) {
+
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) RECORD_SIZE);
+        buffer.putLong(8, createdMillis);
+        buffer.putShort(16, (short) localeTags.size());
+
+        int position = 18;
+        for (String tag : localeTags) {
+            byte[] bytes = tag.getBytes(StandardCharsets.UTF_8);
+            if (position + 2 + bytes.length > HEADER_SIZE) {
+                throw new IllegalArgumentException("Locale dictionary does not fit into the access log header");
+            }
+            buffer.putShort(position, (short) bytes.length);
+            for (int i = 0; i < bytes.length; i++) {
+                buffer.put(position + 2 + i, bytes[i]);
+            }
+            position += 2 + bytes.length;
+        }
+    }
+
+    /**
+     * Reads the locale dictionary of the file header.
+     *
+     * @param buffer - buffer of the file
+     * @return language tags of the locales, index is the locale id
+     * @throws IllegalArgumentException if the buffer does not contain valid access log header
+     */
+    static List<String> readLocaleTags(ByteBuffer buffer) {
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an access log file");
+        }
+        if (buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+            throw new IllegalArgumentException("Unsupported access log version " + buffer.getShort(4));
+        }
+        int count = buffer.getShort(16);
+        List<String> tags = new ArrayList<>(count);
+        int position = 18;
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getShort(position)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = buffer.get(position + 2 + j);
+            }
+            tags.add(new String(bytes, StandardCharsets.UTF_8));
+            position += 2 + bytes.length;
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,163 @@
+package cz.trask.vaclavek.greetings.accesslog;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * Result of the {@link AccessLogAnalyzer} - counts of the requests by locale, status, endpoint and time period<br>
+ * and the latency histograms of all requests and of every locale.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class AccessLogSummary
+{
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final String[] ENDPOINT_NAMES = {"other", "timesensitive", "timeinsensitive"};
+
+    private long records;
+
+    private long firstTimestamp = Long.MAX_VALUE;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final Map<String, LatencyHistogram> localeLatencies = new TreeMap<>();
+
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    private final Map<String, Long> endpoints = new TreeMap<>();
+
+    private final Map<String, Long> periods = new TreeMap<>();
+
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return latency histograms by the language tag of the locale, the empty tag is used for the not supported locales
+     */
+    public Map<String, LatencyHistogram> getLocaleLatencies() {
+        return localeLatencies;
+    }
+
+    public Map<Integer, Long> getStatuses() {
+        return statuses;
+    }
+
+    public Map<String, Long> getEndpoints() {
+        return endpoints;
+    }
+
+    public Map<String, Long> getPeriods() {
+        return periods;
+    }
+
+    /**
+     * Adds all values of the {@code other} summary into this one.
+     */
+    public void add(AccessLogSummary other) {
+
+        records += other.records;
+        firstTimestamp = Math.min(firstTimestamp, other.firstTimestamp);
+        lastTimestamp = Math.max(lastTimestamp, other.lastTimestamp);
+        latency.add(other.latency);
+        other.localeLatencies.forEach((tag, histogram) -> localeLatencies.computeIfAbsent(tag, k -> new LatencyHistogram()).add(histogram));
+        other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        other.endpoints.forEach((endpoint, count) -> endpoints.merge(endpoint, count, Long::sum));
+        other.periods.forEach((period, count) -> periods.merge(period, count, Long::sum));
+    }
+
+    /**
+     * Adds counts of one scanned part of the file.
+     */
+    void add(long records, long firstTimestamp, long lastTimestamp, LatencyHistogram[] localeHistograms, String[] localeTags,
+             long[] statusCounts, long[] endpointCounts, long[] periodCounts) {
+
+        if (records == 0) {
+            return;
+        }
+        this.records += records;
+        this.firstTimestamp = Math.min(this.firstTimestamp, firstTimestamp);
+        this.lastTimestamp = Math.max(this.lastTimestamp, lastTimestamp);
+        for (int i = 0; i < localeHistograms.length; i++) {
+            if (localeHistograms[i].getCount() > 0) {
+                String tag = (i < localeTags.length) ? localeTags[i] : "";
+                latency.add(localeHistograms[i]);
+                localeLatencies.computeIfAbsent(tag, k -> new LatencyHistogram()).add(localeHistograms[i]);
+            }
+        }
+        for (int i = 0; i < statusCounts.length; i++) {
+            if (statusCounts[i] > 0) {
+                statuses.merge(i, statusCounts[i], Long::sum);
+            }
+        }
+        for (int i = 0; i < endpointCounts.length; i++) {
+            if (endpointCounts[i] > 0) {
+                endpoints.merge(i < ENDPOINT_NAMES.length ? ENDPOINT_NAMES[i] : ENDPOINT_NAMES[0], endpointCounts[i], Long::sum);
+            }
+        }
+        for (int i = 0; i < periodCounts.length; i++) {
+            if (periodCounts[i] > 0) {
+                periods.merge(i == 0 || i > TimePeriod.values().length ? "-" : TimePeriod.values()[i - 1].name(), periodCounts[i], Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Prints the summary in human readable form.
+     */
+    public void print(PrintStream out) {
+
+        if (records == 0) {
+            out.println("No access log records found.");
+            return;
+        }
+        out.printf("Records: %d, from %s to %s%n", records, TIME_FORMATTER.format(Instant.ofEpochMilli(firstTimestamp)),
+                   TIME_FORMATTER.format(Instant.ofEpochMilli(lastTimestamp)));
+        out.printf("Latency [us]: %s%n", format(latency));
+
+        out.println();
+        out.println("By endpoint:");
+        endpoints.forEach((endpoint, count) -> out.printf("  %-16s %12d%n", endpoint, count));
+
+        out.println();
+        out.println("By time period:");
+        periods.forEach((period, count) -> out.printf("  %-16s %12d%n", period, count));
+
+        out.println();
+        out.println("By status:");
+        statuses.forEach((status, count) -> out.printf("  %-16d %12d%n", status, count));
+
+        out.println();
+        out.println("By locale (latency [us]):");
+        localeLatencies.forEach((tag, histogram) -> out.printf("  %-16s %12d   %s%n", tag.isEmpty() ? "(unsupported)" : tag,
+                                                               histogram.getCount(), format(histogram)));
+    }
+
+    private static String format(LatencyHistogram histogram) {
+        return String.format("mean %.1f, p50 %d, p90 %d, p99 %d, p99.9 %d, max %d", histogram.getMean(), histogram.getPercentile(50),
+                             histogram.getPercentile(90), histogram.getPercentile(99), histogram.getPercentile(99.9), histogram.getMax());
+    }
+}
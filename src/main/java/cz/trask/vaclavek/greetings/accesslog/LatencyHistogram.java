@@ -0,0 +1,110 @@
+package cz.trask.vaclavek.greetings.accesslog;
+
+/**
+ * Simple not thread-safe histogram of the latencies in microseconds used by the offline analyzers.
+ * <p>
+ * Values under 64 are counted exactly, bigger values in the log-linear buckets of 32 sub-buckets<br>
+ * per power of two, i.e. with max. 3% relative error. Histograms of the analyzed parts are merged by {@link #add(LatencyHistogram)}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class LatencyHistogram
+{
+    private static final int LINEAR_BUCKETS = 64;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = LINEAR_BUCKETS + (Long.SIZE - 6) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+
+    private long count;
+
+    private long sum;
+
+    private long max;
+
+
+    /**
+     * @param micros - recorded latency in microseconds, negative values are counted as 0
+     */
+    public void record(long micros) {
+
+        long value = Math.max(micros, 0);
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds all values of the {@code other} histogram into this one.
+     */
+    public void add(LatencyHistogram other) {
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile - percentile in 0 - 100 range
+     * @return upper bound of the bucket containing the percentile, 0 if the histogram is empty
+     */
+    public long getPercentile(double percentile) {
+
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int bucket(long value) {
+
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 6) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int bucket) {
+
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 6;
+        long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
@@ -0,0 +1,353 @@
+package cz.trask.vaclavek.greetings.accesslog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access log writing fixed-size binary records (see {@link AccessLogFormat}) into the rolling memory-mapped files.
+ * <p>
+ * Writing is lock-free: every thread claims a chunk of {@code chunkRecords} records of the current file by one atomic<br>
+ * add and writes its records into the chunk without any synchronization. When the file is full, new file is created<br>
+ * (this is the only synchronized operation) and the oldest files over {@code maxFiles} are deleted.<br>
+ * Unused rest of the chunks stays zero-filled and it is skipped by the {@link AccessLogAnalyzer}.
+ * <p>
+ * Chunk of the thread belongs to the file it was claimed from. The chunk of the file, which is not the current one<br>
+ * anymore, is discarded and new chunk of the current file is claimed, so no records are written into the rolled<br>
+ * or deleted files. The rolled file is flushed and unmapped as soon as the last thread writing its record into it<br>
+ * leaves the file, so the address space of the old files is released without waiting for the garbage collector.
+ * <p>
+ * The records are written into the page cache only, the files are flushed by the operating system,<br>
+ * by the roll and by the {@link #close()}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class MappedAccessLog implements Closeable
+{
+    private static final Logger Log = LoggerFactory.getLogger(MappedAccessLog.class);
+
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // ****** INSTANCE FIELDS ******
+
+    private final Path directory;
+
+    private final int fileRecords;
+
+    private final int chunkRecords;
+
+    private final int maxFiles;
+
+    private final List<String> localeTags;
+
+    private final AtomicInteger fileSequence = new AtomicInteger();
+
+    private final ThreadLocal<Chunk> chunks = new ThreadLocal<>();
+
+    private volatile Segment current;
+
+    private volatile boolean closed;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * Creates the access log and its first file.
+     *
+     * @param directory - directory of the access log files, created if it does not exist
+     * @param fileSize - max. size of one file in bytes
+     * @param chunkRecords - number of records claimed by the thread at once
+     * @param maxFiles - max. number of kept files, older files are deleted
+     * @param localeTags - locale dictionary, language tags of the locales identified by their index in the records
+     * @throws UncheckedIOException if the file can not be created
+     */
+    public MappedAccessLog(Path directory, long fileSize, int chunkRecords, int maxFiles, List<String> localeTags) {
+
+        if (chunkRecords <= 0 || maxFiles <= 0) {
+            throw new IllegalArgumentException("chunkRecords and maxFiles must be positive");
+        }
+        long records = (fileSize - AccessLogFormat.HEADER_SIZE) / AccessLogFormat.RECORD_SIZE;
+        if (records < chunkRecords || fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("fileSize must be in range for at least one chunk and under 2 GB");
+        }
+        this.directory = directory;
+        this.chunkRecords = chunkRecords;
+        this.fileRecords = (int) (records - records % chunkRecords);
+        this.maxFiles = maxFiles;
+        this.localeTags = Collections.unmodifiableList(new ArrayList<>(localeTags));
+        try {
+            Files.createDirectories(directory);
+            this.current = createSegment();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Appends one record into the log.
+     *
+     * @param timestampMillis - time of the request in epoch milliseconds
+     * @param latencyMicros - latency of the request in microseconds
+     * @param status - HTTP status of the response
+     * @param localeId - index of the locale in the locale dictionary
+     * @param endpoint - endpoint of the request, see {@link AccessLogFormat}
+     * @param period - time period ordinal + 1, 0 if not evaluated
+     */
+    public void append(long timestampMillis, int latencyMicros, int status, int localeId, byte endpoint, byte period) {
+
+        while (!closed) {
+            Chunk chunk = chunks.get();
+            // generation check, the chunk of the rolled file is discarded
+            if (chunk == null || chunk.segment != current || chunk.buffer.remaining() < AccessLogFormat.RECORD_SIZE) {
+                chunk = claimChunk();
+                if (chunk == null) {
+                    return;
+                }
+                chunks.set(chunk);
+            }
+            Segment segment = chunk.segment;
+            segment.writers.incrementAndGet();
+            try {
+                if (segment.retired) {
+                    // rolled after the check, its buffer can be unmapped already
+                    chunks.remove();
+                    continue;
+                }
+                ByteBuffer buffer = chunk.buffer;
+                int position = buffer.position();
+                buffer.putInt(position + AccessLogFormat.OFFSET_LATENCY, latencyMicros);
+                buffer.putShort(position + AccessLogFormat.OFFSET_STATUS, (short) status);
+                buffer.putShort(position + AccessLogFormat.OFFSET_LOCALE, (short) localeId);
+                buffer.put(position + AccessLogFormat.OFFSET_ENDPOINT, endpoint);
+                buffer.put(position + AccessLogFormat.OFFSET_PERIOD, period);
+                // timestamp is written as the last one, non-zero timestamp marks the complete record
+                buffer.putLong(position + AccessLogFormat.OFFSET_TIMESTAMP, timestampMillis);
+                // cast keeps the binary compatible with Java 8, where ByteBuffer does not override position(int)
+                ((Buffer) buffer).position(position + AccessLogFormat.RECORD_SIZE);
+                return;
+            } finally {
+                if (segment.writers.decrementAndGet() == 0 && segment.retired) {
+                    release(segment);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return locale dictionary of the log
+     */
+    public List<String> getLocaleTags() {
+        return localeTags;
+    }
+
+    /**
+     * @return file currently being written
+     */
+    public Path getCurrentFile() {
+        return current.file;
+    }
+
+    /**
+     * Flushes the current file to the disk and unmaps it. Records appended after the close are dropped.
+     */
+    @Override
+    public synchronized void close() {
+
+        if (closed && current.retired) {
+            return;
+        }
+        closed = true;
+        retire(current);
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    private Chunk claimChunk() {
+
+        while (!closed) {
+            Segment segment = current;
+            int start = segment.nextRecord.getAndAdd(chunkRecords);
+            if (start + chunkRecords <= fileRecords) {
+                ByteBuffer chunk = segment.buffer.duplicate();
+                int offset = AccessLogFormat.HEADER_SIZE + start * AccessLogFormat.RECORD_SIZE;
+                ((Buffer) chunk).position(offset);
+                ((Buffer) chunk).limit(offset + chunkRecords * AccessLogFormat.RECORD_SIZE);
+                return new Chunk(segment, chunk.slice());
+            }
+            try {
+                roll(segment);
+            } catch (IOException ex) {
+                Log.error("Failed to create new access log file, access log is closed.", ex);
+                closed = true;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void roll(Segment full) throws IOException {
+
+        if (current != full || closed) {
+            return;
+        }
+        current = createSegment();
+        retire(full);
+        deleteOldFiles();
+    }
+
+    /**
+     * Marks the segment as retired, it is released now or by the last thread still writing into it.
+     */
+    private static void retire(Segment segment) {
+
+        segment.retired = true;
+        if (segment.writers.get() == 0) {
+            release(segment);
+        }
+    }
+
+    /**
+     * Flushes and unmaps the retired segment, only once.
+     */
+    private static void release(Segment segment) {
+
+        if (segment.released.compareAndSet(false, true)) {
+            segment.buffer.force();
+            unmap(segment.buffer);
+        }
+    }
+
+    /**
+     * Unmaps the buffer by its cleaner, {@code Unsafe.invokeCleaner} of Java 9+ or {@code DirectBuffer.cleaner()} of Java 8.<br>
+     * If the cleaner is not accessible, the buffer is unmapped by the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException ex) {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            Log.debug("Access log file is left to be unmapped by the garbage collector: {}", ex.toString());
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+
+        long now = System.currentTimeMillis();
+        String name = AccessLogFormat.FILE_PREFIX + LocalDateTime.now().format(FILE_NAME_FORMATTER)
+                      + String.format("-%04d", fileSequence.getAndIncrement() % 10000) + AccessLogFormat.FILE_SUFFIX;
+        Path file = directory.resolve(name);
+        long size = AccessLogFormat.HEADER_SIZE + (long) fileRecords * AccessLogFormat.RECORD_SIZE;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            AccessLogFormat.writeHeader(buffer, now, localeTags);
+            Log.info("New access log file {} created.", file);
+            return new Segment(file, buffer);
+        }
+    }
+
+    private void deleteOldFiles() throws IOException {
+
+        List<Path> files = listFiles(directory);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            try {
+                Files.delete(files.get(i));
+            } catch (IOException ex) {
+                Log.warn("Failed to delete old access log file {}: {}", files.get(i), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lists access log files of the {@code directory} ordered from the oldest one.
+     *
+     * @param directory - directory of the access log
+     * @return access log files sorted by name i.e. by creation time
+     * @throws IOException if the directory can not be read
+     */
+    static List<Path> listFiles(Path directory) throws IOException {
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, AccessLogFormat.FILE_PREFIX + "*" + AccessLogFormat.FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * One mapped file of the log
+     */
+    private static final class Segment
+    {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger nextRecord = new AtomicInteger();
+
+        /**
+         * Number of the threads writing their record into the segment right now
+         */
+        private final AtomicInteger writers = new AtomicInteger();
+
+        /**
+         * True if the segment is not the current one anymore, no new records are written into it
+         */
+        private volatile boolean retired;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Records of the segment claimed by one thread
+     */
+    private static final class Chunk
+    {
+        private final Segment segment;
+        private final ByteBuffer buffer;
+
+        private Chunk(Segment segment, ByteBuffer buffer) {
+            this.segment = segment;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package cz.trask.vaclavek.greetings.admin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import cz.trask.vaclavek.greetings.errors.ApiErrorTemplates;
+
+/**
+ * Servlet filter authenticating the requests of the admin API by the bearer token.
+ * <p>
+ * Requests without the {@code Authorization: Bearer <token>} header with the configured token are rejected<br>
+ * with the 401 error response. Tokens are compared in constant time.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class AdminTokenFilter extends OncePerRequestFilter
+{
+    private static final Logger Log = LoggerFactory.getLogger(AdminTokenFilter.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    public static final String UNAUTHORIZED_MESSAGE = "Missing or invalid admin token.";
+
+    private final byte[] token;
+
+    private final ApiErrorTemplates apiErrorTemplates;
+
+    /**
+     * @param token - token of the admin API clients
+     * @param apiErrorTemplates - renderer of the error response
+     */
+    public AdminTokenFilter(String token, ApiErrorTemplates apiErrorTemplates) {
+        super();
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.apiErrorTemplates = apiErrorTemplates;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)
+                && MessageDigest.isEqual(token, authorization.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Log.warn("Unauthorized admin API request {} {} from {}", request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+        byte[] body = apiErrorTemplates.render(HttpStatus.UNAUTHORIZED, UNAUTHORIZED_MESSAGE, "");
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
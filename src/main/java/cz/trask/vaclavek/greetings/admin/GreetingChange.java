@@ -0,0 +1,62 @@
+package cz.trask.vaclavek.greetings.admin;
+
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+
+/**
+ * One change of the admin API batch: upsert or delete of the greeting of one locale and {@link GreetingKey}.
+ * <p>
+ * Example: {@code {"lang": "cs", "key": "MORNING", "text": "Dobré jitro", "expectedVersion": 1}}<br>
+ * {@code expectedVersion} is the version of the greeting returned by the admin API, 0 for a new greeting.<br>
+ * {@code "delete": true} deletes the greeting, the text is not used then.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingChange
+{
+    private String lang;
+    private GreetingKey key;
+    private String text;
+    private boolean delete;
+    private long expectedVersion;
+
+    public String getLang() {
+        return lang;
+    }
+
+    public void setLang(String lang) {
+        this.lang = lang;
+    }
+
+    public GreetingKey getKey() {
+        return key;
+    }
+
+    public void setKey(GreetingKey key) {
+        this.key = key;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public boolean isDelete() {
+        return delete;
+    }
+
+    public void setDelete(boolean delete) {
+        this.delete = delete;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public void setExpectedVersion(long expectedVersion) {
+        this.expectedVersion = expectedVersion;
+    }
+}
@@ -0,0 +1,40 @@
+package cz.trask.vaclavek.greetings.admin;
+
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+
+/**
+ * Greeting of one locale returned by the admin API, with its version needed to change it.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingVersion
+{
+    private final String lang;
+    private final GreetingKey key;
+    private final String text;
+    private final long version;
+
+    public GreetingVersion(String lang, GreetingKey key, String text, long version) {
+        this.lang = lang;
+        this.key = key;
+        this.text = text;
+        this.version = version;
+    }
+
+    public String getLang() {
+        return lang;
+    }
+
+    public GreetingKey getKey() {
+        return key;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,127 @@
+package cz.trask.vaclavek.greetings.allocation;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.sun.management.ThreadMXBean;
+
+import cz.trask.vaclavek.greetings.errors.RestExceptionHandler;
+import cz.trask.vaclavek.greetings.warmup.WarmupRequestFilter;
+
+/**
+ * Servlet filter measuring the bytes allocated by every request.
+ * <p>
+ * Allocated bytes of the request thread are read by {@link ThreadMXBean#getThreadAllocatedBytes(long)} before<br>
+ * and after the rest of the filter chain and the difference is recorded into the {@link AllocationStatistics}<br>
+ * by the request path and the {@link RequestOutcome}. The outcome is reported by the {@link RestExceptionHandler}<br>
+ * and by the fast path using {@link #recordOutcome(RequestOutcome)}, other requests are {@link RequestOutcome#OK}<br>
+ * or {@link RequestOutcome#OTHER_ERROR} by the response status.
+ * <p>
+ * Only the allocations of the request thread are measured, the asynchronously processed part of the requests<br>
+ * (Server-Sent Events) is not counted. If the JVM does not support the measurement, the filter does nothing.<br>
+ * Startup warm-up requests tagged by the {@link WarmupRequestFilter} are not measured.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class AllocationAccountingFilter extends OncePerRequestFilter
+{
+    private static final Logger Log = LoggerFactory.getLogger(AllocationAccountingFilter.class);
+
+    /**
+     * Outcome of the request in progress, reused by all requests of the thread
+     */
+    private static final ThreadLocal<RequestData> CURRENT_REQUEST = ThreadLocal.withInitial(RequestData::new);
+
+    private final AllocationStatistics statistics;
+
+    private final ThreadMXBean threadBean;
+
+
+    /**
+     * @param statistics - statistics the allocated bytes are recorded into
+     */
+    public AllocationAccountingFilter(AllocationStatistics statistics) {
+        super();
+        this.statistics = statistics;
+        this.threadBean = supportedThreadBean();
+    }
+
+    /**
+     * Reports the outcome of the current request. Does nothing if the filter is not active.
+     *
+     * @param outcome - outcome of the request
+     */
+    public static void recordOutcome(RequestOutcome outcome) {
+
+        RequestData data = CURRENT_REQUEST.get();
+        if (data.active) {
+            data.outcome = outcome;
+        }
+    }
+
+    /**
+     * @return true if the allocated bytes are measured
+     */
+    public boolean isSupported() {
+        return threadBean != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        if (threadBean == null || WarmupRequestFilter.isWarmupRequest(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long threadId = Thread.currentThread().getId();
+        RequestData data = CURRENT_REQUEST.get();
+        data.active = true;
+        data.outcome = null;
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+            RequestOutcome outcome = data.outcome;
+            if (outcome == null) {
+                outcome = (response.getStatus() < 400) ? RequestOutcome.OK : RequestOutcome.OTHER_ERROR;
+            }
+            data.active = false;
+            statistics.record(request.getRequestURI().substring(request.getContextPath().length()), outcome, bytes);
+        }
+    }
+
+    /**
+     * @return thread bean measuring the allocated bytes, or null if the JVM does not support it
+     */
+    private static ThreadMXBean supportedThreadBean() {
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof ThreadMXBean) || !((ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            Log.warn("Allocated bytes of the threads are not measured by this JVM, allocation accounting switched off.");
+            return null;
+        }
+        ThreadMXBean threadBean = (ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threadBean;
+    }
+
+    private static final class RequestData
+    {
+        private boolean active;
+        private RequestOutcome outcome;
+    }
+}
@@ -0,0 +1,47 @@
+package cz.trask.vaclavek.greetings.allocation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Admin endpoint exposing the bytes allocated by the requests measured by the {@link AllocationAccountingFilter}.
+ * <p>
+ * <ul>
+ *   <li>{@code GET /actuator/allocations} - returns count, mean, max. and total bytes by the endpoint and outcome</li>
+ *   <li>{@code DELETE /actuator/allocations} - clears the statistics</li>
+ * </ul>
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Endpoint(id = "allocations")
+public class AllocationEndpoint
+{
+    private final AllocationAccountingFilter filter;
+
+    private final AllocationStatistics statistics;
+
+    public AllocationEndpoint(AllocationAccountingFilter filter, AllocationStatistics statistics) {
+        super();
+        this.filter = filter;
+        this.statistics = statistics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> allocations() {
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("supported", filter.isSupported());
+        result.put("endpoints", statistics.getSummary());
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statistics.reset();
+    }
+}
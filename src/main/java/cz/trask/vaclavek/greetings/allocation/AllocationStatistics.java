@@ -0,0 +1,142 @@
+package cz.trask.vaclavek.greetings.allocation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes allocated by the requests, aggregated by the endpoint and the {@link RequestOutcome}.
+ * <p>
+ * At most {@code maxEndpoints} endpoints are aggregated separately, requests of the other paths are aggregated<br>
+ * as the {@link #OTHER_ENDPOINT}, so the statistics cannot be flooded by the requests of random paths.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class AllocationStatistics
+{
+    /**
+     * Endpoint of the requests over the {@code maxEndpoints} limit
+     */
+    public static final String OTHER_ENDPOINT = "other";
+
+    private static final RequestOutcome[] OUTCOMES = RequestOutcome.values();
+
+    private final int maxEndpoints;
+
+    /**
+     * Counters of the endpoint indexed by the {@link RequestOutcome} ordinal
+     */
+    private final ConcurrentMap<String, Counters[]> endpoints = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param maxEndpoints - max. number of the endpoints aggregated separately
+     */
+    public AllocationStatistics(int maxEndpoints) {
+        super();
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    /**
+     * Adds the bytes allocated by one request.
+     *
+     * @param endpoint - path of the request
+     * @param outcome - outcome of the request
+     * @param bytes - bytes allocated by the request
+     */
+    public void record(String endpoint, RequestOutcome outcome, long bytes) {
+
+        Counters[] counters = endpoints.get(endpoint);
+        if (counters == null) {
+            String key = (endpoints.size() < maxEndpoints) ? endpoint : OTHER_ENDPOINT;
+            counters = endpoints.computeIfAbsent(key, e -> newCounters());
+        }
+        counters[outcome.ordinal()].add(bytes);
+    }
+
+    /**
+     * @param endpoint - path of the requests
+     * @param outcome - outcome of the requests
+     * @return mean bytes allocated by one request, or 0 if there is no such request
+     */
+    public long getMeanBytes(String endpoint, RequestOutcome outcome) {
+
+        Counters[] counters = endpoints.get(endpoint);
+        return (counters == null) ? 0 : counters[outcome.ordinal()].getMeanBytes();
+    }
+
+    /**
+     * @param endpoint - path of the requests
+     * @param outcome - outcome of the requests
+     * @return number of the recorded requests
+     */
+    public long getCount(String endpoint, RequestOutcome outcome) {
+
+        Counters[] counters = endpoints.get(endpoint);
+        return (counters == null) ? 0 : counters[outcome.ordinal()].count.sum();
+    }
+
+    /**
+     * @return count, mean, max. and total allocated bytes keyed by the endpoint and outcome, outcomes without requests are omitted
+     */
+    public Map<String, Map<String, Map<String, Long>>> getSummary() {
+
+        Map<String, Map<String, Map<String, Long>>> summary = new TreeMap<>();
+        endpoints.forEach((endpoint, counters) -> {
+            Map<String, Map<String, Long>> outcomes = new LinkedHashMap<>();
+            for (RequestOutcome outcome : OUTCOMES) {
+                Counters outcomeCounters = counters[outcome.ordinal()];
+                long count = outcomeCounters.count.sum();
+                if (count > 0) {
+                    Map<String, Long> values = new LinkedHashMap<>();
+                    values.put("count", count);
+                    values.put("meanBytes", outcomeCounters.getMeanBytes());
+                    values.put("maxBytes", outcomeCounters.maxBytes.get());
+                    values.put("totalBytes", outcomeCounters.totalBytes.sum());
+                    outcomes.put(outcome.name(), values);
+                }
+            }
+            summary.put(endpoint, outcomes);
+        });
+        return summary;
+    }
+
+    /**
+     * Clears all the statistics.
+     */
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private static Counters[] newCounters() {
+
+        Counters[] counters = new Counters[OUTCOMES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Counters();
+        }
+        return counters;
+    }
+
+    private static final class Counters
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalBytes = new LongAdder();
+        private final LongAccumulator maxBytes = new LongAccumulator(Math::max, 0);
+
+        private void add(long bytes) {
+            count.increment();
+            totalBytes.add(bytes);
+            maxBytes.accumulate(bytes);
+        }
+
+        private long getMeanBytes() {
+            long requests = count.sum();
+            return (requests == 0) ? 0 : totalBytes.sum() / requests;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package cz.trask.vaclavek.greetings.allocation;
+
+import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+
+/**
+ * Outcome of the request the allocated bytes are aggregated by.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public enum RequestOutcome
+{
+    /**
+     * Request served successfully
+     */
+    OK,
+    /**
+     * Request rejected by the {@link InvalidParameterException}
+     */
+    INVALID_PARAMETER,
+    /**
+     * Request rejected by the {@link LanguageNotSupportedException}
+     */
+    LANGUAGE_NOT_SUPPORTED,
+    /**
+     * Any other error response
+     */
+    OTHER_ERROR
+}
@@ -0,0 +1,217 @@
+package cz.trask.vaclavek.greetings.cache;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.tracing.PipelineStage;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
+
+/**
+ * {@link GreetingsService} caching the greetings of the delegate in the {@link TinyLfuCache}.
+ * <p>
+ * Greetings are cached by the {@link GreetingKey}, the catalog locale supplying the greeting of the requested locale<br>
+ * ({@link GreetingsService#getCatalogLocale(Locale)}) and the holiday greeting of the user's date replacing the time<br>
+ * sensitive greeting, if there is any. Requested locales with arbitrary country and variant suffixes and arbitrary<br>
+ * user's dates thus share the entries of the same greeting text. The weight of the entry is its estimated size in bytes. Not supported languages ({@link LanguageNotSupportedException}) are not cached, the variants<br>
+ * are selected per request, so they are always served by the delegate.
+ * <p>
+ * The catalog version of the delegate is checked every {@code checkIntervalMillis} and the cache is cleared<br>
+ * when it changes, so the changed greetings (and the holiday greetings of the new day) are served at the latest<br>
+ * after that interval.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class CachingGreetingsService implements GreetingsService
+{
+    /**
+     * Estimated size of the cache entry without the greeting characters: key, node, map entry and string headers
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    /**
+     * Expected length of the greeting, sizes the frequency sketch of the cache
+     */
+    private static final int EXPECTED_GREETING_LENGTH = 16;
+
+    private final GreetingsService delegate;
+
+    private final TinyLfuCache<CacheKey, String> cache;
+
+    private final long checkIntervalMillis;
+
+    private volatile long nextCheckMillis;
+
+    private volatile String catalogVersion;
+
+
+    /**
+     * @param delegate - service of the greetings
+     * @param maximumBytes - max. estimated size of the cached greetings in bytes
+     * @param checkIntervalMillis - interval of the catalog version checks
+     */
+    public CachingGreetingsService(GreetingsService delegate, long maximumBytes, long checkIntervalMillis) {
+        super();
+        this.delegate = delegate;
+        this.cache = new TinyLfuCache<>(maximumBytes, ENTRY_OVERHEAD_BYTES + 2 * EXPECTED_GREETING_LENGTH,
+                                        (key, greeting) -> ENTRY_OVERHEAD_BYTES + 2 * greeting.length());
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.catalogVersion = delegate.getCatalogVersion();
+        this.nextCheckMillis = System.currentTimeMillis() + checkIntervalMillis;
+    }
+
+    public GreetingsService getDelegate() {
+        return delegate;
+    }
+
+    public TinyLfuCache<?, ?> getCache() {
+        return cache;
+    }
+
+    @Override
+    public String getTimeInsensitiveGreeting(Locale locale) {
+        return getGreeting(GreetingKey.TIME_INSENSITIVE, null, locale, null);
+    }
+
+    @Override
+    public String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale) {
+        return getGreeting(GreetingKey.of(timePeriod), timePeriod, locale, null);
+    }
+
+    @Override
+    public String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale, LocalDate usersDate) {
+        return getGreeting(GreetingKey.of(timePeriod), timePeriod, locale, usersDate);
+    }
+
+    @Override
+    public GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId) {
+        return delegate.getTimeSensitiveVariant(timePeriod, locale, clientId);
+    }
+
+    @Override
+    public GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId, LocalDate usersDate) {
+        return delegate.getTimeSensitiveVariant(timePeriod, locale, clientId, usersDate);
+    }
+
+    @Override
+    public GreetingVariant getTimeInsensitiveVariant(Locale locale, String clientId) {
+        return delegate.getTimeInsensitiveVariant(locale, clientId);
+    }
+
+    @Override
+    public boolean hasVariants(GreetingKey key, Locale locale) {
+        return delegate.hasVariants(key, locale);
+    }
+
+    @Override
+    public String getVariantsDefinition(GreetingKey key, Locale locale) {
+        return delegate.getVariantsDefinition(key, locale);
+    }
+
+    @Override
+    public Set<Locale> getCatalogLocales() {
+        return delegate.getCatalogLocales();
+    }
+
+    @Override
+    public String getCatalogVersion() {
+        return delegate.getCatalogVersion();
+    }
+
+    @Override
+    public Locale getCatalogLocale(Locale locale) {
+        return delegate.getCatalogLocale(locale);
+    }
+
+    @Override
+    public String getHolidayGreeting(Locale locale, LocalDate usersDate) {
+        return delegate.getHolidayGreeting(locale, usersDate);
+    }
+
+    /**
+     * @param timePeriod - time period of the time sensitive greeting, null for the time insensitive greeting
+     * @param usersDate - user's date of the time sensitive greeting, null for the current date of the server
+     */
+    private String getGreeting(GreetingKey key, TimePeriod timePeriod, Locale locale, LocalDate usersDate) {
+
+        checkCatalogVersion();
+        String holidayGreeting = (timePeriod == null) ? null : delegate.getHolidayGreeting(locale, usersDate);
+        CacheKey cacheKey = new CacheKey(key, delegate.getCatalogLocale(locale), holidayGreeting);
+
+        long traceStart = StageTracer.start();
+        String greeting = cache.get(cacheKey);
+        if (greeting != null) {
+            StageTracer.stop(PipelineStage.GREETING_LOOKUP, traceStart);
+            return greeting;
+        }
+
+        long invalidations = cache.getInvalidations();
+        if (timePeriod == null) {
+            greeting = delegate.getTimeInsensitiveGreeting(locale);
+        } else {
+            greeting = (usersDate == null) ? delegate.getTimeSensitiveGreeting(timePeriod, locale)
+                                           : delegate.getTimeSensitiveGreeting(timePeriod, locale, usersDate);
+        }
+        cache.put(cacheKey, greeting, invalidations);
+        return greeting;
+    }
+
+    private void checkCatalogVersion() {
+
+        long now = System.currentTimeMillis();
+        if (now < nextCheckMillis) {
+            return;
+        }
+        nextCheckMillis = now + checkIntervalMillis;
+        String version = delegate.getCatalogVersion();
+        if (!version.equals(catalogVersion)) {
+            catalogVersion = version;
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Key of the cached greeting
+     */
+    private static final class CacheKey
+    {
+        private final GreetingKey key;
+        private final Locale locale;
+        private final String holidayGreeting;
+
+        /**
+         * @param locale - catalog locale supplying the greeting
+         * @param holidayGreeting - holiday greeting replacing the greeting, null if there is none
+         */
+        private CacheKey(GreetingKey key, Locale locale, String holidayGreeting) {
+            this.key = key;
+            this.locale = locale;
+            this.holidayGreeting = holidayGreeting;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * key.ordinal() + locale.hashCode()) + ((holidayGreeting == null) ? 0 : holidayGreeting.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return key == other.key && locale.equals(other.locale) && Objects.equals(holidayGreeting, other.holidayGreeting);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cz.trask.vaclavek.greetings.cache;
+
+/**
+ * Count-min sketch estimating the access frequency of the keys in the recent history, used by the {@link TinyLfuCache}.
+ * <p>
+ * Every key is counted by 4 of the 4-bit counters (max. 15), each in a different {@code long} of the table selected by<br>
+ * a different hash of the key; the estimate is the minimum of them. Counters are packed 16 into one {@code long},<br>
+ * so the sketch of {@code n} keys occupies {@code n * 8} bytes. The table is sized once, by the expected maximum number<br>
+ * of the cached entries, so the counters are never lost by growing it.
+ * <p>
+ * Aging: when the number of the increments reaches 10 times the table size, all counters are halved, so the keys<br>
+ * popular in the past are forgotten and the sketch follows the recent traffic.
+ * <p>
+ * Not thread-safe, the cache calls it under its lock.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class FrequencySketch
+{
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    /**
+     * Number of the increments, when reached the counters are halved
+     */
+    private final int sampleSize;
+
+    private int size;
+
+    private long resets;
+
+
+    /**
+     * @param maximumSize - expected max. number of the cached keys, the table holds at least 16 of them
+     */
+    public FrequencySketch(long maximumSize) {
+        super();
+        int maximum = (int) Math.min(Math.max(maximumSize, 16), 1 << 26);
+        this.table = new long[Integer.highestOneBit(maximum - 1) << 1];
+        this.tableMask = table.length - 1;
+        this.sampleSize = 10 * table.length;
+    }
+
+    /**
+     * @return estimated number of the recent accesses of the key, 0 to 15
+     */
+    public int frequency(Object key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records one access of the key, halves all counters if the sample size is reached.
+     */
+    public void increment(Object key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @return number of the agings since the creation
+     */
+    public long getResets() {
+        return resets;
+    }
+
+    /**
+     * Increments the counter {@code counter} (0 - 15) of the table item {@code index}, if it is not at its maximum.
+     */
+    private boolean incrementAt(int index, int counter) {
+
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves all counters, the odd counters lose their remainder, which is subtracted from the size.
+     */
+    private void reset() {
+
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+        resets++;
+    }
+
+    private int indexOf(int hash, int i) {
+
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += (h >>> 32);
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int hash) {
+
+        int h = hash;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+}
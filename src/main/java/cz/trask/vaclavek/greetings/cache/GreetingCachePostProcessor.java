@@ -0,0 +1,46 @@
+package cz.trask.vaclavek.greetings.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+
+/**
+ * Puts the {@link CachingGreetingsService} in front of the {@link GreetingsService} bean, whichever catalog it reads.
+ * <p>
+ * All users of the service (the controllers, the fast path filter, the static export) are injected with the caching one.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingCachePostProcessor implements BeanPostProcessor
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingCachePostProcessor.class);
+
+    private final long maximumBytes;
+
+    private final long checkIntervalMillis;
+
+
+    /**
+     * @param maximumBytes - max. estimated size of the cached greetings in bytes
+     * @param checkIntervalMillis - interval of the catalog version checks
+     */
+    public GreetingCachePostProcessor(long maximumBytes, long checkIntervalMillis) {
+        super();
+        this.maximumBytes = maximumBytes;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+
+        if (!(bean instanceof GreetingsService) || bean instanceof CachingGreetingsService) {
+            return bean;
+        }
+        Log.info("Greetings of the '{}' are cached, max. {} bytes", beanName, maximumBytes);
+        return new CachingGreetingsService((GreetingsService) bean, maximumBytes, checkIntervalMillis);
+    }
+}
@@ -0,0 +1,565 @@
+package cz.trask.vaclavek.greetings.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Bounded cache with the W-TinyLFU admission, limited by the total weight of its entries.
+ * <p>
+ * New entries enter the small LRU <i>window</i> (1 % of the maximum weight). Entries leaving the window are candidates<br>
+ * of the <i>main</i> region, which is the segmented LRU: the entry is admitted into its <i>probation</i> segment only if<br>
+ * its access frequency estimated by the {@link FrequencySketch} is higher than the frequency of the probation entry<br>
+ * which would be evicted for it; otherwise the candidate itself is evicted. Entries accessed again in the probation<br>
+ * segment are promoted to the <i>protected</i> segment (80 % of the main region), the least recently used protected<br>
+ * entries are demoted back to the probation segment.
+ * <p>
+ * So a scan of many keys accessed once (for example random {@code lang} values) passes through the window only<br>
+ * and does not evict the frequently used entries, unlike the plain LRU cache. The window keeps the new entries<br>
+ * until their frequency can be judged, so the recency bursts are still served.
+ * <p>
+ * Thread-safe. The gets do not lock: the entries are read from the concurrent map and the accesses are recorded<br>
+ * into the striped read buffers, which are drained into the sketch and the queues under the lock of the cache<br>
+ * by the thread filling the buffer (if it gets the lock by {@code tryLock}) or by the next write. The buffers are lossy,<br>
+ * the accesses recorded into a full buffer are dropped, so the frequencies and the recency are sampled under the high<br>
+ * contention, which is enough for the admission. The writes hold the lock, the statistics can be read without it.
+ *
+ * @param <K> - type of the keys
+ * @param <V> - type of the values
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class TinyLfuCache<K, V>
+{
+    private static final int WINDOW_PERCENT = 1;
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    /**
+     * Number of the read buffers, the threads are spread over them by their ids
+     */
+    private static final int READ_BUFFERS = ceilingPowerOfTwo(Math.min(Runtime.getRuntime().availableProcessors(), 64));
+
+    private static final int READ_BUFFER_SIZE = 16;
+
+    /**
+     * Number of the recorded accesses of a read buffer, when the recording thread tries to drain the buffers
+     */
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    // ****** INSTANCE FIELDS ******
+
+    private final long maximumWeight;
+
+    private final long windowMaximum;
+
+    private final long mainMaximum;
+
+    private final long protectedMaximum;
+
+    private final ToIntBiFunction<K, V> weigher;
+
+    private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+    /**
+     * Accessed nodes of the hits and keys of the misses, not applied to the sketch and the queues yet
+     */
+    private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFERS];
+
+    private final Consumer<Object> accessRecorder = this::recordAccess;
+
+    /**
+     * Lock of the sketch, the queues and the weights
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final FrequencySketch sketch;
+
+    /*
+     * Queues of the regions, the head is the least recently used entry
+     */
+    private final Node<K, V> window = Node.sentinel();
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protectedQueue = Node.sentinel();
+
+    private long windowWeight;
+
+    private long probationWeight;
+
+    private long protectedWeight;
+
+    private volatile long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedWeight = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * Cache of the entries weighing 1 in average, for example of the unit weights counting the entries.
+     *
+     * @param maximumWeight - max. total weight of the entries
+     * @param weigher - weight of the entry
+     */
+    public TinyLfuCache(long maximumWeight, ToIntBiFunction<K, V> weigher) {
+        this(maximumWeight, 1, weigher);
+    }
+
+    /**
+     * The frequency sketch is sized once for the {@code maximumWeight / expectedEntryWeight} entries.
+     *
+     * @param maximumWeight - max. total weight of the entries
+     * @param expectedEntryWeight - expected average weight of the entry
+     * @param weigher - weight of the entry, for example its estimated size in bytes
+     */
+    public TinyLfuCache(long maximumWeight, int expectedEntryWeight, ToIntBiFunction<K, V> weigher) {
+        super();
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+        }
+        if (expectedEntryWeight <= 0) {
+            throw new IllegalArgumentException("Expected entry weight must be positive: " + expectedEntryWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        this.mainMaximum = maximumWeight - windowMaximum;
+        this.protectedMaximum = mainMaximum * PROTECTED_PERCENT / 100;
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(maximumWeight / expectedEntryWeight);
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Returns the cached value and records the access of the key, also if it is not cached.<br>
+     * Does not wait for the lock, the access is applied later.
+     *
+     * @param key - key of the value
+     * @return cached value or null
+     */
+    public V get(K key) {
+
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            afterRead(key);
+            return null;
+        }
+        hits.increment();
+        V value = node.value;
+        afterRead(node);
+        return value;
+    }
+
+    /**
+     * Caches the value, the entries over the maximum weight are evicted.
+     *
+     * @param key - key of the value
+     * @param value - the value
+     */
+    public void put(K key, V value) {
+        put(key, value, getInvalidations());
+    }
+
+    /**
+     * Caches the value, unless the cache was invalidated since the value was read from its source.
+     *
+     * @param key - key of the value
+     * @param value - the value
+     * @param invalidations - {@link #getInvalidations()} before the value was read from its source
+     */
+    public void put(K key, V value, long invalidations) {
+
+        int weight = weigher.applyAsInt(key, value);
+        lock.lock();
+        try {
+            drainReadBuffers();
+            if (invalidations != this.invalidations) {
+                return;
+            }
+            if (weight > maximumWeight) {
+                rejections.increment();
+                return;
+            }
+            putLocked(key, value, weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries, the access frequencies are kept.
+     */
+    public void invalidateAll() {
+
+        lock.lock();
+        try {
+            drainReadBuffers();
+            data.clear();
+            clear(window);
+            clear(probation);
+            clear(protectedQueue);
+            windowWeight = 0;
+            probationWeight = 0;
+            protectedWeight = 0;
+            invalidations++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of the {@link #invalidateAll()} calls
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * @return total weight of the cached entries
+     */
+    public long getWeightedSize() {
+
+        lock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return ratio of the hits to all gets, 0 if there was no get yet
+     */
+    public double getHitRatio() {
+
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return (requests == 0) ? 0 : (double) hitCount / requests;
+    }
+
+    /**
+     * @return number of the evicted entries, including the candidates rejected by the admission
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return total weight of the evicted entries
+     */
+    public long getEvictedWeight() {
+        return evictedWeight.sum();
+    }
+
+    /**
+     * @return number of the candidates of the main region rejected by the admission and of the entries heavier than the cache
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    private void putLocked(K key, V value, int weight) {
+
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            addWeight(node.queue, weight - node.weight);
+            node.value = value;
+            node.weight = weight;
+            onAccess(node);
+        } else {
+            node = new Node<>(key, value, weight);
+            data.put(key, node);
+            append(window, node, WINDOW);
+            windowWeight += weight;
+        }
+        evict();
+    }
+
+    /**
+     * Records the access into the read buffer of the thread, the buffers are drained if it is filled and the lock is free.
+     *
+     * @param access - accessed node or the key of the miss
+     */
+    private void afterRead(Object access) {
+
+        ReadBuffer buffer = readBuffers[readBufferIndex()];
+        if (buffer.offer(access) >= READ_BUFFER_DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies the recorded accesses to the sketch and the queues, called under the lock.
+     */
+    private void drainReadBuffers() {
+
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(accessRecorder);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordAccess(Object access) {
+
+        if (access instanceof Node) {
+            Node<K, V> node = (Node<K, V>) access;
+            sketch.increment(node.key);
+            // the node can be evicted or invalidated since its read
+            if (data.get(node.key) == node) {
+                onAccess(node);
+            }
+        } else {
+            sketch.increment(access);
+        }
+    }
+
+    private static int readBufferIndex() {
+
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (READ_BUFFERS - 1);
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return (value <= 1) ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private void onAccess(Node<K, V> node) {
+
+        switch (node.queue) {
+            case WINDOW:
+                moveToTail(window, node);
+                break;
+            case PROBATION:
+                unlink(node);
+                probationWeight -= node.weight;
+                append(protectedQueue, node, PROTECTED);
+                protectedWeight += node.weight;
+                demoteProtected();
+                break;
+            default:
+                moveToTail(protectedQueue, node);
+                break;
+        }
+    }
+
+    /**
+     * Moves the entries over the window maximum to the main region, if they win over its victims.
+     */
+    private void evict() {
+
+        while (windowWeight > windowMaximum) {
+            Node<K, V> candidate = window.next;
+            unlink(candidate);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+        while (probationWeight + protectedWeight > mainMaximum) {
+            Node<K, V> victim = (probation.next != probation) ? probation.next : protectedQueue.next;
+            remove(victim);
+        }
+    }
+
+    /**
+     * Admits the candidate leaving the window into the probation segment, or evicts it.
+     */
+    private void admit(Node<K, V> candidate) {
+
+        while (probationWeight + protectedWeight + candidate.weight > mainMaximum) {
+            Node<K, V> victim = (probation.next != probation) ? probation.next : protectedQueue.next;
+            if (victim == protectedQueue || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                rejections.increment();
+                data.remove(candidate.key);
+                evicted(candidate);
+                return;
+            }
+            remove(victim);
+        }
+        append(probation, candidate, PROBATION);
+        probationWeight += candidate.weight;
+    }
+
+    private void demoteProtected() {
+
+        while (protectedWeight > protectedMaximum) {
+            Node<K, V> demoted = protectedQueue.next;
+            unlink(demoted);
+            protectedWeight -= demoted.weight;
+            append(probation, demoted, PROBATION);
+            probationWeight += demoted.weight;
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+
+        unlink(node);
+        addWeight(node.queue, -node.weight);
+        data.remove(node.key);
+        evicted(node);
+    }
+
+    private void evicted(Node<K, V> node) {
+        evictions.increment();
+        evictedWeight.add(node.weight);
+    }
+
+    private void addWeight(byte queue, long weight) {
+
+        switch (queue) {
+            case WINDOW:
+                windowWeight += weight;
+                break;
+            case PROBATION:
+                probationWeight += weight;
+                break;
+            default:
+                protectedWeight += weight;
+                break;
+        }
+    }
+
+    private void append(Node<K, V> queue, Node<K, V> node, byte queueId) {
+
+        node.queue = queueId;
+        node.prev = queue.prev;
+        node.next = queue;
+        queue.prev.next = node;
+        queue.prev = node;
+    }
+
+    private void moveToTail(Node<K, V> queue, Node<K, V> node) {
+
+        unlink(node);
+        node.prev = queue.prev;
+        node.next = queue;
+        queue.prev.next = node;
+        queue.prev = node;
+    }
+
+    private static <K, V> void clear(Node<K, V> queue) {
+        queue.prev = queue;
+        queue.next = queue;
+    }
+
+    private static <K, V> void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+    }
+
+    /**
+     * Lossy ring buffer of the accesses recorded by the readers, drained by one thread holding the lock of the cache
+     */
+    private static final class ReadBuffer
+    {
+        private final AtomicReferenceArray<Object> accesses = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+        private final AtomicLong writeCount = new AtomicLong();
+
+        /**
+         * Written by the draining thread only
+         */
+        private volatile long readCount;
+
+        /**
+         * @return number of the recorded accesses not drained yet, 0 if the access was dropped
+         */
+        private int offer(Object access) {
+
+            long head = readCount;
+            long tail = writeCount.get();
+            int pending = (int) (tail - head);
+            if (pending >= READ_BUFFER_SIZE) {
+                return pending;
+            }
+            if (!writeCount.compareAndSet(tail, tail + 1)) {
+                // another reader of the buffer, the access is dropped
+                return 0;
+            }
+            accesses.lazySet((int) tail & (READ_BUFFER_SIZE - 1), access);
+            return pending + 1;
+        }
+
+        private void drainTo(Consumer<Object> recorder) {
+
+            long head = readCount;
+            long tail = writeCount.get();
+            for (; head < tail; head++) {
+                int index = (int) head & (READ_BUFFER_SIZE - 1);
+                Object access = accesses.get(index);
+                if (access == null) {
+                    // the reader has not stored it yet
+                    break;
+                }
+                accesses.lazySet(index, null);
+                recorder.accept(access);
+            }
+            readCount = head;
+        }
+    }
+
+    /**
+     * Entry of the cache, linked in the queue of its region
+     */
+    private static final class Node<K, V>
+    {
+        private final K key;
+        private volatile V value;
+        private int weight;
+        private byte queue;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        private static <K, V> Node<K, V> sentinel() {
+
+            Node<K, V> sentinel = new Node<>(null, null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+}
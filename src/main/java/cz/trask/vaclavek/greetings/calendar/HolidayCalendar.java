@@ -0,0 +1,292 @@
+package cz.trask.vaclavek.greetings.calendar;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.StringUtils;
+
+/**
+ * Holiday and seasonal greetings taking priority over the time period greetings on the dates of the {@link HolidayRule}s.
+ * <p>
+ * Rules are loaded from the {@code holidays_xx_XX.properties} files next to the messages files, the rules of the<br>
+ * {@code holidays.properties} file are valid for all locales. Every locale having its own file is indexed by the<br>
+ * {@link HolidayIndex} including the rules of its parent locales, other locales use the index of their most specific<br>
+ * parent: {@code lang_COUNTRY_variant} -> {@code lang_COUNTRY} -> {@code lang} -> {@link Locale#ROOT}.
+ * <p>
+ * Greetings of the current day are cached per locale, the cache is replaced when the day of the {@code clock} changes.<br>
+ * So most requests cost one clock read and one map lookup. At most {@code maxCachedLocales} locales are cached,<br>
+ * greetings of the other locales are searched in the index.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class HolidayCalendar
+{
+    private static final Logger Log = LoggerFactory.getLogger(HolidayCalendar.class);
+
+    /**
+     * Cached value of the locales without holiday greeting, the cache does not allow null values
+     */
+    private static final String NO_HOLIDAY = "\u0000No_holiday";
+
+    private final Map<String, HolidayIndex> indexes = new HashMap<>();
+
+    private final Set<Locale> locales;
+
+    private final Clock clock;
+
+    private final int maxCachedLocales;
+
+    private final int rulesCount;
+
+    private volatile Day today;
+
+
+    /**
+     * @param rules - rules of the locales, items {@code range=greeting} keyed by the locale, {@link Locale#ROOT} for all locales
+     * @param clock - clock of the current day
+     * @param maxCachedLocales - max. number of the locales cached for the current day
+     * @throws IllegalArgumentException if any rule is not valid
+     */
+    public HolidayCalendar(Map<Locale, Map<String, String>> rules, Clock clock, int maxCachedLocales) {
+        super();
+        this.clock = clock;
+        this.maxCachedLocales = maxCachedLocales;
+
+        Map<String, List<HolidayRule>> parsedRules = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<Locale, Map<String, String>> localeRules : rules.entrySet()) {
+            List<HolidayRule> parsed = new ArrayList<>();
+            localeRules.getValue().forEach((range, greeting) -> parsed.add(HolidayRule.parse(range, greeting)));
+            parsedRules.put(key(localeRules.getKey()), parsed);
+            count += parsed.size();
+        }
+        this.rulesCount = count;
+        this.locales = Collections.unmodifiableSet(new LinkedHashSet<>(rules.keySet()));
+
+        for (Locale locale : rules.keySet()) {
+            List<List<HolidayRule>> layers = new ArrayList<>();
+            List<String> candidates = candidateKeys(locale);
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+                List<HolidayRule> layer = parsedRules.get(candidates.get(i));
+                if (layer != null) {
+                    layers.add(layer);
+                }
+            }
+            indexes.put(key(locale), new HolidayIndex(layers));
+        }
+    }
+
+    /**
+     * Loads the rules of the {@code basename.properties} and {@code basename_*.properties} files of the classpath.
+     *
+     * @param basename - basename of the rules files, for example {@code classpath:/holidays}
+     * @param clock - clock of the current day
+     * @param maxCachedLocales - max. number of the locales cached for the current day
+     * @return calendar of the rules, empty if there is no rules file
+     * @throws IllegalStateException if any file cannot be read or any rule is not valid
+     */
+    public static HolidayCalendar load(String basename, Clock clock, int maxCachedLocales) {
+
+        String name = basename.substring(basename.lastIndexOf('/') + 1);
+        String pattern = basename.replaceFirst("^classpath:", ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX);
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+        Map<Locale, Map<String, String>> rules = new LinkedHashMap<>();
+        try {
+            List<Resource> resources = new ArrayList<>();
+            Collections.addAll(resources, resolver.getResources(pattern + ".properties"));
+            Collections.addAll(resources, resolver.getResources(pattern + "_*.properties"));
+            for (Resource resource : resources) {
+                String fileName = resource.getFilename();
+                String suffix = fileName.substring(name.length(), fileName.length() - ".properties".length());
+                Locale locale = suffix.isEmpty() ? Locale.ROOT : StringUtils.parseLocale(suffix.substring(1));
+                Map<String, String> localeRules = rules.computeIfAbsent(locale, l -> new LinkedHashMap<>());
+                localeRules.putAll(read(resource));
+            }
+            HolidayCalendar calendar = new HolidayCalendar(rules, clock, maxCachedLocales);
+            Log.info("Holiday calendar loaded: {} rules of {} locales", calendar.rulesCount, rules.size());
+            return calendar;
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalStateException("Failed to load the holiday calendar " + basename, ex);
+        }
+    }
+
+    /**
+     * @param clock - clock of the current day
+     * @return calendar without any rule
+     */
+    public static HolidayCalendar empty(Clock clock) {
+        return new HolidayCalendar(Collections.emptyMap(), clock, 0);
+    }
+
+    /**
+     * Returns the holiday greeting of the current day.
+     *
+     * @param locale - locale of the greeting
+     * @return holiday greeting, or null if there is no holiday greeting for the current day and locale
+     */
+    public String getGreeting(Locale locale) {
+
+        if (indexes.isEmpty()) {
+            return null;
+        }
+        long now = clock.millis();
+        Day day = today;
+        if (day == null || now < day.startMillis || now >= day.endMillis) {
+            day = new Day(Instant.ofEpochMilli(now).atZone(clock.getZone()).toLocalDate(), clock.getZone());
+            today = day;
+        }
+
+        String greeting = day.greetings.get(locale);
+        if (greeting == null) {
+            greeting = find(locale, day.epochDay, day.dayOfYear);
+            if (greeting == null) {
+                greeting = NO_HOLIDAY;
+            }
+            if (day.greetings.size() < maxCachedLocales) {
+                day.greetings.putIfAbsent(locale, greeting);
+            }
+        }
+        return (greeting == NO_HOLIDAY) ? null : greeting;
+    }
+
+    /**
+     * Returns the holiday greeting of the date, for example of the user's date which differs from the current day<br>
+     * of the {@code clock} around the midnight. Only the greetings of the current day are cached.
+     *
+     * @param locale - locale of the greeting
+     * @param date - date of the greeting, null for the current day
+     * @return holiday greeting, or null if there is no holiday greeting for the date and locale
+     */
+    public String getGreeting(Locale locale, LocalDate date) {
+
+        Day day = today;
+        if (date == null || (day != null && day.epochDay == date.toEpochDay())) {
+            return getGreeting(locale);
+        }
+        if (indexes.isEmpty()) {
+            return null;
+        }
+        return find(locale, date.toEpochDay(), HolidayRule.dayOfYear(date.getMonthValue(), date.getDayOfMonth()));
+    }
+
+    /**
+     * @return current day of the clock, changes of the holiday greetings happen only when it changes
+     */
+    public LocalDate getCurrentDate() {
+        return LocalDate.now(clock);
+    }
+
+    /**
+     * @return true if there is no rule
+     */
+    public boolean isEmpty() {
+        return rulesCount == 0;
+    }
+
+    /**
+     * @return locales having their own rules, {@link Locale#ROOT} for the rules of all locales
+     */
+    public Set<Locale> getLocales() {
+        return locales;
+    }
+
+    /**
+     * @return number of the rules of all locales
+     */
+    public int getRulesCount() {
+        return rulesCount;
+    }
+
+    private String find(Locale locale, long epochDay, int dayOfYear) {
+
+        for (String candidate : candidateKeys(locale)) {
+            HolidayIndex index = indexes.get(candidate);
+            if (index != null) {
+                return index.find(epochDay, dayOfYear);
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> read(Resource resource) throws IOException {
+
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (String range : properties.stringPropertyNames()) {
+            rules.put(range, properties.getProperty(range));
+        }
+        return rules;
+    }
+
+    /**
+     * @return keys of the locale and of its parent locales, from the most specific one to the {@link Locale#ROOT}
+     */
+    private static List<String> candidateKeys(Locale locale) {
+
+        List<String> keys = new ArrayList<>(4);
+        String language = locale.getLanguage();
+        String country = locale.getCountry();
+        if (!locale.getVariant().isEmpty()) {
+            keys.add(language + '_' + country + '_' + locale.getVariant());
+        }
+        if (!country.isEmpty()) {
+            keys.add(language + '_' + country);
+        }
+        if (!language.isEmpty()) {
+            keys.add(language);
+        }
+        keys.add("");
+        return keys;
+    }
+
+    private static String key(Locale locale) {
+        return candidateKeys(locale).get(0);
+    }
+
+    /**
+     * Current day and the greetings of the locales cached for it
+     */
+    private static final class Day
+    {
+        private final long startMillis;
+        private final long endMillis;
+        private final long epochDay;
+        private final int dayOfYear;
+        private final ConcurrentMap<Locale, String> greetings = new ConcurrentHashMap<>();
+
+        private Day(LocalDate date, ZoneId zone) {
+            this.startMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            this.endMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            this.epochDay = date.toEpochDay();
+            this.dayOfYear = HolidayRule.dayOfYear(date.getMonthValue(), date.getDayOfMonth());
+        }
+    }
+}
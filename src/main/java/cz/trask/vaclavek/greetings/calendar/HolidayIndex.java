@@ -0,0 +1,118 @@
+package cz.trask.vaclavek.greetings.calendar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Holiday greetings of one locale indexed by the day.
+ * <p>
+ * Yearly rules are evaluated into the array of the greetings indexed by the day of the leap year, dated rules<br>
+ * into the sorted array of the disjoint day ranges searched by the binary search. So the greeting of any day<br>
+ * is found in O(log n) of the dated ranges, or in O(1) for the yearly rules only.
+ * <p>
+ * Overlapping rules are resolved when the index is created: rules of the more specific locale take priority over<br>
+ * the rules of the parent locales, the shorter rule takes priority over the longer one and the dated rules<br>
+ * take priority over the yearly rules.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+final class HolidayIndex
+{
+    /**
+     * Longer rules first, so the shorter rules painted later win
+     */
+    private static final Comparator<HolidayRule> PAINT_ORDER = Comparator.comparingLong(HolidayRule::getLength).reversed()
+                                                                         .thenComparingLong(HolidayRule::getFrom)
+                                                                         .thenComparing(HolidayRule::getGreeting);
+
+    /**
+     * Greetings of the yearly rules indexed by the day of the leap year, null if there is no rule for the day
+     */
+    private final String[] yearlyGreetings = new String[HolidayRule.DAYS_PER_YEAR];
+
+    /**
+     * Sorted first epoch days of the disjoint ranges of the dated rules
+     */
+    private final long[] datedStarts;
+
+    /**
+     * Greetings of the ranges of {@link #datedStarts}, null for the ranges without any rule
+     */
+    private final String[] datedGreetings;
+
+    private final int rulesCount;
+
+
+    /**
+     * @param layers - rules of the locale and of its parent locales, from the least to the most specific locale
+     */
+    HolidayIndex(List<List<HolidayRule>> layers) {
+
+        TreeMap<Long, String> dated = new TreeMap<>();
+        int count = 0;
+        for (List<HolidayRule> layer : layers) {
+            List<HolidayRule> rules = new ArrayList<>(layer);
+            rules.sort(PAINT_ORDER);
+            for (HolidayRule rule : rules) {
+                if (rule.isYearly()) {
+                    for (long day = 0; day < rule.getLength(); day++) {
+                        yearlyGreetings[(int) ((rule.getFrom() + day) % HolidayRule.DAYS_PER_YEAR)] = rule.getGreeting();
+                    }
+                } else {
+                    paint(dated, rule.getFrom(), rule.getTo() + 1, rule.getGreeting());
+                }
+            }
+            count += rules.size();
+        }
+        this.rulesCount = count;
+
+        datedStarts = new long[dated.size()];
+        datedGreetings = new String[dated.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> range : dated.entrySet()) {
+            datedStarts[i] = range.getKey();
+            datedGreetings[i++] = range.getValue();
+        }
+    }
+
+    /**
+     * @param epochDay - epoch day of the date
+     * @param dayOfYear - day of the leap year of the same date, see {@link HolidayRule#dayOfYear(int, int)}
+     * @return greeting of the day, or null if there is no rule for the day
+     */
+    String find(long epochDay, int dayOfYear) {
+
+        int range = Arrays.binarySearch(datedStarts, epochDay);
+        if (range < 0) {
+            range = -range - 2;
+        }
+        if (range >= 0 && datedGreetings[range] != null) {
+            return datedGreetings[range];
+        }
+        return yearlyGreetings[dayOfYear];
+    }
+
+    /**
+     * @return number of the rules of the index, including the rules of the parent locales
+     */
+    int getRulesCount() {
+        return rulesCount;
+    }
+
+    /**
+     * Sets the greeting of the days from {@code from} to {@code toExclusive}, the ranges are kept disjoint.
+     */
+    private static void paint(TreeMap<Long, String> ranges, long from, long toExclusive, String greeting) {
+
+        Map.Entry<Long, String> following = ranges.floorEntry(toExclusive);
+        String followingGreeting = (following == null) ? null : following.getValue();
+        ranges.subMap(from, true, toExclusive, true).clear();
+        ranges.put(from, greeting);
+        ranges.put(toExclusive, followingGreeting);
+    }
+}
@@ -0,0 +1,134 @@
+package cz.trask.vaclavek.greetings.calendar;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Rule of the holiday calendar - greeting valid from the first to the last day of the date range, both included.
+ * <p>
+ * Rules are written as the {@code range=greeting} items of the {@code holidays_xx_XX.properties} files:
+ * <ul>
+ *   <li>{@code 12-24..12-26=Merry Christmas!} - every year, the range can continue over the new year</li>
+ *   <li>{@code 01-01=Happy New Year!} - single day every year</li>
+ *   <li>{@code 2021-04-02..2021-04-05=Happy Easter!} - dates of the specific years</li>
+ * </ul>
+ * Days of the yearly rules are numbered as the days of the leap year, so the 29th February is the day 59<br>
+ * and the 1st March is the day 60 in every year.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class HolidayRule
+{
+    /**
+     * Number of days of the leap year, days of the yearly rules are 0 to {@code DAYS_PER_YEAR - 1}
+     */
+    public static final int DAYS_PER_YEAR = 366;
+
+    private static final String RANGE_SEPARATOR = "..";
+
+    /**
+     * Index of the first day of the month in the leap year
+     */
+    private static final int[] MONTH_START = {0, 31, 60, 91, 121, 152, 182, 213, 244, 274, 305, 335};
+
+    private final boolean yearly;
+
+    /**
+     * First day of the rule - day of the leap year for the yearly rules, epoch day for the others
+     */
+    private final long from;
+
+    /**
+     * Last day of the rule, included
+     */
+    private final long to;
+
+    private final String greeting;
+
+
+    private HolidayRule(boolean yearly, long from, long to, String greeting) {
+        super();
+        this.yearly = yearly;
+        this.from = from;
+        this.to = to;
+        this.greeting = greeting;
+    }
+
+    /**
+     * @param range - days of the rule, for example {@code 12-24..12-26} or {@code 2021-04-02..2021-04-05}
+     * @param greeting - greeting valid during the days of the rule
+     * @return parsed rule
+     * @throws IllegalArgumentException if the range is not valid
+     */
+    public static HolidayRule parse(String range, String greeting) {
+
+        int separator = range.indexOf(RANGE_SEPARATOR);
+        String first = ((separator < 0) ? range : range.substring(0, separator)).trim();
+        String last = ((separator < 0) ? range : range.substring(separator + RANGE_SEPARATOR.length())).trim();
+        try {
+            if (first.length() == 5 && last.length() == 5) {
+                return new HolidayRule(true, dayOfYear(MonthDay.parse("--" + first)), dayOfYear(MonthDay.parse("--" + last)), greeting);
+            }
+            long from = LocalDate.parse(first).toEpochDay();
+            long to = LocalDate.parse(last).toEpochDay();
+            if (to < from) {
+                throw new IllegalArgumentException("Holiday rule '" + range + "' ends before it starts.");
+            }
+            return new HolidayRule(false, from, to, greeting);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid holiday rule '" + range + "', expected MM-dd..MM-dd or yyyy-MM-dd..yyyy-MM-dd.", ex);
+        }
+    }
+
+    /**
+     * @param month - month of the year, 1 to 12
+     * @param dayOfMonth - day of the month, 1 to 31
+     * @return day of the leap year, 0 to {@code DAYS_PER_YEAR - 1}
+     */
+    public static int dayOfYear(int month, int dayOfMonth) {
+        return MONTH_START[month - 1] + dayOfMonth - 1;
+    }
+
+    private static int dayOfYear(MonthDay monthDay) {
+        return dayOfYear(monthDay.getMonthValue(), monthDay.getDayOfMonth());
+    }
+
+    /**
+     * @return true if the rule is valid every year, false if it is valid for the dates of the specific years
+     */
+    public boolean isYearly() {
+        return yearly;
+    }
+
+    /**
+     * @return first day of the rule - day of the leap year for the yearly rules, epoch day for the others
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * @return last day of the rule, included
+     */
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * @return number of the days of the rule
+     */
+    public long getLength() {
+        return yearly ? Math.floorMod(to - from, DAYS_PER_YEAR) + 1 : to - from + 1;
+    }
+
+    public String getGreeting() {
+        return greeting;
+    }
+
+    @Override
+    public String toString() {
+        return "HolidayRule [yearly=" + yearly + ", from=" + from + ", to=" + to + ", greeting=" + greeting + "]";
+    }
+}
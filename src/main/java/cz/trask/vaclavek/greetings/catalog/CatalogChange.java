@@ -0,0 +1,49 @@
+package cz.trask.vaclavek.greetings.catalog;
+
+/**
+ * Requested change of one greeting of the catalog i.e. insert, update or delete of one row,<br>
+ * applied only if the current version of the row is the {@code expectedVersion}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class CatalogChange
+{
+    private final String localeTag;
+    private final String key;
+    private final String text;
+    private final long expectedVersion;
+
+    /**
+     * @param localeTag - locale tag like 'en-GB' or 'cs'
+     * @param key - greeting key like 'greeting.timesensitive.morning'
+     * @param text - new greeting text, null to delete the greeting
+     * @param expectedVersion - current version of the greeting, 0 if the greeting does not exist yet
+     */
+    public CatalogChange(String localeTag, String key, String text, long expectedVersion) {
+        this.localeTag = localeTag;
+        this.key = key;
+        this.text = text;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public String getLocaleTag() {
+        return localeTag;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public boolean isDelete() {
+        return text == null;
+    }
+}
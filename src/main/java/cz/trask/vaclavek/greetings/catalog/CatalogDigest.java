@@ -0,0 +1,77 @@
+package cz.trask.vaclavek.greetings.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 digest of the catalog texts, used as the catalog version.
+ * <p>
+ * The version depends only on the content of the catalog, so all instances serving the same catalog<br>
+ * have the same version (the same ETag of the greeting matrix) regardless of their start time.<br>
+ * Texts have to be added in the same order by all instances, i.e. sorted by the locale tag and the key.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class CatalogDigest
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Number of the digest bytes in the version
+     */
+    private static final int VERSION_BYTES = 8;
+
+    private final MessageDigest digest;
+
+
+    public CatalogDigest() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not supported", ex);
+        }
+    }
+
+    /**
+     * Adds the text of the catalog.
+     *
+     * @param localeTag - language tag of the locale of the text
+     * @param key - key of the text
+     * @param text - text, null if the locale does not have it
+     * @return this digest
+     */
+    public CatalogDigest add(String localeTag, String key, String text) {
+
+        update(localeTag);
+        update(key);
+        if (text == null) {
+            digest.update((byte) 0);
+        } else {
+            digest.update((byte) 1);
+            update(text);
+        }
+        return this;
+    }
+
+    /**
+     * @param prefix - prefix of the version naming the source of the catalog
+     * @return version of the added texts, the digest is reset
+     */
+    public String toVersion(String prefix) {
+
+        byte[] hash = digest.digest();
+        StringBuilder version = new StringBuilder(prefix.length() + VERSION_BYTES * 2).append(prefix);
+        for (int i = 0; i < VERSION_BYTES; i++) {
+            version.append(HEX_DIGITS[(hash[i] >> 4) & 0xF]).append(HEX_DIGITS[hash[i] & 0xF]);
+        }
+        return version.toString();
+    }
+
+    private void update(String value) {
+
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,51 @@
+package cz.trask.vaclavek.greetings.catalog;
+
+/**
+ * One row of the greetings catalog i.e. greeting text of one locale and greeting key.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class CatalogEntry
+{
+    private final String localeTag;
+    private final String key;
+    private final String text;
+    private final long version;
+    private final boolean deleted;
+
+    /**
+     * @param localeTag - locale tag like 'en-GB' or 'cs'
+     * @param key - greeting key like 'greeting.timesensitive.morning'
+     * @param text - greeting text
+     * @param version - version of the last change of the row
+     * @param deleted - true if the row was removed from the catalog
+     */
+    public CatalogEntry(String localeTag, String key, String text, long version, boolean deleted) {
+        this.localeTag = localeTag;
+        this.key = key;
+        this.text = text;
+        this.version = version;
+        this.deleted = deleted;
+    }
+
+    public String getLocaleTag() {
+        return localeTag;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
@@ -0,0 +1,212 @@
+package cz.trask.vaclavek.greetings.catalog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable in-memory copy of the greetings catalog.
+ * <p>
+ * Holds the greeting texts by locale tag (for example 'en-GB' or 'cs') and greeting key, and the highest version<br>
+ * of the catalog rows read so far. A change creates new snapshot sharing the maps of the unchanged locales,<br>
+ * so the readers never see partially applied changes and never lock.
+ * <p>
+ * The versions of the rows, including the deleted ones, are kept too, so a row read before a newer change of the same<br>
+ * greeting does not overwrite it. A locale is always contained with all its greetings or not at all: the changes<br>
+ * of the locales not contained are not applied, such locales are read as a whole by {@link #withLocale(String, Collection)}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class GreetingCatalogSnapshot
+{
+    /**
+     * Snapshot of the not yet loaded catalog
+     */
+    public static final GreetingCatalogSnapshot EMPTY = new GreetingCatalogSnapshot(0, Collections.emptyMap(), Collections.emptyMap());
+
+    // ****** INSTANCE FIELDS ******
+
+    private final long version;
+
+    private final Map<String, Map<String, String>> entriesByLocale;
+
+    /**
+     * Versions of the rows by locale tag and greeting key, including the deleted rows
+     */
+    private final Map<String, Map<String, Long>> versionsByLocale;
+
+    /**
+     * Digest of the greeting texts, computed by the first {@link #getContentVersion()}
+     */
+    private volatile String contentVersion;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    private GreetingCatalogSnapshot(long version, Map<String, Map<String, String>> entriesByLocale,
+                                    Map<String, Map<String, Long>> versionsByLocale) {
+        this.version = version;
+        this.entriesByLocale = entriesByLocale;
+        this.versionsByLocale = versionsByLocale;
+    }
+
+    // ****** CLASS PUBLIC METHODS ******
+
+    /**
+     * Creates the snapshot of the whole catalog.
+     *
+     * @param entries - all rows of the catalog, deleted rows are not contained in the snapshot
+     * @param version - version of the snapshot
+     * @return new snapshot
+     */
+    public static GreetingCatalogSnapshot of(Collection<CatalogEntry> entries, long version) {
+
+        Map<String, Map<String, String>> entriesByLocale = new HashMap<>();
+        Map<String, Map<String, Long>> versionsByLocale = new HashMap<>();
+        for (CatalogEntry entry : entries) {
+            if (!entry.isDeleted()) {
+                entriesByLocale.computeIfAbsent(entry.getLocaleTag(), tag -> new HashMap<>()).put(entry.getKey(), entry.getText());
+            }
+            versionsByLocale.computeIfAbsent(entry.getLocaleTag(), tag -> new HashMap<>()).put(entry.getKey(), entry.getVersion());
+        }
+        entriesByLocale.replaceAll((tag, texts) -> Collections.unmodifiableMap(texts));
+        versionsByLocale.replaceAll((tag, versions) -> Collections.unmodifiableMap(versions));
+        return new GreetingCatalogSnapshot(version, Collections.unmodifiableMap(entriesByLocale), Collections.unmodifiableMap(versionsByLocale));
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * @return highest version of the catalog rows contained in the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param localeTag - locale tag like 'en-GB'
+     * @return greeting texts of the locale by the greeting key, empty map if the locale is known to have no greetings<br>
+     *         or null if the locale is not contained in the snapshot
+     */
+    public Map<String, String> getEntries(String localeTag) {
+        return entriesByLocale.get(localeTag);
+    }
+
+    /**
+     * @param entry - row of the catalog
+     * @return true if the row or a newer row of the same greeting is already applied to the snapshot
+     */
+    public boolean isApplied(CatalogEntry entry) {
+
+        Map<String, Long> versions = versionsByLocale.get(entry.getLocaleTag());
+        Long appliedVersion = (versions != null) ? versions.get(entry.getKey()) : null;
+        return appliedVersion != null && appliedVersion >= entry.getVersion();
+    }
+
+    /**
+     * @return digest of all the greeting texts of the snapshot, the same for the same texts regardless of the row versions
+     */
+    public String getContentVersion() {
+
+        String version = contentVersion;
+        if (version == null) {
+            CatalogDigest digest = new CatalogDigest();
+            for (String localeTag : new TreeSet<>(entriesByLocale.keySet())) {
+                for (Map.Entry<String, String> entry : new TreeMap<>(entriesByLocale.get(localeTag)).entrySet()) {
+                    digest.add(localeTag, entry.getKey(), entry.getValue());
+                }
+            }
+            version = digest.toVersion("");
+            contentVersion = version;
+        }
+        return version;
+    }
+
+    /**
+     * @return tags of all the locales contained in the snapshot
+     */
+    public Set<String> getLocaleTags() {
+        return Collections.unmodifiableSet(entriesByLocale.keySet());
+    }
+
+    /**
+     * @return number of the greeting texts of all locales
+     */
+    public int size() {
+        return entriesByLocale.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Creates new snapshot with the {@code changes} applied. Changes of the locales not contained in the snapshot<br>
+     * and changes older than the already applied change of the same greeting are skipped.
+     *
+     * @param changes - changed rows of the catalog, deleted rows remove the greeting text
+     * @param newVersion - version of the new snapshot, the current version is kept if it is higher
+     * @return new snapshot, or this one if there are no changes and the version is not higher
+     */
+    public GreetingCatalogSnapshot withChanges(Collection<CatalogEntry> changes, long newVersion) {
+
+        long resultVersion = Math.max(version, newVersion);
+        if (changes.isEmpty() && resultVersion == version) {
+            return this;
+        }
+        Map<String, Map<String, String>> copiedEntries = new HashMap<>();
+        Map<String, Map<String, Long>> copiedVersions = new HashMap<>();
+        for (CatalogEntry change : changes) {
+            String localeTag = change.getLocaleTag();
+            if (!entriesByLocale.containsKey(localeTag)) {
+                continue;
+            }
+            Map<String, String> entries = copiedEntries.computeIfAbsent(localeTag, tag -> new HashMap<>(entriesByLocale.get(tag)));
+            Map<String, Long> versions = copiedVersions.computeIfAbsent(localeTag, tag -> new HashMap<>(versionsByLocale.getOrDefault(tag, Collections.emptyMap())));
+            Long appliedVersion = versions.get(change.getKey());
+            if (appliedVersion != null && appliedVersion > change.getVersion()) {
+                continue;
+            }
+            versions.put(change.getKey(), change.getVersion());
+            if (change.isDeleted()) {
+                entries.remove(change.getKey());
+            } else {
+                entries.put(change.getKey(), change.getText());
+            }
+        }
+        Map<String, Map<String, String>> resultEntries = new HashMap<>(entriesByLocale);
+        Map<String, Map<String, Long>> resultVersions = new HashMap<>(versionsByLocale);
+        copiedEntries.forEach((tag, entries) -> resultEntries.put(tag, Collections.unmodifiableMap(entries)));
+        copiedVersions.forEach((tag, versions) -> resultVersions.put(tag, Collections.unmodifiableMap(versions)));
+        return new GreetingCatalogSnapshot(resultVersion, Collections.unmodifiableMap(resultEntries), Collections.unmodifiableMap(resultVersions));
+    }
+
+    /**
+     * Creates new snapshot with the greetings of one locale added, unless the snapshot already contains the locale.<br>
+     * The version of the snapshot is not changed, because other locales can have changes with lower versions not read yet.
+     *
+     * @param localeTag - tag of the added locale
+     * @param entries - all current rows of the locale, can be empty
+     * @return new snapshot or this one if the locale is already contained
+     */
+    public GreetingCatalogSnapshot withLocale(String localeTag, Collection<CatalogEntry> entries) {
+
+        if (entriesByLocale.containsKey(localeTag)) {
+            return this;
+        }
+        Map<String, String> texts = new HashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        for (CatalogEntry entry : entries) {
+            if (!entry.isDeleted()) {
+                texts.put(entry.getKey(), entry.getText());
+            }
+            versions.put(entry.getKey(), entry.getVersion());
+        }
+        Map<String, Map<String, String>> resultEntries = new HashMap<>(entriesByLocale);
+        Map<String, Map<String, Long>> resultVersions = new HashMap<>(versionsByLocale);
+        resultEntries.put(localeTag, Collections.unmodifiableMap(texts));
+        resultVersions.put(localeTag, Collections.unmodifiableMap(versions));
+        return new GreetingCatalogSnapshot(version, Collections.unmodifiableMap(resultEntries), Collections.unmodifiableMap(resultVersions));
+    }
+}
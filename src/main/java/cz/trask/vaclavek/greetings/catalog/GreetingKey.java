@@ -0,0 +1,72 @@
+package cz.trask.vaclavek.greetings.catalog;
+
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+
+/**
+ * Greetings of one locale, named by the {@link TimePeriod} of the time sensitive greetings,<br>
+ * with the keys used in the catalogs.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public enum GreetingKey
+{
+    MORNING(GreetingsServiceImpl.GREETING_MORNING_KEY),
+    AFTERNOON(GreetingsServiceImpl.GREETING_AFTERNOON_KEY),
+    EVENING(GreetingsServiceImpl.GREETING_EVENING_KEY),
+    GENERAL_PURPOSE(GreetingsServiceImpl.GREETING_GENERAL_TIMESENSITIVE_KEY),
+    TIME_INSENSITIVE(GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY);
+
+    private final String catalogKey;
+
+    private final String variantsKey;
+
+    GreetingKey(String catalogKey) {
+        this.catalogKey = catalogKey;
+        this.variantsKey = catalogKey + GreetingVariants.VARIANTS_KEY_SUFFIX;
+    }
+
+    /**
+     * @return key of the greeting in the catalog, for example 'greeting.timesensitive.morning'
+     */
+    public String getCatalogKey() {
+        return catalogKey;
+    }
+
+    /**
+     * @return key of the variant set of the greeting in the catalog, for example 'greeting.timesensitive.morning.variants'
+     */
+    public String getVariantsKey() {
+        return variantsKey;
+    }
+
+    /**
+     * @return key of the greeting of the time period, the general greeting key for the unknown time periods
+     */
+    public static GreetingKey of(TimePeriod timePeriod) {
+        switch (timePeriod) {
+            case MORNING:
+                return MORNING;
+            case AFTERNOON:
+                return AFTERNOON;
+            case EVENING:
+                return EVENING;
+            default:
+                return GENERAL_PURPOSE;
+        }
+    }
+
+    /**
+     * @return greeting key of the catalog key or null if it is not a greeting key
+     */
+    public static GreetingKey ofCatalogKey(String catalogKey) {
+        for (GreetingKey key : values()) {
+            if (key.catalogKey.equals(catalogKey)) {
+                return key;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,499 @@
+package cz.trask.vaclavek.greetings.catalog;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cz.trask.vaclavek.greetings.errors.CatalogVersionConflictException;
+import cz.trask.vaclavek.greetings.jfr.CatalogLoadEvent;
+
+/**
+ * Greetings catalog read from the {@code greeting} database table, see the {@code db/greetings-schema.sql}.
+ * <p>
+ * The whole table is read by one query at startup into the {@link GreetingCatalogSnapshot} and the greeting texts<br>
+ * are served from the snapshot only, so the requests do not query the database. The snapshot is refreshed periodically<br>
+ * by reading the rows changed since its version (every change of a row sets its version to a new, higher value).<br>
+ * The versions are taken from the sequence when the transaction starts, so a transaction can commit its lower version<br>
+ * after the refresh has read a higher one. Therefore the refresh reads the rows from {@code versionWindow} versions<br>
+ * below the version of the snapshot and applies the rows not applied yet only.<br>
+ * The queries and transactions run without the lock of the snapshot, it is held by the replacement of the snapshot only.
+ * <p>
+ * Locales added to the table after the last refresh are read on demand: the first request of such a locale reads all<br>
+ * its rows by one query, concurrent requests of the same locale wait for the result of that query instead of sending<br>
+ * their own. Locales having no rows are remembered in the LRU cache limited by {@code maxMissingLocales}, so repeated<br>
+ * requests of a not supported language do not query the database either.
+ * <p>
+ * Changes of the greetings are written by {@link #applyChanges(List)} in one transaction with the optimistic check<br>
+ * of the rows' versions, all rows of the batch get the same new version. The snapshot is rebuilt once per batch,<br>
+ * so the readers see either none or all changes of the batch.
+ * <p>
+ * Every query is recorded as the {@link CatalogLoadEvent} Flight Recorder event.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class JdbcGreetingCatalog implements AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(JdbcGreetingCatalog.class);
+
+    /**
+     * Name of the catalog table used in the Flight Recorder events
+     */
+    private static final String TABLE_NAME = "greeting";
+
+    private static final String SELECT_ALL = "SELECT locale_tag, greeting_key, greeting_text, version, deleted FROM greeting";
+    private static final String SELECT_CHANGES = SELECT_ALL + " WHERE version > ? ORDER BY version";
+    private static final String SELECT_LOCALE = SELECT_ALL + " WHERE locale_tag = ? AND deleted = FALSE";
+
+    private static final String NEXT_VERSION = "SELECT NEXT VALUE FOR greeting_version_seq";
+    private static final String UPDATE_ENTRY = "UPDATE greeting SET greeting_text = ?, version = ?, deleted = FALSE"
+                                               + " WHERE locale_tag = ? AND greeting_key = ? AND version = ? AND deleted = FALSE";
+    private static final String RESTORE_ENTRY = "UPDATE greeting SET greeting_text = ?, version = ?, deleted = FALSE"
+                                                + " WHERE locale_tag = ? AND greeting_key = ? AND deleted = TRUE";
+    private static final String INSERT_ENTRY = "INSERT INTO greeting (greeting_text, version, locale_tag, greeting_key) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_ENTRY = "UPDATE greeting SET deleted = TRUE, version = ?"
+                                               + " WHERE locale_tag = ? AND greeting_key = ? AND version = ? AND deleted = FALSE";
+
+    /**
+     * Default number of the versions below the snapshot's version read again by the refresh
+     */
+    public static final long DEFAULT_VERSION_WINDOW = 100;
+
+    private static final RowMapper<CatalogEntry> ENTRY_MAPPER = (rs, rowNum) -> new CatalogEntry(rs.getString(1), rs.getString(2), rs.getString(3),
+                                                                                                 rs.getLong(4), rs.getBoolean(5));
+
+    // ****** INSTANCE FIELDS ******
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Number of the versions below the snapshot's version read again by the refresh, so the changes committed<br>
+     * after the changes with the higher versions are not missed
+     */
+    private final long versionWindow;
+
+    private volatile GreetingCatalogSnapshot snapshot = GreetingCatalogSnapshot.EMPTY;
+
+    /**
+     * Lock of the snapshot replacement, the readers do not use it. It is not held during the queries and transactions,<br>
+     * the rows read by a refresh do not overwrite newer rows of a concurrent write, because the snapshot keeps the rows' versions.
+     */
+    private final Object snapshotLock = new Object();
+
+    /**
+     * Running on-demand loads of the locales, keyed by the locale tag
+     */
+    private final ConcurrentMap<String, CompletableFuture<Map<String, String>>> localeLoads = new ConcurrentHashMap<>();
+
+    /**
+     * Tags of the locales having no rows in the table, access ordered i.e. LRU
+     */
+    private final Map<String, Boolean> missingLocales;
+
+    private final AtomicLong localeQueries = new AtomicLong();
+    private final AtomicLong refreshQueries = new AtomicLong();
+    private final AtomicLong snapshotUpdates = new AtomicLong();
+
+    private ScheduledExecutorService refreshExecutor;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param jdbcTemplate - template of the database holding the {@code greeting} table
+     * @param maxMissingLocales - max. number of the remembered locales having no rows in the table
+     */
+    public JdbcGreetingCatalog(JdbcTemplate jdbcTemplate, int maxMissingLocales) {
+        this(jdbcTemplate, maxMissingLocales, DEFAULT_VERSION_WINDOW);
+    }
+
+    /**
+     * @param jdbcTemplate - template of the database holding the {@code greeting} table
+     * @param maxMissingLocales - max. number of the remembered locales having no rows in the table
+     * @param versionWindow - number of the versions below the snapshot's version read again by the refresh
+     */
+    public JdbcGreetingCatalog(JdbcTemplate jdbcTemplate, int maxMissingLocales, long versionWindow) {
+        super();
+        this.jdbcTemplate = jdbcTemplate;
+        this.versionWindow = versionWindow;
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        this.missingLocales = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxMissingLocales;
+            }
+        });
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Reads the whole catalog table by one query and replaces the current snapshot.
+     *
+     * @return the new snapshot
+     */
+    public GreetingCatalogSnapshot loadAll() {
+
+        List<CatalogEntry> entries = query(SELECT_ALL, false, TABLE_NAME);
+        long version = entries.stream().mapToLong(CatalogEntry::getVersion).max().orElse(0);
+
+        GreetingCatalogSnapshot loaded = GreetingCatalogSnapshot.of(entries, version);
+        synchronized (snapshotLock) {
+            replaceSnapshot(loaded);
+        }
+        missingLocales.clear();
+        Log.info("Greetings catalog loaded, {} greetings of {} locales, version {}", loaded.size(), loaded.getLocaleTags().size(), version);
+        return loaded;
+    }
+
+    /**
+     * Reads the rows changed since the version of the current snapshot lowered by the {@code versionWindow}<br>
+     * and applies the rows not applied yet to the snapshot. Changes of the locales not contained in the snapshot<br>
+     * are not applied, such locales are read on demand as a whole.
+     *
+     * @return number of the changed rows not applied before
+     */
+    public int refresh() {
+
+        refreshQueries.incrementAndGet();
+        GreetingCatalogSnapshot current = snapshot;
+        long fromVersion = Math.max(0, current.getVersion() - versionWindow);
+        List<CatalogEntry> changes = query(SELECT_CHANGES, true, TABLE_NAME + "[version>" + fromVersion + "]", fromVersion);
+        changes.removeIf(current::isApplied);
+        if (!changes.isEmpty()) {
+            long version = changes.get(changes.size() - 1).getVersion();
+            for (CatalogEntry change : changes) {
+                missingLocales.remove(change.getLocaleTag());
+            }
+            synchronized (snapshotLock) {
+                replaceSnapshot(snapshot.withChanges(changes, version));
+            }
+            Log.info("Greetings catalog refreshed, {} changed greetings, version {}", changes.size(), version);
+        }
+        return changes.size();
+    }
+
+    /**
+     * Writes the {@code changes} in one transaction and applies them to the snapshot by one rebuild.<br>
+     * If the current version of any changed row is not the expected one, no change is written.
+     * <p>
+     * The version of the snapshot is not moved to the version of the batch, because other instances can write<br>
+     * changes with lower versions which were not read yet. The next refresh reads the rows of the batch again.
+     *
+     * @param changes - changes of the greetings
+     * @return new version of the changed rows
+     * @throws CatalogVersionConflictException if the current version of a row is not the expected one
+     */
+    public long applyChanges(List<CatalogChange> changes) {
+
+        Long version = transactionTemplate.execute(status -> {
+            long newVersion = jdbcTemplate.queryForObject(NEXT_VERSION, Long.class);
+            for (CatalogChange change : changes) {
+                writeChange(change, newVersion);
+            }
+            return newVersion;
+        });
+
+        List<CatalogEntry> entries = new ArrayList<>(changes.size());
+        for (CatalogChange change : changes) {
+            entries.add(new CatalogEntry(change.getLocaleTag(), change.getKey(), change.getText(), version, change.isDelete()));
+            missingLocales.remove(change.getLocaleTag());
+        }
+        synchronized (snapshotLock) {
+            replaceSnapshot(snapshot.withChanges(entries, snapshot.getVersion()));
+        }
+        Log.info("{} greetings changed in the catalog, version {}", changes.size(), version);
+        return version;
+    }
+
+    /**
+     * Reads the current greetings of the locale from the database, including their versions.
+     *
+     * @param localeTag - locale tag like 'en-GB'
+     * @return current rows of the locale
+     */
+    public List<CatalogEntry> findEntries(String localeTag) {
+        return jdbcTemplate.query(SELECT_LOCALE, ENTRY_MAPPER, localeTag);
+    }
+
+    /**
+     * Finds the greeting text of the {@code key} for the {@code locale}. Same as the message source, the locale's<br>
+     * {@code lang-COUNTRY-variant}, {@code lang-COUNTRY} and {@code lang} catalogs are searched in this order.
+     *
+     * @param locale - locale of the greeting
+     * @param key - greeting key like 'greeting.timesensitive.morning'
+     * @return greeting text or null if it is not found
+     */
+    public String getText(Locale locale, String key) {
+
+        for (String localeTag : getCandidateTags(locale)) {
+            Map<String, String> entries = getEntries(localeTag);
+            String text = entries.get(key);
+            if (text != null) {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the text of the {@code siblingKey} in the snapshot catalog supplying the text of the {@code key},<br>
+     * so the optional text belongs to the text found by {@link #getText(Locale, String)} and the text of a more specific<br>
+     * catalog without the {@code key} is not used. The locales not contained in the snapshot are not read from the database.
+     *
+     * @param locale - locale of the text
+     * @param key - key of the supplied text like 'greeting.timesensitive.morning'
+     * @param siblingKey - key of the optional text like 'greeting.timesensitive.morning.variants'
+     * @return text or null if it is not found in the catalog supplying the text of the {@code key}
+     */
+    public String getSnapshotSiblingText(Locale locale, String key, String siblingKey) {
+
+        GreetingCatalogSnapshot current = snapshot;
+        for (String localeTag : getCandidateTags(locale)) {
+            Map<String, String> entries = current.getEntries(localeTag);
+            if (entries != null && entries.containsKey(key)) {
+                return entries.get(siblingKey);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return current snapshot of the catalog
+     */
+    public GreetingCatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return number of the queries reading one locale on demand since the start
+     */
+    public long getLocaleQueries() {
+        return localeQueries.get();
+    }
+
+    /**
+     * @return number of the replacements of the snapshot since the start
+     */
+    public long getSnapshotUpdates() {
+        return snapshotUpdates.get();
+    }
+
+    /**
+     * @return number of the incremental refreshes since the start
+     */
+    public long getRefreshQueries() {
+        return refreshQueries.get();
+    }
+
+    /**
+     * Starts periodic incremental refresh of the snapshot. Failed refresh is logged and the current snapshot is kept.
+     *
+     * @param interval - interval of the refreshes
+     */
+    public synchronized void startRefresh(Duration interval) {
+
+        if (refreshExecutor != null || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "greetings-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException ex) {
+                Log.warn("Refresh of the greetings catalog failed, version {} is kept: {}", snapshot.getVersion(), ex.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic refresh.
+     */
+    @Override
+    public synchronized void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+    }
+
+    // ****** CLASS PUBLIC METHODS ******
+
+    /**
+     * @return tags of the locale's catalogs from the most specific one, for example 'en-GB' and 'en' for the {@code en_GB} locale
+     */
+    public static List<String> getCandidateTags(Locale locale) {
+
+        List<String> tags = new ArrayList<>(3);
+        String language = locale.getLanguage();
+        String country = locale.getCountry();
+        String variant = locale.getVariant();
+        if (!variant.isEmpty()) {
+            tags.add(language + '-' + country + '-' + variant);
+        }
+        if (!country.isEmpty()) {
+            tags.add(language + '-' + country);
+        }
+        if (!language.isEmpty()) {
+            tags.add(language);
+        }
+        return tags;
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * @return greeting texts of the locale from the snapshot, read from the database if the locale is not in the snapshot yet
+     */
+    private Map<String, String> getEntries(String localeTag) {
+
+        Map<String, String> entries = snapshot.getEntries(localeTag);
+        if (entries != null) {
+            return entries;
+        }
+        if (missingLocales.containsKey(localeTag)) {
+            return Collections.emptyMap();
+        }
+        return loadLocale(localeTag);
+    }
+
+    /**
+     * Reads the rows of the locale by one query shared by all concurrent callers and adds them to the snapshot.<br>
+     * If the snapshot was refreshed during the query, the refresh could skip newer changes of the locale not contained yet,<br>
+     * so the rows are returned but not added, the next request reads the locale again.
+     */
+    private Map<String, String> loadLocale(String localeTag) {
+
+        CompletableFuture<Map<String, String>> load = new CompletableFuture<>();
+        CompletableFuture<Map<String, String>> runningLoad = localeLoads.putIfAbsent(localeTag, load);
+        if (runningLoad != null) {
+            try {
+                return runningLoad.join();
+            } catch (CompletionException ex) {
+                throw (ex.getCause() instanceof RuntimeException) ? (RuntimeException) ex.getCause() : ex;
+            }
+        }
+
+        try {
+            // the locale could be added by the load which finished before this one was registered
+            Map<String, String> entries = snapshot.getEntries(localeTag);
+            if (entries == null && !missingLocales.containsKey(localeTag)) {
+                localeQueries.incrementAndGet();
+                long fromVersion = snapshot.getVersion();
+                List<CatalogEntry> rows = query(SELECT_LOCALE, false, TABLE_NAME + "[" + localeTag + "]", localeTag);
+                entries = new HashMap<>();
+                for (CatalogEntry entry : rows) {
+                    entries.put(entry.getKey(), entry.getText());
+                }
+                if (entries.isEmpty()) {
+                    missingLocales.put(localeTag, Boolean.TRUE);
+                } else {
+                    boolean added;
+                    synchronized (snapshotLock) {
+                        added = snapshot.getVersion() == fromVersion;
+                        if (added) {
+                            replaceSnapshot(snapshot.withLocale(localeTag, rows));
+                        }
+                    }
+                    if (added) {
+                        Log.info("Greetings of the locale {} loaded, {} greetings", localeTag, entries.size());
+                    } else {
+                        Log.debug("Greetings of the locale {} not added, the catalog was refreshed during the query", localeTag);
+                    }
+                }
+            }
+            if (entries == null) {
+                entries = Collections.emptyMap();
+            }
+            load.complete(entries);
+            return entries;
+        } catch (RuntimeException ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            localeLoads.remove(localeTag, load);
+        }
+    }
+
+    private void writeChange(CatalogChange change, long newVersion) {
+
+        String localeTag = change.getLocaleTag();
+        String key = change.getKey();
+        long expectedVersion = change.getExpectedVersion();
+        int updated;
+        if (change.isDelete()) {
+            updated = jdbcTemplate.update(DELETE_ENTRY, newVersion, localeTag, key, expectedVersion);
+        } else if (expectedVersion > 0) {
+            updated = jdbcTemplate.update(UPDATE_ENTRY, change.getText(), newVersion, localeTag, key, expectedVersion);
+        } else {
+            updated = jdbcTemplate.update(RESTORE_ENTRY, change.getText(), newVersion, localeTag, key);
+            if (updated == 0) {
+                try {
+                    updated = jdbcTemplate.update(INSERT_ENTRY, change.getText(), newVersion, localeTag, key);
+                } catch (DuplicateKeyException ex) {
+                    updated = 0;
+                }
+            }
+        }
+        if (updated == 0) {
+            throw new CatalogVersionConflictException(localeTag, key, expectedVersion);
+        }
+    }
+
+    /**
+     * Must be called with the {@code snapshotLock} held
+     */
+    private void replaceSnapshot(GreetingCatalogSnapshot newSnapshot) {
+        if (newSnapshot != snapshot) {
+            snapshot = newSnapshot;
+            snapshotUpdates.incrementAndGet();
+        }
+    }
+
+    private List<CatalogEntry> query(String sql, boolean reload, String source, Object... args) {
+
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+
+        List<CatalogEntry> entries = jdbcTemplate.query(sql, ENTRY_MAPPER, args);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = "jdbc:" + source;
+            event.reload = reload;
+            event.found = !entries.isEmpty();
+            event.entries = entries.size();
+            event.commit();
+        }
+        return entries;
+    }
+}
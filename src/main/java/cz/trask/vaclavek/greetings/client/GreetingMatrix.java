@@ -0,0 +1,151 @@
+package cz.trask.vaclavek.greetings.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * All greetings of the catalog returned by the {@code /api/greeting/matrix} call, so the clients can answer<br>
+ * the greeting requests locally.
+ * <p>
+ * Contains:
+ * <ul>
+ *   <li>{@code version} - catalog version, changed whenever any greeting can be changed, sent as the ETag too</li>
+ *   <li>{@code periods} - starts of the {@link TimePeriod}s of the day, the first one starts at 00:00</li>
+ *   <li>{@code greetings} - greetings of every catalog locale, keyed by the locale tag like 'en-GB' and by the {@link TimePeriod}<br>
+ *   name or {@link #TIME_INSENSITIVE}. Greetings of the other locales are the greetings of their first {@link #getCandidateTags(Locale)}<br>
+ *   tag found in the matrix.</li>
+ *   <li>{@code variants} - definitions of the weighted variants replacing the greetings, keyed the same way as the {@code greetings}.<br>
+ *   Only the greetings having variants are contained, the variants are selected by the client id same as by the service.</li>
+ *   <li>{@code templates} - patterns of the personalized greetings keyed by the locale tag of the messages file,<br>
+ *   {@link #DEFAULT_TEMPLATE_TAG} for the default one.</li>
+ * </ul>
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingMatrix
+{
+    /**
+     * Key of the time insensitive greetings
+     */
+    public static final String TIME_INSENSITIVE = "TIME_INSENSITIVE";
+
+    /**
+     * Tag of the default template of the personalized greetings
+     */
+    public static final String DEFAULT_TEMPLATE_TAG = "";
+
+    private String version;
+    private List<PeriodStart> periods = new ArrayList<>();
+    private Map<String, Map<String, String>> greetings = new LinkedHashMap<>();
+    private Map<String, String> templates = new LinkedHashMap<>();
+    private Map<String, Map<String, String>> variants = new LinkedHashMap<>();
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public List<PeriodStart> getPeriods() {
+        return periods;
+    }
+
+    public void setPeriods(List<PeriodStart> periods) {
+        this.periods = periods;
+    }
+
+    public Map<String, Map<String, String>> getGreetings() {
+        return greetings;
+    }
+
+    public void setGreetings(Map<String, Map<String, String>> greetings) {
+        this.greetings = greetings;
+    }
+
+    public Map<String, String> getTemplates() {
+        return templates;
+    }
+
+    public void setTemplates(Map<String, String> templates) {
+        this.templates = templates;
+    }
+
+    public Map<String, Map<String, String>> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(Map<String, Map<String, String>> variants) {
+        this.variants = variants;
+    }
+
+    /**
+     * Returns the tags of the locale in the order the greetings are searched for it:<br>
+     * {@code lang-COUNTRY-variant}, {@code lang-COUNTRY} and {@code lang}.
+     *
+     * @param locale - requested locale
+     * @return tags of the locale, from the most specific one
+     */
+    public static List<String> getCandidateTags(Locale locale) {
+
+        List<String> tags = new ArrayList<>(3);
+        String language = locale.getLanguage();
+        String country = locale.getCountry();
+        String variant = locale.getVariant();
+        if (!variant.isEmpty()) {
+            tags.add(language + '-' + country + '-' + variant);
+        }
+        if (!country.isEmpty()) {
+            tags.add(language + '-' + country);
+        }
+        if (!language.isEmpty()) {
+            tags.add(language);
+        }
+        return tags;
+    }
+
+    /**
+     * Start of the {@link TimePeriod} in the day
+     */
+    public static class PeriodStart
+    {
+        /**
+         * Start time in "HH:mm" format
+         */
+        private String start;
+        private TimePeriod period;
+
+        public PeriodStart() {
+            super();
+        }
+
+        public PeriodStart(String start, TimePeriod period) {
+            super();
+            this.start = start;
+            this.period = period;
+        }
+
+        public String getStart() {
+            return start;
+        }
+
+        public void setStart(String start) {
+            this.start = start;
+        }
+
+        public TimePeriod getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(TimePeriod period) {
+            this.period = period;
+        }
+    }
+}
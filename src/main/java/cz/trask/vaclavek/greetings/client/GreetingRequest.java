@@ -0,0 +1,83 @@
+package cz.trask.vaclavek.greetings.client;
+
+/**
+ * One greeting request of the {@code /api/greeting/batch} call, same parameters as of the greeting GET requests.
+ * <p>
+ * Example: {@code {"lang": "en-GB", "usersTime": "05:01", "name": "John", "clientId": "c-42"}}<br>
+ * Requests without the {@code usersTime} (null) are time insensitive, the {@code name} and the {@code clientId}<br>
+ * selecting the variant of the greeting are optional.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingRequest
+{
+    private String lang;
+    private String usersTime;
+    private String name;
+    private String clientId;
+
+    public GreetingRequest() {
+        super();
+    }
+
+    /**
+     * @param lang - language-country or language only abbrevation, for example 'en-GB' or 'cs'
+     * @param usersTime - user's time in "HH:mm" format, null for the time insensitive greeting
+     * @param name - name of the greeted person, can be null
+     */
+    public GreetingRequest(String lang, String usersTime, String name) {
+        super();
+        this.lang = lang;
+        this.usersTime = usersTime;
+        this.name = name;
+    }
+
+    /**
+     * @param lang - language-country or language only abbrevation, for example 'en-GB' or 'cs'
+     * @param usersTime - user's time in "HH:mm" format, null for the time insensitive greeting
+     * @param name - name of the greeted person, can be null
+     * @param clientId - id of the client, the same client gets always the same variant of the greeting; can be null
+     */
+    public GreetingRequest(String lang, String usersTime, String name, String clientId) {
+        this(lang, usersTime, name);
+        this.clientId = clientId;
+    }
+
+    public String getLang() {
+        return lang;
+    }
+
+    public void setLang(String lang) {
+        this.lang = lang;
+    }
+
+    public String getUsersTime() {
+        return usersTime;
+    }
+
+    public void setUsersTime(String usersTime) {
+        this.usersTime = usersTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    @Override
+    public String toString() {
+        return "GreetingRequest [lang=" + lang + ", usersTime=" + usersTime + ", name=" + name + ", clientId=" + clientId + "]";
+    }
+}
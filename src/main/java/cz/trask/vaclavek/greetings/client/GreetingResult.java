@@ -0,0 +1,84 @@
+package cz.trask.vaclavek.greetings.client;
+
+/**
+ * Result of one {@link GreetingRequest} of the {@code /api/greeting/batch} call.
+ * <p>
+ * {@code status} is the HTTP status the same GET request would be answered with, {@code greeting} is set for<br>
+ * the 200 status, {@code message} is the {@code ApiError} message of the error statuses. {@code variant} is the id<br>
+ * of the served variant of the greeting, same as the {@code X-Greeting-Variant} header, null if the greeting has no variants.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingResult
+{
+    private int status;
+    private String greeting;
+    private String message;
+    private String variant;
+
+    public GreetingResult() {
+        super();
+    }
+
+    private GreetingResult(int status, String greeting, String message, String variant) {
+        super();
+        this.status = status;
+        this.greeting = greeting;
+        this.message = message;
+        this.variant = variant;
+    }
+
+    public static GreetingResult greeting(String greeting) {
+        return new GreetingResult(200, greeting, null, null);
+    }
+
+    public static GreetingResult greeting(String greeting, String variant) {
+        return new GreetingResult(200, greeting, null, variant);
+    }
+
+    public static GreetingResult error(int status, String message) {
+        return new GreetingResult(status, null, message, null);
+    }
+
+    public boolean isSuccess() {
+        return status == 200;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getGreeting() {
+        return greeting;
+    }
+
+    public void setGreeting(String greeting) {
+        this.greeting = greeting;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getVariant() {
+        return variant;
+    }
+
+    public void setVariant(String variant) {
+        this.variant = variant;
+    }
+
+    @Override
+    public String toString() {
+        return "GreetingResult [status=" + status + ", greeting=" + greeting + ", message=" + message + ", variant=" + variant + "]";
+    }
+}
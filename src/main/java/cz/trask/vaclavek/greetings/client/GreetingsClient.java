@@ -0,0 +1,664 @@
+package cz.trask.vaclavek.greetings.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cz.trask.vaclavek.greetings.messages.MessageTemplate;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
+import cz.trask.vaclavek.greetings.variants.VariantSet;
+
+/**
+ * Java client of the Greetings REST service answering most of the greeting requests locally.
+ * <p>
+ * The client downloads the {@link GreetingMatrix} - all greetings of the catalog, starts of the time periods<br>
+ * and templates of the personalized greetings - and answers the requests from it, with the same results<br>
+ * as the service would return. Variants of the greetings are selected by the {@link GreetingRequest#getClientId()}<br>
+ * by the same weights and hash as by the service. The matrix is refreshed every {@code refreshInterval} by the conditional request,<br>
+ * so it is downloaded again only when the catalog version is changed.
+ * <p>
+ * Requests which can not be answered locally (locales not in the matrix, invalid parameters - the errors are always<br>
+ * returned by the service) are sent to the service by the {@code /api/greeting/batch} calls. Misses of the concurrent<br>
+ * callers waiting for a free connection are sent together in one batch.
+ * <p>
+ * At most {@code maxConnections} requests are sent concurrently. The connections are kept alive and reused<br>
+ * by the {@link HttpURLConnection}, the JVM keeps at most {@code http.maxConnections} (5 by default) idle connections<br>
+ * per server, so the system property should not be lower than {@code maxConnections}.
+ * <p>
+ * Instances are thread-safe and should be shared, {@link #close()} stops the refresh and the batching threads.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingsClient implements AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingsClient.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Same limits as of the {@code GreetingsMatrixController} and {@code GreetingsController} of the service
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_NAME_LENGTH = 64;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    private static final TypeReference<List<GreetingResult>> RESULTS_TYPE = new TypeReference<List<GreetingResult>>() {};
+
+    // ****** INSTANCE FIELDS ******
+
+    private final String baseUrl;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Permits of the concurrently sent requests
+     */
+    private final Semaphore connections;
+
+    private final ExecutorService batchExecutor;
+
+    private final ScheduledExecutorService refreshExecutor;
+
+    private final Thread batchDispatcher;
+
+    private final BlockingQueue<PendingRequest> misses = new LinkedBlockingQueue<>();
+
+    private volatile LocalMatrix matrix;
+
+    private volatile boolean closed;
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong remoteCalls = new AtomicLong();
+    private final AtomicLong matrixDownloads = new AtomicLong();
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * Creates the client and starts the download of the greeting matrix. Requests are sent to the service<br>
+     * until the matrix is downloaded.
+     *
+     * @param baseUrl - URL of the service, for example {@code http://localhost:8080}
+     * @param maxConnections - max. number of the concurrently sent requests
+     * @param refreshInterval - interval of the matrix refresh, zero to download the matrix by {@link #refresh()} only
+     */
+    public GreetingsClient(String baseUrl, int maxConnections, Duration refreshInterval) {
+        super();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.connections = new Semaphore(maxConnections);
+        this.batchExecutor = Executors.newFixedThreadPool(maxConnections, daemonThreads("greetings-client-batch-"));
+        this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("greetings-client-refresh-"));
+
+        this.batchDispatcher = new Thread(this::dispatchBatches, "greetings-client-dispatcher");
+        this.batchDispatcher.setDaemon(true);
+        this.batchDispatcher.start();
+
+        if (!refreshInterval.isZero()) {
+            refreshExecutor.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Same as the {@code /api/greeting/timesensitive?usersTime=...&lang=...&name=...} request.
+     *
+     * @param lang - language-country or language only abbrevation, for example 'en-GB' or 'cs'
+     * @param usersTime - user's time in "HH:mm" format
+     * @param name - name of the greeted person, can be null
+     * @return greeting text
+     * @throws GreetingsClientException if the request is rejected by the service or it can not be sent
+     */
+    public String getTimeSensitiveGreeting(String lang, String usersTime, String name) {
+        return greetingOf(getGreeting(new GreetingRequest(lang, (usersTime == null) ? "" : usersTime, name)));
+    }
+
+    /**
+     * Same as the {@code /api/greeting/timeinsensitive?lang=...&name=...} request.
+     *
+     * @param lang - language-country or language only abbrevation, for example 'en-GB' or 'cs'
+     * @param name - name of the greeted person, can be null
+     * @return greeting text
+     * @throws GreetingsClientException if the request is rejected by the service or it can not be sent
+     */
+    public String getTimeInsensitiveGreeting(String lang, String name) {
+        return greetingOf(getGreeting(new GreetingRequest(lang, null, name)));
+    }
+
+    /**
+     * Answers the request locally or by the batch call together with the misses of the other threads.
+     *
+     * @param request - greeting request
+     * @return result of the request
+     * @throws GreetingsClientException if the request can not be sent
+     */
+    public GreetingResult getGreeting(GreetingRequest request) {
+
+        GreetingResult local = findLocally(request);
+        if (local != null) {
+            localHits.incrementAndGet();
+            return local;
+        }
+
+        PendingRequest pending = new PendingRequest(request);
+        misses.add(pending);
+        try {
+            return pending.result.get(CONNECT_TIMEOUT_MILLIS + READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GreetingsClientException("Interrupted while waiting for " + request, ex);
+        } catch (ExecutionException ex) {
+            throw new GreetingsClientException("Request failed: " + request, ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new GreetingsClientException("Request timed out: " + request, ex);
+        }
+    }
+
+    /**
+     * Answers the requests locally, the misses are sent by the batch calls.
+     *
+     * @param requests - greeting requests
+     * @return results of the requests, in the same order
+     * @throws GreetingsClientException if the requests can not be sent
+     */
+    public List<GreetingResult> getGreetings(List<GreetingRequest> requests) {
+
+        GreetingResult[] results = new GreetingResult[requests.size()];
+        List<Integer> missIndexes = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            GreetingResult local = findLocally(requests.get(i));
+            if (local != null) {
+                localHits.incrementAndGet();
+                results[i] = local;
+            } else {
+                missIndexes.add(i);
+            }
+        }
+
+        for (int from = 0; from < missIndexes.size(); from += MAX_BATCH_SIZE) {
+            List<Integer> indexes = missIndexes.subList(from, Math.min(from + MAX_BATCH_SIZE, missIndexes.size()));
+            List<GreetingRequest> batch = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                batch.add(requests.get(index));
+            }
+            List<GreetingResult> batchResults = withConnection(() -> sendBatch(batch));
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = batchResults.get(i);
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Downloads the greeting matrix, if its version is changed.
+     *
+     * @return true if the new matrix was downloaded
+     * @throws GreetingsClientException if the matrix can not be downloaded
+     */
+    public boolean refresh() {
+
+        LocalMatrix current = matrix;
+        HttpResponse response = withConnection(() -> send("GET", "/api/greeting/matrix", null,
+                                                          (current == null) ? null : '"' + current.version + '"'));
+        if (response.status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return false;
+        }
+        if (response.status != HttpURLConnection.HTTP_OK) {
+            throw new GreetingsClientException(response.status, "Greeting matrix not returned");
+        }
+        try {
+            LocalMatrix downloaded = new LocalMatrix(objectMapper.readValue(response.body, GreetingMatrix.class));
+            matrix = downloaded;
+            matrixDownloads.incrementAndGet();
+            Log.info("Greeting matrix of {} locales downloaded, version {}", downloaded.greetings.size(), downloaded.version);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            throw new GreetingsClientException("Invalid greeting matrix", ex);
+        }
+    }
+
+    /**
+     * @return version of the downloaded greeting matrix, null if not downloaded yet
+     */
+    public String getMatrixVersion() {
+        LocalMatrix current = matrix;
+        return (current == null) ? null : current.version;
+    }
+
+    /**
+     * @return number of the requests answered locally
+     */
+    public long getLocalHits() {
+        return localHits.get();
+    }
+
+    /**
+     * @return number of the requests sent to the service, including the matrix refreshes
+     */
+    public long getRemoteCalls() {
+        return remoteCalls.get();
+    }
+
+    /**
+     * @return number of the downloaded greeting matrices
+     */
+    public long getMatrixDownloads() {
+        return matrixDownloads.get();
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+        refreshExecutor.shutdownNow();
+        batchDispatcher.interrupt();
+        batchExecutor.shutdown();
+        PendingRequest pending;
+        while ((pending = misses.poll()) != null) {
+            pending.result.completeExceptionally(new GreetingsClientException("Client closed", null));
+        }
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * @return result of the request found in the matrix, null if the request has to be sent to the service,<br>
+     *         which is also the case of the name refused by the service, so the client returns the same error
+     */
+    private GreetingResult findLocally(GreetingRequest request) {
+
+        LocalMatrix current = matrix;
+        String lang = request.getLang();
+        String name = (request.getName() == null) ? "" : request.getName();
+        if (current == null || lang == null || lang.isEmpty() || !isValidName(name)) {
+            return null;
+        }
+
+        Locale locale;
+        try {
+            locale = StringUtils.parseLocale(lang);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        if (locale == null || locale.getLanguage().isEmpty()) {
+            return null;
+        }
+
+        int keyIndex = LocalMatrix.TIME_INSENSITIVE_INDEX;
+        if (request.getUsersTime() != null) {
+            try {
+                LocalTime time = LocalTime.parse(request.getUsersTime(), TIME_FORMATTER);
+                TimePeriod timePeriod = current.minutePeriods[time.getHour() * 60 + time.getMinute()];
+                if (timePeriod == null) {
+                    return null;
+                }
+                keyIndex = timePeriod.ordinal();
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+
+        String greeting = null;
+        GreetingVariant variant = null;
+        List<String> tags = GreetingMatrix.getCandidateTags(locale);
+        for (String tag : tags) {
+            String[] greetings = current.greetings.get(tag);
+            if (greetings != null) {
+                greeting = greetings[keyIndex];
+                VariantSet[] variants = current.variants.get(tag);
+                if (greeting != null && variants != null && variants[keyIndex] != null) {
+                    variant = variants[keyIndex].getVariant(variants[keyIndex].select(request.getClientId()));
+                    greeting = variant.getText();
+                }
+                break;
+            }
+        }
+        if (greeting == null) {
+            return null;
+        }
+        String variantId = (variant == null) ? null : variant.getId();
+        if (name.isEmpty()) {
+            return GreetingResult.greeting(greeting, variantId);
+        }
+
+        MessageTemplate template = current.templates.get(GreetingMatrix.DEFAULT_TEMPLATE_TAG);
+        for (String tag : tags) {
+            if (current.templates.containsKey(tag)) {
+                template = current.templates.get(tag);
+                break;
+            }
+        }
+        return GreetingResult.greeting((template == null) ? greeting : template.render(greeting, name), variantId);
+    }
+
+    /**
+     * Sends the misses queued while all connections were busy in one batch. The connection is acquired<br>
+     * after the first miss is queued, so the idle dispatcher holds no connection needed by {@link #refresh()}<br>
+     * and {@link #getGreetings(List)}.
+     */
+    private void dispatchBatches() {
+
+        while (!closed) {
+            try {
+                PendingRequest first = misses.take();
+                try {
+                    connections.acquire();
+                } catch (InterruptedException ex) {
+                    first.result.completeExceptionally(new GreetingsClientException("Client closed", ex));
+                    throw ex;
+                }
+                List<PendingRequest> batch = new ArrayList<>();
+                batch.add(first);
+                misses.drainTo(batch, MAX_BATCH_SIZE - 1);
+                try {
+                    batchExecutor.execute(() -> {
+                        try {
+                            completeBatch(batch);
+                        } finally {
+                            connections.release();
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    // executor shut down by close()
+                    connections.release();
+                    for (PendingRequest pending : batch) {
+                        pending.result.completeExceptionally(new GreetingsClientException("Client closed", ex));
+                    }
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private void completeBatch(List<PendingRequest> batch) {
+
+        List<GreetingRequest> requests = new ArrayList<>(batch.size());
+        for (PendingRequest pending : batch) {
+            requests.add(pending.request);
+        }
+        try {
+            List<GreetingResult> results = sendBatch(requests);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(results.get(i));
+            }
+        } catch (RuntimeException ex) {
+            for (PendingRequest pending : batch) {
+                pending.result.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private List<GreetingResult> sendBatch(List<GreetingRequest> requests) {
+
+        try {
+            HttpResponse response = send("POST", "/api/greeting/batch", objectMapper.writeValueAsBytes(requests), null);
+            if (response.status != HttpURLConnection.HTTP_OK) {
+                throw new GreetingsClientException(response.status, "Batch of " + requests.size() + " requests rejected");
+            }
+            List<GreetingResult> results = objectMapper.readValue(response.body, RESULTS_TYPE);
+            if (results.size() != requests.size()) {
+                throw new GreetingsClientException(response.status, "Invalid number of the batch results: " + results.size());
+            }
+            return results;
+        } catch (IOException ex) {
+            throw new GreetingsClientException("Invalid batch results", ex);
+        }
+    }
+
+    /**
+     * Sends the request and reads the whole response, so the connection can be reused.
+     */
+    private HttpResponse send(String method, String path, byte[] body, String ifNoneMatch) {
+
+        remoteCalls.incrementAndGet();
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setRequestProperty("Accept", "application/json");
+            if (ifNoneMatch != null) {
+                connection.setRequestProperty("If-None-Match", ifNoneMatch);
+            }
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream output = connection.getOutputStream()) {
+                    output.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            InputStream input = (status >= 400) ? connection.getErrorStream() : connection.getInputStream();
+            return new HttpResponse(status, readFully(input));
+        } catch (IOException ex) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            throw new GreetingsClientException(method + " " + path + " failed", ex);
+        }
+    }
+
+    private <T> T withConnection(Supplier<T> call) {
+
+        try {
+            connections.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GreetingsClientException("Interrupted while waiting for a connection", ex);
+        }
+        try {
+            return call.get();
+        } finally {
+            connections.release();
+        }
+    }
+
+    private void refreshQuietly() {
+
+        try {
+            refresh();
+        } catch (GreetingsClientException ex) {
+            Log.warn("Greeting matrix refresh failed, the current matrix is used: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Same rules as of the {@code GreetingRequestHandler} of the service: the name not longer than {@link #MAX_NAME_LENGTH}<br>
+     * of the letters, digits, combining marks, spaces and {@code '-.} characters.
+     */
+    private static boolean isValidName(String name) {
+
+        if (name.length() > MAX_NAME_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); ) {
+            int codePoint = name.codePointAt(i);
+            int type = Character.getType(codePoint);
+            if (!Character.isLetterOrDigit(codePoint) && type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+                    && codePoint != ' ' && codePoint != '\'' && codePoint != '-' && codePoint != '.') {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    private static String greetingOf(GreetingResult result) {
+
+        if (!result.isSuccess()) {
+            throw new GreetingsClientException(result.getStatus(), result.getMessage());
+        }
+        return result.getGreeting();
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+
+        if (input == null) {
+            return new byte[0];
+        }
+        try (InputStream in = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Greeting matrix converted for the lookups
+     */
+    private static final class LocalMatrix
+    {
+        private static final int TIME_INSENSITIVE_INDEX = TimePeriod.values().length;
+
+        private final String version;
+
+        /**
+         * {@link TimePeriod} of every minute of the day
+         */
+        private final TimePeriod[] minutePeriods = new TimePeriod[MINUTES_PER_DAY];
+
+        /**
+         * Greetings of the locale tags indexed by the {@link TimePeriod} ordinal and {@link #TIME_INSENSITIVE_INDEX}
+         */
+        private final Map<String, String[]> greetings = new HashMap<>();
+
+        private final Map<String, MessageTemplate> templates = new HashMap<>();
+
+        /**
+         * Variant sets of the locale tags indexed same as the {@link #greetings}, null for the greetings without variants
+         */
+        private final Map<String, VariantSet[]> variants = new HashMap<>();
+
+        private LocalMatrix(GreetingMatrix matrix) {
+
+            this.version = matrix.getVersion();
+
+            for (GreetingMatrix.PeriodStart periodStart : matrix.getPeriods()) {
+                LocalTime start = LocalTime.parse(periodStart.getStart(), TIME_FORMATTER);
+                for (int minute = start.getHour() * 60 + start.getMinute(); minute < MINUTES_PER_DAY; minute++) {
+                    minutePeriods[minute] = periodStart.getPeriod();
+                }
+            }
+
+            for (Map.Entry<String, Map<String, String>> locale : matrix.getGreetings().entrySet()) {
+                String[] texts = new String[TIME_INSENSITIVE_INDEX + 1];
+                for (TimePeriod timePeriod : TimePeriod.values()) {
+                    texts[timePeriod.ordinal()] = locale.getValue().get(timePeriod.name());
+                }
+                texts[TIME_INSENSITIVE_INDEX] = locale.getValue().get(GreetingMatrix.TIME_INSENSITIVE);
+                greetings.put(locale.getKey(), texts);
+            }
+
+            for (Map.Entry<String, String> template : matrix.getTemplates().entrySet()) {
+                templates.put(template.getKey(), MessageTemplate.compile(template.getValue()));
+            }
+
+            for (Map.Entry<String, Map<String, String>> locale : matrix.getVariants().entrySet()) {
+                VariantSet[] sets = new VariantSet[TIME_INSENSITIVE_INDEX + 1];
+                for (TimePeriod timePeriod : TimePeriod.values()) {
+                    sets[timePeriod.ordinal()] = parseVariants(locale.getValue().get(timePeriod.name()));
+                }
+                sets[TIME_INSENSITIVE_INDEX] = parseVariants(locale.getValue().get(GreetingMatrix.TIME_INSENSITIVE));
+                variants.put(locale.getKey(), sets);
+            }
+        }
+
+        /**
+         * @return compiled variant set, null if there is no definition or it is invalid - the service ignores it too
+         */
+        private static VariantSet parseVariants(String definition) {
+
+            if (definition == null) {
+                return null;
+            }
+            try {
+                return VariantSet.parse(definition);
+            } catch (IllegalArgumentException ex) {
+                Log.warn("Greeting variants ignored: {}", ex.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private static final class PendingRequest
+    {
+        private final GreetingRequest request;
+        private final CompletableFuture<GreetingResult> result = new CompletableFuture<>();
+
+        private PendingRequest(GreetingRequest request) {
+            this.request = request;
+        }
+    }
+
+    private static final class HttpResponse
+    {
+        private final int status;
+        private final byte[] body;
+
+        private HttpResponse(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
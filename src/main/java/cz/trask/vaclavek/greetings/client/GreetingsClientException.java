@@ -0,0 +1,31 @@
+package cz.trask.vaclavek.greetings.client;
+
+/**
+ * Greeting request rejected by the Greetings service or failed because of the communication error.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingsClientException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * HTTP status of the rejected request, 0 for the communication errors
+     */
+    private final int status;
+
+    public GreetingsClientException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public GreetingsClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
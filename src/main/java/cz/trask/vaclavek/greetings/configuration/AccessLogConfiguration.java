@@ -0,0 +1,64 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
+
+import cz.trask.vaclavek.greetings.accesslog.AccessLogFilter;
+import cz.trask.vaclavek.greetings.accesslog.MappedAccessLog;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+
+/**
+ * Configuration of the binary memory-mapped access log of the greetings requests.
+ * <p>
+ * The access log is switched on by the {@code greetings.accesslog.enabled=true} property. Records are written<br>
+ * into the rolling files of the {@code greetings.accesslog.directory} and they can be analyzed by<br>
+ * {@code java -jar greetings.jar analyze-access-log <directory>}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.accesslog.enabled", havingValue = "true")
+public class AccessLogConfiguration
+{
+    @Bean(destroyMethod = "close")
+    public MappedAccessLog mappedAccessLog(MessageSource messageSource,
+                                           @Value("${greetings.accesslog.directory:logs/access}") String directory,
+                                           @Value("${greetings.accesslog.file-size:64MB}") DataSize fileSize,
+                                           @Value("${greetings.accesslog.chunk-records:512}") int chunkRecords,
+                                           @Value("${greetings.accesslog.max-files:48}") int maxFiles) {
+
+        List<String> localeTags = AccessLogFilter.createLocaleTags((messageSource instanceof LocaleGuardMessageSource)
+                                                                        ? ((LocaleGuardMessageSource) messageSource).getCatalogLocales()
+                                                                        : Collections.emptySet());
+        return new MappedAccessLog(Paths.get(directory), fileSize.toBytes(), chunkRecords, maxFiles, localeTags);
+    }
+
+    @Bean
+    public AccessLogFilter accessLogFilter(MappedAccessLog mappedAccessLog, MessageSource messageSource) {
+        return new AccessLogFilter(mappedAccessLog, (messageSource instanceof LocaleGuardMessageSource) ? (LocaleGuardMessageSource) messageSource : null);
+    }
+
+    /**
+     * Registers the access log for the greetings endpoints only, as the first filter of the chain,<br>
+     * so the requests rejected by the concurrency limiter are logged too.
+     */
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilterRegistration(AccessLogFilter filter) {
+
+        FilterRegistrationBean<AccessLogFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/greeting/timesensitive", "/api/greeting/timeinsensitive");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
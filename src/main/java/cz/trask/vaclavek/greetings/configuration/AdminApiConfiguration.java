@@ -0,0 +1,45 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import cz.trask.vaclavek.greetings.admin.AdminTokenFilter;
+import cz.trask.vaclavek.greetings.errors.ApiErrorTemplates;
+
+/**
+ * Configuration of the admin API changing the greetings at runtime.
+ * <p>
+ * Only the database catalog ({@code greetings.catalog.source=jdbc}) can be changed, the admin API exists only when<br>
+ * it is used and when the {@code greetings.admin.token} property is set. The clients have to send the token in the<br>
+ * {@code Authorization: Bearer <token>} header checked by the {@link AdminTokenFilter}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.catalog.source", havingValue = "jdbc")
+@ConditionalOnExpression("!'${greetings.admin.token:}'.isEmpty()")
+public class AdminApiConfiguration
+{
+    @Bean
+    public AdminTokenFilter adminTokenFilter(@Value("${greetings.admin.token}") String token, ApiErrorTemplates apiErrorTemplates) {
+        return new AdminTokenFilter(token, apiErrorTemplates);
+    }
+
+    /**
+     * Registers the token check for the admin API only.
+     */
+    @Bean
+    public FilterRegistrationBean<AdminTokenFilter> adminTokenFilterRegistration(AdminTokenFilter filter) {
+
+        FilterRegistrationBean<AdminTokenFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/admin/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,54 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import cz.trask.vaclavek.greetings.allocation.AllocationAccountingFilter;
+import cz.trask.vaclavek.greetings.allocation.AllocationEndpoint;
+import cz.trask.vaclavek.greetings.allocation.AllocationStatistics;
+
+/**
+ * Configuration of the per-request allocation accounting of the greetings requests.
+ * <p>
+ * Bytes allocated by the requests are exposed by the {@code /actuator/allocations} endpoint. The accounting<br>
+ * is switched on by the {@code greetings.allocation-accounting.enabled=true} property.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.allocation-accounting.enabled", havingValue = "true")
+public class AllocationAccountingConfiguration
+{
+    @Bean
+    public AllocationStatistics allocationStatistics(@Value("${greetings.allocation-accounting.max-endpoints:32}") int maxEndpoints) {
+        return new AllocationStatistics(maxEndpoints);
+    }
+
+    @Bean
+    public AllocationAccountingFilter allocationAccountingFilter(AllocationStatistics statistics) {
+        return new AllocationAccountingFilter(statistics);
+    }
+
+    /**
+     * Registers the accounting for the greetings endpoints, after the access log and concurrency limit filters,<br>
+     * but before the fast path, so the requests served by the fast path are measured too.
+     */
+    @Bean
+    public FilterRegistrationBean<AllocationAccountingFilter> allocationAccountingFilterRegistration(AllocationAccountingFilter filter) {
+
+        FilterRegistrationBean<AllocationAccountingFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/greeting/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+    @Bean
+    public AllocationEndpoint allocationEndpoint(AllocationAccountingFilter filter, AllocationStatistics statistics) {
+        return new AllocationEndpoint(filter, statistics);
+    }
+}
@@ -0,0 +1,96 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.messages.ParallelCatalogLoader;
+import cz.trask.vaclavek.greetings.replication.CatalogPublisher;
+import cz.trask.vaclavek.greetings.replication.CatalogReplica;
+import cz.trask.vaclavek.greetings.replication.ReplicatedMessageCatalog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the replication of the messages catalog between the nodes.
+ * <p>
+ * With {@code greetings.replication.role=publisher} the node reloads the messages files every<br>
+ * {@code greetings.replication.reload-interval} and publishes the changed catalog versions by the {@code /api/catalog/replication}<br>
+ * endpoints, see {@link CatalogPublisher}. With {@code greetings.replication.role=replica} the node receives the catalog<br>
+ * from the {@code greetings.replication.publisher-url} node instead of reading the files, see {@link CatalogReplica}.<br>
+ * Replication is switched off by default ({@code none}), it requires the preloaded catalog ({@code greetings.messages.preload.enabled=true}).
+ * <p>
+ * Versions, applied deltas and the convergence time are published as the {@code greetings.replication.*} metrics.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+public class CatalogReplicationConfiguration
+{
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "greetings.replication.role", havingValue = "publisher")
+    public CatalogPublisher catalogPublisher(MessageSource messageSource, MessageTemplates messageTemplates, MeterRegistry meterRegistry,
+                                             @Value("${greetings.messages.basename:classpath:/messages}") String basename,
+                                             @Value("${greetings.messages.preload.parallelism:0}") int parallelism,
+                                             @Value("${greetings.replication.reload-interval:5s}") Duration reloadInterval,
+                                             @Value("${greetings.replication.max-deltas:64}") int maxDeltas) {
+
+        ParallelCatalogLoader loader = new ParallelCatalogLoader(GreetingsConfiguration.catalogValidator(), parallelism);
+        CatalogPublisher publisher = new CatalogPublisher(loader, basename, ReplicatedMessageCatalog.of(messageSource, messageTemplates),
+                                                        maxDeltas);
+        publisher.startReload(reloadInterval);
+
+        Gauge.builder("greetings.replication.version", publisher, CatalogPublisher::getVersion)
+             .description("Version of the published messages catalog")
+             .register(meterRegistry);
+        Gauge.builder("greetings.replication.waiting.replicas", publisher, CatalogPublisher::getWaitingReplicas)
+             .description("Number of the replicas waiting for the next catalog version")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.replication.failures", publisher, CatalogPublisher::getReloadFailures)
+             .description("Number of the failed reloads of the messages files")
+             .register(meterRegistry);
+        return publisher;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "greetings.replication.role", havingValue = "replica")
+    public CatalogReplica catalogReplica(MessageSource messageSource, MessageTemplates messageTemplates, MeterRegistry meterRegistry,
+                                         @Value("${greetings.messages.preload.parallelism:0}") int parallelism,
+                                         @Value("${greetings.replication.publisher-url}") String publisherUrl,
+                                         @Value("${greetings.replication.wait:30s}") Duration wait,
+                                         @Value("${greetings.replication.retry-interval:5s}") Duration retryInterval) {
+
+        ParallelCatalogLoader loader = new ParallelCatalogLoader(GreetingsConfiguration.catalogValidator(), parallelism);
+        CatalogReplica replica = new CatalogReplica(loader, ReplicatedMessageCatalog.of(messageSource, messageTemplates),
+                                                    publisherUrl, wait.toMillis(), retryInterval.toMillis());
+        replica.start();
+
+        Gauge.builder("greetings.replication.version", replica, CatalogReplica::getVersion)
+             .description("Version of the replicated messages catalog")
+             .register(meterRegistry);
+        Gauge.builder("greetings.replication.convergence", replica, CatalogReplica::getLastConvergenceMillis)
+             .description("Time from the publication of the last catalog delta to its replacement on this node")
+             .baseUnit("milliseconds")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.replication.updates", replica, CatalogReplica::getDeltas)
+             .tag("type", "delta")
+             .description("Number of the applied catalog changes")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.replication.updates", replica, CatalogReplica::getSnapshots)
+             .tag("type", "snapshot")
+             .description("Number of the applied catalog changes")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.replication.failures", replica, CatalogReplica::getFailures)
+             .description("Number of the failed synchronizations with the publisher")
+             .register(meterRegistry);
+        return replica;
+    }
+}
@@ -0,0 +1,70 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import cz.trask.vaclavek.greetings.errors.ApiErrorTemplates;
+import cz.trask.vaclavek.greetings.limiter.AdaptiveConcurrencyLimitFilter;
+import cz.trask.vaclavek.greetings.limiter.GradientConcurrencyLimit;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the adaptive concurrency limit of the greetings requests.
+ * <p>
+ * The limit is applied to the {@code /api/greeting/timesensitive} and {@code /api/greeting/timeinsensitive}<br>
+ * requests only, the long living Server-Sent Events subscriptions are not limited.<br>
+ * The limiter is switched off by default, it is switched on by the {@code greetings.concurrency-limit.enabled=true} property.
+ * <p>
+ * Current limit, number of requests in progress and number of rejected requests are exposed as metrics<br>
+ * {@code greetings.concurrency.limit}, {@code greetings.concurrency.inflight} and {@code greetings.concurrency.rejected}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitConfiguration
+{
+    @Bean
+    public AdaptiveConcurrencyLimitFilter adaptiveConcurrencyLimitFilter(ApiErrorTemplates apiErrorTemplates,
+                                                                         MeterRegistry meterRegistry,
+                                                                         @Value("${greetings.concurrency-limit.initial:20}") int initialLimit,
+                                                                         @Value("${greetings.concurrency-limit.min:4}") int minLimit,
+                                                                         @Value("${greetings.concurrency-limit.max:500}") int maxLimit,
+                                                                         @Value("${greetings.concurrency-limit.rtt-tolerance:1.5}") double rttTolerance,
+                                                                         @Value("${greetings.concurrency-limit.smoothing:0.2}") double smoothing) {
+
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, rttTolerance, smoothing);
+        AdaptiveConcurrencyLimitFilter filter = new AdaptiveConcurrencyLimitFilter(limit, apiErrorTemplates);
+
+        Gauge.builder("greetings.concurrency.limit", filter, AdaptiveConcurrencyLimitFilter::getLimit)
+             .description("Current adaptive limit of the concurrently processed greetings requests")
+             .register(meterRegistry);
+        Gauge.builder("greetings.concurrency.inflight", filter, AdaptiveConcurrencyLimitFilter::getInFlight)
+             .description("Number of the greetings requests in progress")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.concurrency.rejected", filter, AdaptiveConcurrencyLimitFilter::getRejected)
+             .description("Number of the greetings requests rejected because of the concurrency limit")
+             .register(meterRegistry);
+        return filter;
+    }
+
+    /**
+     * Registers the limiter for the greetings endpoints only, right after the access log filter,<br>
+     * so the rejected requests are not processed by any other filter.
+     */
+    @Bean
+    public FilterRegistrationBean<AdaptiveConcurrencyLimitFilter> adaptiveConcurrencyLimitFilterRegistration(AdaptiveConcurrencyLimitFilter filter) {
+
+        FilterRegistrationBean<AdaptiveConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/greeting/timesensitive", "/api/greeting/timeinsensitive");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
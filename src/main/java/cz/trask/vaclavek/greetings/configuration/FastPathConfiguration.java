@@ -0,0 +1,50 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import cz.trask.vaclavek.greetings.controller.GreetingRequestHandler;
+import cz.trask.vaclavek.greetings.errors.RestExceptionHandler;
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathEndpoint;
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathFilter;
+
+/**
+ * Configuration of the {@link GreetingsFastPathFilter} serving the greetings requests without the Spring MVC.
+ * <p>
+ * The fast path is switched off by default, it is switched on by the {@code greetings.fastpath.enabled=true}<br>
+ * property or at runtime by the {@code /actuator/fastpath} endpoint.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+public class FastPathConfiguration
+{
+    @Bean
+    public GreetingsFastPathFilter greetingsFastPathFilter(GreetingRequestHandler greetingRequestHandler,
+                                                           RestExceptionHandler restExceptionHandler,
+                                                           @Value("${greetings.fastpath.enabled:false}") boolean enabled) {
+        return new GreetingsFastPathFilter(greetingRequestHandler, restExceptionHandler, enabled);
+    }
+
+    /**
+     * Registers the fast path for the greetings endpoints only, after the access log, concurrency limit,<br>
+     * allocation accounting and static greetings filters.
+     */
+    @Bean
+    public FilterRegistrationBean<GreetingsFastPathFilter> greetingsFastPathFilterRegistration(GreetingsFastPathFilter filter) {
+
+        FilterRegistrationBean<GreetingsFastPathFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/greeting/timesensitive", "/api/greeting/timeinsensitive");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 4);
+        return registration;
+    }
+
+    @Bean
+    public GreetingsFastPathEndpoint greetingsFastPathEndpoint(GreetingsFastPathFilter filter) {
+        return new GreetingsFastPathEndpoint(filter);
+    }
+}
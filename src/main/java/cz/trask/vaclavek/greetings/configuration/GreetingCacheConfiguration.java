@@ -0,0 +1,78 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import cz.trask.vaclavek.greetings.cache.CachingGreetingsService;
+import cz.trask.vaclavek.greetings.cache.GreetingCachePostProcessor;
+import cz.trask.vaclavek.greetings.cache.TinyLfuCache;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the in-process cache of the greetings, see {@link TinyLfuCache}.
+ * <p>
+ * Switched off by default, it is switched on by the {@code greetings.cache.enabled=true} property. The estimated size<br>
+ * of the cached greetings is limited by the {@code greetings.cache.max-weight}, the catalog version is checked every<br>
+ * {@code greetings.cache.check-interval}. Hits, misses and evictions are published as the {@code greetings.cache.*} metrics.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.cache.enabled", havingValue = "true")
+public class GreetingCacheConfiguration
+{
+    /**
+     * Static, so the post processor is created before the other beans of this configuration.
+     */
+    @Bean
+    public static GreetingCachePostProcessor greetingCachePostProcessor(@Value("${greetings.cache.max-weight:1MB}") DataSize maxWeight,
+                                                                        @Value("${greetings.cache.check-interval:1s}") Duration checkInterval) {
+        return new GreetingCachePostProcessor(maxWeight.toBytes(), checkInterval.toMillis());
+    }
+
+    @Bean
+    public TinyLfuCache<?, ?> greetingCache(GreetingsService greetingsService, MeterRegistry meterRegistry) {
+
+        TinyLfuCache<?, ?> cache = ((CachingGreetingsService) greetingsService).getCache();
+
+        FunctionCounter.builder("greetings.cache.gets", cache, TinyLfuCache::getHits)
+             .tag("result", "hit")
+             .description("Number of the greetings served by the cache")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.cache.gets", cache, TinyLfuCache::getMisses)
+             .tag("result", "miss")
+             .description("Number of the greetings not found in the cache")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.cache.evictions", cache, TinyLfuCache::getEvictions)
+             .description("Number of the greetings evicted from the cache")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.cache.evicted.weight", cache, TinyLfuCache::getEvictedWeight)
+             .description("Estimated size of the greetings evicted from the cache")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.cache.rejections", cache, TinyLfuCache::getRejections)
+             .description("Number of the greetings rejected by the admission to the main region of the cache")
+             .register(meterRegistry);
+        Gauge.builder("greetings.cache.size", cache, TinyLfuCache::size)
+             .description("Number of the cached greetings")
+             .register(meterRegistry);
+        Gauge.builder("greetings.cache.weight", cache, TinyLfuCache::getWeightedSize)
+             .description("Estimated size of the cached greetings")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+        Gauge.builder("greetings.cache.hit.ratio", cache, TinyLfuCache::getHitRatio)
+             .description("Ratio of the greetings served by the cache")
+             .register(meterRegistry);
+        return cache;
+    }
+}
@@ -0,0 +1,29 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the weighted greeting variants.
+ * <p>
+ * Variant sets are defined in the greetings catalog, see {@link GreetingVariants}. Served variants are published<br>
+ * as the {@code greetings.variants.served} metrics, at most {@code greetings.variants.max-sets-per-key} compiled<br>
+ * definitions are cached for every greeting key.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+public class GreetingVariantsConfiguration
+{
+    @Bean
+    public GreetingVariants greetingVariants(MeterRegistry meterRegistry,
+                                             @Value("${greetings.variants.max-sets-per-key:16}") int maxSetsPerKey) {
+        return new GreetingVariants(meterRegistry, maxSetsPerKey);
+    }
+}
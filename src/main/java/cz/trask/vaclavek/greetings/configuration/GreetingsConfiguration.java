@@ -1,16 +1,38 @@
 package cz.trask.vaclavek.greetings.configuration;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.support.ReloadableResourceBundleMessageSource;
 import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.i18n.AbstractLocaleResolver;
 import org.springframework.web.servlet.i18n.LocaleChangeInterceptor;
-import org.springframework.web.servlet.i18n.SessionLocaleResolver;
+
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.controller.GreetingsController;
+import cz.trask.vaclavek.greetings.messages.CatalogValidator;
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+import cz.trask.vaclavek.greetings.messages.ParallelCatalogLoader;
+import cz.trask.vaclavek.greetings.messages.PreloadedCatalog;
+import cz.trask.vaclavek.greetings.messages.PreloadedMessageSource;
+import cz.trask.vaclavek.greetings.messages.RecordingMessageSource;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
+import cz.trask.vaclavek.greetings.tracing.StageTracingInterceptor;
+import cz.trask.vaclavek.greetings.tracing.TracingLocaleChangeInterceptor;
+import cz.trask.vaclavek.greetings.tracing.TracingRequestLocaleResolver;
+import cz.trask.vaclavek.greetings.tracing.TracingSessionLocaleResolver;
 
 /**
  * Basic Spring {@code WebMvcConfigurer} configuration implementation of the application.
@@ -33,7 +55,12 @@ import org.springframework.web.servlet.i18n.SessionLocaleResolver;
  * has to be created and filled by desired greetings.<br>
  * If it is expected, that the lang parameter of the API request can contain only language abbrevation (for example lang=es),
  * then corresponding properties file has to be created in form {@code 'messages_language.properties'}, for example
- * {@code 'messages_es.properties'}.
+ * {@code 'messages_es.properties'}.<br>
+ * Other location of the properties files can be set by the {@code greetings.messages.basename} property,<br>
+ * for example {@code file:/etc/greetings/messages}.
+ * <p>
+ * Locale resolution is timed by the {@link StageTracer}, the initial sampling rate of the tracing
+ * is set by the {@code greetings.tracing.sampling-rate} property (0 i.e. switched off by default).
  * 
  * @author Michal Vaclavek
  *
@@ -42,20 +69,22 @@ import org.springframework.web.servlet.i18n.SessionLocaleResolver;
 public class GreetingsConfiguration implements WebMvcConfigurer
 {
     /**
-     * Implementation of LocaleResolver interface to define default locale.
+     * Implementation of LocaleResolver interface to define default locale.<br>
+     * The resolved locale is kept in the HTTP session, or in the current request only if the sessions are switched off.
      * 
+     * @param sessionsEnabled - if false, no HTTP session is created to keep the locale
      * @return LocaleResolver interface implementation with default locale set to {@code Locale("xx", "XX")}
      */
     @Bean
-    public LocaleResolver localeResolver() {
-        SessionLocaleResolver sessionLocaleResolver = new SessionLocaleResolver();
+    public LocaleResolver localeResolver(@Value("${greetings.sessions.enabled:true}") boolean sessionsEnabled) {
+        AbstractLocaleResolver localeResolver = sessionsEnabled ? new TracingSessionLocaleResolver() : new TracingRequestLocaleResolver();
         
         // Set default locale to any unsopported language
         // Used to detect, if the REST request contains correct lang parameter
         // If the locale of the Controller's methods contain this default language,
         // then it indictes that the REST request did not contain valid lang parameter
-        sessionLocaleResolver.setDefaultLocale(new Locale("xx", "XX"));
-        return sessionLocaleResolver;
+        localeResolver.setDefaultLocale(new Locale("xx", "XX"));
+        return localeResolver;
     }
 
     /**
@@ -65,29 +94,95 @@ public class GreetingsConfiguration implements WebMvcConfigurer
      */
     @Bean
     public LocaleChangeInterceptor localeChangeInterceptor() {
-        LocaleChangeInterceptor lci = new LocaleChangeInterceptor();
+        LocaleChangeInterceptor lci = new TracingLocaleChangeInterceptor();
         lci.setParamName("lang");
         return lci;
     }
 
     @Override
     public void addInterceptors(InterceptorRegistry ir) {
+        // must be the first one to trace the time spent in the other interceptors
+        ir.addInterceptor(new StageTracingInterceptor());
         ir.addInterceptor(localeChangeInterceptor());
     } 
     
+    /**
+     * Sets initial sampling rate of the request processing stages tracing.
+     * 
+     * @param samplingRate - every n-th request is traced, 0 means tracing switched off
+     */
+    @Value("${greetings.tracing.sampling-rate:0}")
+    public void setTracingSamplingRate(int samplingRate) {
+        StageTracer.setSamplingRate(samplingRate);
+    }
+    
     /**
      * Defines {@code MessageSource} i.e. properties files for every allowed locale (i.e. language_country combination),
-     * which stores the greetings for the respective locale.
+     * which stores the greetings for the respective locale.<br>
+     * All properties files are loaded and validated in parallel when the bean is created, see {@link ParallelCatalogLoader},<br>
+     * so the application does not start with a broken catalog. If the preloading is switched off, every file is loaded<br>
+     * by the first request of its locale. Loads of the properties files are recorded as Flight Recorder events.<br>
+     * Requested locales are mapped onto the locales of the existing properties files by the {@link LocaleGuardMessageSource},
+     * so the per-locale caches of the message source can not grow without limit.<br>
+     * Lookups of the files loaded on demand run under the deadline of the {@link DeadlineMessageSource}, unless it is switched off.
+     * 
+     * @param basename - basename of the properties files with greetings
+     * @param maxCachedLocales - max. number of the cached mappings of the locales without own properties file
+     * @param preload - true if all properties files are loaded and validated at startup
+     * @param parallelism - number of the threads loading the properties files, number of the CPU cores if 0
+     * @param deadline - true if the lookups of the files loaded on demand run under the deadline
+     * @param deadlineTimeout - max. time the request waits for the lookup of the files loaded on demand
+     * @param deadlineThreads - max. number of the concurrent lookups of the files loaded on demand
+     * @param failureThreshold - number of the consecutive lookup timeouts opening the breaker
+     * @param openDuration - time the breaker stays open
      * @return
      */
     @Bean
-    public MessageSource messageSource() {
-        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
-        messageSource.setBasenames("classpath:/messages");
+    public MessageSource messageSource(@Value("${greetings.messages.basename:classpath:/messages}") String basename,
+                                       @Value("${greetings.messages.max-cached-locales:256}") int maxCachedLocales,
+                                       @Value("${greetings.messages.preload.enabled:true}") boolean preload,
+                                       @Value("${greetings.messages.preload.parallelism:0}") int parallelism,
+                                       @Value("${greetings.messages.deadline.enabled:true}") boolean deadline,
+                                       @Value("${greetings.messages.deadline.timeout:250ms}") Duration deadlineTimeout,
+                                       @Value("${greetings.messages.deadline.threads:8}") int deadlineThreads,
+                                       @Value("${greetings.messages.deadline.failure-threshold:5}") int failureThreshold,
+                                       @Value("${greetings.messages.deadline.open-duration:10s}") Duration openDuration) {
+        if (preload) {
+            PreloadedCatalog catalog = new ParallelCatalogLoader(catalogValidator(), parallelism).load(basename);
+            PreloadedMessageSource messageSource = new PreloadedMessageSource(catalog);
+            messageSource.setUseCodeAsDefaultMessage(true);
+            Set<Locale> catalogLocales = new HashSet<>(catalog.getLocales());
+            catalogLocales.remove(Locale.ROOT);
+            return new LocaleGuardMessageSource(messageSource, catalogLocales, maxCachedLocales);
+        }
+        RecordingMessageSource messageSource = new RecordingMessageSource();
+        messageSource.setBasenames(basename);
         messageSource.setDefaultEncoding("UTF-8");
         messageSource.setUseCodeAsDefaultMessage(true);
         messageSource.setFallbackToSystemLocale(false);
-        return messageSource;
+        if (deadline) {
+            return new LocaleGuardMessageSource(new DeadlineMessageSource(messageSource, deadlineTimeout.toMillis(), deadlineThreads,
+                                                                          failureThreshold, openDuration.toMillis()),
+                                                basename, maxCachedLocales);
+        }
+        return new LocaleGuardMessageSource(messageSource, basename, maxCachedLocales);
+    }
+    
+    /**
+     * Rules of the valid greetings catalog: every locale must have the general greetings, which the other greetings
+     * fall back to, the base file must have the error texts and the formatted messages must not use more arguments
+     * than the application passes.
+     */
+    static CatalogValidator catalogValidator() {
+        
+        Set<String> requiredKeys = new HashSet<>(Arrays.asList(GreetingKey.GENERAL_PURPOSE.getCatalogKey(),
+                                                               GreetingKey.TIME_INSENSITIVE.getCatalogKey()));
+        Set<String> requiredBaseKeys = new HashSet<>(Arrays.asList(GreetingsServiceImpl.GREETING_ERROR_KEY,
+                                                                   GreetingsServiceImpl.GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY));
+        Map<String, Integer> argumentsCounts = new HashMap<>();
+        argumentsCounts.put(GreetingsServiceImpl.GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, 1);
+        argumentsCounts.put(GreetingsController.GREETING_PERSONALIZED_KEY, 2);
+        return new CatalogValidator(requiredKeys, requiredBaseKeys, argumentsCounts);
     }
     
 }
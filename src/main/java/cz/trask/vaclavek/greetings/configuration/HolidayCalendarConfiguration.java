@@ -0,0 +1,34 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import java.time.Clock;
+import java.time.ZoneId;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+
+/**
+ * Configuration of the {@link HolidayCalendar} of the holiday greetings.
+ * <p>
+ * Rules are loaded from the {@code holidays_xx_XX.properties} files of the {@code greetings.calendar.basename}.<br>
+ * The current day is the day of the {@code greetings.calendar.zone} time zone, system time zone if it is not set.<br>
+ * The calendar is switched off (empty) by the {@code greetings.calendar.enabled=false} property.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+public class HolidayCalendarConfiguration
+{
+    @Bean
+    public HolidayCalendar holidayCalendar(@Value("${greetings.calendar.enabled:true}") boolean enabled,
+                                           @Value("${greetings.calendar.basename:classpath:/holidays}") String basename,
+                                           @Value("${greetings.calendar.zone:}") String zone,
+                                           @Value("${greetings.calendar.max-cached-locales:256}") int maxCachedLocales) {
+
+        Clock clock = zone.isEmpty() ? Clock.systemDefaultZone() : Clock.system(ZoneId.of(zone));
+        return enabled ? HolidayCalendar.load(basename, clock, maxCachedLocales) : HolidayCalendar.empty(clock);
+    }
+}
@@ -0,0 +1,108 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.catalog.JdbcGreetingCatalog;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.serviceimpl.JdbcGreetingsServiceImpl;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the greetings catalog stored in the database.
+ * <p>
+ * Switched on by the {@code greetings.catalog.source=jdbc} property, the messages_xx_XX.properties files are used otherwise.<br>
+ * The database is set by the standard {@code spring.datasource.*} properties (embedded H2 database if they are not set).<br>
+ * The connection pool and the H2 database are added by the {@code jdbc} build profile ({@code mvn package -Dcatalog=jdbc}),<br>
+ * the application built without it has no data source at all. The data source is created here, so the Spring Boot<br>
+ * auto-configuration backs off.
+ * <p>
+ * With {@code greetings.catalog.jdbc.initialize=true} the {@code greeting} table is created if it does not exist<br>
+ * and filled by the initial greetings if it is empty. The catalog is refreshed every {@code greetings.catalog.jdbc.refresh-interval},<br>
+ * the rows of the last {@code greetings.catalog.jdbc.refresh-version-window} versions are read again by every refresh.<br>
+ * Catalog version, number of the greetings and number of the on-demand locale queries are published as the metrics<br>
+ * {@code greetings.catalog.version}, {@code greetings.catalog.entries} and {@code greetings.catalog.locale.queries}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.catalog.source", havingValue = "jdbc")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class JdbcCatalogConfiguration
+{
+    private static final String SCHEMA_SCRIPT = "db/greetings-schema.sql";
+    private static final String DATA_SCRIPT = "db/greetings-data.sql";
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public JdbcGreetingCatalog jdbcGreetingCatalog(DataSource dataSource,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${greetings.catalog.jdbc.initialize:false}") boolean initialize,
+                                                   @Value("${greetings.catalog.jdbc.refresh-interval:30s}") Duration refreshInterval,
+                                                   @Value("${greetings.catalog.jdbc.max-missing-locales:256}") int maxMissingLocales,
+                                                   @Value("${greetings.catalog.jdbc.refresh-version-window:100}") long versionWindow) {
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (initialize) {
+            initializeDatabase(dataSource, jdbcTemplate);
+        }
+
+        JdbcGreetingCatalog catalog = new JdbcGreetingCatalog(jdbcTemplate, maxMissingLocales, versionWindow);
+        catalog.loadAll();
+        catalog.startRefresh(refreshInterval);
+
+        Gauge.builder("greetings.catalog.version", catalog, c -> c.getSnapshot().getVersion())
+             .description("Version of the greetings catalog snapshot")
+             .register(meterRegistry);
+        Gauge.builder("greetings.catalog.entries", catalog, c -> c.getSnapshot().size())
+             .description("Number of the greetings in the catalog snapshot")
+             .register(meterRegistry);
+        FunctionCounter.builder("greetings.catalog.locale.queries", catalog, JdbcGreetingCatalog::getLocaleQueries)
+             .description("Number of the queries reading the locales not contained in the catalog snapshot")
+             .register(meterRegistry);
+        return catalog;
+    }
+
+    @Bean
+    public GreetingsService greetingsService(JdbcGreetingCatalog catalog, MessageTemplates messageTemplates, HolidayCalendar holidayCalendar,
+                                             GreetingVariants greetingVariants) {
+        return new JdbcGreetingsServiceImpl(catalog, messageTemplates, holidayCalendar, greetingVariants);
+    }
+
+    private static void initializeDatabase(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT));
+        schema.setSqlScriptEncoding(StandardCharsets.UTF_8.name());
+        schema.execute(dataSource);
+
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM greeting", Integer.class);
+        if (rows == null || rows == 0) {
+            ResourceDatabasePopulator data = new ResourceDatabasePopulator(new ClassPathResource(DATA_SCRIPT));
+            data.setSqlScriptEncoding(StandardCharsets.UTF_8.name());
+            data.execute(dataSource);
+        }
+    }
+}
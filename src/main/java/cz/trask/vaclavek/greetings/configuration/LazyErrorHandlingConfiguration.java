@@ -0,0 +1,27 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import cz.trask.vaclavek.greetings.errors.LazyErrorHandlingPostProcessor;
+
+/**
+ * Deferred initialization of the error handling beans, switched on by the {@code greetings.errors.lazy-init=true}<br>
+ * property (set by the 'small' profile).
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.errors.lazy-init", havingValue = "true")
+public class LazyErrorHandlingConfiguration
+{
+    /**
+     * Static, so the post processor does not cause early initialization of the configuration class.
+     */
+    @Bean
+    public static LazyErrorHandlingPostProcessor lazyErrorHandlingPostProcessor() {
+        return new LazyErrorHandlingPostProcessor();
+    }
+}
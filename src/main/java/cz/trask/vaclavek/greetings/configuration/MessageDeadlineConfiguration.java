@@ -0,0 +1,60 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource;
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource.LookupSource;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Metrics of the {@link DeadlineMessageSource} guarding the lookups of the messages files loaded on demand.
+ * <p>
+ * Exists only when the files are not preloaded ({@code greetings.messages.preload.enabled=false}) and the deadline<br>
+ * is not switched off by the {@code greetings.messages.deadline.enabled=false} property. Lookups are counted by their<br>
+ * source as the {@code greetings.messages.lookups} metric, the state of the breaker is the {@code greetings.messages.breaker.open} gauge.
+ * <p>
+ * The meters are bound by the {@link MeterBinder}, because the message source itself can not be another {@code MessageSource} bean.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnExpression("!${greetings.messages.preload.enabled:true} && ${greetings.messages.deadline.enabled:true}")
+public class MessageDeadlineConfiguration
+{
+    @Bean
+    public MeterBinder messageDeadlineMetrics(MessageSource messageSource) {
+
+        DeadlineMessageSource deadline = (DeadlineMessageSource) ((LocaleGuardMessageSource) messageSource).getDelegate();
+        return meterRegistry -> {
+            for (LookupSource source : LookupSource.values()) {
+                FunctionCounter.builder("greetings.messages.lookups", deadline, guarded -> guarded.getLookups(source))
+                     .tag("source", source.getTag())
+                     .description("Number of the message lookups served by the source")
+                     .register(meterRegistry);
+            }
+            FunctionCounter.builder("greetings.messages.lookup.timeouts", deadline, DeadlineMessageSource::getTimeouts)
+                 .description("Number of the message lookups not answered by the catalog in time")
+                 .register(meterRegistry);
+            FunctionCounter.builder("greetings.messages.lookup.rejections", deadline, DeadlineMessageSource::getRejections)
+                 .description("Number of the message lookups not passed to the catalog, all lookup threads were waiting for it")
+                 .register(meterRegistry);
+            FunctionCounter.builder("greetings.messages.breaker.openings", deadline, DeadlineMessageSource::getBreakerOpenings)
+                 .description("Number of the openings of the message lookup breaker")
+                 .register(meterRegistry);
+            Gauge.builder("greetings.messages.breaker.open", deadline, guarded -> guarded.isBreakerOpen() ? 1 : 0)
+                 .description("1 if the messages are served from the last-known-good texts without waiting for the catalog")
+                 .register(meterRegistry);
+            Gauge.builder("greetings.messages.last.known.good", deadline, DeadlineMessageSource::getLastKnownGoodCount)
+                 .description("Number of the kept last-known-good messages")
+                 .register(meterRegistry);
+        };
+    }
+}
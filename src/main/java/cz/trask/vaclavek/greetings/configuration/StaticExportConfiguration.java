@@ -0,0 +1,75 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.staticexport.StaticGreetingExport;
+import cz.trask.vaclavek.greetings.staticexport.StaticGreetingsFilter;
+
+/**
+ * Configuration of the {@link StaticGreetingsFilter} serving the greetings pre-rendered into the files.
+ * <p>
+ * Switched off by default, it is switched on by the {@code greetings.static-export.enabled=true} property.<br>
+ * The files are written into the {@code greetings.static-export.directory} (new temporary directory if it is not set,<br>
+ * it is deleted on shutdown), the catalog version is checked every {@code greetings.static-export.check-interval}<br>
+ * and the replaced files are deleted after {@code greetings.static-export.delete-delay}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.static-export.enabled", havingValue = "true")
+public class StaticExportConfiguration
+{
+    @Bean(destroyMethod = "close")
+    public StaticGreetingExport staticGreetingExport(GreetingsService greetingsService,
+                                                     TimePeriodService timePeriodService,
+                                                     HolidayCalendar holidayCalendar,
+                                                     @Value("${greetings.static-export.directory:}") String directory,
+                                                     @Value("${greetings.static-export.check-interval:1s}") Duration checkInterval,
+                                                     @Value("${greetings.static-export.delete-delay:30s}") Duration deleteDelay) {
+
+        Path exportDirectory;
+        try {
+            exportDirectory = directory.isEmpty() ? Files.createTempDirectory("greetings-export") : Files.createDirectories(Paths.get(directory));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create the greetings export directory " + directory, ex);
+        }
+        StaticGreetingExport export = new StaticGreetingExport(greetingsService, timePeriodService, holidayCalendar, exportDirectory,
+                                                               directory.isEmpty(), deleteDelay);
+        export.startRefresh(checkInterval);
+        return export;
+    }
+
+    @Bean
+    public StaticGreetingsFilter staticGreetingsFilter(StaticGreetingExport export) {
+        return new StaticGreetingsFilter(export, true);
+    }
+
+    /**
+     * Registers the static greetings for the greetings endpoints only, after the access log, concurrency limit<br>
+     * and allocation accounting filters, but before the fast path.
+     */
+    @Bean
+    public FilterRegistrationBean<StaticGreetingsFilter> staticGreetingsFilterRegistration(StaticGreetingsFilter filter) {
+
+        FilterRegistrationBean<StaticGreetingsFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/greeting/timesensitive", "/api/greeting/timeinsensitive");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+        return registration;
+    }
+}
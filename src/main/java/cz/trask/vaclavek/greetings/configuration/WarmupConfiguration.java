@@ -0,0 +1,41 @@
+package cz.trask.vaclavek.greetings.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import cz.trask.vaclavek.greetings.warmup.WarmupRequestFilter;
+import cz.trask.vaclavek.greetings.warmup.WarmupRunner;
+
+/**
+ * Configuration of the tagging of the startup warm-up requests sent by the {@link WarmupRunner}.
+ * <p>
+ * Switched on together with the warm-up by the {@code greetings.warmup.enabled=true} property.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "greetings.warmup.enabled", havingValue = "true")
+public class WarmupConfiguration
+{
+    @Bean
+    public WarmupRequestFilter warmupRequestFilter() {
+        return new WarmupRequestFilter();
+    }
+
+    /**
+     * Registers the tagging for the greetings endpoints before the concurrency limiter, the allocation accounting<br>
+     * and the fast path filters, so their log lines are dropped for the warm-up requests too.
+     */
+    @Bean
+    public FilterRegistrationBean<WarmupRequestFilter> warmupRequestFilterRegistration(WarmupRequestFilter filter) {
+
+        FilterRegistrationBean<WarmupRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/greeting/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
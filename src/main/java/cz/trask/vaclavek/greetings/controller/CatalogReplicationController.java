@@ -0,0 +1,77 @@
+package cz.trask.vaclavek.greetings.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import cz.trask.vaclavek.greetings.replication.CatalogDelta;
+import cz.trask.vaclavek.greetings.replication.CatalogPublisher;
+import cz.trask.vaclavek.greetings.replication.CatalogReplica;
+
+/**
+ * REST controller of the publishing node serving the snapshots and changes of the messages catalog<br>
+ * to the {@link CatalogReplica}s of the other nodes.
+ * <p>
+ * Exists only when the {@code greetings.replication.role=publisher} property is set. The requests waiting<br>
+ * for the changes are processed asynchronously, so they do not hold the server threads.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@RestController
+@RequestMapping("/api/catalog/replication")
+@ConditionalOnProperty(name = "greetings.replication.role", havingValue = "publisher")
+public class CatalogReplicationController
+{
+    /**
+     * Max. time of the request waiting for the changes
+     */
+    private static final long MAX_WAIT_MILLIS = 60_000;
+
+    private final CatalogPublisher publisher;
+
+    /**
+     * @param publisher - publisher of the catalog versions
+     */
+    public CatalogReplicationController(CatalogPublisher publisher) {
+        super();
+        this.publisher = publisher;
+    }
+
+    /**
+     * @return full snapshot of the current catalog version
+     */
+    @GetMapping("/snapshot")
+    public CatalogDelta getSnapshot() {
+        return publisher.getSnapshot();
+    }
+
+    /**
+     * Returns the changes since the replica's version, as soon as there are any.
+     * <p>
+     * Example of valid http request:<br>
+     *  http://localhost:8080/api/catalog/replication/changes?epoch=...&since=1586000000000&waitMillis=30000<br>
+     *
+     * @param epoch - epoch of the replica's version
+     * @param since - version of the replica
+     * @param waitMillis - max. time to wait for a new version, at most 60 seconds
+     * @return changes since the version, full snapshot if the changes are not known, or 204 No Content if there is<br>
+     *         no new version after {@code waitMillis}
+     */
+    @GetMapping("/changes")
+    public DeferredResult<ResponseEntity<CatalogDelta>> getChanges(@RequestParam(value = "epoch", defaultValue = "") String epoch,
+                                                                   @RequestParam(value = "since", defaultValue = "0") long since,
+                                                                   @RequestParam(value = "waitMillis", defaultValue = "0") long waitMillis) {
+
+        long timeout = Math.max(1, Math.min(waitMillis, MAX_WAIT_MILLIS));
+        DeferredResult<ResponseEntity<CatalogDelta>> result = new DeferredResult<>(timeout, ResponseEntity.noContent().build());
+        Runnable cancel = publisher.onChangesSince(epoch, since, delta -> result.setResult(ResponseEntity.ok(delta)));
+        result.onCompletion(cancel);
+        result.onTimeout(cancel);
+        return result;
+    }
+}
@@ -0,0 +1,244 @@
+package cz.trask.vaclavek.greetings.controller;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.jfr.GreetingServedEvent;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.service.UsersLocation;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
+
+/**
+ * Processing of the greeting requests shared by the {@link GreetingsController} and the fast path filter<br>
+ * serving the same requests without the Spring MVC.
+ * <p>
+ * Validates the request parameters, evaluates the time period, looks up the greeting and its variant,<br>
+ * personalizes it and records the {@link GreetingServedEvent}. The callers only read the parameters<br>
+ * and write the {@link ServedGreeting} or the error into the response.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Component
+public class GreetingRequestHandler
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingRequestHandler.class);
+
+    // ****** INSTANCE FIELDS ******
+
+    private final GreetingsService greetingsService;
+
+    private final TimePeriodService timePeriodService;
+
+    private final MessageTemplates messageTemplates;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param greetingsService - instance of {@link GreetingsService} implementation
+     * @param timePeriodService - instance of {@link TimePeriodService} implementation
+     * @param messageTemplates - compiled templates of the personalized greetings
+     */
+    public GreetingRequestHandler(GreetingsService greetingsService, TimePeriodService timePeriodService, MessageTemplates messageTemplates) {
+        super();
+        this.greetingsService = greetingsService;
+        this.timePeriodService = timePeriodService;
+        this.messageTemplates = messageTemplates;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Serves the 'time sensitive' greeting, the holiday greeting of the user's {@code date} (or the current date<br>
+     * at the {@code utcOffset}) if there is any. The holiday greeting of the server's date is served if neither is set.
+     *
+     * @param usersTime - time in "HH:mm" format, empty if not set
+     * @param lang - value of the {@code lang} parameter, empty if not set
+     * @param name - name of the greeted person, empty if not set
+     * @param lat - latitude of the user, empty if not set
+     * @param lon - longitude of the user, empty if not set
+     * @param date - date of the user in "yyyy-MM-dd" format, empty if not set
+     * @param utcOffset - UTC offset of the user's time, empty if not set
+     * @param clientId - id of the client selecting the variant, empty if not set
+     * @param locale - locale of the {@code lang} parameter
+     * @return served greeting
+     * @throws InvalidParameterException if a parameter is missing or invalid
+     * @throws LanguageNotSupportedException if there is no greeting for the locale
+     */
+    public ServedGreeting getTimeSensitive(String usersTime, String lang, String name, String lat, String lon, String date,
+                                           String utcOffset, String clientId, Locale locale) {
+
+        GreetingServedEvent servedEvent = new GreetingServedEvent();
+        servedEvent.begin();
+
+        checkLang(lang, locale);
+        if (usersTime.isEmpty()) {
+            Log.error("Missing 'usersTime' parameter in REST request.");
+            throw new InvalidParameterException("usersTime", usersTime);
+        }
+        checkName(name);
+        UsersLocation location = UsersLocation.parse(lat, lon, date, utcOffset);
+        LocalDate usersDate = UsersLocation.parseUsersDate(date, utcOffset);
+
+        TimePeriod timePeriod = (location == null) ? timePeriodService.getTimePeriod(usersTime)
+                                                   : timePeriodService.getTimePeriod(usersTime, location);
+        String greeting = greetingsService.getTimeSensitiveGreeting(timePeriod, locale, usersDate);
+        GreetingVariant variant = greetingsService.getTimeSensitiveVariant(timePeriod, locale, clientId, usersDate);
+        greeting = (variant == null) ? greeting : variant.getText();
+        // logged before the personalization, the name of the greeted person is not written to the log
+        Log.info("Time sensitive greeting retrieved: {}", greeting);
+        greeting = personalize(greeting, name, locale);
+        commitServedEvent(servedEvent, GreetingServedEvent.ENDPOINT_TIMESENSITIVE, locale, timePeriod);
+
+        return new ServedGreeting(greeting, variant, timePeriod);
+    }
+
+    /**
+     * Serves the 'time insensitive' greeting.
+     *
+     * @param lang - value of the {@code lang} parameter, empty if not set
+     * @param name - name of the greeted person, empty if not set
+     * @param clientId - id of the client selecting the variant, empty if not set
+     * @param locale - locale of the {@code lang} parameter
+     * @return served greeting
+     * @throws InvalidParameterException if a parameter is missing or invalid
+     * @throws LanguageNotSupportedException if there is no greeting for the locale
+     */
+    public ServedGreeting getTimeInsensitive(String lang, String name, String clientId, Locale locale) {
+
+        GreetingServedEvent servedEvent = new GreetingServedEvent();
+        servedEvent.begin();
+
+        checkLang(lang, locale);
+        checkName(name);
+
+        String greeting = greetingsService.getTimeInsensitiveGreeting(locale);
+        GreetingVariant variant = greetingsService.getTimeInsensitiveVariant(locale, clientId);
+        greeting = (variant == null) ? greeting : variant.getText();
+        // logged before the personalization, the name of the greeted person is not written to the log
+        Log.info("Time insensitive greeting retrieved: {}", greeting);
+        greeting = personalize(greeting, name, locale);
+        commitServedEvent(servedEvent, GreetingServedEvent.ENDPOINT_TIMEINSENSITIVE, locale, null);
+
+        return new ServedGreeting(greeting, variant, null);
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * Throws {@link InvalidParameterException} if the {@code lang} parameter is missing. The "xx" locale is the default<br>
+     * locale of the {@code LocaleResolver} used when the parameter is missing.
+     */
+    private static void checkLang(String lang, Locale locale) {
+
+        if (lang.isEmpty() || locale == null || locale.getLanguage().contains("xx")) {
+            Log.error("Missing 'lang' parameter in REST request.");
+            throw new InvalidParameterException("lang", lang);
+        }
+    }
+
+    /**
+     * Throws {@link InvalidParameterException} if the {@code name} parameter is longer than {@link GreetingsController#MAX_NAME_LENGTH}<br>
+     * or if it contains other characters than letters, digits, spaces and {@code '-.}, as the name is echoed in the greeting.
+     */
+    private static void checkName(String name) {
+
+        if (name.length() > GreetingsController.MAX_NAME_LENGTH) {
+            Log.error("Too long 'name' parameter in REST request.");
+            throw new InvalidParameterException("name", name);
+        }
+        for (int i = 0; i < name.length(); ) {
+            int codePoint = name.codePointAt(i);
+            if (!isNameCharacter(codePoint)) {
+                Log.error("Invalid character in 'name' parameter in REST request.");
+                throw new InvalidParameterException("name", name);
+            }
+            i += Character.charCount(codePoint);
+        }
+    }
+
+    private static boolean isNameCharacter(int codePoint) {
+
+        if (Character.isLetterOrDigit(codePoint)) {
+            return true;
+        }
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+               || codePoint == ' ' || codePoint == '\'' || codePoint == '-' || codePoint == '.';
+    }
+
+    /**
+     * Renders the personalized greeting by the compiled template of the locale.
+     *
+     * @return personalized greeting, or the {@code greeting} if the name is empty or the template is not found
+     */
+    private String personalize(String greeting, String name, Locale locale) {
+
+        if (name.isEmpty() || greeting == null) {
+            return greeting;
+        }
+        String personalized = messageTemplates.format(GreetingsController.GREETING_PERSONALIZED_KEY, locale, greeting, name);
+        return (personalized == null) ? greeting : personalized;
+    }
+
+    /**
+     * Commits the {@link GreetingServedEvent} if it is enabled and its duration exceeds the threshold.
+     */
+    private static void commitServedEvent(GreetingServedEvent event, String endpoint, Locale locale, TimePeriod timePeriod) {
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint;
+            event.locale = locale.toString();
+            event.period = (timePeriod == null) ? "" : timePeriod.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * Greeting served by the request
+     */
+    public static final class ServedGreeting
+    {
+        private final String greeting;
+        private final GreetingVariant variant;
+        private final TimePeriod timePeriod;
+
+        private ServedGreeting(String greeting, GreetingVariant variant, TimePeriod timePeriod) {
+            this.greeting = greeting;
+            this.variant = variant;
+            this.timePeriod = timePeriod;
+        }
+
+        /**
+         * @return greeting text, null if not found
+         */
+        public String getGreeting() {
+            return greeting;
+        }
+
+        /**
+         * @return variant of the greeting, null if the greeting has no variants
+         */
+        public GreetingVariant getVariant() {
+            return variant;
+        }
+
+        /**
+         * @return time period of the greeting, null for the time insensitive greeting
+         */
+        public TimePeriod getTimePeriod() {
+            return timePeriod;
+        }
+    }
+}
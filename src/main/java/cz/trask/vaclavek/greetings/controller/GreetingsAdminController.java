@@ -0,0 +1,136 @@
+package cz.trask.vaclavek.greetings.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import cz.trask.vaclavek.greetings.admin.GreetingChange;
+import cz.trask.vaclavek.greetings.admin.GreetingVersion;
+import cz.trask.vaclavek.greetings.catalog.CatalogChange;
+import cz.trask.vaclavek.greetings.catalog.CatalogEntry;
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.catalog.JdbcGreetingCatalog;
+import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
+
+/**
+ * REST controller of the admin API changing the greetings of the database catalog at runtime.
+ * <p>
+ * The requests are authenticated by the {@link cz.trask.vaclavek.greetings.admin.AdminTokenFilter} registered by the<br>
+ * {@code AdminApiConfiguration}. Same as the configuration, the controller exists only when the database catalog<br>
+ * is used and the {@code greetings.admin.token} property is set.
+ * <p>
+ * Examples of the REST API calls served by this controller:
+ * <ul>
+ *   <li>GET http://localhost:8080/api/admin/greetings?lang=cs - greetings of the locale with their versions</li>
+ *   <li>POST http://localhost:8080/api/admin/greetings - batch of the changes, for example<br>
+ *   {@code [{"lang": "cs", "key": "MORNING", "text": "Dobré jitro", "expectedVersion": 1}, {"lang": "cs", "key": "EVENING", "delete": true, "expectedVersion": 3}]}</li>
+ * </ul>
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@RestController
+@ConditionalOnProperty(name = "greetings.catalog.source", havingValue = "jdbc")
+@ConditionalOnExpression("!'${greetings.admin.token:}'.isEmpty()")
+@RequestMapping("/api/admin/greetings")
+public class GreetingsAdminController
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingsAdminController.class);
+
+    private final JdbcGreetingCatalog catalog;
+
+    /**
+     * @param catalog - database catalog of the greetings
+     */
+    public GreetingsAdminController(JdbcGreetingCatalog catalog) {
+        super();
+        this.catalog = catalog;
+    }
+
+    /**
+     * Returns current greetings of the locale stored in the database with their versions.
+     *
+     * @param lang - language-country or language only abbrevation of the locale, for example 'en-GB' or 'cs'
+     * @return greetings of the locale
+     */
+    @GetMapping
+    public List<GreetingVersion> getGreetings(@RequestParam(value = "lang", defaultValue = "") String lang) {
+
+        String localeTag = toLocaleTag(lang);
+        List<GreetingVersion> greetings = new ArrayList<>();
+        for (CatalogEntry entry : catalog.findEntries(localeTag)) {
+            GreetingKey key = GreetingKey.ofCatalogKey(entry.getKey());
+            if (key != null) {
+                greetings.add(new GreetingVersion(localeTag, key, entry.getText(), entry.getVersion()));
+            }
+        }
+        greetings.sort((g1, g2) -> g1.getKey().compareTo(g2.getKey()));
+        return greetings;
+    }
+
+    /**
+     * Applies the batch of the changes in one transaction and one catalog snapshot rebuild.<br>
+     * Nothing is changed if any of the greetings is not in its expected version (409 response).
+     *
+     * @param changes - changes of the greetings
+     * @return new version of the changed greetings and their number
+     */
+    @PostMapping
+    public Map<String, Long> changeGreetings(@RequestBody List<GreetingChange> changes) {
+
+        if (changes == null || changes.isEmpty()) {
+            throw new InvalidParameterException("changes", "[]");
+        }
+        List<CatalogChange> catalogChanges = new ArrayList<>(changes.size());
+        for (GreetingChange change : changes) {
+            if (change.getKey() == null) {
+                throw new InvalidParameterException("key", null);
+            }
+            if (!change.isDelete() && (change.getText() == null || change.getText().isEmpty())) {
+                throw new InvalidParameterException("text", change.getText());
+            }
+            catalogChanges.add(new CatalogChange(toLocaleTag(change.getLang()), change.getKey().getCatalogKey(),
+                                                 change.isDelete() ? null : change.getText(), change.getExpectedVersion()));
+        }
+
+        long version = catalog.applyChanges(catalogChanges);
+        Log.info("Admin API changed {} greetings, version {}", catalogChanges.size(), version);
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("version", version);
+        result.put("changed", (long) catalogChanges.size());
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * @return tag of the catalog locale like 'en-GB' for the {@code lang} parameter value like 'en_GB' or 'en-GB'
+     */
+    private static String toLocaleTag(String lang) {
+
+        Locale locale = null;
+        try {
+            locale = (lang != null) ? StringUtils.parseLocale(lang) : null;
+        } catch (IllegalArgumentException ex) {
+            // invalid value reported below
+        }
+        if (locale == null || locale.getLanguage().isEmpty()) {
+            throw new InvalidParameterException("lang", lang);
+        }
+        return JdbcGreetingCatalog.getCandidateTags(locale).get(0);
+    }
+}
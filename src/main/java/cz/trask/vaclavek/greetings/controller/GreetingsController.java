@@ -1,19 +1,27 @@
 package cz.trask.vaclavek.greetings.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
-import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
+import cz.trask.vaclavek.greetings.accesslog.AccessLogFilter;
+import cz.trask.vaclavek.greetings.controller.GreetingRequestHandler.ServedGreeting;
+import cz.trask.vaclavek.greetings.jfr.GreetingServedEvent;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
 import cz.trask.vaclavek.greetings.service.GreetingsService;
 import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
 
 /**
  * Main REST controller to serve REST API calls.
@@ -30,11 +38,29 @@ import cz.trask.vaclavek.greetings.service.TimePeriodService;
  * <ul>
  *   <li>1) http://localhost:8080/api/greeting/timesensitive?usersTime=17:10&lang=en-US</li>
  *   <li>2) http://localhost:8080/api/greeting/timeinsensitive?lang=cs_CS</li>
+ *   <li>3) http://localhost:8080/api/greeting/timeinsensitive?lang=es&name=Juan</li>
+ *   <li>4) http://localhost:8080/api/greeting/timesensitive?usersTime=21:30&lang=en-GB&lat=60&lon=10&date=2020-06-21&utcOffset=%2B02:00</li>
+ *   <li>5) http://localhost:8080/api/greeting/timesensitive?usersTime=08:00&lang=en-GB&clientId=c-42</li>
  * </ul>
  * 
+ * Time periods of the time sensitive greetings follow the local sunrise and sunset, if the optional {@code lat}<br>
+ * parameter is set, see {@link UsersLocation}. Otherwise fixed time periods of the day are used.
+ * 
+ * Greetings are personalized by the optional {@code name} parameter, the personalized greeting is rendered<br>
+ * by the {@code greeting.personalized} template of the locale, compiled once by the {@link MessageTemplates}.<br>
+ * The name is limited to {@link #MAX_NAME_LENGTH} letters, digits, spaces and the {@code '-.} characters, as it is echoed<br>
+ * in the greeting. The greetings are always sent as {@code text/plain}, whatever the {@code Accept} header of the request is.
+ * 
+ * If the catalog contains the weighted variants of the greeting, the greeting is replaced by the selected variant<br>
+ * and its id is sent in the {@value GreetingVariants#VARIANT_HEADER} response header. The variant is selected<br>
+ * randomly, or by the optional {@code clientId} parameter, so the same client gets always the same variant.
+ * 
  * Requires two main services {@link GreetingsService} and {@link TimePeriodService}<br>
  * instancies to work properly.
  * <p>
+ * Every served greeting is recorded as {@link GreetingServedEvent} Flight Recorder event.<br>
+ * The requests are processed by the {@link GreetingRequestHandler} shared with the fast path filter.
+ * <p>
  * @author Michal Vaclavek
  *
  */
@@ -43,28 +69,35 @@ import cz.trask.vaclavek.greetings.service.TimePeriodService;
 public class GreetingsController
 {
     
-    private static final Logger Log = LoggerFactory.getLogger(GreetingsController.class);
+    /**
+     * Key of the messages files item holding the template of the personalized greeting
+     */
+    public static final String GREETING_PERSONALIZED_KEY = GreetingsServiceImpl.GREETING_PERSONALIZED_KEY;
+    
+    /**
+     * Max. length of the {@code name} parameter
+     */
+    public static final int MAX_NAME_LENGTH = 64;
     
     /**
-     * Instance of {@link GreetingsService} implementation
+     * Content type of the greetings
      */
-    private GreetingsService greetingsService;
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
     
     /**
-     * Instance of {@link TimePeriodService} implementation
+     * Processing of the greeting requests shared with the fast path
      */
-    private TimePeriodService timePeriodService;
+    private GreetingRequestHandler greetingRequestHandler;
     
     /**
-     * Standard constructor injecting two main service's intancies
+     * Standard constructor injecting the processing of the greeting requests
      * 
-     * @param greetingsService - instance of {@link GreetingsService} implementation
-     * @param timePeriodService - instance of {@link TimePeriodService} implementation
+     * @param greetingRequestHandler - processing of the greeting requests calling the {@link GreetingsService}<br>
+     *                                 and {@link TimePeriodService}
      */
-    public GreetingsController(GreetingsService greetingsService, TimePeriodService timePeriodService) {
+    public GreetingsController(GreetingRequestHandler greetingRequestHandler) {
         super();
-        this.greetingsService = greetingsService;
-        this.timePeriodService = timePeriodService;
+        this.greetingRequestHandler = greetingRequestHandler;
     }
     
     /**
@@ -74,9 +107,17 @@ public class GreetingsController
      * Examples of valid http request:<br>
      *  http://localhost:8080/api/greeting/timesensitive?usersTime=17:10&lang=en-US<br>
      *  http://localhost:8080/api/greeting/timesensitive?usersTime=05:01&lang=es<br>
+     *  http://localhost:8080/api/greeting/timesensitive?usersTime=05:01&lang=en-GB&name=John<br>
+     *  http://localhost:8080/api/greeting/timesensitive?usersTime=21:30&lang=en-GB&lat=60&lon=10<br>
      * 
      * @param usersTime - time in "HH:mm" format. Time of user for which the greeting is requested.
      * @param lang - language-country or language only abbrevation for which the greeting is requested.
+     * @param name - optional name of the greeted person
+     * @param lat - optional latitude of the user, the time periods follow the local sunrise and sunset if set
+     * @param lon - optional longitude of the user
+     * @param date - optional date of the user in "yyyy-MM-dd" format, current date if not set
+     * @param utcOffset - optional UTC offset of the user's time, for example "+02:00"
+     * @param clientId - optional id of the client selecting the variant of the greeting, random variant if not set
      * @param locale - locale instance created by Spring according {@code lang} parameter value
      * @return requested greeting text according input parameters 'usersTime' and 'lang' value
      */
@@ -85,25 +126,26 @@ public class GreetingsController
                                                            String usersTime,
                                                            @RequestParam(value="lang", defaultValue = "")
                                                            String lang,
+                                                           @RequestParam(value="name", defaultValue = "")
+                                                           String name,
+                                                           @RequestParam(value="lat", defaultValue = "")
+                                                           String lat,
+                                                           @RequestParam(value="lon", defaultValue = "")
+                                                           String lon,
+                                                           @RequestParam(value="date", defaultValue = "")
+                                                           String date,
+                                                           @RequestParam(value="utcOffset", defaultValue = "")
+                                                           String utcOffset,
+                                                           @RequestParam(value="clientId", defaultValue = "")
+                                                           String clientId,
                                                            Locale locale) {
         
-        if (locale.getLanguage().contains("xx") || lang.isEmpty()) {
-            Log.error("Missing 'lang' parameter in REST request.");
-            throw new InvalidParameterException("lang", lang);
-        }
-        if (usersTime.isEmpty()) {
-            Log.error("Missing 'usersTime' parameter in REST request.");
-            throw new InvalidParameterException("usersTime", usersTime);
-        }
-        
-        String greeting = null;
-        if (locale != null) {
-            greeting = greetingsService.getTimeSensitiveGreeting(timePeriodService.getTimePeriod(usersTime), locale);
-            Log.info("Time sensitive greeting retrieved: {}", greeting);
+        ServedGreeting served = greetingRequestHandler.getTimeSensitive(usersTime, lang, name, lat, lon, date, utcOffset, clientId, locale);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(AccessLogFilter.TIME_PERIOD_ATTRIBUTE, served.getTimePeriod(), RequestAttributes.SCOPE_REQUEST);
         }
-        
-        return (greeting == null) ? new ResponseEntity<String>(HttpStatus.NOT_FOUND)
-                                  : new ResponseEntity<String>(greeting, HttpStatus.OK);
+        return greetingResponse(served);
     }
     
     /**
@@ -113,24 +155,37 @@ public class GreetingsController
      * Example of valid http request: http://localhost:8080/api/greeting/timeinsensitive?lang=cs_CS
      * 
      * @param lang - language-country or language only abbrevation for which the greeting is requested.
+     * @param name - optional name of the greeted person
+     * @param clientId - optional id of the client selecting the variant of the greeting, random variant if not set
      * @param locale - locale instance created by Spring according {@code lang} parameter value
      * @return
      */
     @GetMapping("/timeinsensitive") 
     public ResponseEntity<String> getGreetingTimeInsensitive(@RequestParam(value="lang", defaultValue = "")
                                                              String lang,
+                                                             @RequestParam(value="name", defaultValue = "")
+                                                             String name,
+                                                             @RequestParam(value="clientId", defaultValue = "")
+                                                             String clientId,
                                                              Locale locale) {
 
-        if (locale.getLanguage().contains("xx") || lang.isEmpty()) {
-            Log.error("Missing 'lang' parameter in REST request.");
-            throw new InvalidParameterException("lang", lang);
-        }
-        
-        String greeting = greetingsService.getTimeInsensitiveGreeting(locale);
-        Log.info("Time insensitive greeting retrieved: {}", greeting);
+        return greetingResponse(greetingRequestHandler.getTimeInsensitive(lang, name, clientId, locale));
+    }
+    
+    /**
+     * @param served - served greeting and its variant
+     * @return response with the greeting as {@code text/plain} and the id of its variant
+     */
+    private static ResponseEntity<String> greetingResponse(ServedGreeting served) {
         
-        return (greeting == null) ? new ResponseEntity<String>(HttpStatus.NOT_FOUND)
-                                  : new ResponseEntity<String>(greeting, HttpStatus.OK);
+        String greeting = served.getGreeting();
+        GreetingVariant variant = served.getVariant();
+        if (greeting == null) {
+            return new ResponseEntity<String>(HttpStatus.NOT_FOUND);
+        }
+        return (variant == null) ? ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(greeting)
+                                 : ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8)
+                                                      .header(GreetingVariants.VARIANT_HEADER, variant.getId()).body(greeting);
     }
 
 }
@@ -0,0 +1,247 @@
+package cz.trask.vaclavek.greetings.controller;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import cz.trask.vaclavek.greetings.client.GreetingMatrix;
+import cz.trask.vaclavek.greetings.client.GreetingMatrix.PeriodStart;
+import cz.trask.vaclavek.greetings.client.GreetingRequest;
+import cz.trask.vaclavek.greetings.client.GreetingResult;
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.client.GreetingsClient;
+import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
+import cz.trask.vaclavek.greetings.errors.RestExceptionHandler;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+
+/**
+ * REST controller serving the {@link GreetingsClient} caching the greetings.
+ * <p>
+ * Examples of the REST API calls served by this controller:
+ * <ul>
+ *   <li>GET http://localhost:8080/api/greeting/matrix - all greetings of the catalog as the {@link GreetingMatrix}.<br>
+ *   The catalog version is sent as the ETag, so the clients can refresh the matrix by the conditional requests.</li>
+ *   <li>POST http://localhost:8080/api/greeting/batch - several greeting requests answered by one call, for example<br>
+ *   {@code [{"lang": "en-GB", "usersTime": "05:01"}, {"lang": "es", "name": "Juan", "clientId": "c-42"}]}</li>
+ * </ul>
+ * Every request of the batch is processed by the {@link GreetingsController} and its errors are converted<br>
+ * by the {@link RestExceptionHandler}, so its result is the same as of the corresponding GET request.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@RestController
+@RequestMapping("/api/greeting")
+public class GreetingsMatrixController
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingsMatrixController.class);
+
+    /**
+     * Max. number of the requests of one batch
+     */
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    /**
+     * Locale used by the {@link GreetingsController} when the {@code lang} parameter is missing
+     */
+    private static final Locale MISSING_LANG_LOCALE = new Locale("xx", "XX");
+
+    // ****** INSTANCE FIELDS ******
+
+    private final GreetingsService greetingsService;
+
+    private final TimePeriodService timePeriodService;
+
+    private final MessageTemplates messageTemplates;
+
+    private final GreetingsController greetingsController;
+
+    private final RestExceptionHandler restExceptionHandler;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param greetingsService - instance of {@link GreetingsService} implementation
+     * @param timePeriodService - instance of {@link TimePeriodService} implementation
+     * @param messageTemplates - templates of the personalized greetings
+     * @param greetingsController - controller processing the requests of the batch
+     * @param restExceptionHandler - conversion of the errors of the requests of the batch
+     */
+    public GreetingsMatrixController(GreetingsService greetingsService, TimePeriodService timePeriodService,
+                                     MessageTemplates messageTemplates, GreetingsController greetingsController,
+                                     RestExceptionHandler restExceptionHandler) {
+        super();
+        this.greetingsService = greetingsService;
+        this.timePeriodService = timePeriodService;
+        this.messageTemplates = messageTemplates;
+        this.greetingsController = greetingsController;
+        this.restExceptionHandler = restExceptionHandler;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Returns all greetings of the catalog, or 304 Not Modified if the client already has the current version.
+     *
+     * @param ifNoneMatch - ETag of the matrix cached by the client
+     * @return greeting matrix with the catalog version as the ETag
+     */
+    @GetMapping("/matrix")
+    public ResponseEntity<GreetingMatrix> getMatrix(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                    String ifNoneMatch) {
+
+        // version is read first, the matrix can be only newer than the version then
+        String version = greetingsService.getCatalogVersion();
+        if (('"' + version + '"').equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version).build();
+        }
+
+        GreetingMatrix matrix = new GreetingMatrix();
+        matrix.setVersion(version);
+        matrix.setPeriods(findPeriodStarts());
+        for (Locale locale : greetingsService.getCatalogLocales()) {
+            String tag = GreetingMatrix.getCandidateTags(locale).get(0);
+            matrix.getGreetings().put(tag, findGreetings(locale));
+            Map<String, String> variants = findVariants(locale);
+            if (!variants.isEmpty()) {
+                matrix.getVariants().put(tag, variants);
+            }
+        }
+        for (Map.Entry<Locale, String> pattern : messageTemplates.getPatterns(GreetingsController.GREETING_PERSONALIZED_KEY).entrySet()) {
+            Locale locale = pattern.getKey();
+            String tag = Locale.ROOT.equals(locale) ? GreetingMatrix.DEFAULT_TEMPLATE_TAG : GreetingMatrix.getCandidateTags(locale).get(0);
+            matrix.getTemplates().put(tag, pattern.getValue());
+        }
+        Log.info("Greeting matrix of {} locales returned, version {}", matrix.getGreetings().size(), version);
+
+        return ResponseEntity.ok().eTag(version).body(matrix);
+    }
+
+    /**
+     * Returns the results of all requests of the batch, in the same order.
+     *
+     * @param requests - greeting requests, at most {@link #MAX_BATCH_SIZE}
+     * @return results of the requests
+     */
+    @PostMapping("/batch")
+    public List<GreetingResult> getGreetings(@RequestBody List<GreetingRequest> requests) {
+
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new InvalidParameterException("batch", requests.size());
+        }
+        List<GreetingResult> results = new ArrayList<>(requests.size());
+        for (GreetingRequest request : requests) {
+            results.add(serve(request));
+        }
+        return results;
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * Processes the request by the {@link GreetingsController}, the errors are converted by the {@link RestExceptionHandler}.
+     */
+    private GreetingResult serve(GreetingRequest request) {
+
+        String lang = (request.getLang() == null) ? "" : request.getLang();
+        String name = (request.getName() == null) ? "" : request.getName();
+        String clientId = (request.getClientId() == null) ? "" : request.getClientId();
+        try {
+            // same as the LocaleChangeInterceptor and the default locale of the LocaleResolver
+            Locale locale = lang.isEmpty() ? MISSING_LANG_LOCALE : StringUtils.parseLocale(lang);
+            if (locale == null) {
+                locale = MISSING_LANG_LOCALE;
+            }
+            ResponseEntity<String> response = (request.getUsersTime() == null)
+                    ? greetingsController.getGreetingTimeInsensitive(lang, name, clientId, locale)
+                    : greetingsController.getGreetingTimeSensitive(request.getUsersTime(), lang, name, "", "", "", "", clientId, locale);
+            return response.getStatusCode().is2xxSuccessful()
+                    ? GreetingResult.greeting(response.getBody(), response.getHeaders().getFirst(GreetingVariants.VARIANT_HEADER))
+                    : GreetingResult.error(response.getStatusCodeValue(), null);
+        } catch (RuntimeException ex) {
+            return GreetingResult.error(restExceptionHandler.handleRequestException(ex).getStatusCodeValue(), ex.getMessage());
+        }
+    }
+
+    /**
+     * @return greetings of the locale keyed by the {@link TimePeriod} name and {@link GreetingMatrix#TIME_INSENSITIVE}
+     */
+    private Map<String, String> findGreetings(Locale locale) {
+
+        Map<String, String> greetings = new LinkedHashMap<>();
+        for (TimePeriod timePeriod : TimePeriod.values()) {
+            try {
+                greetings.put(timePeriod.name(), greetingsService.getTimeSensitiveGreeting(timePeriod, locale));
+            } catch (LanguageNotSupportedException ex) {
+                // not in the matrix, the clients ask the service
+            }
+        }
+        try {
+            greetings.put(GreetingMatrix.TIME_INSENSITIVE, greetingsService.getTimeInsensitiveGreeting(locale));
+        } catch (LanguageNotSupportedException ex) {
+            // not in the matrix, the clients ask the service
+        }
+        return greetings;
+    }
+
+    /**
+     * @return definitions of the variants of the locale's greetings keyed the same way as the greetings, only the greetings having variants
+     */
+    private Map<String, String> findVariants(Locale locale) {
+
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (TimePeriod timePeriod : TimePeriod.values()) {
+            String definition = greetingsService.getVariantsDefinition(GreetingKey.of(timePeriod), locale);
+            if (definition != null) {
+                variants.put(timePeriod.name(), definition);
+            }
+        }
+        String definition = greetingsService.getVariantsDefinition(GreetingKey.TIME_INSENSITIVE, locale);
+        if (definition != null) {
+            variants.put(GreetingMatrix.TIME_INSENSITIVE, definition);
+        }
+        return variants;
+    }
+
+    /**
+     * @return starts of the {@link TimePeriod}s of the day, from the midnight
+     */
+    private List<PeriodStart> findPeriodStarts() {
+
+        List<PeriodStart> periods = new ArrayList<>();
+        LocalTime start = LocalTime.MIDNIGHT;
+        while (true) {
+            periods.add(new PeriodStart(start.format(TIME_FORMATTER), timePeriodService.getTimePeriod(start)));
+            LocalTime next = timePeriodService.getNextTimePeriodStart(start);
+            if (!next.isAfter(start)) {
+                return periods;
+            }
+            start = next;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package cz.trask.vaclavek.greetings.controller;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
+import cz.trask.vaclavek.greetings.service.GreetingsPushService;
+
+/**
+ * REST controller to serve subscriptions of the time sensitive greetings pushed as Server-Sent Events.
+ * <p>
+ * Instead of polling the {@code /api/greeting/timesensitive}, the client subscribes once<br>
+ * with its language and time zone and receives new greeting every time its time period rolls over.
+ * <p>
+ * Example of correct REST API call served by this controller:
+ * <ul>
+ *   <li>http://localhost:8080/api/greeting/subscribe?zone=Europe/Prague&lang=cs-CS</li>
+ * </ul>
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@RestController
+@RequestMapping("/api/greeting")
+public class GreetingsPushController
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingsPushController.class);
+
+    /**
+     * Instance of {@link GreetingsPushService} implementation
+     */
+    private GreetingsPushService greetingsPushService;
+
+    /**
+     * Standard constructor injecting push service's instance
+     *
+     * @param greetingsPushService - instance of {@link GreetingsPushService} implementation
+     */
+    public GreetingsPushController(GreetingsPushService greetingsPushService) {
+        super();
+        this.greetingsPushService = greetingsPushService;
+    }
+
+    /**
+     * Opens Server-Sent Events stream of the time sensitive greetings according input parameters<br>
+     * {@code zone} and {@code lang}.
+     * <p>
+     * Example of valid http request:<br>
+     *  http://localhost:8080/api/greeting/subscribe?zone=Europe/Prague&lang=en-US<br>
+     *
+     * @param zone - time zone id of the user, for example 'Europe/Prague' or '+02:00'
+     * @param lang - language-country or language only abbrevation for which the greetings are requested.
+     * @param locale - locale instance created by Spring according {@code lang} parameter value
+     * @return Server-Sent Events stream of the greetings
+     */
+    @GetMapping("/subscribe")
+    public SseEmitter subscribeTimeSensitive(@RequestParam(value="zone", defaultValue = "")
+                                             String zone,
+                                             @RequestParam(value="lang", defaultValue = "")
+                                             String lang,
+                                             Locale locale) {
+
+        if (locale.getLanguage().contains("xx") || lang.isEmpty()) {
+            Log.error("Missing 'lang' parameter in REST request.");
+            throw new InvalidParameterException("lang", lang);
+        }
+
+        ZoneId zoneId;
+        try {
+            zoneId = ZoneId.of(zone);
+        } catch (DateTimeException ex) {
+            Log.error("Missing or invalid 'zone' parameter in REST request.");
+            throw new InvalidParameterException("zone", zone);
+        }
+
+        return greetingsPushService.subscribe(locale, zoneId);
+    }
+
+}
@@ -17,6 +17,8 @@ import com.fasterxml.jackson.annotation.JsonFormat;
  *   <li>message - short description of the error</li>
  *   <li>debugMessage - detailed, debug related description of the error</li>
  * </ul>
+ * The JSON representation of this class is rendered by the {@link ApiErrorTemplates} without Jackson,<br>
+ * so any change of the attributes or their format has to be reflected there.
  * 
  * @author Michal Vaclavek
  *
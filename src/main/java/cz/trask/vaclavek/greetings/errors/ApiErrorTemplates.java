@@ -0,0 +1,217 @@
+package cz.trask.vaclavek.greetings.errors;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders JSON error response bodies from the pre-encoded byte templates.
+ * <p>
+ * Rendered body is byte-for-byte same as the {@link ApiError} instance serialized by Jackson:<br>
+ * {@code {"status":"NOT_FOUND","timestamp":"28-03-2020 08:31:50","message":"...","debugMessage":""}}<br>
+ * but the JSON is not created by reflective serialization for every error. The part of the body<br>
+ * before the timestamp is pre-encoded for every {@link HttpStatus}, the part after the timestamp<br>
+ * is encoded once for every message and cached. The timestamp is taken from the coarse clock<br>
+ * which formats the current time at most once per second.
+ * <p>
+ * Messages can contain values sent by clients, so the number of the cached message templates is limited<br>
+ * by the {@code greetings.errors.template-cache-size} property. Messages over the limit are encoded for every error.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Component
+public class ApiErrorTemplates
+{
+    /**
+     * Same format as the {@code @JsonFormat} of the {@link ApiError} timestamp
+     */
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final Map<HttpStatus, byte[]> STATUS_PREFIXES = new EnumMap<>(HttpStatus.class);
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUS_PREFIXES.put(status, ("{\"status\":\"" + status.name() + "\",\"timestamp\":\"").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Headers of all error responses, same Content-Type as used by Jackson message converter
+     */
+    private static final HttpHeaders JSON_HEADERS = new HttpHeaders();
+    static {
+        JSON_HEADERS.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    // ****** INSTANCE FIELDS ******
+
+    private final int templateCacheSize;
+
+    /**
+     * Encoded parts of the body following the timestamp, keyed by the message (and debug message, if not empty)
+     */
+    private final ConcurrentMap<String, byte[]> messageSuffixes = new ConcurrentHashMap<>();
+
+    private volatile CachedTimestamp timestamp = new CachedTimestamp(-1, new byte[0]);
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param templateCacheSize - max. number of the cached message templates
+     */
+    public ApiErrorTemplates(@Value("${greetings.errors.template-cache-size:1024}") int templateCacheSize) {
+        super();
+        this.templateCacheSize = templateCacheSize;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Creates error response with the JSON body rendered from the templates.
+     *
+     * @param status - HTTP status of the error response
+     * @param message - short description of the error, can be null
+     * @param debugMessage - detailed description of the error, can be null
+     * @return {@code ResponseEntity<Object>} with the rendered body
+     */
+    public ResponseEntity<Object> responseEntity(HttpStatus status, String message, String debugMessage) {
+        return new ResponseEntity<>(render(status, message, debugMessage), JSON_HEADERS, status);
+    }
+
+    /**
+     * Renders JSON error body equal to the serialized {@link ApiError}.
+     *
+     * @param status - HTTP status of the error
+     * @param message - short description of the error, can be null
+     * @param debugMessage - detailed description of the error, can be null
+     * @return UTF-8 encoded JSON body
+     */
+    public byte[] render(HttpStatus status, String message, String debugMessage) {
+
+        byte[] prefix = STATUS_PREFIXES.get(status);
+        byte[] time = currentTimestamp();
+        byte[] suffix = messageSuffix(message, debugMessage);
+
+        byte[] body = new byte[prefix.length + time.length + suffix.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        System.arraycopy(time, 0, body, prefix.length, time.length);
+        System.arraycopy(suffix, 0, body, prefix.length + time.length, suffix.length);
+        return body;
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * @return current timestamp in the {@link ApiError} format, formatted at most once per second
+     */
+    private byte[] currentTimestamp() {
+
+        long second = System.currentTimeMillis() / 1000;
+        CachedTimestamp cached = timestamp;
+        if (cached.second != second) {
+            cached = new CachedTimestamp(second, LocalDateTime.now().format(TIMESTAMP_FORMATTER).getBytes(StandardCharsets.UTF_8));
+            timestamp = cached;
+        }
+        return cached.bytes;
+    }
+
+    private byte[] messageSuffix(String message, String debugMessage) {
+
+        if (message == null || debugMessage == null) {
+            return encodeSuffix(message, debugMessage);
+        }
+        String key = debugMessage.isEmpty() ? message : message + '\u0000' + debugMessage;
+        byte[] suffix = messageSuffixes.get(key);
+        if (suffix == null) {
+            suffix = encodeSuffix(message, debugMessage);
+            if (messageSuffixes.size() < templateCacheSize) {
+                messageSuffixes.putIfAbsent(key, suffix);
+            }
+        }
+        return suffix;
+    }
+
+    private static byte[] encodeSuffix(String message, String debugMessage) {
+
+        StringBuilder json = new StringBuilder(64);
+        json.append("\",\"message\":");
+        appendJsonString(json, message);
+        json.append(",\"debugMessage\":");
+        appendJsonString(json, debugMessage);
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends JSON string value escaped the same way as Jackson does by default.
+     */
+    private static void appendJsonString(StringBuilder json, String value) {
+
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                case '\b':
+                    json.append("\\b");
+                    break;
+                case '\f':
+                    json.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append("\\u00").append((char) HEX_DIGITS[c >> 4]).append((char) HEX_DIGITS[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Formatted timestamp of one second
+     */
+    private static final class CachedTimestamp
+    {
+        private final long second;
+        private final byte[] bytes;
+
+        private CachedTimestamp(long second, byte[] bytes) {
+            this.second = second;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package cz.trask.vaclavek.greetings.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception to be thrown, when the message catalog did not answer the lookup in time<br>
+ * and there is no last-known-good text of the message to be served instead.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CatalogUnavailableException extends RuntimeException
+{
+    private static final long serialVersionUID = -2735120968446127315L;
+
+    public CatalogUnavailableException(String code, String localeTag) {
+        super(String.format("Message '%s' of the locale '%s' is not available now.", code, localeTag));
+    }
+}
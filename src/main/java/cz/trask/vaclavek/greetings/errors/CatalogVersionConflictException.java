@@ -0,0 +1,21 @@
+package cz.trask.vaclavek.greetings.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception to be thrown, when the greeting was changed by someone else since the client read it,<br>
+ * i.e. its current version is not the version expected by the change.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CatalogVersionConflictException extends RuntimeException
+{
+    private static final long serialVersionUID = 4213470915830617301L;
+
+    public CatalogVersionConflictException(String localeTag, String key, long expectedVersion) {
+        super(String.format("Greeting '%s' of the locale '%s' is not in the expected version %d.", key, localeTag, expectedVersion));
+    }
+}
@@ -0,0 +1,47 @@
+package cz.trask.vaclavek.greetings.errors;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/**
+ * Marks the beans of the error handling as lazy, so they are created by the first error response and not at startup.
+ * <p>
+ * Most of the instances never return an error, so the {@code /error} controller, its error attributes and view resolver<br>
+ * would occupy the heap without being used. The {@link RestExceptionHandler} can not be deferred, Spring MVC resolves<br>
+ * all controller advice beans at startup to sort them by their order. {@link ApiErrorTemplates} stays eager too,<br>
+ * because it is used by the servlet filters.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class LazyErrorHandlingPostProcessor implements BeanFactoryPostProcessor
+{
+    private static final Logger Log = LoggerFactory.getLogger(LazyErrorHandlingPostProcessor.class);
+
+    /**
+     * Names of the beans of the Spring Boot error MVC auto-configuration
+     */
+    public static final Set<String> ERROR_HANDLING_BEAN_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "basicErrorController", "errorAttributes", "conventionErrorViewResolver")));
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+
+        for (String beanName : ERROR_HANDLING_BEAN_NAMES) {
+            if (beanFactory.containsBeanDefinition(beanName)) {
+                BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                beanDefinition.setLazyInit(true);
+                Log.debug("Error handling bean '{}' is initialized lazily", beanName);
+            }
+        }
+    }
+}
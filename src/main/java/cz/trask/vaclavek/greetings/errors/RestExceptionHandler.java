@@ -11,10 +11,21 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import cz.trask.vaclavek.greetings.allocation.AllocationAccountingFilter;
+import cz.trask.vaclavek.greetings.allocation.RequestOutcome;
+import cz.trask.vaclavek.greetings.jfr.InvalidParameterEvent;
+import cz.trask.vaclavek.greetings.jfr.LanguageNotSupportedEvent;
+import cz.trask.vaclavek.greetings.tracing.PipelineStage;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
+
 /**
  * Central handling of the Exceptions raised during REST api call processing.<br>
- * Converts the given Exception into {@link ApiError} class instance which is<br>
+ * Converts the given Exception into JSON representation of the {@link ApiError} class which is<br>
  * then sent as {@code ResponseEntity<Object>} of the REST api call response.<br> 
+ * The JSON body is rendered by {@link ApiErrorTemplates} from pre-encoded templates.<br>
+ * Time spent by the conversion is traced as {@link PipelineStage#ERROR_HANDLING} stage.<br>
+ * Rejected requests are recorded as {@link InvalidParameterEvent} and {@link LanguageNotSupportedEvent} Flight Recorder events<br>
+ * and their outcome is reported to the {@link AllocationAccountingFilter}.
  * 
  * @author Michal Vaclavek
  *
@@ -23,24 +34,69 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 @RestControllerAdvice
 public class RestExceptionHandler extends ResponseEntityExceptionHandler
 {
+    /**
+     * Renderer of the {@link ApiError} JSON bodies
+     */
+    private ApiErrorTemplates apiErrorTemplates;
+    
+    /**
+     * Standard constructor injecting renderer of the error bodies
+     * 
+     * @param apiErrorTemplates - renderer of the {@link ApiError} JSON bodies
+     */
+    public RestExceptionHandler(ApiErrorTemplates apiErrorTemplates) {
+        super();
+        this.apiErrorTemplates = apiErrorTemplates;
+    }
+    
+    /**
+     * Converts the Exception raised by the request processed outside of the Spring MVC (the fast path filter)<br>
+     * the same way as the {@code @ExceptionHandler} methods of this class do.
+     * 
+     * @param ex Exception raised by the request processing
+     * @return {@code ResponseEntity<Object>} created from input param. ex
+     */
+    public ResponseEntity<Object> handleRequestException(RuntimeException ex) {
+        
+        if (ex instanceof LanguageNotSupportedException) {
+            return handleLanguageNotSupported((LanguageNotSupportedException) ex);
+        }
+        if (ex instanceof InvalidParameterException) {
+            return handleInvalidParameter((InvalidParameterException) ex);
+        }
+        if (ex instanceof CatalogVersionConflictException) {
+            return handleVersionConflict((CatalogVersionConflictException) ex);
+        }
+        if (ex instanceof CatalogUnavailableException) {
+            return handleCatalogUnavailable((CatalogUnavailableException) ex);
+        }
+        return handleOtherExceptions(ex);
+    }
+    
     @Override
     protected ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
+        long traceStart = StageTracer.start();
         String error = "Malformed JSON request";
-        return buildResponseEntity(new ApiError(HttpStatus.BAD_REQUEST, error, ex));
+        return buildResponseEntity(HttpStatus.BAD_REQUEST, error, ex.getLocalizedMessage(), traceStart);
     }
 
     /**
-     * Converts {@link ApiError} instance into ResponseEntity<Object>
+     * Converts {@link ApiError} attributes into ResponseEntity<Object>
      * 
-     * @param apiError to convert
-     * @return {@code ResponseEntity<Object>} created from {@code apiError}
+     * @param status HTTP status of the error
+     * @param message short description of the error
+     * @param debugMessage detailed, debug related description of the error
+     * @param traceStart start time of the error handling returned by {@link StageTracer#start()}
+     * @return {@code ResponseEntity<Object>} with JSON body of the {@link ApiError}
      */
-    private ResponseEntity<Object> buildResponseEntity(ApiError apiError) {
-        return new ResponseEntity<>(apiError, apiError.getStatus());
+    private ResponseEntity<Object> buildResponseEntity(HttpStatus status, String message, String debugMessage, long traceStart) {
+        ResponseEntity<Object> responseEntity = apiErrorTemplates.responseEntity(status, message, debugMessage);
+        StageTracer.stop(PipelineStage.ERROR_HANDLING, traceStart);
+        return responseEntity;
     }
     
     /**
-     * Converts {@link LanguageNotSupportedException} instance into {@link ApiError}<br>
+     * Converts {@link LanguageNotSupportedException} instance into JSON of the {@link ApiError}<br>
      * and corresponding {@code ResponseEntity<Object>}
      * 
      * @param ex {@link LanguageNotSupportedException} instance
@@ -48,13 +104,23 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler
      */
     @ExceptionHandler(LanguageNotSupportedException.class)
     protected ResponseEntity<Object> handleLanguageNotSupported(LanguageNotSupportedException ex) {
-        ApiError apiError = new ApiError(HttpStatus.NOT_FOUND);
-        apiError.setMessage(ex.getMessage());
-        return buildResponseEntity(apiError);
+        long traceStart = StageTracer.start();
+        AllocationAccountingFilter.recordOutcome(RequestOutcome.LANGUAGE_NOT_SUPPORTED);
+        LanguageNotSupportedEvent event = new LanguageNotSupportedEvent();
+        event.begin();
+        
+        ResponseEntity<Object> responseEntity = buildResponseEntity(HttpStatus.NOT_FOUND, ex.getMessage(), "", traceStart);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.message = ex.getMessage();
+            event.commit();
+        }
+        return responseEntity;
     }
     
     /**
-     * Converts {@link InvalidParameterException} instance into {@link ApiError}<br>
+     * Converts {@link InvalidParameterException} instance into JSON of the {@link ApiError}<br>
      * and corresponding {@code ResponseEntity<Object>}
      * 
      * @param ex {@link InvalidParameterException} instance
@@ -62,11 +128,50 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler
      */
     @ExceptionHandler(InvalidParameterException.class)
     protected ResponseEntity<Object> handleInvalidParameter(InvalidParameterException ex) {
-        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST);
-        apiError.setMessage(ex.getMessage());
-        return buildResponseEntity(apiError);
+        long traceStart = StageTracer.start();
+        AllocationAccountingFilter.recordOutcome(RequestOutcome.INVALID_PARAMETER);
+        InvalidParameterEvent event = new InvalidParameterEvent();
+        event.begin();
+        
+        ResponseEntity<Object> responseEntity = buildResponseEntity(HttpStatus.BAD_REQUEST, ex.getMessage(), "", traceStart);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.parameterName = ex.getFieldName();
+            event.parameterValue = String.valueOf(ex.getFieldValue());
+            event.commit();
+        }
+        return responseEntity;
+    }
+    
+    /**
+     * Converts {@link CatalogVersionConflictException} of the admin API into JSON of the {@link ApiError}<br>
+     * and corresponding {@code ResponseEntity<Object>} with the 409 status
+     * 
+     * @param ex {@link CatalogVersionConflictException} instance
+     * @return {@code ResponseEntity<Object>} created from input param. ex
+     */
+    @ExceptionHandler(CatalogVersionConflictException.class)
+    protected ResponseEntity<Object> handleVersionConflict(CatalogVersionConflictException ex) {
+        
+        long traceStart = StageTracer.start();
+        return buildResponseEntity(HttpStatus.CONFLICT, ex.getMessage(), "", traceStart);
     }
     
+    /**
+     * Converts {@link CatalogUnavailableException} into JSON of the {@link ApiError}<br>
+     * and corresponding {@code ResponseEntity<Object>} with the 503 status
+     *
+     * @param ex {@link CatalogUnavailableException} instance
+     * @return {@code ResponseEntity<Object>} created from input param. ex
+     */
+    @ExceptionHandler(CatalogUnavailableException.class)
+    protected ResponseEntity<Object> handleCatalogUnavailable(CatalogUnavailableException ex) {
+
+        long traceStart = StageTracer.start();
+        return buildResponseEntity(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), "", traceStart);
+    }
+
     /**
      * Converts all other Exceptions
      * 
@@ -76,8 +181,7 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler
     @ExceptionHandler({Exception.class})
     protected ResponseEntity<Object> handleOtherExceptions(Exception ex) {
         
-        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST);
-        apiError.setMessage(ex.getMessage());
-        return buildResponseEntity(apiError);
+        long traceStart = StageTracer.start();
+        return buildResponseEntity(HttpStatus.BAD_REQUEST, ex.getMessage(), "", traceStart);
     }
 }
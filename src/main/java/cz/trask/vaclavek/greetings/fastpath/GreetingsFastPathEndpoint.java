@@ -0,0 +1,41 @@
+package cz.trask.vaclavek.greetings.fastpath;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * Admin endpoint switching the {@link GreetingsFastPathFilter} on and off at runtime.
+ * <p>
+ * <ul>
+ *   <li>{@code GET /actuator/fastpath} - returns {@code {"enabled": true|false}}</li>
+ *   <li>{@code POST /actuator/fastpath} with JSON body {@code {"enabled": true}} - switches the fast path on or off</li>
+ * </ul>
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Endpoint(id = "fastpath")
+public class GreetingsFastPathEndpoint
+{
+    private final GreetingsFastPathFilter fastPathFilter;
+
+    public GreetingsFastPathEndpoint(GreetingsFastPathFilter fastPathFilter) {
+        super();
+        this.fastPathFilter = fastPathFilter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> fastPath() {
+        return Collections.singletonMap("enabled", fastPathFilter.isEnabled());
+    }
+
+    @WriteOperation
+    public Map<String, Object> setEnabled(boolean enabled) {
+        fastPathFilter.setEnabled(enabled);
+        return fastPath();
+    }
+}
@@ -0,0 +1,215 @@
+package cz.trask.vaclavek.greetings.fastpath;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import cz.trask.vaclavek.greetings.accesslog.AccessLogFilter;
+import cz.trask.vaclavek.greetings.allocation.AllocationAccountingFilter;
+import cz.trask.vaclavek.greetings.controller.GreetingRequestHandler;
+import cz.trask.vaclavek.greetings.controller.GreetingRequestHandler.ServedGreeting;
+import cz.trask.vaclavek.greetings.controller.GreetingsController;
+import cz.trask.vaclavek.greetings.errors.ApiErrorTemplates;
+import cz.trask.vaclavek.greetings.errors.RestExceptionHandler;
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource;
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource.LookupSource;
+import cz.trask.vaclavek.greetings.messages.LookupSourceResponseBodyAdvice;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+
+/**
+ * Fast path of the {@code /api/greeting/timesensitive} and {@code /api/greeting/timeinsensitive} GET requests<br>
+ * bypassing the {@code DispatcherServlet}.
+ * <p>
+ * The requests are processed by the same {@link GreetingRequestHandler} as the {@link GreetingsController} does<br>
+ * and the errors are converted by the same {@link RestExceptionHandler}, so the responses, logs, Flight Recorder events<br>
+ * and the outcomes reported to the {@link AllocationAccountingFilter} are the same - the greeting as {@code text/plain;charset=UTF-8}<br>
+ * and the errors as {@code ApiError} JSON rendered by {@link ApiErrorTemplates}. The filter only reads the parameters<br>
+ * and writes the response. The locale of the {@code lang} parameter is not stored into the HTTP session, as the greetings<br>
+ * are never served for the locale of the session.
+ * <p>
+ * The filter runs before the {@code RequestContextFilter}, so it exposes the request to the {@code RequestContextHolder}<br>
+ * itself. The source of the looked up messages is then sent as the {@value DeadlineMessageSource#SOURCE_HEADER} header<br>
+ * the same way as the {@link LookupSourceResponseBodyAdvice} does for the Spring MVC.
+ * <p>
+ * Requests, which could be served differently by the Spring MVC, are passed to the {@code DispatcherServlet}<br>
+ * unchanged: other methods than GET, requests not accepting {@code text/plain} (the Spring MVC sends<br>
+ * them the greeting as {@code text/plain} as well, but they are rare and not worth the fast path) and requests<br>
+ * with the {@code lang} parameter, which is not a valid locale.
+ * <p>
+ * Request processing stages are not traced by the {@code StageTracer}, as the tracing is done by the Spring MVC interceptor.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingsFastPathFilter extends OncePerRequestFilter
+{
+    private static final String TEXT_PLAIN_UTF8 = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
+
+    // ****** INSTANCE FIELDS ******
+
+    private final GreetingRequestHandler greetingRequestHandler;
+
+    private final RestExceptionHandler restExceptionHandler;
+
+    private volatile boolean enabled;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param greetingRequestHandler - processing of the greeting requests shared with the {@link GreetingsController}
+     * @param restExceptionHandler - conversion of the errors shared with the Spring MVC
+     * @param enabled - true if the requests are served by the fast path, false if all requests are passed to Spring MVC
+     */
+    public GreetingsFastPathFilter(GreetingRequestHandler greetingRequestHandler, RestExceptionHandler restExceptionHandler,
+                                   boolean enabled) {
+        super();
+        this.greetingRequestHandler = greetingRequestHandler;
+        this.restExceptionHandler = restExceptionHandler;
+        this.enabled = enabled;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches the fast path on or off at runtime.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // ****** INSTANCE PROTECTED METHODS ******
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        if (!enabled || !"GET".equals(request.getMethod()) || !acceptsTextPlain(request.getHeader(HttpHeaders.ACCEPT))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String lang = parameter(request, "lang");
+        Locale locale = null;
+        if (!lang.isEmpty()) {
+            try {
+                locale = StringUtils.parseLocale(lang);
+            } catch (IllegalArgumentException ex) {
+                locale = null;
+            }
+            if (locale == null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+        }
+
+        ServletRequestAttributes attributes = new ServletRequestAttributes(request, response);
+        RequestContextHolder.setRequestAttributes(attributes);
+        try {
+            ServedGreeting served;
+            if (request.getRequestURI().endsWith("/timesensitive")) {
+                served = greetingRequestHandler.getTimeSensitive(parameter(request, "usersTime"), lang, parameter(request, "name"),
+                                                                 parameter(request, "lat"), parameter(request, "lon"),
+                                                                 parameter(request, "date"), parameter(request, "utcOffset"),
+                                                                 parameter(request, "clientId"), locale);
+                request.setAttribute(AccessLogFilter.TIME_PERIOD_ATTRIBUTE, served.getTimePeriod());
+            } else {
+                served = greetingRequestHandler.getTimeInsensitive(lang, parameter(request, "name"), parameter(request, "clientId"), locale);
+            }
+            writeSource(request, response);
+            writeGreeting(response, served);
+        } catch (RuntimeException ex) {
+            ResponseEntity<Object> error = restExceptionHandler.handleRequestException(ex);
+            writeSource(request, response);
+            writeError(response, error);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            attributes.requestCompleted();
+        }
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    private static void writeGreeting(HttpServletResponse response, ServedGreeting served) throws IOException {
+
+        if (served.getGreeting() == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        byte[] body = served.getGreeting().getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.OK.value());
+        if (served.getVariant() != null) {
+            response.setHeader(GreetingVariants.VARIANT_HEADER, served.getVariant().getId());
+        }
+        response.setContentType(TEXT_PLAIN_UTF8);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Writes the error response of the {@link RestExceptionHandler}, its body is the rendered {@code ApiError} JSON.
+     */
+    private static void writeError(HttpServletResponse response, ResponseEntity<Object> error) throws IOException {
+
+        byte[] body = (byte[]) error.getBody();
+        response.setStatus(error.getStatusCodeValue());
+        MediaType contentType = error.getHeaders().getContentType();
+        response.setContentType((contentType == null) ? MediaType.APPLICATION_JSON_VALUE : contentType.toString());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Sends the source of the messages looked up by the request, if they were looked up through the {@link DeadlineMessageSource}.
+     */
+    private static void writeSource(HttpServletRequest request, HttpServletResponse response) {
+
+        Object source = request.getAttribute(DeadlineMessageSource.SOURCE_ATTRIBUTE);
+        if (source instanceof LookupSource) {
+            response.setHeader(DeadlineMessageSource.SOURCE_HEADER, ((LookupSource) source).getTag());
+        }
+    }
+
+    private static String parameter(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        return (value == null) ? "" : value;
+    }
+
+    /**
+     * @return true if the Spring MVC would write the greeting as {@code text/plain} for the {@code accept} header
+     */
+    private static boolean acceptsTextPlain(String accept) {
+
+        if (accept == null || accept.isEmpty() || "*/*".equals(accept) || accept.startsWith(MediaType.TEXT_PLAIN_VALUE)) {
+            return true;
+        }
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.getQualityValue() > 0 && mediaType.isCompatibleWith(MediaType.TEXT_PLAIN)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException ex) {
+            // refused by the Spring MVC
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package cz.trask.vaclavek.greetings.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the greetings catalog file (messages_xx_XX.properties) load or reload,<br>
+ * or of the query of the database catalog (file name 'jdbc:greeting...').
+ * <p>
+ * Disabled by default, see the 'jfr/greetings.jfc' settings file. The threshold is zero, because every catalog file<br>
+ * is loaded only a few times, so all loads are recorded.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+@Name("cz.trask.vaclavek.greetings.CatalogLoad")
+@Label("Catalog Load")
+@Description("Load or reload of the greetings catalog file or query of the database catalog")
+@Category({"Greetings", "Catalog"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public class CatalogLoadEvent extends Event
+{
+    @Label("File Name")
+    public String fileName;
+    
+    @Label("Reload")
+    @Description("True if already loaded file was reloaded")
+    public boolean reload;
+    
+    @Label("Found")
+    @Description("False if the catalog file does not exist or the query returned no rows")
+    public boolean found;
+    
+    @Label("Entries")
+    public int entries;
+}
@@ -0,0 +1,50 @@
+package cz.trask.vaclavek.greetings.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the greeting served by the {@code GreetingsController}.<br>
+ * Duration of the event covers the whole controller method including the services calls.
+ * <p>
+ * Disabled by default, see the 'jfr/greetings.jfc' settings file. Only the greetings served in 1 ms or longer are recorded,<br>
+ * so the enabled recording does not capture every request.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+@Name("cz.trask.vaclavek.greetings.GreetingServed")
+@Label("Greeting Served")
+@Description("Greeting text returned by the REST api")
+@Category({"Greetings", "Requests"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public class GreetingServedEvent extends Event
+{
+    /**
+     * Name of the time sensitive endpoint
+     */
+    public static final String ENDPOINT_TIMESENSITIVE = "timesensitive";
+    
+    /**
+     * Name of the time insensitive endpoint
+     */
+    public static final String ENDPOINT_TIMEINSENSITIVE = "timeinsensitive";
+    
+    @Label("Endpoint")
+    public String endpoint;
+    
+    @Label("Locale")
+    public String locale;
+    
+    @Label("Time Period")
+    @Description("Time period of the day, empty for the time insensitive greeting")
+    public String period;
+}
@@ -0,0 +1,36 @@
+package cz.trask.vaclavek.greetings.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the REST api call rejected because of the {@code InvalidParameterException}.<br>
+ * Duration of the event covers the conversion of the exception into the error response.
+ * <p>
+ * Disabled by default, see the 'jfr/greetings.jfc' settings file. The threshold is zero, because the rejected requests<br>
+ * are rare and every one of them is of interest, the rejection itself takes only microseconds.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+@Name("cz.trask.vaclavek.greetings.InvalidParameter")
+@Label("Invalid Parameter")
+@Description("REST api call with missing or invalid parameter")
+@Category({"Greetings", "Errors"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public class InvalidParameterEvent extends Event
+{
+    @Label("Parameter Name")
+    public String parameterName;
+    
+    @Label("Parameter Value")
+    public String parameterValue;
+}
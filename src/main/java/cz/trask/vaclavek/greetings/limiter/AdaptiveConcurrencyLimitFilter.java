@@ -0,0 +1,109 @@
+package cz.trask.vaclavek.greetings.limiter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import cz.trask.vaclavek.greetings.errors.ApiError;
+import cz.trask.vaclavek.greetings.errors.ApiErrorTemplates;
+
+/**
+ * Servlet filter limiting the number of concurrently processed requests by the {@link GradientConcurrencyLimit}.
+ * <p>
+ * Requests over the limit are not queued, they are rejected immediately by the 503 SERVICE UNAVAILABLE<br>
+ * response with the {@link ApiError} JSON body rendered from the pre-encoded template, so the burst<br>
+ * does not increase the latency of the accepted requests.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class AdaptiveConcurrencyLimitFilter extends OncePerRequestFilter
+{
+    private static final Logger Log = LoggerFactory.getLogger(AdaptiveConcurrencyLimitFilter.class);
+
+    /**
+     * Message of the rejected request's error body
+     */
+    public static final String REJECTED_MESSAGE = "Too many concurrent requests, try again later.";
+
+    private final GradientConcurrencyLimit concurrencyLimit;
+
+    private final ApiErrorTemplates apiErrorTemplates;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+
+    /**
+     * @param concurrencyLimit - adaptive limit of the concurrently processed requests
+     * @param apiErrorTemplates - renderer of the rejected request's error body
+     */
+    public AdaptiveConcurrencyLimitFilter(GradientConcurrencyLimit concurrencyLimit, ApiErrorTemplates apiErrorTemplates) {
+        super();
+        this.concurrencyLimit = concurrencyLimit;
+        this.apiErrorTemplates = apiErrorTemplates;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        int currentInFlight = inFlight.incrementAndGet();
+        if (currentInFlight > concurrencyLimit.getLimit()) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            Log.debug("Request rejected, concurrency limit {} reached", concurrencyLimit.getLimit());
+            reject(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+            concurrencyLimit.onSample(System.nanoTime() - start, currentInFlight);
+        }
+    }
+
+    /**
+     * @return current concurrency limit
+     */
+    public int getLimit() {
+        return concurrencyLimit.getLimit();
+    }
+
+    /**
+     * @return number of requests in progress
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return total number of rejected requests
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+
+        byte[] body = apiErrorTemplates.render(HttpStatus.SERVICE_UNAVAILABLE, REJECTED_MESSAGE, "");
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,176 @@
+package cz.trask.vaclavek.greetings.limiter;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit adjusted according the measured latency of the requests (gradient algorithm).
+ * <p>
+ * Two exponential moving averages of the request latency are maintained: the long term one<br>
+ * represents the latency without queueing, the short term one the current latency. The ratio between them<br>
+ * (the gradient, between 0.5 and 1.0) is the sign of the queueing. The new limit is<br>
+ * {@code limit * gradient + sqrt(limit)}, so the limit grows while the latency stays steady and it is<br>
+ * reduced as soon as the requests start to wait. The change of the limit is smoothed and kept in<br>
+ * the {@code minLimit} - {@code maxLimit} range.
+ * <p>
+ * The limit is not increased when the application does not use at least half of it, so the idle periods<br>
+ * do not inflate the limit.
+ * <p>
+ * The request threads never wait for each other: the samples are added into the striped window ({@link LongAdder}s)<br>
+ * and the thread which gets the lock by {@code tryLock} folds the whole window into the averages as its mean latency.<br>
+ * Without contention every sample is folded alone. The window is read without stopping the writers, so a concurrently<br>
+ * added sample can be counted in the next window - acceptable for the averages of hundreds of samples.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class GradientConcurrencyLimit
+{
+    /**
+     * Number of samples of the long term latency average
+     */
+    private static final int LONG_WINDOW = 600;
+
+    /**
+     * Number of samples of the short term latency average
+     */
+    private static final int SHORT_WINDOW = 10;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    /**
+     * Ratio of the accepted increase of the latency before the limit is reduced
+     */
+    private final double rttTolerance;
+
+    /**
+     * Weight of the newly computed limit, 0 - 1.0
+     */
+    private final double smoothing;
+
+    /**
+     * Sum of the latencies of the samples not folded into the averages yet
+     */
+    private final LongAdder windowRttNanos = new LongAdder();
+
+    /**
+     * Number of the samples not folded into the averages yet
+     */
+    private final LongAdder windowSamples = new LongAdder();
+
+    /**
+     * Max. number of the requests in progress of the samples not folded into the averages yet
+     */
+    private final LongAccumulator windowInFlight = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Guards the averages and the estimated limit
+     */
+    private final ReentrantLock foldLock = new ReentrantLock();
+
+    private double estimatedLimit;
+
+    private double longRtt;
+
+    private double shortRtt;
+
+    private volatile int limit;
+
+
+    /**
+     * @param initialLimit - limit used before any latency is measured
+     * @param minLimit - the limit is never reduced under this value
+     * @param maxLimit - the limit is never increased over this value
+     * @param rttTolerance - ratio of the accepted increase of the latency, 1.0 or more
+     * @param smoothing - weight of the newly computed limit in 0 - 1.0 range
+     */
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing) {
+
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return current concurrency limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Updates the limit according latency of one finished request.<br>
+     * Never blocks: if another thread is updating the limit, the sample is left in the window for the next update.
+     * 
+     * @param rttNanos - latency of the request in nanoseconds
+     * @param inFlight - number of requests in progress when the request was started
+     */
+    public void onSample(long rttNanos, int inFlight) {
+
+        if (rttNanos <= 0) {
+            return;
+        }
+        windowRttNanos.add(rttNanos);
+        windowInFlight.accumulate(inFlight);
+        windowSamples.increment();
+        if (foldLock.tryLock()) {
+            try {
+                foldWindow();
+            } finally {
+                foldLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Folds the samples of the window into the averages as one sample of their mean latency, weighted by their count.<br>
+     * Called under the {@link #foldLock}.
+     */
+    private void foldWindow() {
+
+        long samples = windowSamples.sumThenReset();
+        if (samples == 0) {
+            return;
+        }
+        double rtt = (double) windowRttNanos.sumThenReset() / samples;
+        long inFlight = windowInFlight.getThenReset();
+        if (rtt <= 0) {
+            return;
+        }
+        if (longRtt == 0) {
+            longRtt = rtt;
+            shortRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) * Math.min(1.0, (double) samples / LONG_WINDOW);
+            shortRtt += (rtt - shortRtt) * Math.min(1.0, (double) samples / SHORT_WINDOW);
+        }
+
+        // After the load drops, the long term average is much higher than the current latency,
+        // decay it faster so the queueing is detected correctly again
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // Application limited, the limit was not reached, so there is no information about it
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+        estimatedLimit = newLimit;
+        limit = (int) newLimit;
+    }
+}
@@ -0,0 +1,296 @@
+package cz.trask.vaclavek.greetings.loganalysis;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Offline analyzer of the text log files written by the {@code FILE-ROLLING} appender of the 'logback-spring.xml'<br>
+ * in the {@code %d %p %c{1.} [%t] %m%n} format, i.e. {@code app_greetings.log} and {@code logs/app_greetings.*.log} files.
+ * <p>
+ * The files are memory-mapped read-only and split into the slices of {@link #SLICE_SIZE} bytes, which are parsed<br>
+ * in parallel, so the files are never loaded into the heap as a whole. Every slice parses the lines starting inside it,<br>
+ * the line crossing the end of the slice is parsed by the slice where it starts. Lines are parsed directly<br>
+ * from the bytes, only the greeting texts and error messages are decoded.
+ * <p>
+ * Extracted events are:
+ * <ul>
+ *   <li>greeting retrieved - INFO lines of the {@code GreetingsController}, counted by the greeting text</li>
+ *   <li>error - all ERROR lines, counted by the message with the quoted values (except parameter names)<br>
+ *       and assigned values replaced by {@code *}</li>
+ * </ul>
+ * Started from the command line as:<br>
+ * {@code java -jar greetings.jar analyze-logs <file or directory>...}
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class TextLogAnalyzer
+{
+    /**
+     * First command line argument of the application starting the analyzer instead of the web application
+     */
+    public static final String COMMAND = "analyze-logs";
+
+    static final int SLICE_SIZE = 8 * 1024 * 1024;
+
+    private static final int REGION_SIZE = 1 << 30;
+
+    private static final String LOG_FILES_GLOB = "app_greetings*.log";
+
+    private static final byte[] TIME_SENSITIVE_PREFIX = "Time sensitive greeting retrieved: ".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] TIME_INSENSITIVE_PREFIX = "Time insensitive greeting retrieved: ".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Length of the {@code yyyy-MM-dd HH:mm:ss,SSS} timestamp of the line
+     */
+    private static final int TIMESTAMP_LENGTH = 23;
+
+    /**
+     * Length of the {@code yyyy-MM-dd HH:mm} minute of the timestamp
+     */
+    private static final int MINUTE_LENGTH = 16;
+
+    /**
+     * Quoted value, except of the parameter names like in "Missing 'lang' parameter", which are constant
+     */
+    private static final Pattern QUOTED_VALUE = Pattern.compile("'[^']*'(?! parameter)");
+
+    private static final Pattern ASSIGNED_VALUE = Pattern.compile("=[^\\s,;]+");
+
+    private TextLogAnalyzer() {
+    }
+
+    /**
+     * Analyzes the files given as the arguments and prints the summary to the standard output.
+     *
+     * @param args - log files or directories containing the files
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        PrintStream out = System.out;
+        if (args.length == 0) {
+            out.println("Usage: java -jar greetings.jar " + COMMAND + " <file or directory>...");
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                files.addAll(listFiles(path));
+            } else {
+                files.add(path);
+            }
+        }
+
+        long start = System.nanoTime();
+        TextLogSummary summary = analyze(files, Runtime.getRuntime().availableProcessors());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        out.printf("Analyzed %d files in %d ms.%n", files.size(), elapsedMillis);
+        summary.print(out);
+    }
+
+    /**
+     * Parses the {@code files} in parallel.
+     *
+     * @param files - text log files
+     * @param parallelism - number of threads parsing the files
+     * @return summary of all events of the files
+     * @throws IOException if any file can not be read
+     */
+    public static TextLogSummary analyze(List<Path> files, int parallelism) throws IOException, InterruptedException {
+
+        List<Callable<TextLogSummary>> slices = new ArrayList<>();
+        for (Path file : files) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                // files are mapped in the regions of max. 1 GB; every region is mapped from the last byte
+                // of the previous region and it overlaps the next region by one slice, so the lines crossing
+                // the region end can be finished
+                for (long region = 0; region < size; region += REGION_SIZE) {
+                    long mapStart = (region == 0) ? 0 : region - 1;
+                    long mapLength = Math.min(size - mapStart, REGION_SIZE + 1L + SLICE_SIZE);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapLength);
+                    int regionStart = (int) (region - mapStart);
+                    int regionEnd = (int) Math.min(mapLength, regionStart + (long) REGION_SIZE);
+                    for (int from = regionStart; from < regionEnd; from += SLICE_SIZE) {
+                        int sliceStart = from;
+                        int sliceEnd = Math.min(regionEnd, from + SLICE_SIZE);
+                        slices.add(() -> parse(buffer.duplicate(), sliceStart, sliceEnd));
+                    }
+                }
+            }
+        }
+
+        TextLogSummary summary = new TextLogSummary();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(parallelism, 1));
+        try {
+            for (Future<TextLogSummary> slice : executor.invokeAll(slices)) {
+                summary.add(slice.get());
+            }
+        } catch (ExecutionException ex) {
+            throw new IOException("Log parsing failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return summary;
+    }
+
+    /**
+     * Lists the log files of the {@code directory}.
+     */
+    static List<Path> listFiles(Path directory) throws IOException {
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, LOG_FILES_GLOB)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Parses the lines starting in the {@code start} - {@code end} range of the {@code buffer}.<br>
+     * The line is considered to start at the {@code start}, if it is the start of the buffer or if it follows the new line.
+     */
+    private static TextLogSummary parse(ByteBuffer buffer, int start, int end) {
+
+        TextLogSummary summary = new TextLogSummary();
+        int limit = buffer.limit();
+
+        int lineStart = start;
+        if (start > 0 && buffer.get(start - 1) != '\n') {
+            lineStart = nextLine(buffer, start, limit);
+        }
+
+        byte[] lastMinute = new byte[MINUTE_LENGTH];
+        String lastMinuteText = null;
+
+        while (lineStart < end) {
+            int lineEnd = indexOf(buffer, (byte) '\n', lineStart, limit);
+            if (lineEnd < 0) {
+                lineEnd = limit;
+            }
+            int contentEnd = (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+            summary.addLine();
+
+            if (isEventLine(buffer, lineStart, contentEnd)) {
+                int levelStart = lineStart + TIMESTAMP_LENGTH + 1;
+                int loggerStart = indexOf(buffer, (byte) ' ', levelStart, contentEnd) + 1;
+                // logger name does not contain spaces, but it can contain brackets
+                int loggerEnd = (loggerStart > 0) ? indexOf(buffer, (byte) ' ', loggerStart, contentEnd) : -1;
+                int threadEnd = (loggerEnd > 0 && buffer.get(loggerEnd + 1) == '[') ? indexOf(buffer, (byte) ']', loggerEnd + 2, contentEnd) : -1;
+                if (threadEnd > 0 && threadEnd + 2 <= contentEnd) {
+                    int messageStart = threadEnd + 2;
+                    byte level = buffer.get(levelStart);
+
+                    if (level == 'I') {
+                        int textStart = startsWith(buffer, messageStart, contentEnd, TIME_SENSITIVE_PREFIX)
+                                            ? messageStart + TIME_SENSITIVE_PREFIX.length
+                                            : startsWith(buffer, messageStart, contentEnd, TIME_INSENSITIVE_PREFIX)
+                                                  ? messageStart + TIME_INSENSITIVE_PREFIX.length : -1;
+                        if (textStart > 0) {
+                            lastMinuteText = minute(buffer, lineStart, lastMinute, lastMinuteText);
+                            summary.addGreeting(lastMinuteText, decode(buffer, textStart, contentEnd));
+                        }
+                    } else if (level == 'E' && buffer.get(levelStart + 1) == 'R') {
+                        lastMinuteText = minute(buffer, lineStart, lastMinute, lastMinuteText);
+                        summary.addError(lastMinuteText, errorType(decode(buffer, messageStart, contentEnd)));
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return summary;
+    }
+
+    /**
+     * @return true if the line starts with the {@code yyyy-MM-dd HH:mm:ss,SSS} timestamp
+     */
+    private static boolean isEventLine(ByteBuffer buffer, int lineStart, int lineEnd) {
+
+        return lineEnd - lineStart > TIMESTAMP_LENGTH + 2
+               && buffer.get(lineStart + 4) == '-' && buffer.get(lineStart + 7) == '-' && buffer.get(lineStart + 10) == ' '
+               && buffer.get(lineStart + 13) == ':' && buffer.get(lineStart + 19) == ','
+               && buffer.get(lineStart + TIMESTAMP_LENGTH) == ' ';
+    }
+
+    /**
+     * Returns the minute of the line, the text of the previous minute is reused if the minute did not change.
+     */
+    private static String minute(ByteBuffer buffer, int lineStart, byte[] lastMinute, String lastMinuteText) {
+
+        boolean same = (lastMinuteText != null);
+        for (int i = 0; i < MINUTE_LENGTH; i++) {
+            byte b = buffer.get(lineStart + i);
+            if (b != lastMinute[i]) {
+                lastMinute[i] = b;
+                same = false;
+            }
+        }
+        return same ? lastMinuteText : new String(lastMinute, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Error type is the error message with the variable values replaced by {@code *}
+     */
+    static String errorType(String message) {
+        return ASSIGNED_VALUE.matcher(QUOTED_VALUE.matcher(message).replaceAll("'*'")).replaceAll("=*");
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int start, int end, byte[] prefix) {
+
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int nextLine(ByteBuffer buffer, int from, int limit) {
+        int newLine = indexOf(buffer, (byte) '\n', from, limit);
+        return (newLine < 0) ? limit : newLine + 1;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value, int from, int limit) {
+
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
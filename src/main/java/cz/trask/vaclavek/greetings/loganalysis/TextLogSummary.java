@@ -0,0 +1,107 @@
+package cz.trask.vaclavek.greetings.loganalysis;
+
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of the {@link TextLogAnalyzer} - counts of the retrieved greetings by the greeting text,<br>
+ * counts of the errors by the error type and counts of both by minute.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class TextLogSummary
+{
+    private long lines;
+
+    private final Map<String, Long> greetings = new HashMap<>();
+
+    private final Map<String, Long> errors = new HashMap<>();
+
+    /**
+     * Counts by minute {@code yyyy-MM-dd HH:mm}, index 0 - greetings, index 1 - errors
+     */
+    private final Map<String, long[]> minutes = new HashMap<>();
+
+
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return counts of the retrieved greetings by the greeting text
+     */
+    public Map<String, Long> getGreetings() {
+        return greetings;
+    }
+
+    /**
+     * @return counts of the errors by the error message with the variable parts replaced by {@code *}
+     */
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return counts of the greetings (index 0) and errors (index 1) by minute in {@code yyyy-MM-dd HH:mm} format
+     */
+    public Map<String, long[]> getMinutes() {
+        return minutes;
+    }
+
+    void addLine() {
+        lines++;
+    }
+
+    void addGreeting(String minute, String greeting) {
+        greetings.merge(greeting, 1L, Long::sum);
+        minutes.computeIfAbsent(minute, k -> new long[2])[0]++;
+    }
+
+    void addError(String minute, String errorType) {
+        errors.merge(errorType, 1L, Long::sum);
+        minutes.computeIfAbsent(minute, k -> new long[2])[1]++;
+    }
+
+    /**
+     * Adds all values of the {@code other} summary into this one.
+     */
+    public void add(TextLogSummary other) {
+
+        lines += other.lines;
+        other.greetings.forEach((greeting, count) -> greetings.merge(greeting, count, Long::sum));
+        other.errors.forEach((error, count) -> errors.merge(error, count, Long::sum));
+        other.minutes.forEach((minute, counts) -> {
+            long[] sum = minutes.computeIfAbsent(minute, k -> new long[2]);
+            sum[0] += counts[0];
+            sum[1] += counts[1];
+        });
+    }
+
+    /**
+     * Prints the summary in human readable form, minutes in chronological order.
+     */
+    public void print(PrintStream out) {
+
+        out.printf("Lines: %d%n", lines);
+
+        out.println();
+        out.println("Greetings retrieved:");
+        greetings.entrySet().stream()
+                 .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                 .forEach(entry -> out.printf("  %12d  %s%n", entry.getValue(), entry.getKey()));
+
+        out.println();
+        out.println("Errors:");
+        errors.entrySet().stream()
+              .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+              .forEach(entry -> out.printf("  %12d  %s%n", entry.getValue(), entry.getKey()));
+
+        out.println();
+        out.println("By minute:            greetings       errors");
+        new TreeMap<>(minutes).forEach((minute, counts) -> out.printf("  %s  %12d %12d%n", minute, counts[0], counts[1]));
+    }
+}
@@ -0,0 +1,108 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+import cz.trask.vaclavek.greetings.variants.VariantSet;
+
+/**
+ * Rules of the valid messages catalog, checked by the {@link ParallelCatalogLoader} before the catalog is used.
+ * <p>
+ * Every file is checked on its own: the messages formatted with arguments must be valid {@link MessageTemplate} patterns<br>
+ * using no more arguments than their callers pass, the variant sets (keys with the {@code .variants} suffix) must be<br>
+ * valid {@link VariantSet} definitions. The required keys are checked in the merged catalog of every locale, i.e. they<br>
+ * can be inherited from the less specific files of the fallback chain ({@code lang_COUNTRY} -> {@code lang} -> base file).
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class CatalogValidator
+{
+    /**
+     * Keys required in the catalog of every locale
+     */
+    private final Set<String> requiredKeys;
+
+    /**
+     * Keys required in the base file, they are inherited by all locales
+     */
+    private final Set<String> requiredBaseKeys;
+
+    /**
+     * Number of the arguments passed to the messages formatted with arguments, keyed by their keys
+     */
+    private final Map<String, Integer> argumentsCounts;
+
+
+    /**
+     * @param requiredKeys - keys required in the catalog of every locale
+     * @param requiredBaseKeys - keys required in the base file
+     * @param argumentsCounts - number of the arguments passed to the messages formatted with arguments, keyed by their keys
+     */
+    public CatalogValidator(Set<String> requiredKeys, Set<String> requiredBaseKeys, Map<String, Integer> argumentsCounts) {
+        super();
+        this.requiredKeys = Collections.unmodifiableSet(new HashSet<>(requiredKeys));
+        this.requiredBaseKeys = Collections.unmodifiableSet(new HashSet<>(requiredBaseKeys));
+        this.argumentsCounts = Collections.unmodifiableMap(new HashMap<>(argumentsCounts));
+    }
+
+    /**
+     * Checks the messages of one catalog file.
+     *
+     * @param fileName - name of the file, used in the problem descriptions
+     * @param messages - messages of the file
+     * @param problems - list the found problems are added to
+     */
+    public void validateFile(String fileName, Map<String, String> messages, List<String> problems) {
+
+        for (Map.Entry<String, String> message : messages.entrySet()) {
+            String key = message.getKey();
+            Integer argumentsCount = argumentsCounts.get(key);
+            if (argumentsCount != null) {
+                validateArguments(fileName, key, message.getValue(), argumentsCount, problems);
+            }
+            if (key.endsWith(GreetingVariants.VARIANTS_KEY_SUFFIX)) {
+                try {
+                    VariantSet.parse(message.getValue());
+                } catch (IllegalArgumentException ex) {
+                    problems.add(fileName + ": invalid variants '" + key + "': " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the merged messages of one locale, including the messages inherited from the less specific files.
+     *
+     * @param locale - locale of the catalog, {@link Locale#ROOT} for the base file
+     * @param messages - merged messages of the locale
+     * @param problems - list the found problems are added to
+     */
+    public void validateLocale(Locale locale, Map<String, String> messages, List<String> problems) {
+
+        for (String key : Locale.ROOT.equals(locale) ? requiredBaseKeys : requiredKeys) {
+            String message = messages.get(key);
+            if (message == null || message.trim().isEmpty()) {
+                problems.add("locale '" + locale + "': missing required key '" + key + "'");
+            }
+        }
+    }
+
+    private static void validateArguments(String fileName, String key, String pattern, int argumentsCount, List<String> problems) {
+
+        try {
+            int used = MessageTemplate.compile(pattern).getArgumentsCount();
+            if (used > argumentsCount) {
+                problems.add(fileName + ": '" + key + "' uses " + used + " arguments, only " + argumentsCount + " are passed");
+            }
+        } catch (IllegalArgumentException ex) {
+            problems.add(fileName + ": invalid pattern '" + key + "': " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.MessageSourceSupport;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import cz.trask.vaclavek.greetings.errors.CatalogUnavailableException;
+
+/**
+ * {@link MessageSource} running the lookups of the delegate under the deadline, so the stalled catalog<br>
+ * (slow mounted filesystem, remote backed message source) does not stall the request threads.
+ * <p>
+ * Lookups run in the bounded pool of {@code threads}. If the delegate does not answer in {@code timeoutMillis},<br>
+ * or all the threads are still waiting for it, the last-known-good text of the message is served instead.<br>
+ * The last-known-good texts are the last answers of the delegate for every code, locale and default message<br>
+ * (late answers of the timed out lookups too). Lookups with the arguments look up the raw text of the code without<br>
+ * the arguments and format it with the arguments when it is served, so their last-known-good texts are kept<br>
+ * by the code and locale too, not by the arguments coming from the requests. Only the {@link MessageSourceResolvable}<br>
+ * lookups with the arguments are not kept. If there is no last-known-good text, {@link CatalogUnavailableException} is thrown.
+ * <p>
+ * After {@code failureThreshold} consecutive timeouts the breaker opens: for {@code openMillis} all lookups are served<br>
+ * from the last-known-good texts without waiting at all. Then one probe lookup is let through to the delegate,<br>
+ * its answer closes the breaker, its timeout opens it again.
+ * <p>
+ * Source of the messages of the web request is kept as the {@value #SOURCE_ATTRIBUTE} request attribute (the worst one<br>
+ * of its lookups) and sent as the {@value #SOURCE_HEADER} response header by the {@link LookupSourceResponseBodyAdvice}.
+ * <p>
+ * Has to be guarded by the {@link LocaleGuardMessageSource}, so the last-known-good texts are kept only for the catalog locales.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class DeadlineMessageSource extends MessageSourceSupport implements MessageSource, AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(DeadlineMessageSource.class);
+
+    /**
+     * Response header naming the source of the messages of the response
+     */
+    public static final String SOURCE_HEADER = "X-Greetings-Source";
+
+    /**
+     * Request attribute holding the {@link LookupSource} of the messages of the request
+     */
+    public static final String SOURCE_ATTRIBUTE = DeadlineMessageSource.class.getName() + ".source";
+
+    /**
+     * Source of the looked up message, from the best one
+     */
+    public enum LookupSource
+    {
+        /**
+         * Answered by the delegate in time
+         */
+        CATALOG("catalog"),
+        /**
+         * Last-known-good text served, the delegate did not answer in time or the breaker is open
+         */
+        LAST_KNOWN_GOOD("last-known-good"),
+        /**
+         * Neither the delegate nor the last-known-good texts had the message
+         */
+        NONE("none");
+
+        private final String tag;
+
+        LookupSource(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return value of the metrics tag and the response header
+         */
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    // ****** INSTANCE FIELDS ******
+
+    private final MessageSource delegate;
+
+    private final long timeoutMillis;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentMap<LookupKey, String> lastKnownGood = new ConcurrentHashMap<>();
+
+    private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+
+    /**
+     * End of the open state of the breaker, 0 if the breaker is closed
+     */
+    private volatile long openUntilMillis;
+
+    /**
+     * True while the probe lookup of the half-open breaker is running
+     */
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private final AtomicLongArray lookups = new AtomicLongArray(LookupSource.values().length);
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong breakerOpenings = new AtomicLong();
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param delegate - source of the messages
+     * @param timeoutMillis - max. time the request thread waits for the lookup
+     * @param threads - max. number of the concurrent lookups of the delegate
+     * @param failureThreshold - number of the consecutive timeouts opening the breaker
+     * @param openMillis - time the breaker stays open
+     */
+    public DeadlineMessageSource(MessageSource delegate, long timeoutMillis, int threads, int failureThreshold, long openMillis) {
+        super();
+        this.delegate = delegate;
+        this.timeoutMillis = timeoutMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "greetings-message-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    @Override
+    public String getMessage(String code, Object[] args, String defaultMessage, Locale locale) {
+
+        String message = lookup(new LookupKey(code, null, defaultMessage, locale), () -> delegate.getMessage(code, null, defaultMessage, locale));
+        return format(message, args, locale);
+    }
+
+    @Override
+    public String getMessage(String code, Object[] args, Locale locale) throws NoSuchMessageException {
+
+        String message = lookup(new LookupKey(code, null, null, locale), () -> delegate.getMessage(code, null, locale));
+        return format(message, args, locale);
+    }
+
+    @Override
+    public String getMessage(MessageSourceResolvable resolvable, Locale locale) throws NoSuchMessageException {
+
+        String[] codes = resolvable.getCodes();
+        String code = (codes == null || codes.length == 0) ? null : String.join(",", codes);
+        return lookup(new LookupKey(code, resolvable.getArguments(), resolvable.getDefaultMessage(), locale),
+                      () -> delegate.getMessage(resolvable, locale));
+    }
+
+    public MessageSource getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return true if the lookups are served from the last-known-good texts without waiting for the delegate
+     */
+    public boolean isBreakerOpen() {
+        return openUntilMillis != 0;
+    }
+
+    /**
+     * @param source - source of the messages
+     * @return number of the lookups served by the source since the start
+     */
+    public long getLookups(LookupSource source) {
+        return lookups.get(source.ordinal());
+    }
+
+    /**
+     * @return number of the lookups not answered by the delegate in time
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return number of the lookups not passed to the delegate, because all the threads were waiting for it
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    /**
+     * @return number of the openings of the breaker since the start
+     */
+    public long getBreakerOpenings() {
+        return breakerOpenings.get();
+    }
+
+    /**
+     * @return number of the kept last-known-good texts
+     */
+    public int getLastKnownGoodCount() {
+        return lastKnownGood.size();
+    }
+
+    /**
+     * Stops the lookup threads, the running lookups are interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * Formats the raw text looked up without the arguments the same way as the delegate formats the texts with the arguments.
+     */
+    private String format(String message, Object[] args, Locale locale) {
+        return (message == null || ObjectUtils.isEmpty(args)) ? message : formatMessage(message, args, locale);
+    }
+
+    private String lookup(LookupKey key, Supplier<String> delegateLookup) {
+
+        if (isOpen()) {
+            return fallback(key);
+        }
+        CompletableFuture<String> future;
+        try {
+            future = CompletableFuture.supplyAsync(delegateLookup, executor);
+        } catch (RejectedExecutionException ex) {
+            rejections.incrementAndGet();
+            recordTimeout();
+            return fallback(key);
+        }
+        try {
+            String message = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            recordAnswer();
+            remember(key, message);
+            record(LookupSource.CATALOG);
+            return message;
+        } catch (TimeoutException ex) {
+            timeouts.incrementAndGet();
+            future.thenAccept(message -> remember(key, message));
+            recordTimeout();
+            return fallback(key);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            recordTimeout();
+            return fallback(key);
+        } catch (ExecutionException ex) {
+            // the delegate answered, it does not have the message
+            recordAnswer();
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return true if the breaker is open, or it is half-open and another lookup is the probe
+     */
+    private boolean isOpen() {
+
+        long openUntil = openUntilMillis;
+        if (openUntil == 0) {
+            return false;
+        }
+        if (System.currentTimeMillis() < openUntil) {
+            return true;
+        }
+        return !probing.compareAndSet(false, true);
+    }
+
+    private void recordAnswer() {
+
+        consecutiveTimeouts.set(0);
+        if (openUntilMillis != 0) {
+            openUntilMillis = 0;
+            probing.set(false);
+            Log.info("Message catalog answers again, the lookup breaker is closed");
+        }
+    }
+
+    private void recordTimeout() {
+
+        if (probing.get() || (consecutiveTimeouts.incrementAndGet() >= failureThreshold && openUntilMillis == 0)) {
+            openUntilMillis = System.currentTimeMillis() + openMillis;
+            probing.set(false);
+            breakerOpenings.incrementAndGet();
+            Log.warn("Message catalog did not answer {} lookups in {} ms, the last-known-good messages are served for {} ms",
+                     consecutiveTimeouts.get(), timeoutMillis, openMillis);
+        }
+    }
+
+    private void remember(LookupKey key, String message) {
+        if (key.args == null && message != null && !message.equals(lastKnownGood.get(key))) {
+            lastKnownGood.put(key, message);
+        }
+    }
+
+    private String fallback(LookupKey key) {
+
+        String message = (key.args == null) ? lastKnownGood.get(key) : null;
+        if (message == null) {
+            record(LookupSource.NONE);
+            throw new CatalogUnavailableException(key.code, (key.locale == null) ? "" : key.locale.toLanguageTag());
+        }
+        record(LookupSource.LAST_KNOWN_GOOD);
+        return message;
+    }
+
+    /**
+     * Counts the lookup and keeps the worst source of the current web request.
+     */
+    private void record(LookupSource source) {
+
+        lookups.incrementAndGet(source.ordinal());
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            Object current = attributes.getAttribute(SOURCE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (current == null || ((LookupSource) current).ordinal() < source.ordinal()) {
+                attributes.setAttribute(SOURCE_ATTRIBUTE, source, RequestAttributes.SCOPE_REQUEST);
+            }
+        }
+    }
+
+    /**
+     * Key of the last-known-good text, the arguments are kept only to tell the {@link MessageSourceResolvable} lookups with the arguments
+     */
+    private static final class LookupKey
+    {
+        private final String code;
+        private final Object[] args;
+        private final String defaultMessage;
+        private final Locale locale;
+
+        private LookupKey(String code, Object[] args, String defaultMessage, Locale locale) {
+            this.code = code;
+            this.args = (args == null || args.length == 0) ? null : args;
+            this.defaultMessage = defaultMessage;
+            this.locale = locale;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(code, defaultMessage, locale) * 31 + Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LookupKey)) {
+                return false;
+            }
+            LookupKey other = (LookupKey) obj;
+            return Objects.equals(code, other.code) && Objects.equals(defaultMessage, other.defaultMessage)
+                   && Objects.equals(locale, other.locale) && Arrays.equals(args, other.args);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+/**
+ * {@link MessageSource} guarding the delegate against the unbounded number of the requested locales.
+ * <p>
+ * {@link ReloadableResourceBundleMessageSource} caches the file names and merged properties for every<br>
+ * distinct locale and never evicts them. Locales are created from the {@code lang} parameter sent by the clients,<br>
+ * so requests with random {@code lang} values would grow its caches without any limit.
+ * <p>
+ * This guard maps every locale onto the finite set of the locales having their catalog file before the delegate is called:<br>
+ * {@code lang_COUNTRY_variant} -> {@code lang_COUNTRY} -> {@code lang} -> {@link Locale#ROOT}. Most specific existing<br>
+ * catalog is the first catalog searched by the delegate for the original locale too, so the resolved messages are not changed.<br>
+ * Catalog locales are found by scanning the classpath for the {@code basename_*.properties} files when the guard is created.
+ * <p>
+ * Mappings of the locales without own catalog are cached in the concurrent map limited by {@code maxCachedLocales}.<br>
+ * When it is full, an arbitrary mapping is evicted: the mappings are cheap to compute again, so there is no need<br>
+ * for the LRU order and its lock on every lookup of the unknown locale.<br>
+ * When the catalog locales are replaced by {@link #setCatalogLocales(Set)}, the cached mappings are dropped.
+ * <p>
+ * Closing the guard closes the delegate, if it holds resources (the lookup threads of the {@link DeadlineMessageSource}),<br>
+ * so they are released when the guard bean is destroyed.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class LocaleGuardMessageSource implements MessageSource, AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(LocaleGuardMessageSource.class);
+
+    private final MessageSource delegate;
+
+    /**
+     * Locales having their own catalog file
+     */
+    private volatile CatalogLocales catalogLocales;
+
+    private final int maxCachedLocales;
+
+
+    /**
+     * @param delegate - guarded message source
+     * @param basename - basename of the catalog files, for example {@code classpath:/messages}
+     * @param maxCachedLocales - max. number of the cached mappings of the locales without own catalog file
+     */
+    public LocaleGuardMessageSource(MessageSource delegate, String basename, int maxCachedLocales) {
+        this(delegate, findCatalogLocales(basename), maxCachedLocales);
+    }
+
+    /**
+     * @param delegate - guarded message source
+     * @param catalogLocales - locales having their own catalog file
+     * @param maxCachedLocales - max. number of the cached mappings of the locales without own catalog file
+     */
+    public LocaleGuardMessageSource(MessageSource delegate, Set<Locale> catalogLocales, int maxCachedLocales) {
+        super();
+        this.delegate = delegate;
+        this.maxCachedLocales = maxCachedLocales;
+        this.catalogLocales = new CatalogLocales(catalogLocales);
+        Log.info("Message catalogs found for locales: {}", this.catalogLocales.locales);
+    }
+
+    @Override
+    public String getMessage(String code, Object[] args, String defaultMessage, Locale locale) {
+        return delegate.getMessage(code, args, defaultMessage, guard(locale));
+    }
+
+    @Override
+    public String getMessage(String code, Object[] args, Locale locale) throws NoSuchMessageException {
+        return delegate.getMessage(code, args, guard(locale));
+    }
+
+    @Override
+    public String getMessage(MessageSourceResolvable resolvable, Locale locale) throws NoSuchMessageException {
+        return delegate.getMessage(resolvable, guard(locale));
+    }
+
+    public MessageSource getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Closes the delegate if it is {@link AutoCloseable}.
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+
+    /**
+     * @return locales having their own catalog file
+     */
+    public Set<Locale> getCatalogLocales() {
+        return catalogLocales.locales;
+    }
+
+    /**
+     * Replaces the locales having their own catalog, for example when the delegate's catalog is replaced.
+     *
+     * @param locales - locales having their own catalog file
+     */
+    public void setCatalogLocales(Set<Locale> locales) {
+
+        CatalogLocales newLocales = new CatalogLocales(locales);
+        if (!newLocales.locales.equals(catalogLocales.locales)) {
+            catalogLocales = newLocales;
+            Log.info("Message catalogs replaced, locales: {}", newLocales.locales);
+        }
+    }
+
+    /**
+     * @return number of the cached mappings of the locales without own catalog file
+     */
+    public int getCachedLocalesCount() {
+        return catalogLocales.mappedLocales.size();
+    }
+
+    /**
+     * Maps the {@code locale} onto the most specific locale having its own catalog file.
+     *
+     * @param locale - requested locale, can be null
+     * @return locale having its own catalog or {@link Locale#ROOT}, null if the {@code locale} is null
+     */
+    public Locale guard(Locale locale) {
+
+        CatalogLocales current = catalogLocales;
+        if (locale == null || current.locales.contains(locale)) {
+            return locale;
+        }
+        Locale mapped = current.mappedLocales.get(locale);
+        if (mapped == null) {
+            mapped = findCatalogLocale(current, locale);
+            if (current.mappedLocales.put(locale, mapped) == null) {
+                current.evictOverflow(maxCachedLocales);
+            }
+        }
+        return mapped;
+    }
+
+    private static Locale findCatalogLocale(CatalogLocales current, Locale locale) {
+
+        String language = locale.getLanguage();
+        String country = locale.getCountry();
+        String variant = locale.getVariant();
+
+        Locale candidate = null;
+        if (!variant.isEmpty()) {
+            candidate = current.localesByKey.get(key(language, country, variant));
+        }
+        if (candidate == null && !country.isEmpty()) {
+            candidate = current.localesByKey.get(key(language, country, ""));
+        }
+        if (candidate == null) {
+            candidate = current.localesByKey.get(key(language, "", ""));
+        }
+        return (candidate != null) ? candidate : Locale.ROOT;
+    }
+
+    private static String key(String language, String country, String variant) {
+        return language + '_' + country + '_' + variant;
+    }
+
+    /**
+     * Locales having their own catalog file and the cached mappings of the other locales onto them
+     */
+    private static final class CatalogLocales
+    {
+        private final Set<Locale> locales;
+
+        /**
+         * Catalog locales keyed by their {@code lang_COUNTRY_variant} string. Candidates of the fallback are looked up<br>
+         * by the string keys, so no new {@code Locale} instances are created (and cached by the JDK) for the unknown locales.
+         */
+        private final Map<String, Locale> localesByKey = new HashMap<>();
+
+        /**
+         * Mappings of the locales without own catalog file
+         */
+        private final ConcurrentMap<Locale, Locale> mappedLocales = new ConcurrentHashMap<>();
+
+        private CatalogLocales(Set<Locale> locales) {
+            this.locales = Collections.unmodifiableSet(new HashSet<>(locales));
+            for (Locale locale : locales) {
+                localesByKey.put(key(locale.getLanguage(), locale.getCountry(), locale.getVariant()), locale);
+            }
+        }
+
+        /**
+         * Evicts arbitrary mappings over the {@code maxCachedLocales}.
+         */
+        private void evictOverflow(int maxCachedLocales) {
+
+            Iterator<Locale> mapped = mappedLocales.keySet().iterator();
+            while (mappedLocales.size() > maxCachedLocales && mapped.hasNext()) {
+                mapped.next();
+                mapped.remove();
+            }
+        }
+    }
+
+    /**
+     * Scans the classpath for the {@code basename_*.properties} catalog files.
+     *
+     * @param basename - basename of the catalog files, for example {@code classpath:/messages}
+     * @return locales of the found catalog files
+     */
+    private static Set<Locale> findCatalogLocales(String basename) {
+
+        Set<Locale> locales = new HashSet<>(ParallelCatalogLoader.findCatalogFiles(basename).keySet());
+        locales.remove(Locale.ROOT);
+        return locales;
+    }
+}
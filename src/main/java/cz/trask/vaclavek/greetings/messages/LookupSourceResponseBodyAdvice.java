@@ -0,0 +1,44 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource.LookupSource;
+
+/**
+ * Sends the source of the messages looked up by the request through the {@link DeadlineMessageSource}<br>
+ * as the {@value DeadlineMessageSource#SOURCE_HEADER} response header of the controller or the exception handler.
+ * <p>
+ * Requests without such lookups (the preloaded catalog, the database catalog) are sent without the header.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@ControllerAdvice
+public class LookupSourceResponseBodyAdvice implements ResponseBodyAdvice<Object>
+{
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+
+        if (request instanceof ServletServerHttpRequest) {
+            Object source = ((ServletServerHttpRequest) request).getServletRequest().getAttribute(DeadlineMessageSource.SOURCE_ATTRIBUTE);
+            if (source instanceof LookupSource) {
+                response.getHeaders().set(DeadlineMessageSource.SOURCE_HEADER, ((LookupSource) source).getTag());
+            }
+        }
+        return body;
+    }
+}
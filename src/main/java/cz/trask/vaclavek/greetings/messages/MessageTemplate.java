@@ -0,0 +1,160 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message pattern compiled once into the literal and placeholder segments.
+ * <p>
+ * Supports the subset of the {@link MessageFormat} syntax used by the messages files: {@code {n}} placeholders<br>
+ * of the string arguments and the quoting - {@code ''} is a single quote, text between single quotes is literal.<br>
+ * Rendered text is the same as of the {@code new MessageFormat(pattern).format(args)}, but the pattern is not parsed again,<br>
+ * no {@link MessageFormat} instance is shared (and locked) by the threads and the result is written into the {@code StringBuilder}<br>
+ * of the exact size. Template is immutable and thread-safe.
+ * <p>
+ * Patterns with the format types, like {@code {0,number}}, are not supported.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class MessageTemplate
+{
+    /**
+     * Literal segments, {@code literals[i]} precedes the placeholder {@code i}, the last one follows the last placeholder
+     */
+    private final String[] literals;
+
+    /**
+     * Argument indexes of the placeholders
+     */
+    private final int[] argIndexes;
+
+    /**
+     * Sum of the lengths of the literal segments
+     */
+    private final int literalsLength;
+
+
+    private MessageTemplate(List<String> literals, List<Integer> argIndexes) {
+
+        this.literals = literals.toArray(new String[0]);
+        this.argIndexes = new int[argIndexes.size()];
+        for (int i = 0; i < this.argIndexes.length; i++) {
+            this.argIndexes[i] = argIndexes.get(i);
+        }
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalsLength = length;
+    }
+
+    /**
+     * Compiles the {@link MessageFormat} pattern.
+     *
+     * @param pattern - pattern like {@code Language ''{0}'' not supported.}
+     * @return compiled template
+     * @throws IllegalArgumentException if the pattern is not valid or it contains unsupported format types
+     */
+    public static MessageTemplate compile(String pattern) {
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> argIndexes = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(pattern.length());
+        boolean quoted = false;
+
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                    literal.append('\'');
+                    i += 2;
+                    continue;
+                }
+                quoted = !quoted;
+                i++;
+            } else if (c == '{' && !quoted) {
+                int end = pattern.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unmatched braces in the pattern: " + pattern);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                argIndexes.add(parseArgIndex(pattern, pattern.substring(i + 1, end)));
+                i = end + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        return new MessageTemplate(literals, argIndexes);
+    }
+
+    /**
+     * Renders the message, missing arguments are rendered as their placeholders, null arguments as "null",<br>
+     * same as {@link MessageFormat} does.
+     *
+     * @param args - arguments of the placeholders
+     * @return rendered message
+     */
+    public String render(String... args) {
+
+        if (argIndexes.length == 0) {
+            return literals[0];
+        }
+
+        int length = literalsLength;
+        for (int argIndex : argIndexes) {
+            length += argument(args, argIndex).length();
+        }
+
+        StringBuilder message = new StringBuilder(length);
+        for (int i = 0; i < argIndexes.length; i++) {
+            message.append(literals[i]).append(argument(args, argIndexes[i]));
+        }
+        return message.append(literals[argIndexes.length]).toString();
+    }
+
+    /**
+     * @return number of the placeholders of the template
+     */
+    public int getPlaceholdersCount() {
+        return argIndexes.length;
+    }
+
+    /**
+     * @return number of the arguments used by the template, i.e. the highest argument index + 1
+     */
+    public int getArgumentsCount() {
+
+        int count = 0;
+        for (int argIndex : argIndexes) {
+            count = Math.max(count, argIndex + 1);
+        }
+        return count;
+    }
+
+    private static String argument(String[] args, int argIndex) {
+
+        if (args == null || argIndex >= args.length) {
+            return "{" + argIndex + "}";
+        }
+        return String.valueOf(args[argIndex]);
+    }
+
+    private static int parseArgIndex(String pattern, String placeholder) {
+
+        try {
+            int argIndex = Integer.parseInt(placeholder);
+            if (argIndex >= 0) {
+                return argIndex;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Unsupported placeholder {" + placeholder + "} in the pattern: " + pattern);
+    }
+}
@@ -0,0 +1,161 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Formats the parameterized messages by the {@link MessageTemplate}s compiled once per message code and locale.
+ * <p>
+ * {@code MessageSource.getMessage(code, args, locale)} with arguments formats the message by the {@code MessageFormat}<br>
+ * cached by the message source and every formatting is synchronized on that shared instance. The templates<br>
+ * are compiled from the raw patterns of the same {@link MessageSource}, so the formatted messages are the same,<br>
+ * but they are rendered without any lock.
+ * <p>
+ * Templates are cached for the locales having their own catalog file, other locales are mapped onto them by the<br>
+ * {@link LocaleGuardMessageSource}. If the message source is not guarded, at most {@code MAX_UNGUARDED_LOCALES}<br>
+ * locales are cached and templates of the other locales are compiled for every message.
+ * <p>
+ * The cache has to be cleared by {@link #clear()} whenever the catalog of the message source is replaced, otherwise<br>
+ * the templates of the previous catalog - including its missing messages - would be served.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Component
+public class MessageTemplates
+{
+    private static final int MAX_UNGUARDED_LOCALES = 256;
+
+    /**
+     * Default message of the message source to identify missing messages
+     */
+    private static final String MESSAGE_NOT_FOUND = "\u0000Not_found";
+
+    /**
+     * Template of the missing messages in the cache, which does not allow null values
+     */
+    private static final MessageTemplate MISSING = MessageTemplate.compile("");
+
+    // ****** INSTANCE FIELDS ******
+
+    private final MessageSource messages;
+
+    private final LocaleGuardMessageSource localeGuard;
+
+    /**
+     * Compiled templates keyed by the locale and message code, replaced as a whole by {@link #clear()}
+     */
+    private volatile ConcurrentMap<Locale, ConcurrentMap<String, MessageTemplate>> templates = new ConcurrentHashMap<>();
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param messages - source of the message patterns
+     */
+    public MessageTemplates(MessageSource messages) {
+        super();
+        this.messages = messages;
+        this.localeGuard = (messages instanceof LocaleGuardMessageSource) ? (LocaleGuardMessageSource) messages : null;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Formats the message of the {@code code} for the {@code locale}.
+     *
+     * @param code - code of the message, for example 'greeting.error.language.notsupported'
+     * @param locale - locale of the message, null for the default messages
+     * @param args - arguments of the message
+     * @return formatted message or null if the message is not found
+     */
+    public String format(String code, Locale locale, String... args) {
+
+        MessageTemplate template = getTemplate(code, locale);
+        return (template == null) ? null : template.render(args);
+    }
+
+    /**
+     * Returns the compiled template of the message, it is compiled on the first request.
+     *
+     * @param code - code of the message
+     * @param locale - locale of the message, null for the default messages
+     * @return compiled template or null if the message is not found
+     */
+    public MessageTemplate getTemplate(String code, Locale locale) {
+
+        Locale catalogLocale = (locale == null) ? Locale.ROOT : locale;
+        if (localeGuard != null) {
+            catalogLocale = localeGuard.guard(catalogLocale);
+        }
+
+        // the map is read before the pattern, so a template compiled from the replaced catalog is not cached after clear()
+        ConcurrentMap<Locale, ConcurrentMap<String, MessageTemplate>> cache = templates;
+        ConcurrentMap<String, MessageTemplate> localeTemplates = cache.get(catalogLocale);
+        if (localeTemplates == null) {
+            if (localeGuard == null && cache.size() >= MAX_UNGUARDED_LOCALES) {
+                return compile(code, catalogLocale);
+            }
+            localeTemplates = cache.computeIfAbsent(catalogLocale, l -> new ConcurrentHashMap<>());
+        }
+
+        MessageTemplate template = localeTemplates.get(code);
+        if (template == null) {
+            template = compile(code, catalogLocale);
+            localeTemplates.putIfAbsent(code, (template == null) ? MISSING : template);
+        }
+        return (template == MISSING) ? null : template;
+    }
+
+    /**
+     * Drops all compiled templates, to be called after the catalog of the message source is replaced.<br>
+     * The templates of the new catalog are compiled on their first request again.
+     */
+    public void clear() {
+        templates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the raw patterns of the message for the default locale ({@link Locale#ROOT}) and for every locale<br>
+     * having its own catalog file. Patterns of the other locales are the patterns of their catalog locales.
+     *
+     * @param code - code of the message
+     * @return patterns keyed by the catalog locale, only the found ones
+     */
+    public Map<Locale, String> getPatterns(String code) {
+
+        Map<Locale, String> patterns = new LinkedHashMap<>();
+        addPattern(patterns, code, Locale.ROOT);
+        if (localeGuard != null) {
+            for (Locale locale : localeGuard.getCatalogLocales()) {
+                addPattern(patterns, code, locale);
+            }
+        }
+        return patterns;
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    private void addPattern(Map<Locale, String> patterns, String code, Locale locale) {
+
+        String pattern = messages.getMessage(code, null, MESSAGE_NOT_FOUND, locale);
+        if (!MESSAGE_NOT_FOUND.equals(pattern)) {
+            patterns.put(locale, pattern);
+        }
+    }
+
+    /**
+     * @return template of the raw pattern, message source does not format the messages without arguments
+     */
+    private MessageTemplate compile(String code, Locale locale) {
+
+        String pattern = messages.getMessage(code, null, MESSAGE_NOT_FOUND, locale);
+        return MESSAGE_NOT_FOUND.equals(pattern) ? null : MessageTemplate.compile(pattern);
+    }
+}
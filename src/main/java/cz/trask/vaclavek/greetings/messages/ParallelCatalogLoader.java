@@ -0,0 +1,345 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.StreamUtils;
+
+import cz.trask.vaclavek.greetings.jfr.CatalogLoadEvent;
+
+/**
+ * Loads all files of the messages catalog eagerly and in parallel, see {@link PreloadedCatalog}.
+ * <p>
+ * {@code ReloadableResourceBundleMessageSource} loads the file of a locale when the locale is requested for the first time,<br>
+ * so the first request of every locale waits for the file and the broken files are found only by the requests.<br>
+ * This loader finds all {@code basename_*.properties} files and the base {@code basename.properties} file, reads,<br>
+ * decodes (strict UTF-8, malformed bytes are reported) and validates every file by the {@link CatalogValidator} as one task<br>
+ * of the fork-join pool. Then the merged catalog of every locale is built and validated by the tasks of the same pool,<br>
+ * so the loading time scales with the number of the cores.
+ * <p>
+ * All problems of all files are collected and reported together by one {@link IllegalStateException}, so no catalog<br>
+ * is published, unless it is valid as a whole. Every loaded file is recorded as the {@link CatalogLoadEvent}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class ParallelCatalogLoader
+{
+    private static final Logger Log = LoggerFactory.getLogger(ParallelCatalogLoader.class);
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+
+    private final CatalogValidator validator;
+
+    private final int parallelism;
+
+
+    /**
+     * @param validator - rules of the valid catalog
+     * @param parallelism - number of the loading threads, number of the available processors if not positive
+     */
+    public ParallelCatalogLoader(CatalogValidator validator, int parallelism) {
+        super();
+        this.validator = validator;
+        this.parallelism = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Loads and validates all files of the catalog.
+     *
+     * @param basename - basename of the catalog files, for example {@code classpath:/messages} or {@code file:/etc/greetings/messages}
+     * @return loaded catalog
+     * @throws IllegalStateException if any file cannot be read or the catalog is not valid
+     */
+    public PreloadedCatalog load(String basename) {
+        return load(basename, false);
+    }
+
+    /**
+     * Loads and validates all files of the catalog, the periodic reloads are logged at the debug level only.
+     *
+     * @param basename - basename of the catalog files, for example {@code classpath:/messages} or {@code file:/etc/greetings/messages}
+     * @param reload - true if the catalog is loaded again, for example by the {@code CatalogPublisher}
+     * @return loaded catalog
+     * @throws IllegalStateException if any file cannot be read or the catalog is not valid
+     */
+    public PreloadedCatalog load(String basename, boolean reload) {
+
+        long start = System.nanoTime();
+        Map<Locale, Resource> files = findCatalogFiles(basename);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<ParsedFile>> parseTasks = new ArrayList<>(files.size());
+            for (Map.Entry<Locale, Resource> file : files.entrySet()) {
+                parseTasks.add(() -> parse(file.getKey(), file.getValue(), reload));
+            }
+            Map<Locale, Map<String, String>> parsed = new HashMap<>();
+            List<String> problems = new ArrayList<>();
+            for (ParsedFile file : join(pool.invokeAll(parseTasks))) {
+                parsed.put(file.locale, Collections.unmodifiableMap(file.messages));
+                problems.addAll(file.problems);
+            }
+
+            Map<Locale, Map<String, String>> merged = new HashMap<>();
+            mergeAll(pool, parsed, parsed.keySet(), merged, problems);
+            checkProblems("Invalid messages catalog " + basename, problems);
+
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+            if (reload) {
+                Log.debug("Messages catalog {} reloaded: {} files in {} ms by {} threads", basename, files.size(), loadMillis, parallelism);
+            } else {
+                Log.info("Messages catalog {} loaded: {} files in {} ms by {} threads", basename, files.size(), loadMillis, parallelism);
+            }
+            return new PreloadedCatalog(parsed, merged, 0, loadMillis);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Creates new catalog with the changed files. Only the changed files and the merged catalogs of the locales<br>
+     * falling back to them are validated and merged again, the other merged catalogs are shared with the {@code catalog}.
+     *
+     * @param catalog - current catalog
+     * @param changedFiles - new messages of the changed files keyed by their locale, null value for the removed file
+     * @param version - version of the new catalog
+     * @return new catalog, the {@code catalog} is not changed
+     * @throws IllegalStateException if the new catalog is not valid
+     */
+    public PreloadedCatalog apply(PreloadedCatalog catalog, Map<Locale, Map<String, String>> changedFiles, long version) {
+
+        long start = System.nanoTime();
+        Map<Locale, Map<String, String>> files = new HashMap<>(catalog.getFiles());
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<Locale, Map<String, String>> file : changedFiles.entrySet()) {
+            if (file.getValue() == null) {
+                files.remove(file.getKey());
+            } else {
+                Map<String, String> messages = Collections.unmodifiableMap(new HashMap<>(file.getValue()));
+                files.put(file.getKey(), messages);
+                validator.validateFile(fileName(file.getKey()), messages, problems);
+            }
+        }
+
+        Set<Locale> affected = new HashSet<>();
+        for (Locale locale : files.keySet()) {
+            for (Locale fallback : fallbackChain(locale)) {
+                if (changedFiles.containsKey(fallback)) {
+                    affected.add(locale);
+                    break;
+                }
+            }
+        }
+        Map<Locale, Map<String, String>> merged = new HashMap<>(catalog.getMergedMessages());
+        merged.keySet().retainAll(files.keySet());
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, affected.size())));
+        try {
+            mergeAll(pool, files, affected, merged, problems);
+        } finally {
+            pool.shutdown();
+        }
+        checkProblems("Invalid messages catalog version " + version, problems);
+
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        Log.debug("Messages catalog version {}: {} changed files, {} merged catalogs rebuilt in {} ms", version, changedFiles.size(),
+                  affected.size(), loadMillis);
+        return new PreloadedCatalog(files, merged, version, loadMillis);
+    }
+
+    /**
+     * Scans the resources for the {@code basename_*.properties} catalog files and the {@code basename.properties} base file.
+     *
+     * @param basename - basename of the catalog files, for example {@code classpath:/messages}
+     * @return found files keyed by their locale, {@link Locale#ROOT} for the base file
+     * @throws IllegalStateException if the resources cannot be scanned
+     */
+    public static Map<Locale, Resource> findCatalogFiles(String basename) {
+
+        String name = basename.substring(basename.lastIndexOf('/') + 1);
+        String pattern = basename.replaceFirst("^classpath:", ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX) + "_*" + PROPERTIES_SUFFIX;
+
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Map<Locale, Resource> files = new LinkedHashMap<>();
+        try {
+            for (Resource resource : resolver.getResources(pattern)) {
+                String fileName = resource.getFilename();
+                if (fileName == null) {
+                    continue;
+                }
+                String suffix = fileName.substring(name.length() + 1, fileName.length() - PROPERTIES_SUFFIX.length());
+                String[] parts = suffix.split("_", 3);
+                // the first file found on the classpath wins, same as by the message source
+                files.putIfAbsent(new Locale(parts[0], parts.length > 1 ? parts[1] : "", parts.length > 2 ? parts[2] : ""), resource);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to scan message catalogs " + pattern, ex);
+        }
+
+        Resource baseFile = resolver.getResource(basename + PROPERTIES_SUFFIX);
+        if (baseFile.exists()) {
+            files.put(Locale.ROOT, baseFile);
+        }
+        return files;
+    }
+
+    private ParsedFile parse(Locale locale, Resource resource, boolean reload) {
+
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+
+        String fileName = String.valueOf(resource.getFilename());
+        ParsedFile file = new ParsedFile(locale);
+        try (InputStream input = resource.getInputStream()) {
+            String text = StandardCharsets.UTF_8.newDecoder()
+                                                .onMalformedInput(CodingErrorAction.REPORT)
+                                                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                                                .decode(ByteBuffer.wrap(StreamUtils.copyToByteArray(input)))
+                                                .toString();
+            Properties properties = new Properties();
+            properties.load(new StringReader(text));
+            for (String key : properties.stringPropertyNames()) {
+                file.messages.put(key, properties.getProperty(key));
+            }
+            validator.validateFile(fileName, file.messages, file.problems);
+        } catch (CharacterCodingException ex) {
+            file.problems.add(fileName + ": not valid UTF-8 text");
+        } catch (IOException | IllegalArgumentException ex) {
+            file.problems.add(fileName + ": cannot be read: " + ex.getMessage());
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = fileName;
+            event.reload = reload;
+            event.found = true;
+            event.entries = file.messages.size();
+            event.commit();
+        }
+        return file;
+    }
+
+    /**
+     * Merges and validates the catalogs of the {@code locales} by the tasks of the pool.
+     */
+    private void mergeAll(ForkJoinPool pool, Map<Locale, Map<String, String>> files, Set<Locale> locales,
+                          Map<Locale, Map<String, String>> merged, List<String> problems) {
+
+        List<Callable<ParsedFile>> mergeTasks = new ArrayList<>(locales.size());
+        for (Locale locale : locales) {
+            mergeTasks.add(() -> merge(locale, files));
+        }
+        for (ParsedFile catalog : join(pool.invokeAll(mergeTasks))) {
+            merged.put(catalog.locale, catalog.messages);
+            problems.addAll(catalog.problems);
+        }
+    }
+
+    /**
+     * @return messages of the locale merged with the messages of its fallback chain, the more specific ones win
+     */
+    private ParsedFile merge(Locale locale, Map<Locale, Map<String, String>> files) {
+
+        ParsedFile catalog = new ParsedFile(locale);
+        for (Locale fallback : fallbackChain(locale)) {
+            mergeInto(catalog.messages, files.get(fallback));
+        }
+        validator.validateLocale(locale, catalog.messages, catalog.problems);
+        return catalog;
+    }
+
+    /**
+     * @return locales of the files merged into the catalog of the locale, from the base file to the locale itself
+     */
+    private static List<Locale> fallbackChain(Locale locale) {
+
+        List<Locale> chain = new ArrayList<>(4);
+        chain.add(Locale.ROOT);
+        if (!Locale.ROOT.equals(locale)) {
+            chain.add(new Locale(locale.getLanguage()));
+            if (!locale.getCountry().isEmpty()) {
+                chain.add(new Locale(locale.getLanguage(), locale.getCountry()));
+            }
+            if (!locale.getVariant().isEmpty()) {
+                chain.add(locale);
+            }
+        }
+        return chain;
+    }
+
+    private static void checkProblems(String message, List<String> problems) {
+
+        if (!problems.isEmpty()) {
+            Collections.sort(problems);
+            throw new IllegalStateException(message + ":\n  " + String.join("\n  ", problems));
+        }
+    }
+
+    /**
+     * @return name of the changed file in the problems, its origin is not known
+     */
+    private static String fileName(Locale locale) {
+        return Locale.ROOT.equals(locale) ? "base file" : "file of the locale '" + locale + "'";
+    }
+
+    private static void mergeInto(Map<String, String> merged, Map<String, String> messages) {
+        if (messages != null) {
+            merged.putAll(messages);
+        }
+    }
+
+    private static <T> List<T> join(List<Future<T>> futures) {
+
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Loading of the messages catalog interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Failed to load the messages catalog", ex.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Messages and problems of one file or of the merged catalog of one locale
+     */
+    private static final class ParsedFile
+    {
+        private final Locale locale;
+        private final Map<String, String> messages = new HashMap<>();
+        private final List<String> problems = new ArrayList<>();
+
+        private ParsedFile(Locale locale) {
+            this.locale = locale;
+        }
+    }
+}
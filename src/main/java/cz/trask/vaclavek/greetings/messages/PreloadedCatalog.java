@@ -0,0 +1,134 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Messages catalog loaded and validated as a whole by the {@link ParallelCatalogLoader}, immutable.
+ * <p>
+ * Messages of every catalog locale are merged with the messages of its fallback chain when the catalog is loaded<br>
+ * ({@code lang_COUNTRY_variant} -> {@code lang_COUNTRY} -> {@code lang} -> base file), so a message of the catalog<br>
+ * locale is found by one lookup. Other locales are resolved along the same chain, down to the base file<br>
+ * ({@link Locale#ROOT}), same as by the {@code ReloadableResourceBundleMessageSource} without the fallback to the system locale.
+ * <p>
+ * The messages of the single files are kept too, so the catalog can be compared with a newer one and rebuilt<br>
+ * from the changed files only, see {@link ParallelCatalogLoader#apply(PreloadedCatalog, Map, long)}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class PreloadedCatalog
+{
+    /**
+     * Messages of the single files keyed by their locale, {@link Locale#ROOT} for the base file
+     */
+    private final Map<Locale, Map<String, String>> files;
+
+    /**
+     * Merged messages keyed by the catalog locale, {@link Locale#ROOT} for the base file
+     */
+    private final Map<Locale, Map<String, String>> messages;
+
+    private final long version;
+
+    private final long loadMillis;
+
+
+    /**
+     * @param files - messages of the single files keyed by their locale, {@link Locale#ROOT} for the base file
+     * @param messages - merged messages keyed by the catalog locale, {@link Locale#ROOT} for the base file
+     * @param version - version of the catalog, 0 if it is not versioned
+     * @param loadMillis - duration of the loading and validation in milliseconds
+     */
+    PreloadedCatalog(Map<Locale, Map<String, String>> files, Map<Locale, Map<String, String>> messages, long version, long loadMillis) {
+        super();
+        this.files = Collections.unmodifiableMap(new HashMap<>(files));
+        this.messages = Collections.unmodifiableMap(new HashMap<>(messages));
+        this.version = version;
+        this.loadMillis = loadMillis;
+    }
+
+    /**
+     * @param code - key of the message
+     * @param locale - locale of the message
+     * @return message of the most specific locale of the fallback chain having it, null if there is no such message
+     */
+    public String getMessage(String code, Locale locale) {
+
+        Map<String, String> catalog = messages.get(locale);
+        if (catalog == null) {
+            catalog = messages.get(findCatalogLocale(locale));
+        }
+        return (catalog == null) ? null : catalog.get(code);
+    }
+
+    /**
+     * @return locales of the catalog files, including {@link Locale#ROOT} of the base file
+     */
+    public Set<Locale> getLocales() {
+        return messages.keySet();
+    }
+
+    /**
+     * @return messages of the single files keyed by their locale, {@link Locale#ROOT} for the base file
+     */
+    public Map<Locale, Map<String, String>> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return merged messages keyed by the catalog locale
+     */
+    Map<Locale, Map<String, String>> getMergedMessages() {
+        return messages;
+    }
+
+    /**
+     * @return number of the loaded files
+     */
+    public int getFilesCount() {
+        return files.size();
+    }
+
+    /**
+     * @return version of the catalog, 0 if it is not versioned
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param newVersion - version of the new catalog
+     * @return catalog with the same messages and the {@code newVersion}
+     */
+    public PreloadedCatalog withVersion(long newVersion) {
+        return new PreloadedCatalog(files, messages, newVersion, loadMillis);
+    }
+
+    /**
+     * @return duration of the loading and validation in milliseconds
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    private Locale findCatalogLocale(Locale locale) {
+
+        if (!locale.getVariant().isEmpty()) {
+            Locale candidate = new Locale(locale.getLanguage(), locale.getCountry());
+            if (messages.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        if (!locale.getCountry().isEmpty()) {
+            Locale candidate = new Locale(locale.getLanguage());
+            if (messages.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        return Locale.ROOT;
+    }
+}
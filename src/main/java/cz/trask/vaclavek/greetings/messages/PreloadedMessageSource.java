@@ -0,0 +1,82 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.AbstractMessageSource;
+
+/**
+ * {@link MessageSource} of the {@link PreloadedCatalog}, no file is read after the catalog is loaded.
+ * <p>
+ * Messages without arguments are returned directly from the merged catalog. Messages with arguments are formatted<br>
+ * by the {@link MessageFormat}s cached for the catalog locales, other locales are formatted by new instances.<br>
+ * Default messages, the code as default message and the parent message source work as in any {@link AbstractMessageSource}.
+ * <p>
+ * The catalog can be replaced by {@link #setCatalog(PreloadedCatalog)}, the catalog and its cached message formats<br>
+ * are swapped together, so every message is resolved either by the old or by the new catalog.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class PreloadedMessageSource extends AbstractMessageSource
+{
+    private volatile CatalogFormats current;
+
+
+    /**
+     * @param catalog - loaded messages catalog
+     */
+    public PreloadedMessageSource(PreloadedCatalog catalog) {
+        super();
+        this.current = new CatalogFormats(catalog);
+    }
+
+    public PreloadedCatalog getCatalog() {
+        return current.catalog;
+    }
+
+    /**
+     * Replaces the catalog, the message formats of the old catalog are dropped.
+     *
+     * @param catalog - new messages catalog
+     */
+    public void setCatalog(PreloadedCatalog catalog) {
+        this.current = new CatalogFormats(catalog);
+    }
+
+    @Override
+    protected String resolveCodeWithoutArguments(String code, Locale locale) {
+        return current.catalog.getMessage(code, locale);
+    }
+
+    @Override
+    protected MessageFormat resolveCode(String code, Locale locale) {
+
+        CatalogFormats formats = current;
+        String message = formats.catalog.getMessage(code, locale);
+        if (message == null) {
+            return null;
+        }
+        if (!formats.catalog.getLocales().contains(locale)) {
+            return createMessageFormat(message, locale);
+        }
+        return formats.messageFormats.computeIfAbsent(locale, key -> new ConcurrentHashMap<>())
+                                     .computeIfAbsent(code, key -> createMessageFormat(message, locale));
+    }
+
+    /**
+     * Catalog and the message formats of its locales keyed by the locale and message code
+     */
+    private static final class CatalogFormats
+    {
+        private final PreloadedCatalog catalog;
+        private final ConcurrentMap<Locale, ConcurrentMap<String, MessageFormat>> messageFormats = new ConcurrentHashMap<>();
+
+        private CatalogFormats(PreloadedCatalog catalog) {
+            this.catalog = catalog;
+        }
+    }
+}
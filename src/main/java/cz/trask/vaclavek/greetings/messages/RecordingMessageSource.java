@@ -0,0 +1,37 @@
+package cz.trask.vaclavek.greetings.messages;
+
+import java.util.Properties;
+
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+import cz.trask.vaclavek.greetings.jfr.CatalogLoadEvent;
+
+/**
+ * {@link ReloadableResourceBundleMessageSource} emitting the {@link CatalogLoadEvent} Flight Recorder event<br>
+ * every time the greetings catalog file is loaded or reloaded.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class RecordingMessageSource extends ReloadableResourceBundleMessageSource
+{
+    @Override
+    protected PropertiesHolder refreshProperties(String filename, PropertiesHolder propHolder) {
+        
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+        
+        PropertiesHolder refreshed = super.refreshProperties(filename, propHolder);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            Properties properties = refreshed.getProperties();
+            event.fileName = filename;
+            event.reload = (propHolder != null);
+            event.found = (properties != null);
+            event.entries = (properties != null) ? properties.size() : 0;
+            event.commit();
+        }
+        return refreshed;
+    }
+}
@@ -0,0 +1,119 @@
+package cz.trask.vaclavek.greetings.replication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Changes of the replicated messages catalog sent by the {@link CatalogPublisher} to the {@link CatalogReplica}s.
+ * <p>
+ * Contains:
+ * <ul>
+ *   <li>{@code epoch} - identifier of the publisher's run, versions of different runs can not be compared</li>
+ *   <li>{@code fromVersion} - version the changes are applied to, 0 for the full snapshot</li>
+ *   <li>{@code version} - version of the catalog with the changes applied</li>
+ *   <li>{@code publishedMillis} - time the {@code version} was published by the publisher</li>
+ *   <li>{@code full} - true for the full snapshot i.e. all files of the catalog, the files not contained are removed</li>
+ *   <li>{@code removedLocales} - locales of the removed files, applied before the {@code changes}</li>
+ *   <li>{@code changes} - changed messages keyed by the locale of the file ({@link #toTag(Locale)}) and by the message key,<br>
+ *   null text of the removed message</li>
+ * </ul>
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class CatalogDelta
+{
+    private String epoch;
+    private long fromVersion;
+    private long version;
+    private long publishedMillis;
+    private boolean full;
+    private List<String> removedLocales = new ArrayList<>();
+    private Map<String, Map<String, String>> changes = new LinkedHashMap<>();
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    public void setFromVersion(long fromVersion) {
+        this.fromVersion = fromVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getPublishedMillis() {
+        return publishedMillis;
+    }
+
+    public void setPublishedMillis(long publishedMillis) {
+        this.publishedMillis = publishedMillis;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public List<String> getRemovedLocales() {
+        return removedLocales;
+    }
+
+    public void setRemovedLocales(List<String> removedLocales) {
+        this.removedLocales = removedLocales;
+    }
+
+    public Map<String, Map<String, String>> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(Map<String, Map<String, String>> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * @return number of the changed messages
+     */
+    public int size() {
+        return changes.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * @return tag of the file's locale like 'en_GB', empty for the base file
+     */
+    public static String toTag(Locale locale) {
+        return locale.toString();
+    }
+
+    /**
+     * @param tag - tag created by {@link #toTag(Locale)}
+     * @return locale of the file, {@link Locale#ROOT} for the base file
+     */
+    public static Locale toLocale(String tag) {
+
+        if (tag.isEmpty()) {
+            return Locale.ROOT;
+        }
+        String[] parts = tag.split("_", 3);
+        return new Locale(parts[0], parts.length > 1 ? parts[1] : "", parts.length > 2 ? parts[2] : "");
+    }
+}
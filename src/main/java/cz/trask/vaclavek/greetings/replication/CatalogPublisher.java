@@ -0,0 +1,325 @@
+package cz.trask.vaclavek.greetings.replication;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cz.trask.vaclavek.greetings.messages.ParallelCatalogLoader;
+import cz.trask.vaclavek.greetings.messages.PreloadedCatalog;
+
+/**
+ * Publisher of the versioned snapshots of the messages catalog to the {@link CatalogReplica}s of the other nodes.
+ * <p>
+ * Only the publisher reads the messages files: it loads and validates them again every {@code reload-interval}<br>
+ * by the {@link ParallelCatalogLoader}, compares them with the current catalog and publishes the changed messages<br>
+ * as the new version (the versions start by the start time of the publisher, so they grow across its restarts).<br>
+ * The publisher replaces its own catalog too, so all nodes serve the same version.
+ * <p>
+ * The last {@code maxDeltas} deltas are kept, a replica gets all changes since its version composed into one delta.<br>
+ * Replicas of another epoch (publisher's run) or too old versions get the full snapshot. Replicas waiting<br>
+ * for the next version are notified as soon as it is published, see {@link #onChangesSince(String, long, Consumer)}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class CatalogPublisher implements AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(CatalogPublisher.class);
+
+    // ****** INSTANCE FIELDS ******
+
+    private final ParallelCatalogLoader loader;
+
+    private final String basename;
+
+    private final ReplicatedMessageCatalog target;
+
+    private final int maxDeltas;
+
+    private final String epoch = UUID.randomUUID().toString();
+
+    /**
+     * Published deltas from the oldest one, guarded by this
+     */
+    private final Deque<CatalogDelta> history = new ArrayDeque<>();
+
+    /**
+     * Replicas waiting for the next version, guarded by this
+     */
+    private List<Waiter> waiters = new ArrayList<>();
+
+    private volatile PreloadedCatalog catalog;
+
+    private volatile long publishedMillis;
+
+    private final AtomicLong reloadFailures = new AtomicLong();
+
+    private ScheduledExecutorService reloadExecutor;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param loader - loader of the messages files
+     * @param basename - basename of the messages files, for example {@code file:/etc/greetings/messages}
+     * @param target - catalog of the publisher's message source, its current catalog is the first version
+     * @param maxDeltas - max. number of the kept deltas
+     */
+    public CatalogPublisher(ParallelCatalogLoader loader, String basename, ReplicatedMessageCatalog target, int maxDeltas) {
+        super();
+        this.loader = loader;
+        this.basename = basename;
+        this.target = target;
+        this.maxDeltas = maxDeltas;
+        this.publishedMillis = System.currentTimeMillis();
+        this.catalog = target.getCatalog().withVersion(publishedMillis);
+        target.replace(catalog);
+        Log.info("Messages catalog published, epoch {}, version {}", epoch, catalog.getVersion());
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Loads the messages files and publishes the new version if any message is changed.<br>
+     * If the files are not valid, the current version is kept.
+     *
+     * @return true if the new version was published
+     * @throws IllegalStateException if any file cannot be read or the catalog is not valid
+     */
+    public boolean reload() {
+
+        PreloadedCatalog loaded = loader.load(basename, true);
+        List<Waiter> notified;
+        synchronized (this) {
+            CatalogDelta delta = diff(catalog, loaded.getFiles());
+            if (delta.getChanges().isEmpty() && delta.getRemovedLocales().isEmpty()) {
+                return false;
+            }
+            catalog = loaded.withVersion(delta.getVersion());
+            publishedMillis = delta.getPublishedMillis();
+            history.addLast(delta);
+            while (history.size() > maxDeltas) {
+                history.removeFirst();
+            }
+            target.replace(catalog);
+            notified = waiters;
+            waiters = new ArrayList<>();
+            Log.info("Messages catalog version {} published: {} changed messages, {} removed files", delta.getVersion(), delta.size(),
+                     delta.getRemovedLocales().size());
+        }
+        for (Waiter waiter : notified) {
+            waiter.listener.accept(getChangesSince(waiter.epoch, waiter.since));
+        }
+        return true;
+    }
+
+    /**
+     * @return full snapshot of the current version
+     */
+    public synchronized CatalogDelta getSnapshot() {
+
+        CatalogDelta snapshot = newDelta(0, catalog.getVersion(), publishedMillis);
+        snapshot.setFull(true);
+        for (Map.Entry<Locale, Map<String, String>> file : catalog.getFiles().entrySet()) {
+            snapshot.getChanges().put(CatalogDelta.toTag(file.getKey()), new LinkedHashMap<>(file.getValue()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param replicaEpoch - epoch of the replica's version
+     * @param since - version of the replica
+     * @return all changes since the version composed into one delta, full snapshot if the changes are not known,<br>
+     *         null if the replica has the current version
+     */
+    public synchronized CatalogDelta getChangesSince(String replicaEpoch, long since) {
+
+        long version = catalog.getVersion();
+        if (epoch.equals(replicaEpoch) && since == version) {
+            return null;
+        }
+        if (!epoch.equals(replicaEpoch) || history.isEmpty() || since < history.getFirst().getFromVersion() || since > version) {
+            return getSnapshot();
+        }
+
+        CatalogDelta composed = newDelta(since, version, publishedMillis);
+        Set<String> removed = new LinkedHashSet<>();
+        for (CatalogDelta delta : history) {
+            if (delta.getFromVersion() < since) {
+                continue;
+            }
+            for (String tag : delta.getRemovedLocales()) {
+                composed.getChanges().remove(tag);
+                removed.add(tag);
+            }
+            delta.getChanges().forEach((tag, messages) -> composed.getChanges().computeIfAbsent(tag, key -> new LinkedHashMap<>())
+                                                                              .putAll(messages));
+        }
+        composed.getRemovedLocales().addAll(removed);
+        return composed;
+    }
+
+    /**
+     * Calls the {@code listener} with the changes since the replica's version as soon as there are any:<br>
+     * immediately if the replica does not have the current version, after the next publication otherwise.
+     *
+     * @param replicaEpoch - epoch of the replica's version
+     * @param since - version of the replica
+     * @param listener - receiver of the changes
+     * @return cancellation of the waiting, the listener is not called after it
+     */
+    public Runnable onChangesSince(String replicaEpoch, long since, Consumer<CatalogDelta> listener) {
+
+        CatalogDelta delta;
+        synchronized (this) {
+            delta = getChangesSince(replicaEpoch, since);
+            if (delta == null) {
+                Waiter waiter = new Waiter(replicaEpoch, since, listener);
+                waiters.add(waiter);
+                return () -> removeWaiter(waiter);
+            }
+        }
+        listener.accept(delta);
+        return () -> { };
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return catalog.getVersion();
+    }
+
+    /**
+     * @return number of the replicas waiting for the next version
+     */
+    public synchronized int getWaitingReplicas() {
+        return waiters.size();
+    }
+
+    /**
+     * @return number of the failed periodic reloads since the start
+     */
+    public long getReloadFailures() {
+        return reloadFailures.get();
+    }
+
+    /**
+     * Starts periodic reload of the messages files. Failed reload is logged and the current version is kept.
+     *
+     * @param interval - interval of the reloads
+     */
+    public synchronized void startReload(Duration interval) {
+
+        if (reloadExecutor != null || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "greetings-catalog-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloadExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (RuntimeException ex) {
+                reloadFailures.incrementAndGet();
+                Log.warn("Reload of the messages catalog failed, version {} is kept: {}", catalog.getVersion(), ex.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic reload.
+     */
+    @Override
+    public synchronized void close() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+            reloadExecutor = null;
+        }
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * @return delta from the current catalog to the {@code files}, version is the next one
+     */
+    private CatalogDelta diff(PreloadedCatalog current, Map<Locale, Map<String, String>> files) {
+
+        CatalogDelta delta = newDelta(current.getVersion(), current.getVersion() + 1, System.currentTimeMillis());
+        for (Map.Entry<Locale, Map<String, String>> file : files.entrySet()) {
+            Map<String, String> oldMessages = current.getFiles().get(file.getKey());
+            Map<String, String> changed = new LinkedHashMap<>();
+            for (Map.Entry<String, String> message : file.getValue().entrySet()) {
+                if (oldMessages == null || !Objects.equals(oldMessages.get(message.getKey()), message.getValue())) {
+                    changed.put(message.getKey(), message.getValue());
+                }
+            }
+            if (oldMessages != null) {
+                for (String key : oldMessages.keySet()) {
+                    if (!file.getValue().containsKey(key)) {
+                        changed.put(key, null);
+                    }
+                }
+            }
+            if (!changed.isEmpty() || oldMessages == null) {
+                delta.getChanges().put(CatalogDelta.toTag(file.getKey()), changed);
+            }
+        }
+        for (Locale locale : current.getFiles().keySet()) {
+            if (!files.containsKey(locale)) {
+                delta.getRemovedLocales().add(CatalogDelta.toTag(locale));
+            }
+        }
+        return delta;
+    }
+
+    private CatalogDelta newDelta(long fromVersion, long version, long deltaPublishedMillis) {
+
+        CatalogDelta delta = new CatalogDelta();
+        delta.setEpoch(epoch);
+        delta.setFromVersion(fromVersion);
+        delta.setVersion(version);
+        delta.setPublishedMillis(deltaPublishedMillis);
+        return delta;
+    }
+
+    private synchronized void removeWaiter(Waiter waiter) {
+        waiters.remove(waiter);
+    }
+
+    /**
+     * Replica waiting for the next version
+     */
+    private static final class Waiter
+    {
+        private final String epoch;
+        private final long since;
+        private final Consumer<CatalogDelta> listener;
+
+        private Waiter(String epoch, long since, Consumer<CatalogDelta> listener) {
+            this.epoch = epoch;
+            this.since = since;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package cz.trask.vaclavek.greetings.replication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cz.trask.vaclavek.greetings.messages.ParallelCatalogLoader;
+import cz.trask.vaclavek.greetings.messages.PreloadedCatalog;
+
+/**
+ * Replica of the messages catalog published by the {@link CatalogPublisher} of another node.
+ * <p>
+ * The replica does not read the messages files after the start. It bootstraps from the full snapshot of the publisher's<br>
+ * current version, then it waits for the changes by the long polling requests {@code GET <publisher>/api/catalog/replication/changes}<br>
+ * holding its epoch and version: the publisher answers as soon as a newer version is published, or by 204 after<br>
+ * {@code waitMillis}. The received changes are applied to the files of the current catalog, only the changed locales<br>
+ * and the locales falling back to them are merged and validated again, and the new catalog replaces the current one<br>
+ * as a whole (see {@link ReplicatedMessageCatalog}).
+ * <p>
+ * Until the first snapshot is received (the publisher does not run yet), the catalog of the local files is served.<br>
+ * Failed requests are retried after {@code retryMillis}, the current catalog is kept. A delta not following the current<br>
+ * version or not valid is not applied, the full snapshot is requested instead.
+ * <p>
+ * The convergence time is measured from the publication of the version to its replacement on the replica<br>
+ * by the wall clock of both nodes, so it is exact only for the nodes of one host or with synchronized clocks.<br>
+ * Only the deltas received while following the publisher are measured, the snapshots of the bootstrap or of the lost<br>
+ * replica can carry a version published long before.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class CatalogReplica implements AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(CatalogReplica.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Time added to the read timeout of the long polling requests for the publisher's answer
+     */
+    private static final int READ_TIMEOUT_MARGIN_MILLIS = 5000;
+
+    /**
+     * Epoch of the catalog loaded from the local files, not published by any publisher
+     */
+    private static final String LOCAL_EPOCH = "";
+
+    // ****** INSTANCE FIELDS ******
+
+    private final ParallelCatalogLoader loader;
+
+    private final ReplicatedMessageCatalog target;
+
+    private final String publisherUrl;
+
+    private final long waitMillis;
+
+    private final long retryMillis;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private volatile String epoch = LOCAL_EPOCH;
+
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile long lastConvergenceMillis = -1;
+
+    private volatile Thread syncThread;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param loader - loader validating and merging the received files
+     * @param target - catalog of the replica's message source
+     * @param publisherUrl - base URL of the publishing node, for example {@code http://greetings-1:8080}
+     * @param waitMillis - max. time the publisher holds the request waiting for a new version
+     * @param retryMillis - delay of the next request after a failed one
+     */
+    public CatalogReplica(ParallelCatalogLoader loader, ReplicatedMessageCatalog target, String publisherUrl, long waitMillis, long retryMillis) {
+        super();
+        this.loader = loader;
+        this.target = target;
+        this.publisherUrl = publisherUrl.endsWith("/") ? publisherUrl.substring(0, publisherUrl.length() - 1) : publisherUrl;
+        this.waitMillis = waitMillis;
+        this.retryMillis = retryMillis;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Replaces the catalog by the full snapshot of the publisher's current version.
+     *
+     * @throws UncheckedIOException if the request fails
+     * @throws IllegalStateException if the snapshot is not valid
+     */
+    public void bootstrap() {
+        apply(get("/api/catalog/replication/snapshot", 0));
+    }
+
+    /**
+     * Waits for the changes since the current version and applies them.
+     *
+     * @return true if the catalog was replaced
+     * @throws UncheckedIOException if the request fails
+     */
+    public boolean synchronize() {
+
+        String path = "/api/catalog/replication/changes?epoch=" + encode(epoch) + "&since=" + target.getCatalog().getVersion()
+                      + "&waitMillis=" + waitMillis;
+        CatalogDelta delta = get(path, waitMillis);
+        if (delta == null) {
+            return false;
+        }
+        try {
+            return apply(delta);
+        } catch (IllegalStateException ex) {
+            failures.incrementAndGet();
+            epoch = LOCAL_EPOCH;
+            Log.error("Invalid messages catalog version {} received, the full snapshot is requested: {}", delta.getVersion(), ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Bootstraps the replica and starts the thread waiting for the changes until {@link #close()}.<br>
+     * If the snapshot cannot be received now, the thread keeps requesting it.
+     */
+    public synchronized void start() {
+
+        if (syncThread != null) {
+            return;
+        }
+        try {
+            bootstrap();
+        } catch (RuntimeException ex) {
+            failures.incrementAndGet();
+            Log.warn("Messages catalog snapshot not received from {}, the local files are served until it is: {}", publisherUrl,
+                     ex.getMessage());
+        }
+        syncThread = new Thread(this::synchronizeLoop, "greetings-catalog-replica");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * Stops the synchronization thread, the running request is not interrupted, its result is applied.
+     */
+    @Override
+    public synchronized void close() {
+
+        Thread thread = syncThread;
+        syncThread = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return target.getCatalog().getVersion();
+    }
+
+    /**
+     * @return number of the applied deltas since the start
+     */
+    public long getDeltas() {
+        return deltas.get();
+    }
+
+    /**
+     * @return number of the applied full snapshots since the start
+     */
+    public long getSnapshots() {
+        return snapshots.get();
+    }
+
+    /**
+     * @return number of the failed requests and invalid deltas since the start
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return milliseconds from the publication of the last delta to its replacement on this replica, -1 before the first delta
+     */
+    public long getLastConvergenceMillis() {
+        return lastConvergenceMillis;
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    private void synchronizeLoop() {
+
+        while (syncThread == Thread.currentThread()) {
+            try {
+                if (LOCAL_EPOCH.equals(epoch)) {
+                    bootstrap();
+                } else {
+                    synchronize();
+                }
+            } catch (RuntimeException ex) {
+                failures.incrementAndGet();
+                Log.warn("Synchronization of the messages catalog with {} failed, version {} is kept: {}", publisherUrl, getVersion(),
+                         ex.getMessage());
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the full snapshot or the delta following the current version.
+     *
+     * @return true if the catalog was replaced
+     */
+    private boolean apply(CatalogDelta delta) {
+
+        PreloadedCatalog current = target.getCatalog();
+        Map<Locale, Map<String, String>> changedFiles = new HashMap<>();
+        if (delta.isFull()) {
+            for (Locale locale : current.getFiles().keySet()) {
+                changedFiles.put(locale, null);
+            }
+        } else if (!delta.getEpoch().equals(epoch) || delta.getFromVersion() != current.getVersion()) {
+            Log.warn("Messages catalog delta {} -> {} does not follow version {}, the full snapshot is requested", delta.getFromVersion(),
+                     delta.getVersion(), current.getVersion());
+            epoch = LOCAL_EPOCH;
+            return false;
+        } else {
+            for (String tag : delta.getRemovedLocales()) {
+                changedFiles.put(CatalogDelta.toLocale(tag), null);
+            }
+        }
+
+        for (Map.Entry<String, Map<String, String>> change : delta.getChanges().entrySet()) {
+            Locale locale = CatalogDelta.toLocale(change.getKey());
+            Map<String, String> messages = new HashMap<>();
+            if (!changedFiles.containsKey(locale) && current.getFiles().containsKey(locale)) {
+                messages.putAll(current.getFiles().get(locale));
+            }
+            change.getValue().forEach((key, text) -> {
+                if (text == null) {
+                    messages.remove(key);
+                } else {
+                    messages.put(key, text);
+                }
+            });
+            changedFiles.put(locale, messages);
+        }
+
+        target.replace(loader.apply(current, changedFiles, delta.getVersion()));
+        epoch = delta.getEpoch();
+        if (delta.isFull()) {
+            snapshots.incrementAndGet();
+            Log.info("Messages catalog version {} replicated from {}: snapshot of {} messages", delta.getVersion(), publisherUrl, delta.size());
+        } else {
+            deltas.incrementAndGet();
+            lastConvergenceMillis = Math.max(0, System.currentTimeMillis() - delta.getPublishedMillis());
+            Log.info("Messages catalog version {} replicated from {}: {} changed messages, {} ms since its publication", delta.getVersion(),
+                     publisherUrl, delta.size(), lastConvergenceMillis);
+        }
+        return true;
+    }
+
+    /**
+     * @return received delta, null if the publisher answered by 204 No Content
+     */
+    private CatalogDelta get(String path, long requestWaitMillis) {
+
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(publisherUrl + path).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout((int) Math.min(Integer.MAX_VALUE, requestWaitMillis + READ_TIMEOUT_MARGIN_MILLIS));
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NO_CONTENT) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP status " + status);
+            }
+            try (InputStream input = connection.getInputStream()) {
+                return objectMapper.readValue(input, CatalogDelta.class);
+            }
+        } catch (IOException ex) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            throw new UncheckedIOException("GET " + publisherUrl + path + " failed", ex);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
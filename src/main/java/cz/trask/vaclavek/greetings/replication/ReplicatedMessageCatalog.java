@@ -0,0 +1,70 @@
+package cz.trask.vaclavek.greetings.replication;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.context.MessageSource;
+
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.messages.PreloadedCatalog;
+import cz.trask.vaclavek.greetings.messages.PreloadedMessageSource;
+
+/**
+ * Preloaded catalog of the application's message source, replaced by the {@link CatalogPublisher} or {@link CatalogReplica}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class ReplicatedMessageCatalog
+{
+    private final LocaleGuardMessageSource guard;
+
+    private final PreloadedMessageSource messageSource;
+
+    private final MessageTemplates messageTemplates;
+
+
+    private ReplicatedMessageCatalog(LocaleGuardMessageSource guard, PreloadedMessageSource messageSource, MessageTemplates messageTemplates) {
+        this.guard = guard;
+        this.messageSource = messageSource;
+        this.messageTemplates = messageTemplates;
+    }
+
+    /**
+     * @param messageSource - message source of the application
+     * @param messageTemplates - templates compiled from the message source, cleared with every replaced catalog
+     * @return catalog of the message source
+     * @throws IllegalStateException if the message source is not the guarded {@link PreloadedMessageSource}
+     */
+    public static ReplicatedMessageCatalog of(MessageSource messageSource, MessageTemplates messageTemplates) {
+
+        if (messageSource instanceof LocaleGuardMessageSource
+                && ((LocaleGuardMessageSource) messageSource).getDelegate() instanceof PreloadedMessageSource) {
+            LocaleGuardMessageSource guard = (LocaleGuardMessageSource) messageSource;
+            return new ReplicatedMessageCatalog(guard, (PreloadedMessageSource) guard.getDelegate(), messageTemplates);
+        }
+        throw new IllegalStateException("Replication of the messages catalog requires greetings.messages.preload.enabled=true");
+    }
+
+    public PreloadedCatalog getCatalog() {
+        return messageSource.getCatalog();
+    }
+
+    /**
+     * Replaces the catalog, then the locales of the guard. Meanwhile the added locales are served by their parent<br>
+     * locales and the removed locales fall back to their parents in the new catalog. Finally the compiled templates<br>
+     * are cleared, so the changed and added messages are compiled from the new catalog.
+     *
+     * @param catalog - new catalog
+     */
+    public void replace(PreloadedCatalog catalog) {
+
+        messageSource.setCatalog(catalog);
+        Set<Locale> locales = new HashSet<>(catalog.getLocales());
+        locales.remove(Locale.ROOT);
+        guard.setCatalogLocales(locales);
+        messageTemplates.clear();
+    }
+}
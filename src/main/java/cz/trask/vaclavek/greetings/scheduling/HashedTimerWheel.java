@@ -0,0 +1,345 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * Modified by Michal Vaclavek: simplified, expired tasks are handed over to an executor.
+ */
+package cz.trask.vaclavek.greetings.scheduling;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simple hashed timer wheel to schedule big amount of one-shot tasks using only one thread.
+ * <p>
+ * The wheel consists of {@code wheelSize} buckets, every bucket represents one tick of the {@code tickDuration}.<br>
+ * Scheduled task is hashed into the bucket according its deadline and it is executed, when the wheel<br>
+ * reaches the bucket for the corresponding round. Scheduling and cancelling costs O(1), the precision<br>
+ * of the task execution is given by the {@code tickDuration}.
+ * <p>
+ * Expired tasks are not run by the wheel's thread itself, but they are handed over to the {@code taskExecutor},<br>
+ * so a long running task can not delay other tasks of the wheel.
+ * <p>
+ * Derived from the {@code io.netty.util.HashedWheelTimer} of the Netty project, licensed under the Apache License 2.0,<br>
+ * see the NOTICE file.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class HashedTimerWheel
+{
+    private static final Logger Log = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+    /**
+     * Handle of the scheduled task
+     */
+    public interface Timeout
+    {
+        /**
+         * Cancels the scheduled task, if it was not executed yet.
+         *
+         * @return true if the task was cancelled, false if it was already executed or cancelled
+         */
+        boolean cancel();
+    }
+
+    private static final int STATE_WAITING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    // ****** INSTANCE FIELDS ******
+
+    private final long tickDurationNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Executor taskExecutor;
+
+    /**
+     * Newly scheduled and cancelled timeouts, which are moved into/out of the buckets by the worker thread only.
+     */
+    private final Queue<TimeoutEntry> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<TimeoutEntry> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Thread workerThread;
+
+    private final long startTime;
+
+    private volatile boolean running = true;
+
+    private long tick;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * Creates and starts the timer wheel.
+     *
+     * @param name - name of the wheel's worker thread
+     * @param tickDuration - duration of one tick i.e. precision of the task execution
+     * @param unit - time unit of the {@code tickDuration}
+     * @param wheelSize - number of buckets of the wheel, rounded up to the power of two
+     * @param taskExecutor - executor to run expired tasks
+     */
+    public HashedTimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, Executor taskExecutor) {
+
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickDuration and wheelSize must be positive");
+        }
+        this.tickDurationNanos = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        size = Math.max(size, 1);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(this::run, name);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Schedules one-shot {@code task} to be executed after given {@code delay}.
+     *
+     * @param task - task to be executed
+     * @param delay - delay of the task execution
+     * @param unit - time unit of the {@code delay}
+     * @return handle of the scheduled task, which can be used to cancel it
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+
+        if (!running) {
+            throw new IllegalStateException("Timer wheel already stopped");
+        }
+        long deadline = System.nanoTime() + Math.max(unit.toNanos(delay), 0) - startTime;
+        TimeoutEntry timeout = new TimeoutEntry(task, deadline);
+        scheduledTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return number of the scheduled tasks, which were not executed nor cancelled yet
+     */
+    public int getPendingTimeouts() {
+        int pending = 0;
+        for (Bucket bucket : wheel) {
+            pending += bucket.size;
+        }
+        return pending + scheduledTimeouts.size();
+    }
+
+    /**
+     * Stops the wheel. Not yet executed tasks are dropped.
+     */
+    public void stop() {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    private void run() {
+
+        while (running) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                continue;
+            }
+            Bucket bucket = wheel[(int) (tick & mask)];
+            try {
+                removeCancelledTimeouts();
+                transferScheduledTimeouts();
+                bucket.expireTimeouts(deadline);
+            } catch (RuntimeException ex) {
+                // the only worker thread of the wheel must survive, otherwise no other task would be ever executed
+                Log.error("Failed to expire timeouts of the tick {} of the timer wheel", tick, ex);
+            }
+            tick++;
+        }
+    }
+
+    /**
+     * Sleeps until the deadline of the current tick.
+     *
+     * @return deadline of the current tick relative to {@code startTime} or -1 when interrupted
+     */
+    private long waitForNextTick() {
+
+        long deadline = tickDurationNanos * (tick + 1);
+        while (true) {
+            long currentTime = System.nanoTime() - startTime;
+            long sleepTimeMillis = (deadline - currentTime + 999_999) / 1_000_000;
+            if (sleepTimeMillis <= 0) {
+                return currentTime;
+            }
+            try {
+                Thread.sleep(sleepTimeMillis);
+            } catch (InterruptedException ex) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferScheduledTimeouts() {
+
+        TimeoutEntry timeout;
+        while ((timeout = scheduledTimeouts.poll()) != null) {
+            if (timeout.state.get() == STATE_CANCELLED) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickDurationNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+            // Ensure we don't schedule for past
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+
+        TimeoutEntry timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Scheduled task with its deadline, stored in the double linked list of the {@link Bucket}.
+     */
+    private final class TimeoutEntry implements Timeout
+    {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(STATE_WAITING);
+
+        // following fields are accessed by the worker thread only
+        private long remainingRounds;
+        private Bucket bucket;
+        private TimeoutEntry next;
+        private TimeoutEntry prev;
+
+        private TimeoutEntry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_WAITING, STATE_CANCELLED)) {
+                return false;
+            }
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(STATE_WAITING, STATE_EXPIRED)) {
+                return;
+            }
+            try {
+                taskExecutor.execute(task);
+            } catch (RuntimeException ex) {
+                Log.warn("Failed to execute expired task of the timer wheel", ex);
+            }
+        }
+    }
+
+    /**
+     * One bucket of the wheel, double linked list of the {@link TimeoutEntry} items. Accessed by the worker thread only.
+     */
+    private static final class Bucket
+    {
+        private TimeoutEntry head;
+        private TimeoutEntry tail;
+        private volatile int size;
+
+        private void add(TimeoutEntry timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+            size++;
+        }
+
+        private void expireTimeouts(long deadline) {
+
+            TimeoutEntry timeout = head;
+            while (timeout != null) {
+                TimeoutEntry next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    } else {
+                        // The timeout was placed into a wrong slot. This should never happen.
+                        throw new IllegalStateException(String.format("timeout.deadline (%d) > deadline (%d)", timeout.deadline, deadline));
+                    }
+                } else if (timeout.state.get() == STATE_CANCELLED) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(TimeoutEntry timeout) {
+
+            if (timeout.bucket != this) {
+                return;
+            }
+            TimeoutEntry next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+        }
+    }
+}
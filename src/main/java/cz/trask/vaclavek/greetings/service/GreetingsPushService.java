@@ -0,0 +1,40 @@
+package cz.trask.vaclavek.greetings.service;
+
+import java.time.ZoneId;
+import java.util.Locale;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * Interface to declare methods needed to push the time sensitive greetings to subscribed clients.<br>
+ * Subscribed client receives the current greeting immediately and then the new greeting<br>
+ * every time the {@link TimePeriod} of its time zone rolls over.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public interface GreetingsPushService
+{
+    /**
+     * Subscribes new client for the time sensitive greetings in given {@code locale} and time {@code zone}.<br>
+     * Can throw {@link LanguageNotSupportedException} if the greeting text cannot be determined for given locale.
+     * 
+     * @param locale - parameter to determine pushed greetings according locale's language and/or country
+     * @param zone - time zone of the client to determine the {@link TimePeriod} of the pushed greetings
+     * @return Server-Sent Events emitter of the subscription
+     */
+    SseEmitter subscribe(Locale locale, ZoneId zone);
+    
+    /**
+     * @return number of currently open subscriptions
+     */
+    int getSubscriptionsCount();
+    
+    /**
+     * @return number of currently subscribed (zone, locale) groups i.e. number of scheduled period boundary events
+     */
+    int getGroupsCount();
+}
@@ -1,9 +1,13 @@
 package cz.trask.vaclavek.greetings.service;
 
+import java.time.LocalDate;
 import java.util.Locale;
+import java.util.Set;
 
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
 import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
 import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
 
 /**
  * Interface to declare methods needed to be implemented by any GreetingsService implemntation.<br>
@@ -37,4 +41,120 @@ public interface GreetingsService
      * @return greeting text according input language and/or country and time period of the day
      */
     String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale);
+    
+    /**
+     * Returns greeting text according locale and {@link TimePeriod} parameters for time sensitive operation mode,<br>
+     * the holiday greeting of the user's date is returned instead, if there is any.
+     * 
+     * @param timePeriod - parameter to determine returned greeting according given time period of the day
+     * @param locale - parameter to determine returned greeting according locale's language and/or country
+     * @param usersDate - date of the user, null for the current date of the server
+     * @return greeting text according input language and/or country and time period of the day
+     */
+    default String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale, LocalDate usersDate) {
+        return getTimeSensitiveGreeting(timePeriod, locale);
+    }
+    
+    /**
+     * Returns the weighted variant of the time sensitive greeting, if the catalog contains the variants of the greeting<br>
+     * for given locale and time period. Called after {@link #getTimeSensitiveGreeting(TimePeriod, Locale)}, the variant<br>
+     * replaces the greeting returned by it.
+     * 
+     * @param timePeriod - parameter to determine returned greeting according given time period of the day
+     * @param locale - parameter to determine returned greeting according locale's language and/or country
+     * @param clientId - id of the client, the same client gets always the same variant; random variant if empty
+     * @return selected variant, or null if there are no variants of the greeting or the holiday greeting is served
+     */
+    default GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId) {
+        return null;
+    }
+    
+    /**
+     * Returns the weighted variant of the time sensitive greeting, unless the holiday greeting of the user's date is served.<br>
+     * Called after {@link #getTimeSensitiveGreeting(TimePeriod, Locale, LocalDate)}.
+     * 
+     * @param timePeriod - parameter to determine returned greeting according given time period of the day
+     * @param locale - parameter to determine returned greeting according locale's language and/or country
+     * @param clientId - id of the client, the same client gets always the same variant; random variant if empty
+     * @param usersDate - date of the user, null for the current date of the server
+     * @return selected variant, or null if there are no variants of the greeting or the holiday greeting is served
+     */
+    default GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId, LocalDate usersDate) {
+        return getTimeSensitiveVariant(timePeriod, locale, clientId);
+    }
+    
+    /**
+     * Returns the weighted variant of the time insensitive greeting, if the catalog contains the variants of the greeting<br>
+     * for given locale. Called after {@link #getTimeInsensitiveGreeting(Locale)}, the variant replaces the greeting returned by it.
+     * 
+     * @param locale - parameter to determine returned greeting according locale's language and/or country
+     * @param clientId - id of the client, the same client gets always the same variant; random variant if empty
+     * @return selected variant, or null if there are no variants of the greeting
+     */
+    default GreetingVariant getTimeInsensitiveVariant(Locale locale, String clientId) {
+        return null;
+    }
+    
+    /**
+     * Returns true if the catalog contains the variants of the greeting for given locale, without selecting any variant.
+     * 
+     * @param key - key of the greeting
+     * @param locale - locale of the greeting
+     * @return true if the greeting is replaced by its variants
+     */
+    default boolean hasVariants(GreetingKey key, Locale locale) {
+        return false;
+    }
+    
+    /**
+     * Returns the definition of the variants replacing the greeting of given key and locale, so the clients<br>
+     * can select the variants themselves. The variants belong to the catalog locale supplying the greeting,<br>
+     * the variants of a more specific locale never replace the greeting of its parent locale.
+     * 
+     * @param key - key of the greeting
+     * @param locale - locale of the greeting
+     * @return definition of the variant set, or null if there are no variants of the greeting or the holiday greeting is served
+     */
+    default String getVariantsDefinition(GreetingKey key, Locale locale) {
+        return null;
+    }
+    
+    /**
+     * Returns the locales having their own greetings in the catalog. Greetings of the other locales<br>
+     * are the greetings of the most specific catalog locale of their {@code lang-COUNTRY-variant}, {@code lang-COUNTRY}<br>
+     * and {@code lang} fallback.
+     * 
+     * @return locales of the greetings catalog
+     */
+    Set<Locale> getCatalogLocales();
+    
+    /**
+     * Returns the catalog locale supplying the greetings of given locale, so all locales served by the same greetings<br>
+     * can share them, for example in a cache. Locales which are not mapped are returned unchanged.
+     * 
+     * @param locale - requested locale
+     * @return locale of the catalog supplying the greetings of the {@code locale}, or the {@code locale} itself
+     */
+    default Locale getCatalogLocale(Locale locale) {
+        return locale;
+    }
+    
+    /**
+     * Returns the holiday greeting replacing the time sensitive greetings of given locale and user's date.
+     * 
+     * @param locale - locale of the greeting
+     * @param usersDate - date of the user, null for the current date of the server
+     * @return holiday greeting, or null if there is none for the date and locale
+     */
+    default String getHolidayGreeting(Locale locale, LocalDate usersDate) {
+        return null;
+    }
+    
+    /**
+     * Returns the version of the greetings catalog, the version is changed whenever any greeting can be changed.<br>
+     * Used by the clients caching the greetings.
+     * 
+     * @return version of the greetings catalog
+     */
+    String getCatalogVersion();
 }
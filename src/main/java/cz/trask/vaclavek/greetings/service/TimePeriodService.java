@@ -1,5 +1,7 @@
 package cz.trask.vaclavek.greetings.service;
 
+import java.time.LocalTime;
+
 /**
  * Interface to declare methods, which needs to be impemented, when {@link TimePeriod} 
  * value is to be determined according given user's time.
@@ -31,4 +33,32 @@ public interface TimePeriodService
      * @return corresponding {@link TimePeriod} value according input user's time string
      */
     TimePeriod getTimePeriod(String usersTime);
+    
+    /**
+     * Determines {@link TimePeriod} value according input user's time string and the local sunrise and sunset<br>
+     * of the user's location and date.
+     * 
+     * @param usersTime - user's time string in a "HH:mm" format (Hours in 24 h. format:minutes)
+     * @param location - user's location and date, null for the fixed time periods of {@link #getTimePeriod(String)}
+     * @return corresponding {@link TimePeriod} value according input user's time string and location
+     */
+    TimePeriod getTimePeriod(String usersTime, UsersLocation location);
+    
+    /**
+     * Determines {@link TimePeriod} value according already parsed user's time.
+     * 
+     * @param usersTime - user's time of the day
+     * @return corresponding {@link TimePeriod} value according input user's time
+     */
+    TimePeriod getTimePeriod(LocalTime usersTime);
+    
+    /**
+     * Returns the time of the day, when the {@link TimePeriod} valid for the {@code usersTime}<br>
+     * is replaced by the next one. The returned time can be earlier than {@code usersTime},<br>
+     * which means the change happens after midnight i.e. on the next day.
+     * 
+     * @param usersTime - user's time of the day
+     * @return start of the next {@link TimePeriod} following the one valid for {@code usersTime}
+     */
+    LocalTime getNextTimePeriodStart(LocalTime usersTime);
 }
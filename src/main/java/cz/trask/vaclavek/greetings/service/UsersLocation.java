@@ -0,0 +1,144 @@
+package cz.trask.vaclavek.greetings.service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
+
+/**
+ * Coarse location and date of the user, the time periods of the day follow the local sunrise and sunset then.
+ * <p>
+ * User's time is converted to the local mean solar time by the longitude and the UTC offset of the user's clock.<br>
+ * If the UTC offset is not known, the nominal offset of the longitude (15 degrees per hour) is used.<br>
+ * If the longitude is not known, the user's time is taken as the local solar time.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class UsersLocation
+{
+    private final double latitude;
+
+    private final LocalDate date;
+
+    /**
+     * Minutes added to the user's time to get the local mean solar time
+     */
+    private final int solarOffsetMinutes;
+
+
+    /**
+     * @param latitude - latitude in degrees, -90 to 90
+     * @param date - user's date
+     * @param solarOffsetMinutes - minutes added to the user's time to get the local mean solar time
+     */
+    public UsersLocation(double latitude, LocalDate date, int solarOffsetMinutes) {
+        super();
+        this.latitude = latitude;
+        this.date = date;
+        this.solarOffsetMinutes = solarOffsetMinutes;
+    }
+
+    /**
+     * Creates the location of the request parameters.
+     *
+     * @param lat - latitude in degrees, -90 (south) to 90 (north)
+     * @param lon - longitude in degrees, -180 (west) to 180 (east), empty if not known
+     * @param date - user's date in "yyyy-MM-dd" format, empty for the current date
+     * @param utcOffset - UTC offset of the user's clock, for example "+02:00", empty if not known
+     * @return location of the parameters, or null if the {@code lat} is empty
+     * @throws InvalidParameterException if any of the parameters is not valid
+     */
+    public static UsersLocation parse(String lat, String lon, String date, String utcOffset) {
+
+        if (lat.isEmpty()) {
+            return null;
+        }
+        double latitude = parseDegrees("lat", lat, 90);
+
+        ZoneOffset offset = null;
+        if (!utcOffset.isEmpty()) {
+            try {
+                offset = ZoneOffset.of(utcOffset);
+            } catch (RuntimeException ex) {
+                throw new InvalidParameterException("utcOffset", utcOffset);
+            }
+        }
+
+        int solarOffsetMinutes = 0;
+        if (!lon.isEmpty()) {
+            double longitude = parseDegrees("lon", lon, 180);
+            if (offset == null) {
+                offset = ZoneOffset.ofHours((int) Math.round(longitude / 15));
+            }
+            solarOffsetMinutes = (int) Math.round(longitude * 4) - offset.getTotalSeconds() / 60;
+        }
+
+        LocalDate usersDate = date.isEmpty() ? LocalDate.now((offset == null) ? ZoneOffset.UTC : offset) : parseDate(date);
+        return new UsersLocation(latitude, usersDate, solarOffsetMinutes);
+    }
+
+    /**
+     * Returns the user's date of the request parameters, regardless of the location, for example for the holiday greetings.
+     *
+     * @param date - user's date in "yyyy-MM-dd" format, empty if not known
+     * @param utcOffset - UTC offset of the user's clock, for example "+02:00", empty if not known
+     * @return the {@code date}, the current date at the {@code utcOffset} if the {@code date} is empty, or null if both are empty
+     * @throws InvalidParameterException if any of the parameters is not valid
+     */
+    public static LocalDate parseUsersDate(String date, String utcOffset) {
+
+        if (!date.isEmpty()) {
+            return parseDate(date);
+        }
+        if (utcOffset.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.now(ZoneOffset.of(utcOffset));
+        } catch (RuntimeException ex) {
+            throw new InvalidParameterException("utcOffset", utcOffset);
+        }
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getSolarOffsetMinutes() {
+        return solarOffsetMinutes;
+    }
+
+    private static LocalDate parseDate(String date) {
+
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException ex) {
+            throw new InvalidParameterException("date", date);
+        }
+    }
+
+    private static double parseDegrees(String name, String value, double limit) {
+
+        double degrees;
+        try {
+            degrees = Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new InvalidParameterException(name, value);
+        }
+        if (!(degrees >= -limit && degrees <= limit)) {
+            throw new InvalidParameterException(name, value);
+        }
+        return degrees;
+    }
+
+    @Override
+    public String toString() {
+        return "UsersLocation [latitude=" + latitude + ", date=" + date + ", solarOffsetMinutes=" + solarOffsetMinutes + "]";
+    }
+}
@@ -0,0 +1,322 @@
+package cz.trask.vaclavek.greetings.serviceimpl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import cz.trask.vaclavek.greetings.scheduling.HashedTimerWheel;
+import cz.trask.vaclavek.greetings.service.GreetingsPushService;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * Implementation of the {@link GreetingsPushService}
+ * <p>
+ * Subscribers are grouped by their (zone, locale) combination, because all subscribers of the group<br>
+ * receive the same greeting at the same time. Only one period boundary event per group is scheduled<br>
+ * in the {@link HashedTimerWheel}, so the number of the timers does not depend on the number of open subscriptions.<br>
+ * When the event expires, the new greeting is sent to all subscribers of the group and the next<br>
+ * period boundary event of the group is scheduled.
+ * <p>
+ * Holiday greetings are resolved for the current date of the group's zone. If the holiday greeting starts or ends<br>
+ * at the next local midnight, the event is scheduled at the midnight instead of the next period boundary.
+ * <p>
+ * The next boundary, which may resolve the greetings, is computed before the group is updated in the map,<br>
+ * the map functions only install its event, so they do not hold the lock of the map bin during the lookups.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Service
+public class GreetingsPushServiceImpl implements GreetingsPushService
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingsPushServiceImpl.class);
+
+    /**
+     * Name of the Server-Sent Event carrying the greeting text
+     */
+    public static final String GREETING_EVENT_NAME = "greeting";
+
+    // ****** INSTANCE FIELDS ******
+
+    private final GreetingsService greetingsService;
+
+    private final TimePeriodService timePeriodService;
+
+    /**
+     * Timeout of the subscription in milliseconds. The client is expected to reconnect after the timeout.
+     */
+    private final long emitterTimeout;
+
+    private final HashedTimerWheel timerWheel;
+
+    private final ConcurrentMap<GroupKey, SubscriberGroup> groups = new ConcurrentHashMap<>();
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * Standard constructor injecting required services.
+     *
+     * @param greetingsService - instance of {@link GreetingsService} implementation
+     * @param timePeriodService - instance of {@link TimePeriodService} implementation
+     * @param taskExecutor - executor used to send the greetings to the subscribers when the period rolls over
+     * @param emitterTimeout - timeout of the subscription in milliseconds
+     * @param tickMillis - precision of the period boundary events in milliseconds
+     */
+    public GreetingsPushServiceImpl(GreetingsService greetingsService,
+                                    TimePeriodService timePeriodService,
+                                    TaskExecutor taskExecutor,
+                                    @Value("${greetings.push.emitter-timeout:1800000}") long emitterTimeout,
+                                    @Value("${greetings.push.tick-millis:100}") long tickMillis) {
+        super();
+        this.greetingsService = greetingsService;
+        this.timePeriodService = timePeriodService;
+        this.emitterTimeout = emitterTimeout;
+        this.timerWheel = new HashedTimerWheel("greetings-push-timer", tickMillis, TimeUnit.MILLISECONDS, 512, taskExecutor);
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The current greeting is resolved before the subscription is registered, so the<br>
+     * {@link cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException} is thrown without opening the stream.
+     */
+    @Override
+    public SseEmitter subscribe(Locale locale, ZoneId zone) {
+
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        TimePeriod currentPeriod = timePeriodService.getTimePeriod(now.toLocalTime());
+        String greeting = greetingsService.getTimeSensitiveGreeting(currentPeriod, locale, now.toLocalDate());
+
+        SseEmitter emitter = new SseEmitter(emitterTimeout);
+        GroupKey key = new GroupKey(zone, locale);
+
+        try {
+            emitter.send(SseEmitter.event().name(GREETING_EVENT_NAME).id(currentPeriod.name()).data(greeting));
+        } catch (IOException ex) {
+            emitter.completeWithError(ex);
+            return emitter;
+        }
+
+        emitter.onCompletion(() -> unsubscribe(key, emitter));
+        emitter.onTimeout(() -> unsubscribe(key, emitter));
+        emitter.onError(ex -> unsubscribe(key, emitter));
+
+        Boundary next = nextBoundary(key);
+        groups.compute(key, (k, group) -> {
+            if (group == null) {
+                group = new SubscriberGroup(k);
+                group.schedule(next);
+            }
+            group.subscribers.add(emitter);
+            return group;
+        });
+
+        Log.debug("New greetings subscription for zone {} and locale {}", zone, locale);
+        return emitter;
+    }
+
+    @Override
+    public int getSubscriptionsCount() {
+        return groups.values().stream().mapToInt(group -> group.subscribers.size()).sum();
+    }
+
+    @Override
+    public int getGroupsCount() {
+        return groups.size();
+    }
+
+    /**
+     * Stops the timer wheel and closes all open subscriptions.
+     */
+    @PreDestroy
+    public void shutdown() {
+        timerWheel.stop();
+        groups.values().forEach(group -> group.subscribers.forEach(SseEmitter::complete));
+        groups.clear();
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * Computes the next period boundary in the group's time zone, or the next local midnight,<br>
+     * if it comes first and the holiday greeting changes at it.
+     */
+    private Boundary nextBoundary(GroupKey key) {
+
+        ZonedDateTime now = ZonedDateTime.now(key.zone);
+        LocalTime boundaryTime = timePeriodService.getNextTimePeriodStart(now.toLocalTime());
+
+        ZonedDateTime boundary = now.toLocalDate().atTime(boundaryTime).atZone(key.zone);
+        if (!boundary.isAfter(now)) {
+            boundary = now.toLocalDate().plusDays(1).atTime(boundaryTime).atZone(key.zone);
+        }
+        ZonedDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay(key.zone);
+        if (midnight.isBefore(boundary) && holidayGreetingChanges(key, now.toLocalDate(), midnight)) {
+            boundary = midnight;
+        }
+
+        return new Boundary(timePeriodService.getTimePeriod(boundary.toLocalTime()), boundary.toLocalDate(),
+                            Duration.between(now, boundary).toMillis());
+    }
+
+    /**
+     * @return true if the greeting of the period at the {@code midnight} differs for the {@code today} and the date of the midnight,<br>
+     *         i.e. the holiday greeting starts or ends at the midnight
+     */
+    private boolean holidayGreetingChanges(GroupKey key, LocalDate today, ZonedDateTime midnight) {
+
+        TimePeriod period = timePeriodService.getTimePeriod(midnight.toLocalTime());
+        try {
+            return !Objects.equals(greetingsService.getTimeSensitiveGreeting(period, key.locale, today),
+                                   greetingsService.getTimeSensitiveGreeting(period, key.locale, midnight.toLocalDate()));
+        } catch (RuntimeException ex) {
+            Log.warn("Failed to resolve the holiday greeting of zone {} and locale {} at midnight", key.zone, key.locale, ex);
+            return false;
+        }
+    }
+
+    private void unsubscribe(GroupKey key, SseEmitter emitter) {
+
+        groups.computeIfPresent(key, (k, group) -> {
+            group.subscribers.remove(emitter);
+            if (group.subscribers.isEmpty()) {
+                group.cancel();
+                return null;
+            }
+            return group;
+        });
+    }
+
+    /**
+     * Key of the subscribers group
+     */
+    private static final class GroupKey
+    {
+        private final ZoneId zone;
+        private final Locale locale;
+
+        private GroupKey(ZoneId zone, Locale locale) {
+            this.zone = zone;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof GroupKey)) {
+                return false;
+            }
+            GroupKey other = (GroupKey) obj;
+            return zone.equals(other.zone) && locale.equals(other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(zone, locale);
+        }
+    }
+
+    /**
+     * Period boundary event: the period and date starting at it and the delay from now
+     */
+    private static final class Boundary
+    {
+        private final TimePeriod period;
+        private final LocalDate date;
+        private final long delayMillis;
+
+        private Boundary(TimePeriod period, LocalDate date, long delayMillis) {
+            this.period = period;
+            this.date = date;
+            this.delayMillis = delayMillis;
+        }
+    }
+
+    /**
+     * Subscribers of the same (zone, locale) combination sharing one period boundary event.
+     */
+    private final class SubscriberGroup
+    {
+        private final GroupKey key;
+
+        private final Set<SseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+
+        private volatile HashedTimerWheel.Timeout boundaryTimeout;
+
+        private SubscriberGroup(GroupKey key) {
+            this.key = key;
+        }
+
+        /**
+         * Installs the event of the {@code next} boundary computed by {@link GreetingsPushServiceImpl#nextBoundary(GroupKey)}.
+         */
+        private void schedule(Boundary next) {
+            boundaryTimeout = timerWheel.schedule(() -> publish(next.period, next.date), next.delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void cancel() {
+            HashedTimerWheel.Timeout timeout = boundaryTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        /**
+         * Sends the greeting of the new {@code period} and {@code date} to all subscribers of the group and schedules the next boundary.
+         */
+        private void publish(TimePeriod period, LocalDate date) {
+
+            if (groups.get(key) != this) {
+                return;
+            }
+            try {
+                String greeting = greetingsService.getTimeSensitiveGreeting(period, key.locale, date);
+                for (SseEmitter emitter : subscribers) {
+                    try {
+                        emitter.send(SseEmitter.event().name(GREETING_EVENT_NAME).id(period.name()).data(greeting));
+                    } catch (IOException | IllegalStateException ex) {
+                        Log.debug("Failed to push greeting to subscriber, removing it: {}", ex.getMessage());
+                        emitter.completeWithError(ex);
+                        unsubscribe(key, emitter);
+                    }
+                }
+                Log.info("Time sensitive greeting pushed to {} subscribers of zone {} and locale {}: {}", subscribers.size(), key.zone, key.locale, greeting);
+            } catch (RuntimeException ex) {
+                Log.error("Failed to push greeting for the period {}", period, ex);
+            } finally {
+                Boundary next = nextBoundary(key);
+                groups.computeIfPresent(key, (k, group) -> {
+                    if (group == this) {
+                        schedule(next);
+                    }
+                    return group;
+                });
+            }
+        }
+    }
+}
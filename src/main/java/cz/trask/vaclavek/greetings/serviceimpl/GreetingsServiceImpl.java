@@ -1,19 +1,43 @@
 package cz.trask.vaclavek.greetings.serviceimpl;
 
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Service;
 
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.catalog.CatalogDigest;
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
 import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.messages.PreloadedMessageSource;
 import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.tracing.PipelineStage;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
 
 import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
 
 /**
  * Implementation of the {@link GreetingsService}
+ * <p>
+ * Greeting texts are read from the messages_xx_XX.properties files, unless the database catalog<br>
+ * is switched on by the {@code greetings.catalog.source=jdbc} property (see {@link JdbcGreetingsServiceImpl}).<br>
+ * Time sensitive greetings are replaced by the greetings of the {@link HolidayCalendar} on the holiday dates.<br>
+ * Weighted variants of the greetings are defined under the greeting keys with the {@code .variants} suffix, see {@link GreetingVariants}.
  * 
  * @see GreetingsConfiguration
  * 
@@ -21,6 +45,7 @@ import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
  *
  */
 @Service
+@ConditionalOnProperty(name = "greetings.catalog.source", havingValue = "messages", matchIfMissing = true)
 public class GreetingsServiceImpl implements GreetingsService
 {
 
@@ -40,6 +65,11 @@ public class GreetingsServiceImpl implements GreetingsService
     
     public static final String GREETING_GENERAL_TIMEINSENSITIVE_KEY = "greeting.timesinensitive.general";
     
+    /**
+     * Key of the messages files item holding the template of the personalized greeting
+     */
+    public static final String GREETING_PERSONALIZED_KEY = "greeting.personalized";
+    
     /**
      * Key of the 'messages.properties' file item holding common error text in case that greeting for requested language
      * is not supported.
@@ -49,7 +79,7 @@ public class GreetingsServiceImpl implements GreetingsService
     /**
      * Key of the 'messages.properties' file item holding common error text in case that greeting text cannot be returned
     */
-    private static final String GREETING_ERROR_KEY = "greeting.error";
+    public static final String GREETING_ERROR_KEY = "greeting.error";
     
     /**
      * Deafult greeting text to identify, if the correct greeting was (not) find in {@link #messages}
@@ -64,6 +94,27 @@ public class GreetingsServiceImpl implements GreetingsService
      */
     private MessageSource messages;
     
+    /**
+     * Compiled templates of the error texts with arguments
+     */
+    private final MessageTemplates messageTemplates;
+    
+    /**
+     * Holiday greetings taking priority over the time sensitive greetings
+     */
+    private final HolidayCalendar holidayCalendar;
+    
+    /**
+     * Compiled variant sets of the greetings
+     */
+    private final GreetingVariants greetingVariants;
+    
+    /**
+     * Digest of the greeting texts of the catalog with the version of the messages it was computed for.<br>
+     * The messages files are never reloaded, so the digest is computed again only when the replicated catalog is replaced.
+     */
+    private volatile ContentVersion contentVersion;
+    
     /**
      * General error message text in case that any suitable greeting text cannot be returned
      */
@@ -73,13 +124,52 @@ public class GreetingsServiceImpl implements GreetingsService
     // ****** INSTANCE CONSTRUCTORS ******
     
     /**
-     * Standard Constructor with MessageSource instance injected.
+     * Constructor with MessageSource instance injected, without any holiday greetings.
      * 
      * @param messages source of the greeting texts
      */
     public GreetingsServiceImpl(MessageSource messages) {
+       this(messages, HolidayCalendar.empty(Clock.systemDefaultZone()));
+    }
+    
+    /**
+     * Constructor with MessageSource and HolidayCalendar instances injected, variants are not counted by any metrics.
+     * 
+     * @param messages source of the greeting texts
+     * @param holidayCalendar holiday greetings taking priority over the time sensitive greetings
+     */
+    public GreetingsServiceImpl(MessageSource messages, HolidayCalendar holidayCalendar) {
+       this(messages, holidayCalendar, new GreetingVariants(null, 16));
+    }
+    
+    /**
+     * Constructor with MessageSource, HolidayCalendar and GreetingVariants instances injected,<br>
+     * the templates of the error texts are compiled from the MessageSource.
+     * 
+     * @param messages source of the greeting texts
+     * @param holidayCalendar holiday greetings taking priority over the time sensitive greetings
+     * @param greetingVariants compiled variant sets of the greetings
+     */
+    public GreetingsServiceImpl(MessageSource messages, HolidayCalendar holidayCalendar, GreetingVariants greetingVariants) {
+       this(messages, new MessageTemplates(messages), holidayCalendar, greetingVariants);
+    }
+    
+    /**
+     * Standard Constructor with MessageSource, MessageTemplates, HolidayCalendar and GreetingVariants instances injected.
+     * 
+     * @param messages source of the greeting texts
+     * @param messageTemplates compiled templates of the error texts, shared with the controller
+     * @param holidayCalendar holiday greetings taking priority over the time sensitive greetings
+     * @param greetingVariants compiled variant sets of the greetings
+     */
+    @Autowired
+    public GreetingsServiceImpl(MessageSource messages, MessageTemplates messageTemplates, HolidayCalendar holidayCalendar,
+                                GreetingVariants greetingVariants) {
        super();
        this.messages = messages;
+       this.messageTemplates = messageTemplates;
+       this.holidayCalendar = holidayCalendar;
+       this.greetingVariants = greetingVariants;
        errorMessageGeneral = messages.getMessage(GREETING_ERROR_KEY, null, null);
     }
 
@@ -90,10 +180,188 @@ public class GreetingsServiceImpl implements GreetingsService
      * <p>
      * If the greeting text is same as the default {@code GREETING_NOT_FOUND}, then text is not found for<br>
      * the locale's language in the messages_xx_XX.properties file.<br>
-     * Throws {@link LanguageNotSupportedException} if the requested greeting text cannot be found for requested locale.
+     * Throws {@link LanguageNotSupportedException} if the requested greeting text cannot be found for requested locale.<br>
+     * Holiday greeting of the current day is returned instead of the found greeting, if there is any.
      */
     @Override
     public String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale) {
+        return getTimeSensitiveGreeting(timePeriod, locale, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Throws {@link LanguageNotSupportedException} if the requested greeting text cannot be found for requested locale.
+     */
+    @Override
+    public String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale, LocalDate usersDate) {
+        
+        long traceStart = StageTracer.start();
+        try {
+            String greeting = findTimeSensitiveGreeting(timePeriod, locale);
+            String holidayGreeting = holidayCalendar.getGreeting(locale, usersDate);
+            return (holidayGreeting == null) ? greeting : holidayGreeting;
+        } finally {
+            StageTracer.stop(PipelineStage.GREETING_LOOKUP, traceStart);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the greeting text is same as the default {@code GREETING_NOT_FOUND}, then the text is not found for<br>
+     * the locale's language in the messages_xx_XX.properties file.<br>
+     * Throws {@link LanguageNotSupportedException} if the requested greeting text cannot be found for requested locale.
+     */
+    @Override
+    public String getTimeInsensitiveGreeting(Locale locale) {
+        
+        long traceStart = StageTracer.start();
+        try {
+            return findTimeInsensitiveGreeting(locale);
+        } finally {
+            StageTracer.stop(PipelineStage.GREETING_LOOKUP, traceStart);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Variants are read from the messages_xx_XX.properties files, for example {@code greeting.timesensitive.morning.variants}.
+     */
+    @Override
+    public GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId) {
+        return getTimeSensitiveVariant(timePeriod, locale, clientId, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId, LocalDate usersDate) {
+        
+        GreetingKey key = GreetingKey.of(timePeriod);
+        return greetingVariants.select(key.getVariantsKey(), getVariantsDefinition(key, locale, usersDate), clientId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Variants are read from the messages_xx_XX.properties files, i.e. {@code greeting.timeinsensitive.general.variants}.
+     */
+    @Override
+    public GreetingVariant getTimeInsensitiveVariant(Locale locale, String clientId) {
+        
+        GreetingKey key = GreetingKey.TIME_INSENSITIVE;
+        return greetingVariants.select(key.getVariantsKey(), getVariantsDefinition(key, locale), clientId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasVariants(GreetingKey key, Locale locale) {
+        return findVariantsDefinition(key, locale) != null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getVariantsDefinition(GreetingKey key, Locale locale) {
+        return getVariantsDefinition(key, locale, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Locales of the messages_xx_XX.properties files, empty if the message source is not the {@link LocaleGuardMessageSource}.
+     */
+    @Override
+    public Set<Locale> getCatalogLocales() {
+        return (messages instanceof LocaleGuardMessageSource) ? ((LocaleGuardMessageSource) messages).getCatalogLocales()
+                                                              : Collections.emptySet();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The locale is mapped by the {@link LocaleGuardMessageSource}, unchanged if the message source is not guarded.
+     */
+    @Override
+    public Locale getCatalogLocale(Locale locale) {
+        return (messages instanceof LocaleGuardMessageSource) ? ((LocaleGuardMessageSource) messages).guard(locale) : locale;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getHolidayGreeting(Locale locale, LocalDate usersDate) {
+        return holidayCalendar.getGreeting(locale, usersDate);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Version is the digest of the greetings, their variants and the personalized templates of all catalog locales,<br>
+     * so all instances serving the same messages files have the same version. Holiday greetings change with the date,<br>
+     * so the current date is part of the version, if there are any.
+     */
+    @Override
+    public String getCatalogVersion() {
+        
+        long messagesVersion = getMessagesVersion();
+        ContentVersion current = contentVersion;
+        if (current == null || current.messagesVersion != messagesVersion) {
+            current = new ContentVersion(messagesVersion, digestCatalog());
+            contentVersion = current;
+        }
+        return holidayCalendar.isEmpty() ? current.version : current.version + "." + holidayCalendar.getCurrentDate();
+    }
+    
+    // ****** INSTANCE PRIVATE METHODS ******
+    
+    /**
+     * @return definition of the variants, or null if there are none or the holiday greeting of the {@code usersDate} is served
+     */
+    private String getVariantsDefinition(GreetingKey key, Locale locale, LocalDate usersDate) {
+        
+        if (key != GreetingKey.TIME_INSENSITIVE && holidayCalendar.getGreeting(locale, usersDate) != null) {
+            return null;
+        }
+        return findVariantsDefinition(key, locale);
+    }
+    
+    /**
+     * @return version of the preloaded catalog, changed when the replicated catalog is replaced, 0 if it is not versioned
+     */
+    private long getMessagesVersion() {
+        
+        MessageSource source = (messages instanceof LocaleGuardMessageSource) ? ((LocaleGuardMessageSource) messages).getDelegate() : messages;
+        return (source instanceof PreloadedMessageSource) ? ((PreloadedMessageSource) source).getCatalog().getVersion() : 0;
+    }
+    
+    /**
+     * @return version of the texts of all catalog locales
+     */
+    private String digestCatalog() {
+        
+        List<Locale> locales = new ArrayList<>(getCatalogLocales());
+        locales.sort(Comparator.comparing(Locale::toLanguageTag));
+        CatalogDigest digest = new CatalogDigest();
+        for (Locale locale : locales) {
+            String localeTag = locale.toLanguageTag();
+            for (GreetingKey key : GreetingKey.values()) {
+                digest.add(localeTag, key.getCatalogKey(), messages.getMessage(key.getCatalogKey(), null, null, locale));
+                digest.add(localeTag, key.getVariantsKey(), messages.getMessage(key.getVariantsKey(), null, null, locale));
+            }
+            digest.add(localeTag, GREETING_PERSONALIZED_KEY, messages.getMessage(GREETING_PERSONALIZED_KEY, null, null, locale));
+        }
+        return digest.toVersion("messages-");
+    }
+    
+    private String findTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale) {
         
         String greeting = errorMessageGeneral;
         
@@ -121,7 +389,7 @@ public class GreetingsServiceImpl implements GreetingsService
             
             if (GREETING_NOT_FOUND.equals(greeting)) {
                 // Even GREETING_GENERAL text for this locale is not found i.e. corresponding properties file for this locale is not available, throw exception
-                String errorText = messages.getMessage(GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, new String[] {locale.getLanguage()}, null);
+                String errorText = messageTemplates.format(GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, null, locale.getLanguage());
                 Log.error(errorText); 
                 throw new LanguageNotSupportedException(errorText);
             }
@@ -131,24 +399,76 @@ public class GreetingsServiceImpl implements GreetingsService
     }
     
     /**
-     * {@inheritDoc}
-     * <p>
-     * If the greeting text is same as the default {@code GREETING_NOT_FOUND}, then the text is not found for<br>
-     * the locale's language in the messages_xx_XX.properties file.<br>
-     * Throws {@link LanguageNotSupportedException} if the requested greeting text cannot be found for requested locale.
+     * Finds the variants of the messages file supplying the greeting. The fallback chain of the locale is walked<br>
+     * from the most specific locale and the texts are compared with the ones of the parent locale, the greeting<br>
+     * and its variants have to be changed by the same file. Most greetings have no variants at all, so they cost<br>
+     * one lookup only.
+     * 
+     * @return definition of the variant set or null if the file supplying the greeting has no variants of it
      */
-    @Override
-    public String getTimeInsensitiveGreeting(Locale locale) {
+    private String findVariantsDefinition(GreetingKey key, Locale locale) {
+        
+        String definition = messages.getMessage(key.getVariantsKey(), null, GREETING_NOT_FOUND, locale);
+        if (GREETING_NOT_FOUND.equals(definition)) {
+            return null;
+        }
+        String greeting = messages.getMessage(key.getCatalogKey(), null, GREETING_NOT_FOUND, locale);
+        for (Locale parent = getParentLocale(locale); parent != null; parent = getParentLocale(parent)) {
+            String parentGreeting = messages.getMessage(key.getCatalogKey(), null, GREETING_NOT_FOUND, parent);
+            String parentDefinition = messages.getMessage(key.getVariantsKey(), null, GREETING_NOT_FOUND, parent);
+            if (!greeting.equals(parentGreeting)) {
+                // greeting of this locale, the variants have to be its own too
+                return definition.equals(parentDefinition) ? null : definition;
+            }
+            if (!definition.equals(parentDefinition)) {
+                // variants of this locale, the greeting is inherited from the parent
+                return null;
+            }
+        }
+        // both of the base file
+        return GREETING_NOT_FOUND.equals(greeting) ? null : definition;
+    }
+    
+    /**
+     * @return next locale of the fallback chain {@code lang_COUNTRY_variant} -> {@code lang_COUNTRY} -> {@code lang}<br>
+     *         -> {@link Locale#ROOT}, null for the {@link Locale#ROOT}
+     */
+    private static Locale getParentLocale(Locale locale) {
+        
+        if (!locale.getVariant().isEmpty()) {
+            return new Locale(locale.getLanguage(), locale.getCountry());
+        }
+        if (!locale.getCountry().isEmpty()) {
+            return new Locale(locale.getLanguage());
+        }
+        return locale.getLanguage().isEmpty() ? null : Locale.ROOT;
+    }
+    
+    private String findTimeInsensitiveGreeting(Locale locale) {
         
         String greeting = messages.getMessage(GREETING_GENERAL_TIMEINSENSITIVE_KEY, null, GREETING_NOT_FOUND, locale);
         
         if (GREETING_NOT_FOUND.equals(greeting)) {
-            String errorText = messages.getMessage(GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, new String[] { locale.getLanguage()}, null);
+            String errorText = messageTemplates.format(GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, null, locale.getLanguage());
             Log.error(errorText);
             throw new LanguageNotSupportedException(errorText);
         }
         
         return greeting;
     }
+    
+    /**
+     * Catalog version of the messages version
+     */
+    private static final class ContentVersion
+    {
+        private final long messagesVersion;
+        private final String version;
+        
+        private ContentVersion(long messagesVersion, String version) {
+            this.messagesVersion = messagesVersion;
+            this.version = version;
+        }
+    }
 
 }
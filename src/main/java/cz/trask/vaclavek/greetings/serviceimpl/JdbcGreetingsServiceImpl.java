@@ -0,0 +1,269 @@
+package cz.trask.vaclavek.greetings.serviceimpl;
+
+import static cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl.GREETING_AFTERNOON_KEY;
+import static cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl.GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY;
+import static cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl.GREETING_EVENING_KEY;
+import static cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY;
+import static cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl.GREETING_GENERAL_TIMESENSITIVE_KEY;
+import static cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl.GREETING_MORNING_KEY;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.catalog.JdbcGreetingCatalog;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.tracing.PipelineStage;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+
+/**
+ * Implementation of the {@link GreetingsService} serving the greeting texts from the database catalog.
+ * <p>
+ * The greeting texts are stored in the {@code greeting} table under the same keys as in the messages_xx_XX.properties<br>
+ * files and they are read by the {@link JdbcGreetingCatalog}. The error texts are still taken from the {@link MessageSource}.<br>
+ * Used instead of the {@link GreetingsServiceImpl} when the {@code greetings.catalog.source=jdbc} property is set.<br>
+ * Time sensitive greetings are replaced by the greetings of the {@link HolidayCalendar} on the holiday dates.<br>
+ * Weighted variants of the greetings are stored under the greeting keys with the {@code .variants} suffix, see {@link GreetingVariants}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class JdbcGreetingsServiceImpl implements GreetingsService
+{
+    private static final Logger Log = LoggerFactory.getLogger(JdbcGreetingsServiceImpl.class);
+
+    // ****** INSTANCE FIELDS ******
+
+    private final JdbcGreetingCatalog catalog;
+
+    /**
+     * Compiled templates of the error texts
+     */
+    private final MessageTemplates messageTemplates;
+
+    /**
+     * Holiday greetings taking priority over the time sensitive greetings
+     */
+    private final HolidayCalendar holidayCalendar;
+
+    /**
+     * Compiled variant sets of the greetings
+     */
+    private final GreetingVariants greetingVariants;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param catalog - database catalog of the greeting texts
+     * @param messageTemplates - compiled templates of the error texts
+     * @param holidayCalendar - holiday greetings taking priority over the time sensitive greetings
+     * @param greetingVariants - compiled variant sets of the greetings
+     */
+    public JdbcGreetingsServiceImpl(JdbcGreetingCatalog catalog, MessageTemplates messageTemplates, HolidayCalendar holidayCalendar,
+                                    GreetingVariants greetingVariants) {
+        super();
+        this.catalog = catalog;
+        this.messageTemplates = messageTemplates;
+        this.holidayCalendar = holidayCalendar;
+        this.greetingVariants = greetingVariants;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Throws {@link LanguageNotSupportedException} if neither the greeting of the time period nor the general greeting<br>
+     * is found in the catalog for the requested locale. Holiday greeting of the current day is returned instead<br>
+     * of the found greeting, if there is any.
+     */
+    @Override
+    public String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale) {
+        return getTimeSensitiveGreeting(timePeriod, locale, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Throws {@link LanguageNotSupportedException} if neither the greeting of the time period nor the general greeting<br>
+     * is found in the catalog for the requested locale.
+     */
+    @Override
+    public String getTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale, LocalDate usersDate) {
+
+        long traceStart = StageTracer.start();
+        try {
+            String greeting = findTimeSensitiveGreeting(timePeriod, locale);
+            String holidayGreeting = holidayCalendar.getGreeting(locale, usersDate);
+            return (holidayGreeting == null) ? greeting : holidayGreeting;
+        } finally {
+            StageTracer.stop(PipelineStage.GREETING_LOOKUP, traceStart);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Throws {@link LanguageNotSupportedException} if the greeting is not found in the catalog for the requested locale.
+     */
+    @Override
+    public String getTimeInsensitiveGreeting(Locale locale) {
+
+        long traceStart = StageTracer.start();
+        try {
+            return findGreeting(GREETING_GENERAL_TIMEINSENSITIVE_KEY, locale);
+        } finally {
+            StageTracer.stop(PipelineStage.GREETING_LOOKUP, traceStart);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Variants are read from the catalog snapshot, for example {@code greeting.timesensitive.morning.variants},<br>
+     * the missing locales are not queried for them.
+     */
+    @Override
+    public GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId) {
+        return getTimeSensitiveVariant(timePeriod, locale, clientId, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GreetingVariant getTimeSensitiveVariant(TimePeriod timePeriod, Locale locale, String clientId, LocalDate usersDate) {
+
+        GreetingKey key = GreetingKey.of(timePeriod);
+        return greetingVariants.select(key.getVariantsKey(), getVariantsDefinition(key, locale, usersDate), clientId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Variants are read from the catalog, i.e. {@code greeting.timeinsensitive.general.variants}.
+     */
+    @Override
+    public GreetingVariant getTimeInsensitiveVariant(Locale locale, String clientId) {
+
+        GreetingKey key = GreetingKey.TIME_INSENSITIVE;
+        return greetingVariants.select(key.getVariantsKey(), getVariantsDefinition(key, locale), clientId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasVariants(GreetingKey key, Locale locale) {
+        return catalog.getSnapshotSiblingText(locale, key.getCatalogKey(), key.getVariantsKey()) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Variants are read from the snapshot catalog of the locale supplying the greeting.
+     */
+    @Override
+    public String getVariantsDefinition(GreetingKey key, Locale locale) {
+        return getVariantsDefinition(key, locale, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Locales of the current catalog snapshot.
+     */
+    @Override
+    public Set<Locale> getCatalogLocales() {
+
+        Set<Locale> locales = new LinkedHashSet<>();
+        for (String localeTag : catalog.getSnapshot().getLocaleTags()) {
+            locales.add(Locale.forLanguageTag(localeTag));
+        }
+        return locales;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getHolidayGreeting(Locale locale, LocalDate usersDate) {
+        return holidayCalendar.getGreeting(locale, usersDate);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Version is the digest of the texts of the snapshot, so all instances reading the same database have the same version.<br>
+     * Holiday greetings change with the date, so the current date is part of the version, if there are any.
+     */
+    @Override
+    public String getCatalogVersion() {
+
+        String version = "jdbc-" + catalog.getSnapshot().getContentVersion();
+        return holidayCalendar.isEmpty() ? version : version + "." + holidayCalendar.getCurrentDate();
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * @return definition of the variants, or null if there are none or the holiday greeting of the {@code usersDate} is served
+     */
+    private String getVariantsDefinition(GreetingKey key, Locale locale, LocalDate usersDate) {
+
+        if (key != GreetingKey.TIME_INSENSITIVE && holidayCalendar.getGreeting(locale, usersDate) != null) {
+            return null;
+        }
+        return catalog.getSnapshotSiblingText(locale, key.getCatalogKey(), key.getVariantsKey());
+    }
+
+    private String findTimeSensitiveGreeting(TimePeriod timePeriod, Locale locale) {
+
+        String key;
+        switch (timePeriod) {
+            case MORNING:
+                key = GREETING_MORNING_KEY;
+                break;
+            case AFTERNOON:
+                key = GREETING_AFTERNOON_KEY;
+                break;
+            case EVENING:
+                key = GREETING_EVENING_KEY;
+                break;
+            default:
+                key = GREETING_GENERAL_TIMESENSITIVE_KEY;
+                break;
+        }
+
+        String greeting = catalog.getText(locale, key);
+        if (greeting == null) {
+            Log.warn("Specific greeting text not available (in time sensitive operation mode) for the time period: {}. Trying to find general greeting text.", timePeriod);
+            greeting = findGreeting(GREETING_GENERAL_TIMESENSITIVE_KEY, locale);
+        }
+        return greeting;
+    }
+
+    private String findGreeting(String key, Locale locale) {
+
+        String greeting = catalog.getText(locale, key);
+        if (greeting == null) {
+            String errorText = messageTemplates.format(GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, null, locale.getLanguage());
+            Log.error(errorText);
+            throw new LanguageNotSupportedException(errorText);
+        }
+        return greeting;
+    }
+}
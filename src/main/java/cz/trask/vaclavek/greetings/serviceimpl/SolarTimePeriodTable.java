@@ -0,0 +1,142 @@
+package cz.trask.vaclavek.greetings.serviceimpl;
+
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * {@link TimePeriod}s of the day following the local sunrise and sunset.
+ * <p>
+ * Solar noon and the half of the day length are evaluated once for every day of the year and every 1 degree<br>
+ * latitude band by the NOAA solar position approximation and held in the {@code short} arrays (about 130 kB),<br>
+ * so the period of the user's time is resolved by the table lookup and a few integer comparisons.<br>
+ * All times are the minutes of the day in the local mean solar time.
+ * <p>
+ * Periods of the day:
+ * <ul>
+ *   <li>MORNING from the sunrise to the solar noon</li>
+ *   <li>AFTERNOON from the solar noon to one hour before the sunset</li>
+ *   <li>EVENING from one hour before the sunset to three hours after the sunset</li>
+ *   <li>GENERAL_PURPOSE during the rest of the night</li>
+ * </ul>
+ * The boundaries are kept within the limits of the {@code *_EARLIEST} and {@code *_LATEST} constants, so there is<br>
+ * the morning and the evening also during the polar day and the polar night.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+final class SolarTimePeriodTable
+{
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final int DAYS_PER_YEAR = 366;
+
+    /**
+     * Latitude bands of 1 degree, from -90 to 90
+     */
+    private static final int LATITUDE_BANDS = 181;
+
+    /**
+     * Zenith of the sunrise and sunset, including the atmospheric refraction and the size of the solar disc
+     */
+    private static final double SUNRISE_ZENITH = Math.toRadians(90.833);
+
+    // limits of the period boundaries, minutes of the day
+    private static final int MORNING_EARLIEST = 3 * 60;
+    private static final int MORNING_LATEST = 9 * 60;
+    private static final int EVENING_EARLIEST = 16 * 60;
+    private static final int EVENING_LATEST = 22 * 60;
+    private static final int NIGHT_EARLIEST = 21 * 60;
+    private static final int NIGHT_LATEST = MINUTES_PER_DAY;
+
+    private static final int EVENING_BEFORE_SUNSET = 60;
+    private static final int NIGHT_AFTER_SUNSET = 3 * 60;
+
+    /**
+     * Minute of the solar noon, indexed by the day of the year - 1
+     */
+    private static final short[] SOLAR_NOON = new short[DAYS_PER_YEAR];
+
+    /**
+     * Half of the day length in minutes, indexed by the latitude band * {@code DAYS_PER_YEAR} + day of the year - 1.<br>
+     * 0 during the polar night, half of the day during the polar day.
+     */
+    private static final short[] HALF_DAY = new short[LATITUDE_BANDS * DAYS_PER_YEAR];
+
+    static {
+        for (int day = 0; day < DAYS_PER_YEAR; day++) {
+            double fractionalYear = 2 * Math.PI / 365 * day;
+            double declination = declination(fractionalYear);
+            SOLAR_NOON[day] = (short) Math.round(MINUTES_PER_DAY / 2 - equationOfTime(fractionalYear));
+
+            for (int band = 0; band < LATITUDE_BANDS; band++) {
+                double latitude = Math.toRadians(band - 90);
+                double cosHourAngle = Math.cos(SUNRISE_ZENITH) / (Math.cos(latitude) * Math.cos(declination))
+                                      - Math.tan(latitude) * Math.tan(declination);
+                int halfDay;
+                if (Double.isNaN(cosHourAngle) || cosHourAngle >= 1) {
+                    halfDay = 0;
+                } else if (cosHourAngle <= -1) {
+                    halfDay = MINUTES_PER_DAY / 2;
+                } else {
+                    halfDay = (int) Math.round(Math.toDegrees(Math.acos(cosHourAngle)) * 4);
+                }
+                HALF_DAY[band * DAYS_PER_YEAR + day] = (short) halfDay;
+            }
+        }
+    }
+
+
+    private SolarTimePeriodTable() {
+    }
+
+    /**
+     * @param solarMinute - minute of the day in the local mean solar time
+     * @param latitude - latitude in degrees, -90 to 90
+     * @param dayOfYear - day of the year, 1 to 366
+     * @return {@link TimePeriod} of the minute
+     */
+    static TimePeriod getTimePeriod(int solarMinute, double latitude, int dayOfYear) {
+
+        int band = (int) Math.round(latitude) + 90;
+        int noon = SOLAR_NOON[dayOfYear - 1];
+        int halfDay = HALF_DAY[band * DAYS_PER_YEAR + dayOfYear - 1];
+
+        if (solarMinute < clamp(noon - halfDay, MORNING_EARLIEST, MORNING_LATEST)) {
+            return TimePeriod.GENERAL_PURPOSE;
+        }
+        if (solarMinute < noon) {
+            return TimePeriod.MORNING;
+        }
+        int sunset = noon + halfDay;
+        if (solarMinute < clamp(sunset - EVENING_BEFORE_SUNSET, EVENING_EARLIEST, EVENING_LATEST)) {
+            return TimePeriod.AFTERNOON;
+        }
+        if (solarMinute < clamp(sunset + NIGHT_AFTER_SUNSET, NIGHT_EARLIEST, NIGHT_LATEST)) {
+            return TimePeriod.EVENING;
+        }
+        return TimePeriod.GENERAL_PURPOSE;
+    }
+
+    private static int clamp(int minute, int min, int max) {
+        return Math.max(min, Math.min(max, minute));
+    }
+
+    /**
+     * @return declination of the Sun in radians
+     */
+    private static double declination(double fractionalYear) {
+
+        double g = fractionalYear;
+        return 0.006918 - 0.399912 * Math.cos(g) + 0.070257 * Math.sin(g) - 0.006758 * Math.cos(2 * g)
+               + 0.000907 * Math.sin(2 * g) - 0.002697 * Math.cos(3 * g) + 0.00148 * Math.sin(3 * g);
+    }
+
+    /**
+     * @return difference between the apparent and the mean solar time in minutes
+     */
+    private static double equationOfTime(double fractionalYear) {
+
+        double g = fractionalYear;
+        return 229.18 * (0.000075 + 0.001868 * Math.cos(g) - 0.032077 * Math.sin(g)
+                         - 0.014615 * Math.cos(2 * g) - 0.040849 * Math.sin(2 * g));
+    }
+}
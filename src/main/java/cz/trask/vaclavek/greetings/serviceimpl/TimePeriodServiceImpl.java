@@ -9,6 +9,9 @@ import org.springframework.stereotype.Service;
 
 import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
 import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.service.UsersLocation;
+import cz.trask.vaclavek.greetings.tracing.PipelineStage;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
 
 /**
  * Implementation of the {@link TimePeriodService}
@@ -18,6 +21,10 @@ import cz.trask.vaclavek.greetings.service.TimePeriodService;
  * These constant values are then used to evaluate the {@code TimePeriod}<br>
  * of the 'usersTime' inserted as input parameter to {@link #getTimePeriod(String)}<br>
  * method.<br>
+ * The constants are evaluated only once into a table of the {@code TimePeriod} values<br>
+ * for every minute of the day.<br>
+ * Time periods following the local sunrise and sunset of the {@link UsersLocation} are resolved by the<br>
+ * precomputed {@link SolarTimePeriodTable}.<br>
  * TODO Would be better to define such constant values in a configuration file.
  * 
  * @author Michal Vaclavek
@@ -45,50 +52,150 @@ public class TimePeriodServiceImpl implements TimePeriodService
     private static final String EVENING_TIME_FROM = "17:00";
     private static final String EVENING_TIME_TO = "21:59";
     
+    /**
+     * Number of minutes of the day
+     */
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    
     /**
      * Formatter of the usersTime - from String to LocalTime
      */
     private static DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
     
+    /**
+     * {@link TimePeriod} valid for every minute of the day, indexed by the minute of the day.<br>
+     * Evaluated once from the time string constants above, so the period of any time is just an array lookup.
+     */
+    private static final TimePeriod[] MINUTE_TABLE = createMinuteTable();
+    
+    /**
+     * Minute of the day, when the {@link TimePeriod} valid in the indexed minute of the day is replaced by the next one.
+     */
+    private static final int[] NEXT_PERIOD_START_TABLE = createNextPeriodStartTable(MINUTE_TABLE);
+    
     /**
      * {@inheritDoc}
      */
     @Override
     public TimePeriod getTimePeriod(String usersTime) {
         
-        if (isInTimeInterval(usersTime, MORNING_TIME_FROM, MORNING_TIME_TO)) {
-            return TimePeriod.MORNING;
+        long traceStart = StageTracer.start();
+        try {
+            return getTimePeriod(parseUsersTime(usersTime));
+        } finally {
+            StageTracer.stop(PipelineStage.TIME_PERIOD, traceStart);
         }
-        if (isInTimeInterval(usersTime, AFTERNOON_TIME_FROM, AFTERNOON_TIME_TO)) {
-            return TimePeriod.AFTERNOON;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TimePeriod getTimePeriod(String usersTime, UsersLocation location) {
+        
+        if (location == null) {
+            return getTimePeriod(usersTime);
         }
-        if (isInTimeInterval(usersTime, EVENING_TIME_FROM, EVENING_TIME_TO)) {
-            return TimePeriod.EVENING;
+        long traceStart = StageTracer.start();
+        try {
+            int solarMinute = Math.floorMod(minuteOfDay(parseUsersTime(usersTime)) + location.getSolarOffsetMinutes(), MINUTES_PER_DAY);
+            return SolarTimePeriodTable.getTimePeriod(solarMinute, location.getLatitude(), location.getDate().getDayOfYear());
+        } finally {
+            StageTracer.stop(PipelineStage.TIME_PERIOD, traceStart);
         }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TimePeriod getTimePeriod(LocalTime usersTime) {
+        return MINUTE_TABLE[minuteOfDay(usersTime)];
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LocalTime getNextTimePeriodStart(LocalTime usersTime) {
+        return LocalTime.ofSecondOfDay(NEXT_PERIOD_START_TABLE[minuteOfDay(usersTime)] * 60L);
+    }
+    
+    private static LocalTime parseUsersTime(String usersTime) {
+        
+        try {
+            return LocalTime.parse(usersTime, timeFormatter);
+        } catch (Exception ex) {
+            Log.error("Failed to parse the usersTime={} in HH:mm format", usersTime);
+            throw new InvalidParameterException("usersTime", usersTime);
+        }
+    }
+    
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+    
+    /**
+     * Evaluates {@link TimePeriod} of every minute of the day according the time string constants.
+     * 
+     * @return array of {@link TimePeriod} values indexed by the minute of the day
+     */
+    private static TimePeriod[] createMinuteTable() {
+        
+        TimePeriod[] table = new TimePeriod[MINUTES_PER_DAY];
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            LocalTime time = LocalTime.ofSecondOfDay(minute * 60L);
             
-        return TimePeriod.GENERAL_PURPOSE;
+            if (isInTimeInterval(time, MORNING_TIME_FROM, MORNING_TIME_TO)) {
+                table[minute] = TimePeriod.MORNING;
+            } else if (isInTimeInterval(time, AFTERNOON_TIME_FROM, AFTERNOON_TIME_TO)) {
+                table[minute] = TimePeriod.AFTERNOON;
+            } else if (isInTimeInterval(time, EVENING_TIME_FROM, EVENING_TIME_TO)) {
+                table[minute] = TimePeriod.EVENING;
+            } else {
+                table[minute] = TimePeriod.GENERAL_PURPOSE;
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Evaluates, for every minute of the day, the minute when the next {@link TimePeriod} starts.<br>
+     * If the whole day is covered by one {@link TimePeriod}, the next start is the midnight.
+     * 
+     * @param minuteTable - {@link TimePeriod} values indexed by the minute of the day
+     * @return array of the next period start minutes indexed by the minute of the day
+     */
+    private static int[] createNextPeriodStartTable(TimePeriod[] minuteTable) {
+        
+        int[] table = new int[MINUTES_PER_DAY];
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            table[minute] = 0;
+            for (int offset = 1; offset < MINUTES_PER_DAY; offset++) {
+                int candidate = (minute + offset) % MINUTES_PER_DAY;
+                if (minuteTable[candidate] != minuteTable[minute]) {
+                    table[minute] = candidate;
+                    break;
+                }
+            }
+        }
+        return table;
     }
     
     /**
      * Determines if the {@code checkedTime} is in the time interval defined by {@code timeIntervalFrom} and  {@code timeIntervalTo}<br>
      * Both {@code timeIntervalFrom} and {@code timeIntervalTo} times are considered to be part of the interval.
      * 
-     * @param checkedTime - time string in "HH:mm" format to be checked if it is in time interval defined by {@code timeIntervalFrom} and  {@code timeIntervalTo}
-     * @param timeIntervalFrom - lower time limit of the interval, included in the interval
-     * @param timeIntervalTo - higher time limit of the interval, included in the interval
+     * @param checkedTime - time to be checked if it is in time interval defined by {@code timeIntervalFrom} and  {@code timeIntervalTo}
+     * @param timeIntervalFrom - lower time limit of the interval in "HH:mm" format, included in the interval
+     * @param timeIntervalTo - higher time limit of the interval in "HH:mm" format, included in the interval
      * @return true if the {@code checkedTime} is within the correctly defined time interval. False in all other cases.
      */
-    private boolean isInTimeInterval(String checkedTime, String timeIntervalFrom, String timeIntervalTo) {
+    private static boolean isInTimeInterval(LocalTime checkedTime, String timeIntervalFrom, String timeIntervalTo) {
         
         boolean retVal = false;
-        try {
-            if (LocalTime.parse(timeIntervalFrom).isBefore(LocalTime.parse(timeIntervalTo))) {
-                LocalTime usersDateTime = LocalTime.parse(checkedTime, timeFormatter);
-                retVal = usersDateTime.isAfter( LocalTime.parse(timeIntervalFrom, timeFormatter).minusMinutes(1)) && usersDateTime.isBefore( LocalTime.parse(timeIntervalTo, timeFormatter).plusMinutes(1));
-            }
-        } catch (Exception ex) {
-            Log.error("Failed to found if the checkedTime={} is part of the from {} to {} interval", checkedTime, timeIntervalFrom, timeIntervalTo);
-            throw new InvalidParameterException("usersTime", checkedTime);
+        if (LocalTime.parse(timeIntervalFrom).isBefore(LocalTime.parse(timeIntervalTo))) {
+            retVal = checkedTime.isAfter( LocalTime.parse(timeIntervalFrom, timeFormatter).minusMinutes(1)) && checkedTime.isBefore( LocalTime.parse(timeIntervalTo, timeFormatter).plusMinutes(1));
         }
         return retVal;
     }
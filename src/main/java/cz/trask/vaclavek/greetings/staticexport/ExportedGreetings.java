@@ -0,0 +1,214 @@
+package cz.trask.vaclavek.greetings.staticexport;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * One generation of the pre-rendered greetings, rendered for one version of the greetings catalog.
+ * <p>
+ * Every greeting of every exported locale is one file of the generation's directory, the files are kept open<br>
+ * while the generation is used, so the responses are transferred without opening them. Files are indexed by<br>
+ * the locale and by the {@link GreetingKey} ordinal, the key of the time sensitive greeting is found by the table<br>
+ * of the {@link TimePeriod}s of every minute of the day.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class ExportedGreetings implements AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(ExportedGreetings.class);
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final int KEYS_COUNT = GreetingKey.values().length;
+
+    private final String catalogVersion;
+
+    private final Path directory;
+
+    /**
+     * Time periods of every minute of the day
+     */
+    private final TimePeriod[] minuteTable;
+
+    /**
+     * Indexes of the exported locales keyed by their {@code lang_COUNTRY_variant} string
+     */
+    private final Map<String, Integer> localeIndexes;
+
+    /**
+     * Files of the greetings indexed by {@code localeIndex * KEYS_COUNT + GreetingKey.ordinal()},<br>
+     * null if the greeting cannot be pre-rendered
+     */
+    private final ExportedFile[] files;
+
+
+    /**
+     * @param catalogVersion - version of the greetings catalog rendered into the files
+     * @param directory - directory of the files
+     * @param minuteTable - time periods of every minute of the day
+     * @param localeIndexes - indexes of the exported locales keyed by their {@code lang_COUNTRY_variant} string
+     * @param files - files of the greetings indexed by {@code localeIndex * GreetingKey.values().length + GreetingKey.ordinal()}
+     */
+    ExportedGreetings(String catalogVersion, Path directory, TimePeriod[] minuteTable, Map<String, Integer> localeIndexes, ExportedFile[] files) {
+        super();
+        this.catalogVersion = catalogVersion;
+        this.directory = directory;
+        this.minuteTable = minuteTable;
+        this.localeIndexes = localeIndexes;
+        this.files = files;
+    }
+
+    /**
+     * Finds the time sensitive greeting of the most specific exported locale:<br>
+     * {@code lang_COUNTRY_variant} -> {@code lang_COUNTRY} -> {@code lang}.
+     *
+     * @param locale - requested locale
+     * @param minuteOfDay - user's time as the minute of the day
+     * @return file of the greeting, or null if it is not pre-rendered
+     */
+    public ExportedFile findTimeSensitive(Locale locale, int minuteOfDay) {
+
+        if (minuteOfDay < 0 || minuteOfDay >= MINUTES_PER_DAY) {
+            return null;
+        }
+        return find(locale, GreetingKey.of(minuteTable[minuteOfDay]));
+    }
+
+    /**
+     * @param locale - requested locale
+     * @return file of the time insensitive greeting of the most specific exported locale, or null if it is not pre-rendered
+     */
+    public ExportedFile findTimeInsensitive(Locale locale) {
+        return find(locale, GreetingKey.TIME_INSENSITIVE);
+    }
+
+    /**
+     * @param minuteOfDay - user's time as the minute of the day, 0 to 1439
+     * @return time period of the minute
+     */
+    public TimePeriod getTimePeriod(int minuteOfDay) {
+        return minuteTable[minuteOfDay];
+    }
+
+    public String getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return number of the pre-rendered files
+     */
+    public int getFilesCount() {
+
+        int count = 0;
+        for (ExportedFile file : files) {
+            if (file != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Closes the files, they are not deleted.
+     */
+    @Override
+    public void close() {
+
+        for (ExportedFile file : files) {
+            if (file != null) {
+                try {
+                    file.getChannel().close();
+                } catch (IOException ex) {
+                    Log.warn("Failed to close the exported greeting {}: {}", file.getFileName(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the files of the generation.
+     */
+    void delete() {
+
+        close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ex) {
+            Log.warn("Failed to delete the exported greetings {}: {}", directory, ex.getMessage());
+        }
+    }
+
+    private ExportedFile find(Locale locale, GreetingKey key) {
+
+        String language = locale.getLanguage();
+        String country = locale.getCountry();
+        String variant = locale.getVariant();
+
+        Integer localeIndex = null;
+        if (!variant.isEmpty()) {
+            localeIndex = localeIndexes.get(localeKey(language, country, variant));
+        }
+        if (localeIndex == null && !country.isEmpty()) {
+            localeIndex = localeIndexes.get(localeKey(language, country, ""));
+        }
+        if (localeIndex == null) {
+            localeIndex = localeIndexes.get(localeKey(language, "", ""));
+        }
+        return (localeIndex == null) ? null : files[localeIndex * KEYS_COUNT + key.ordinal()];
+    }
+
+    static String localeKey(String language, String country, String variant) {
+        return language + '_' + country + '_' + variant;
+    }
+
+    /**
+     * Pre-rendered response body
+     */
+    public static final class ExportedFile
+    {
+        private final String fileName;
+        private final FileChannel channel;
+        private final long length;
+
+        ExportedFile(String fileName, FileChannel channel, long length) {
+            this.fileName = fileName;
+            this.channel = channel;
+            this.length = length;
+        }
+
+        /**
+         * @return absolute path of the file
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return channel of the file, shared by all requests, so only the positional transfers can be used
+         */
+        public FileChannel getChannel() {
+            return channel;
+        }
+
+        public long getLength() {
+            return length;
+        }
+    }
+}
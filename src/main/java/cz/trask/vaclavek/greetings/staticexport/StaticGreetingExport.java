@@ -0,0 +1,260 @@
+package cz.trask.vaclavek.greetings.staticexport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.staticexport.ExportedGreetings.ExportedFile;
+
+/**
+ * Export of all greetings of the catalog pre-rendered into the files.
+ * <p>
+ * The answer space of the greetings requests without the optional parameters is tiny: the locales of the catalog<br>
+ * times the {@link GreetingKey}s. Every greeting is rendered into its own file {@code <version>/<locale>/<key>.txt}<br>
+ * of the export directory, whenever the version of the catalog changes. The locales of the holiday calendar are<br>
+ * exported too, so the holiday greetings of the locales without own catalog are served correctly.
+ * <p>
+ * Greetings having the weighted variants are not rendered, as their response is selected per request.<br>
+ * The catalog version is checked and the files are rendered by the background thread started by {@link #startRefresh(Duration)},<br>
+ * the requests only read the {@link #getCurrent() current} generation, which is replaced when the new one is complete.<br>
+ * The replaced generation is deleted after {@code deleteDelay}, so the responses still being sent from its files<br>
+ * are not broken by the catalog change.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class StaticGreetingExport implements AutoCloseable
+{
+    private static final Logger Log = LoggerFactory.getLogger(StaticGreetingExport.class);
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final GreetingsService greetingsService;
+
+    private final TimePeriodService timePeriodService;
+
+    private final HolidayCalendar holidayCalendar;
+
+    private final Path directory;
+
+    private final boolean deleteDirectory;
+
+    private final long deleteDelayMillis;
+
+    private final ScheduledExecutorService executor;
+
+    private volatile ExportedGreetings current;
+
+    /**
+     * Replaced generations waiting for their deletion
+     */
+    private final List<ExportedGreetings> replaced = new ArrayList<>();
+
+
+    /**
+     * @param greetingsService - service rendering the greetings
+     * @param timePeriodService - service of the time periods of the day
+     * @param holidayCalendar - holiday greetings, its locales are exported too
+     * @param directory - directory of the exported files
+     * @param deleteDirectory - true if the {@code directory} is deleted when the export is closed (temporary directory)
+     * @param deleteDelay - time the replaced generation of the files is kept for the responses still being sent
+     */
+    public StaticGreetingExport(GreetingsService greetingsService, TimePeriodService timePeriodService, HolidayCalendar holidayCalendar,
+                                Path directory, boolean deleteDirectory, Duration deleteDelay) {
+        super();
+        this.greetingsService = greetingsService;
+        this.timePeriodService = timePeriodService;
+        this.holidayCalendar = holidayCalendar;
+        this.directory = directory;
+        this.deleteDirectory = deleteDirectory;
+        this.deleteDelayMillis = deleteDelay.toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "greetings-static-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return greetings of the current catalog version, null if they are not exported yet
+     */
+    public ExportedGreetings getCurrent() {
+        return current;
+    }
+
+    /**
+     * Starts periodic check of the catalog version, the greetings are exported again when it changes.<br>
+     * Failed export is logged and the current generation is kept.
+     *
+     * @param interval - interval of the catalog version checks
+     */
+    public void startRefresh(Duration interval) {
+
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException ex) {
+                Log.error("Failed to export the greetings, previous export is used: {}", ex.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Renders the greetings into the new generation of the files, if the catalog version has changed since the last export.
+     *
+     * @return greetings of the current catalog version
+     * @throws UncheckedIOException if the files cannot be written
+     */
+    public synchronized ExportedGreetings refresh() {
+
+        String catalogVersion = greetingsService.getCatalogVersion();
+        ExportedGreetings exported = current;
+        if (exported != null && exported.getCatalogVersion().equals(catalogVersion)) {
+            return exported;
+        }
+
+        long start = System.nanoTime();
+        try {
+            exported = render(catalogVersion);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to export the greetings into " + directory, ex);
+        }
+        ExportedGreetings replacedGeneration = current;
+        current = exported;
+        if (replacedGeneration != null) {
+            replaced.add(replacedGeneration);
+            try {
+                executor.schedule(() -> deleteReplaced(replacedGeneration), deleteDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                // closed, deleted by the close()
+            }
+        }
+        Log.info("Greetings of the catalog version {} exported into {}: {} files in {} ms", catalogVersion, exported.getDirectory(),
+                 exported.getFilesCount(), (System.nanoTime() - start) / 1_000_000);
+        return exported;
+    }
+
+    /**
+     * Stops the background thread, closes and deletes all exported files and the temporary export directory.
+     */
+    @Override
+    public synchronized void close() {
+
+        executor.shutdownNow();
+        for (ExportedGreetings generation : replaced) {
+            generation.delete();
+        }
+        replaced.clear();
+        if (current != null) {
+            current.delete();
+            current = null;
+        }
+        if (deleteDirectory) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException ex) {
+                Log.warn("Failed to delete the greetings export directory {}: {}", directory, ex.getMessage());
+            }
+        }
+    }
+
+    private synchronized void deleteReplaced(ExportedGreetings generation) {
+        if (replaced.remove(generation)) {
+            generation.delete();
+        }
+    }
+
+    private ExportedGreetings render(String catalogVersion) throws IOException {
+
+        Path versionDirectory = Files.createDirectories(directory.resolve(fileName(catalogVersion) + "-" + System.nanoTime()));
+
+        TimePeriod[] minuteTable = new TimePeriod[MINUTES_PER_DAY];
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            minuteTable[minute] = timePeriodService.getTimePeriod(LocalTime.of(minute / 60, minute % 60));
+        }
+
+        Set<Locale> locales = new LinkedHashSet<>(greetingsService.getCatalogLocales());
+        locales.addAll(holidayCalendar.getLocales());
+        locales.remove(Locale.ROOT);
+
+        Map<String, Integer> localeIndexes = new HashMap<>();
+        GreetingKey[] keys = GreetingKey.values();
+        ExportedFile[] files = new ExportedFile[locales.size() * keys.length];
+        ExportedGreetings exported = new ExportedGreetings(catalogVersion, versionDirectory, minuteTable, localeIndexes, files);
+        try {
+            for (Locale locale : locales) {
+                int localeIndex = localeIndexes.size();
+                localeIndexes.put(ExportedGreetings.localeKey(locale.getLanguage(), locale.getCountry(), locale.getVariant()), localeIndex);
+                Path localeDirectory = Files.createDirectories(versionDirectory.resolve(fileName(locale.toString())));
+                for (GreetingKey key : keys) {
+                    String greeting = renderGreeting(key, locale);
+                    if (greeting != null) {
+                        Path file = localeDirectory.resolve(key.name().toLowerCase(Locale.ROOT) + ".txt");
+                        files[localeIndex * keys.length + key.ordinal()] = write(file, greeting);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            exported.delete();
+            throw ex;
+        }
+        return exported;
+    }
+
+    /**
+     * @return greeting of the key, or null if it is not supported or it has the variants
+     */
+    private String renderGreeting(GreetingKey key, Locale locale) {
+
+        if (greetingsService.hasVariants(key, locale)) {
+            return null;
+        }
+        try {
+            return (key == GreetingKey.TIME_INSENSITIVE) ? greetingsService.getTimeInsensitiveGreeting(locale)
+                                                         : greetingsService.getTimeSensitiveGreeting(TimePeriod.valueOf(key.name()), locale);
+        } catch (LanguageNotSupportedException ex) {
+            return null;
+        }
+    }
+
+    private static ExportedFile write(Path file, String greeting) throws IOException {
+
+        byte[] body = greeting.getBytes(StandardCharsets.UTF_8);
+        Files.write(file, body);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new ExportedFile(file.toAbsolutePath().toString(), channel, body.length);
+    }
+
+    /**
+     * @return the name with the characters other than letters, digits, '.', '_' and '-' replaced by '_'
+     */
+    private static String fileName(String name) {
+        return name.isEmpty() ? "_" : name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
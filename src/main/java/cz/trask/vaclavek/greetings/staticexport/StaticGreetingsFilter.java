@@ -0,0 +1,219 @@
+package cz.trask.vaclavek.greetings.staticexport;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import cz.trask.vaclavek.greetings.accesslog.AccessLogFilter;
+import cz.trask.vaclavek.greetings.controller.GreetingsController;
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathFilter;
+import cz.trask.vaclavek.greetings.staticexport.ExportedGreetings.ExportedFile;
+
+/**
+ * Serves the {@code /api/greeting/timesensitive} and {@code /api/greeting/timeinsensitive} GET requests<br>
+ * by the greetings pre-rendered by the {@link StaticGreetingExport}.
+ * <p>
+ * The file of the response is found by the {@code lang} parameter and by the minute of the day of the {@code usersTime}<br>
+ * parameter, without calling any service. Its content is transferred by the container's sendfile, if the container<br>
+ * supports it (Tomcat NIO connector), so the body is copied by the kernel from the page cache to the socket.<br>
+ * Otherwise it is transferred by the {@link java.nio.channels.FileChannel#transferTo} into the response stream.
+ * <p>
+ * Only the valid requests of the exported greetings are served, all other requests are passed to the following<br>
+ * {@link GreetingsFastPathFilter} or {@link GreetingsController} unchanged: requests with any optional parameter<br>
+ * ({@code name}, {@code lat}, {@code lon}, {@code date}, {@code utcOffset}, {@code clientId}), invalid requests,<br>
+ * requests of the locales without the exported greetings and requests accepting other content than {@code text/plain}.<br>
+ * The served greetings are neither logged nor recorded as Flight Recorder events, same as any static content.
+ * <p>
+ * The requests only read the current generation of the export, the greetings are exported again by the background thread<br>
+ * of the {@link StaticGreetingExport} when the catalog version changes, so no request waits for the rendering.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class StaticGreetingsFilter extends OncePerRequestFilter
+{
+    private static final String TEXT_PLAIN_UTF8 = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
+
+    /*
+     * Request attributes of the Tomcat's sendfile support
+     */
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Parameters changing the greeting, requests with any of them are not served by the exported greetings
+     */
+    private static final String[] DYNAMIC_PARAMETERS = {"name", "lat", "lon", "date", "utcOffset", "clientId"};
+
+    // ****** INSTANCE FIELDS ******
+
+    private final StaticGreetingExport export;
+
+    private volatile boolean enabled;
+
+    private final LongAdder served = new LongAdder();
+
+    private final LongAdder sentByContainer = new LongAdder();
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param export - export of the pre-rendered greetings
+     * @param enabled - true if the requests are served by the exported greetings, false if all requests are passed on
+     */
+    public StaticGreetingsFilter(StaticGreetingExport export, boolean enabled) {
+        super();
+        this.export = export;
+        setEnabled(enabled);
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches the serving of the exported greetings on or off at runtime, the greetings are exported when it is switched on.
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled) {
+            export.refresh();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return number of the requests served by the exported greetings
+     */
+    public long getServed() {
+        return served.sum();
+    }
+
+    /**
+     * @return number of the requests served by the exported greetings sent by the container's sendfile
+     */
+    public long getSentByContainer() {
+        return sentByContainer.sum();
+    }
+
+    // ****** INSTANCE PROTECTED METHODS ******
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        ExportedFile file = enabled ? findFile(request) : null;
+        if (file == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(TEXT_PLAIN_UTF8);
+        response.setContentLengthLong(file.getLength());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getFileName());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, Long.valueOf(0));
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, Long.valueOf(file.getLength()));
+            sentByContainer.increment();
+        } else {
+            WritableByteChannel body = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < file.getLength()) {
+                position += file.getChannel().transferTo(position, file.getLength() - position, body);
+            }
+        }
+        served.increment();
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    /**
+     * @return exported greeting of the request, or null if the request cannot be served by the exported greetings
+     */
+    private ExportedFile findFile(HttpServletRequest request) {
+
+        if (!"GET".equals(request.getMethod()) || !acceptsTextPlain(request.getHeader(HttpHeaders.ACCEPT))) {
+            return null;
+        }
+        for (String parameter : DYNAMIC_PARAMETERS) {
+            String value = request.getParameter(parameter);
+            if (value != null && !value.isEmpty()) {
+                return null;
+            }
+        }
+        Locale locale = parseLocale(request.getParameter("lang"));
+        if (locale == null) {
+            return null;
+        }
+
+        ExportedGreetings exported = export.getCurrent();
+        if (exported == null) {
+            return null;
+        }
+        if (!request.getRequestURI().endsWith("/timesensitive")) {
+            return exported.findTimeInsensitive(locale);
+        }
+        int minuteOfDay = parseMinuteOfDay(request.getParameter("usersTime"));
+        ExportedFile file = exported.findTimeSensitive(locale, minuteOfDay);
+        if (file != null) {
+            request.setAttribute(AccessLogFilter.TIME_PERIOD_ATTRIBUTE, exported.getTimePeriod(minuteOfDay));
+        }
+        return file;
+    }
+
+    /**
+     * @return locale of the {@code lang} parameter, or null if it is not set or not valid
+     */
+    private static Locale parseLocale(String lang) {
+
+        if (lang == null || lang.isEmpty()) {
+            return null;
+        }
+        try {
+            return StringUtils.parseLocale(lang);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return minute of the day of the time in the strict "HH:mm" format, or -1 if the time is not valid
+     */
+    private static int parseMinuteOfDay(String usersTime) {
+
+        if (usersTime == null || usersTime.length() != 5 || usersTime.charAt(2) != ':') {
+            return -1;
+        }
+        int hours = digits(usersTime.charAt(0), usersTime.charAt(1));
+        int minutes = digits(usersTime.charAt(3), usersTime.charAt(4));
+        return (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) ? -1 : hours * 60 + minutes;
+    }
+
+    private static int digits(char tens, char units) {
+        return (tens < '0' || tens > '9' || units < '0' || units > '9') ? -1 : (tens - '0') * 10 + (units - '0');
+    }
+
+    /**
+     * @return true if the Spring MVC would write the greeting as {@code text/plain} for the {@code accept} header
+     */
+    private static boolean acceptsTextPlain(String accept) {
+        return accept == null || accept.isEmpty() || "*/*".equals(accept) || accept.startsWith(MediaType.TEXT_PLAIN_VALUE);
+    }
+}
@@ -0,0 +1,40 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+/**
+ * Stages of the greeting request processing pipeline, which are timed by the {@link StageTracer}.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public enum PipelineStage
+{
+    /**
+     * Resolving of the request's locale by {@code LocaleChangeInterceptor} and {@code LocaleResolver}
+     */
+    LOCALE_RESOLUTION,
+    
+    /**
+     * Evaluation of the {@code TimePeriod} by {@code TimePeriodService}
+     */
+    TIME_PERIOD,
+    
+    /**
+     * Lookup of the greeting text in the {@code MessageSource} by {@code GreetingsService}
+     */
+    GREETING_LOOKUP,
+    
+    /**
+     * Conversion of the exception into the error response by {@code RestExceptionHandler}
+     */
+    ERROR_HANDLING,
+    
+    /**
+     * Serialization of the response body by the message converters
+     */
+    RESPONSE_WRITE,
+    
+    /**
+     * Whole request processing from the first to the last interceptor callback
+     */
+    TOTAL
+}
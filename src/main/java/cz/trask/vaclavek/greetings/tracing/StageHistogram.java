@@ -0,0 +1,126 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free histogram of the durations in nanoseconds.
+ * <p>
+ * Durations are counted in log-linear buckets: every power of two range is split into<br>
+ * {@value #SUB_BUCKETS} sub-buckets, so the relative error of the reported percentiles is<br>
+ * at most 1/{@value #SUB_BUCKETS} of the value. Recording is just an index calculation and one atomic increment.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class StageHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    /**
+     * Values lower than this limit have their own bucket
+     */
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    
+    private static final int BUCKETS_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+    
+    private final AtomicLong totalCount = new AtomicLong();
+    
+    private final AtomicLong totalNanos = new AtomicLong();
+    
+    private final AtomicLong maxNanos = new AtomicLong();
+    
+    
+    /**
+     * Records one duration
+     * 
+     * @param nanos - duration in nanoseconds
+     */
+    public void record(long nanos) {
+        
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketIndex(nanos));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+    
+    public long getCount() {
+        return totalCount.get();
+    }
+    
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+    
+    public double getMeanNanos() {
+        long count = totalCount.get();
+        return (count == 0) ? 0 : (double) totalNanos.get() / count;
+    }
+    
+    /**
+     * Returns the upper bound of the bucket containing the requested percentile of the recorded durations.
+     * 
+     * @param percentile - requested percentile in 0 - 100 range
+     * @return duration in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= threshold) {
+                return Math.min(bucketUpperBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+    
+    /**
+     * Clears all recorded durations. Durations recorded concurrently with the reset can be partly lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+    
+    static int bucketIndex(long nanos) {
+        
+        if (nanos < LINEAR_LIMIT) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    static long bucketUpperBound(int index) {
+        
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long lowerBound = (1L << exponent) + ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,206 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lightweight timing of the {@link PipelineStage}s of the greeting request processing.
+ * <p>
+ * Durations are measured by {@link System#nanoTime()}, accumulated per stage in the per-thread context<br>
+ * during the request processing and recorded into the {@link StageHistogram} of the stage when the request is finished.<br>
+ * Nothing is allocated on the request path, the per-thread context is created only once for every thread.
+ * <p>
+ * Only one of the {@code samplingRate} requests is traced. When the tracing is switched off (sampling rate 0),<br>
+ * all the timing methods cost just one volatile read.
+ * <p>
+ * Typical usage in the traced code:
+ * <pre>
+ * long start = StageTracer.start();
+ * try {
+ *     ...
+ * } finally {
+ *     StageTracer.stop(PipelineStage.TIME_PERIOD, start);
+ * }
+ * </pre>
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public final class StageTracer
+{
+    private static final PipelineStage[] STAGES = PipelineStage.values();
+    
+    private static final StageHistogram[] HISTOGRAMS = new StageHistogram[STAGES.length];
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            HISTOGRAMS[i] = new StageHistogram();
+        }
+    }
+    
+    private static final ThreadLocal<TraceContext> CONTEXT = ThreadLocal.withInitial(TraceContext::new);
+    
+    /**
+     * Every n-th request is traced, 0 means tracing switched off, 1 means all requests are traced.
+     */
+    private static volatile int samplingRate = 0;
+    
+    
+    private StageTracer() {
+    }
+    
+    /**
+     * @return current sampling rate. Every n-th request is traced, 0 means tracing is switched off.
+     */
+    public static int getSamplingRate() {
+        return samplingRate;
+    }
+    
+    /**
+     * Sets the sampling rate of the requests tracing.
+     * 
+     * @param rate - every n-th request is traced, 0 switches the tracing off
+     */
+    public static void setSamplingRate(int rate) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("Sampling rate must not be negative: " + rate);
+        }
+        samplingRate = rate;
+    }
+    
+    /**
+     * Starts the request processing tracing. Decides whether the current request is sampled.
+     */
+    public static void beginRequest() {
+        
+        int rate = samplingRate;
+        if (rate == 0) {
+            return;
+        }
+        TraceContext context = CONTEXT.get();
+        context.clear();
+        if (rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0) {
+            context.sampled = true;
+            context.requestStart = System.nanoTime();
+        }
+    }
+    
+    /**
+     * Finishes the request processing tracing and records durations of all stages of the sampled request.
+     */
+    public static void endRequest() {
+        
+        if (samplingRate == 0) {
+            return;
+        }
+        TraceContext context = CONTEXT.get();
+        if (!context.sampled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (context.responseWriteStart != 0) {
+            context.stageNanos[PipelineStage.RESPONSE_WRITE.ordinal()] += now - context.responseWriteStart;
+        }
+        context.stageNanos[PipelineStage.TOTAL.ordinal()] = now - context.requestStart;
+        
+        for (int i = 0; i < STAGES.length; i++) {
+            if (context.stageNanos[i] != 0) {
+                HISTOGRAMS[i].record(context.stageNanos[i]);
+            }
+        }
+        context.clear();
+    }
+    
+    /**
+     * @return true if the current request is traced
+     */
+    public static boolean isSampled() {
+        return samplingRate != 0 && CONTEXT.get().sampled;
+    }
+    
+    /**
+     * Starts timing of the stage.
+     * 
+     * @return start time of the stage or 0 if the current request is not traced
+     */
+    public static long start() {
+        
+        if (samplingRate == 0 || !CONTEXT.get().sampled) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+    
+    /**
+     * Stops timing of the stage and adds its duration to the stage's total of the current request.
+     * 
+     * @param stage - timed stage
+     * @param start - start time returned by {@link #start()}
+     */
+    public static void stop(PipelineStage stage, long start) {
+        
+        if (start == 0) {
+            return;
+        }
+        CONTEXT.get().stageNanos[stage.ordinal()] += System.nanoTime() - start;
+    }
+    
+    /**
+     * Marks the start of the response body serialization. It lasts until the {@link #endRequest()}.
+     */
+    public static void markResponseWrite() {
+        
+        long start = start();
+        if (start != 0) {
+            CONTEXT.get().responseWriteStart = start;
+        }
+    }
+    
+    /**
+     * @param stage - requested stage
+     * @return histogram of the durations of the {@code stage}
+     */
+    public static StageHistogram getHistogram(PipelineStage stage) {
+        return HISTOGRAMS[stage.ordinal()];
+    }
+    
+    /**
+     * @return histograms of all stages
+     */
+    public static Map<PipelineStage, StageHistogram> getHistograms() {
+        Map<PipelineStage, StageHistogram> histograms = new EnumMap<>(PipelineStage.class);
+        for (PipelineStage stage : STAGES) {
+            histograms.put(stage, HISTOGRAMS[stage.ordinal()]);
+        }
+        return histograms;
+    }
+    
+    /**
+     * Clears histograms of all stages
+     */
+    public static void reset() {
+        for (StageHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+    
+    /**
+     * Per-thread state of the traced request
+     */
+    private static final class TraceContext
+    {
+        private boolean sampled;
+        private long requestStart;
+        private long responseWriteStart;
+        private final long[] stageNanos = new long[STAGES.length];
+        
+        private void clear() {
+            sampled = false;
+            requestStart = 0;
+            responseWriteStart = 0;
+            for (int i = 0; i < stageNanos.length; i++) {
+                stageNanos[i] = 0;
+            }
+        }
+    }
+}
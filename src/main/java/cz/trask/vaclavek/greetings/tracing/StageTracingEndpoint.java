@@ -0,0 +1,63 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admin endpoint exposing histograms of the {@link PipelineStage} durations measured by the {@link StageTracer}.
+ * <p>
+ * <ul>
+ *   <li>{@code GET /actuator/pipelinestages} - returns sampling rate and percentiles of all stages in microseconds</li>
+ *   <li>{@code POST /actuator/pipelinestages} with JSON body {@code {"samplingRate": 10}} - changes the sampling rate, 0 switches tracing off</li>
+ *   <li>{@code DELETE /actuator/pipelinestages} - clears all histograms</li>
+ * </ul>
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+@Component
+@Endpoint(id = "pipelinestages")
+public class StageTracingEndpoint
+{
+    @ReadOperation
+    public Map<String, Object> stages() {
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("samplingRate", StageTracer.getSamplingRate());
+        
+        Map<String, Object> stages = new LinkedHashMap<>();
+        StageTracer.getHistograms().forEach((stage, histogram) -> stages.put(stage.name(), toMicros(histogram)));
+        result.put("stages", stages);
+        return result;
+    }
+    
+    @WriteOperation
+    public Map<String, Object> setSamplingRate(int samplingRate) {
+        StageTracer.setSamplingRate(samplingRate);
+        return stages();
+    }
+    
+    @DeleteOperation
+    public void reset() {
+        StageTracer.reset();
+    }
+    
+    private static Map<String, Object> toMicros(StageHistogram histogram) {
+        
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", histogram.getCount());
+        values.put("meanMicros", histogram.getMeanNanos() / 1000.0);
+        values.put("p50Micros", histogram.getPercentileNanos(50) / 1000.0);
+        values.put("p90Micros", histogram.getPercentileNanos(90) / 1000.0);
+        values.put("p99Micros", histogram.getPercentileNanos(99) / 1000.0);
+        values.put("p999Micros", histogram.getPercentileNanos(99.9) / 1000.0);
+        values.put("maxMicros", histogram.getMaxNanos() / 1000.0);
+        return values;
+    }
+}
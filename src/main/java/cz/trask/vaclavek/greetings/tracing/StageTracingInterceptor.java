@@ -0,0 +1,32 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Interceptor marking the beginning and the end of the traced request processing.<br>
+ * Has to be registered as the first interceptor, so the time spent in other interceptors is traced, too.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class StageTracingInterceptor implements AsyncHandlerInterceptor
+{
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StageTracer.beginRequest();
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        StageTracer.endRequest();
+    }
+    
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StageTracer.endRequest();
+    }
+}
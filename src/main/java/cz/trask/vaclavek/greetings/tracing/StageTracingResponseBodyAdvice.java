@@ -0,0 +1,33 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Marks the start of the {@link PipelineStage#RESPONSE_WRITE} stage just before the response body<br>
+ * of the controller or the exception handler is serialized by the message converter.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+@ControllerAdvice
+public class StageTracingResponseBodyAdvice implements ResponseBodyAdvice<Object>
+{
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return StageTracer.isSampled();
+    }
+    
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        StageTracer.markResponseWrite();
+        return body;
+    }
+}
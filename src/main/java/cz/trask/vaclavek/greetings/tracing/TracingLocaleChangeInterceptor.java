@@ -0,0 +1,27 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.i18n.LocaleChangeInterceptor;
+
+/**
+ * {@link LocaleChangeInterceptor} timing its work as the {@link PipelineStage#LOCALE_RESOLUTION} stage.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class TracingLocaleChangeInterceptor extends LocaleChangeInterceptor
+{
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws ServletException {
+        
+        long start = StageTracer.start();
+        try {
+            return super.preHandle(request, response, handler);
+        } finally {
+            StageTracer.stop(PipelineStage.LOCALE_RESOLUTION, start);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.i18n.AbstractLocaleResolver;
+
+/**
+ * Locale resolver keeping the locale set by the {@code LocaleChangeInterceptor} for the current request only.
+ * <p>
+ * Unlike the {@link TracingSessionLocaleResolver} it does not create HTTP session for every request, so it is used<br>
+ * when the sessions are switched off by the {@code greetings.sessions.enabled=false} property. The greetings requests<br>
+ * always carry the {@code lang} parameter, so the locale remembered in the session is never needed by them.<br>
+ * Locale resolution is timed as the {@link PipelineStage#LOCALE_RESOLUTION} stage.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class TracingRequestLocaleResolver extends AbstractLocaleResolver
+{
+    /**
+     * Name of the request attribute holding the locale of the request
+     */
+    public static final String LOCALE_REQUEST_ATTRIBUTE_NAME = TracingRequestLocaleResolver.class.getName() + ".LOCALE";
+
+    @Override
+    public Locale resolveLocale(HttpServletRequest request) {
+
+        long start = StageTracer.start();
+        try {
+            Locale locale = (Locale) request.getAttribute(LOCALE_REQUEST_ATTRIBUTE_NAME);
+            return (locale != null) ? locale : getDefaultLocale();
+        } finally {
+            StageTracer.stop(PipelineStage.LOCALE_RESOLUTION, start);
+        }
+    }
+
+    @Override
+    public void setLocale(HttpServletRequest request, HttpServletResponse response, Locale locale) {
+        if (locale != null) {
+            request.setAttribute(LOCALE_REQUEST_ATTRIBUTE_NAME, locale);
+        } else {
+            request.removeAttribute(LOCALE_REQUEST_ATTRIBUTE_NAME);
+        }
+    }
+}
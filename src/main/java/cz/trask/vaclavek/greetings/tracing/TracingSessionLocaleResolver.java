@@ -0,0 +1,27 @@
+package cz.trask.vaclavek.greetings.tracing;
+
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.servlet.i18n.SessionLocaleResolver;
+
+/**
+ * {@link SessionLocaleResolver} timing the locale resolution as the {@link PipelineStage#LOCALE_RESOLUTION} stage.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class TracingSessionLocaleResolver extends SessionLocaleResolver
+{
+    @Override
+    public Locale resolveLocale(HttpServletRequest request) {
+        
+        long start = StageTracer.start();
+        try {
+            return super.resolveLocale(request);
+        } finally {
+            StageTracer.stop(PipelineStage.LOCALE_RESOLUTION, start);
+        }
+    }
+}
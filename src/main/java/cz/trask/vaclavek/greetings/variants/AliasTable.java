@@ -0,0 +1,132 @@
+package cz.trask.vaclavek.greetings.variants;
+
+import java.util.Arrays;
+
+/**
+ * Walker's alias table of the weighted random selection.
+ * <p>
+ * The weights are compiled once (Vose's method, O(n)) into the table of {@code n} columns, every column holds<br>
+ * the probability of its own item and the alias of the other item. Any item is then selected in O(1) by one<br>
+ * random 64-bit value: its high 32 bits select the column and its low 32 bits decide between the column's item<br>
+ * and its alias. The selection is deterministic for the same random value, so the items can be selected<br>
+ * by the hash of the client id too.
+ * <p>
+ * The table is immutable and thread safe.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class AliasTable
+{
+    /**
+     * Probability of 1 scaled to the range of the low 32 bits of the random value
+     */
+    private static final long ONE = 1L << 32;
+
+    /**
+     * Probabilities of the items of the columns scaled to {@link #ONE}, the alias is selected if the low 32 bits<br>
+     * of the random value are not lower than the threshold
+     */
+    private final long[] thresholds;
+
+    /**
+     * Items selected instead of the column's item
+     */
+    private final int[] aliases;
+
+
+    /**
+     * @param weights - weights of the items, positive and finite
+     * @throws IllegalArgumentException if there is no weight or any weight is not positive and finite
+     */
+    public AliasTable(double[] weights) {
+        super();
+        int size = weights.length;
+        if (size == 0) {
+            throw new IllegalArgumentException("No weight of the alias table.");
+        }
+        double sum = 0;
+        for (double weight : weights) {
+            if (!(weight > 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weights must be positive and finite: " + Arrays.toString(weights));
+            }
+            sum += weight;
+        }
+
+        thresholds = new long[size];
+        aliases = new int[size];
+
+        // items with the scaled probability lower and not lower than 1, used as stacks
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / sum;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            thresholds[less] = (long) (scaled[less] * ONE);
+            aliases[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // rest of the items has the probability 1 up to the rounding errors
+        while (largeCount > 0) {
+            int item = large[--largeCount];
+            thresholds[item] = ONE;
+            aliases[item] = item;
+        }
+        while (smallCount > 0) {
+            int item = small[--smallCount];
+            thresholds[item] = ONE;
+            aliases[item] = item;
+        }
+    }
+
+    /**
+     * @param random - uniformly distributed random value, or the hash of the client id
+     * @return selected item, 0 to {@code size() - 1}
+     */
+    public int select(long random) {
+
+        int column = (int) (((random >>> 32) * thresholds.length) >>> 32);
+        return ((random & (ONE - 1)) < thresholds[column]) ? column : aliases[column];
+    }
+
+    /**
+     * @return number of the items
+     */
+    public int size() {
+        return thresholds.length;
+    }
+
+    /**
+     * @param item - item of the table
+     * @return probability of the item's selection, computed from the compiled table
+     */
+    public double getProbability(int item) {
+
+        long total = 0;
+        for (int column = 0; column < thresholds.length; column++) {
+            if (column == item) {
+                total += thresholds[column];
+            }
+            if (aliases[column] == item && column != item) {
+                total += ONE - thresholds[column];
+            }
+        }
+        return (double) total / ONE / thresholds.length;
+    }
+}
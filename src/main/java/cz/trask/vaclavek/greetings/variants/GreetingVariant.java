@@ -0,0 +1,41 @@
+package cz.trask.vaclavek.greetings.variants;
+
+/**
+ * Variant of the greeting selected from the {@link VariantSet}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class GreetingVariant
+{
+    private final String id;
+
+    private final String text;
+
+
+    /**
+     * @param id - id of the variant, unique within its set, for example 'a' or 'sunny'
+     * @param text - greeting text of the variant
+     */
+    public GreetingVariant(String id, String text) {
+        super();
+        this.id = id;
+        this.text = text;
+    }
+
+    /**
+     * @return id of the variant, sent in the {@code X-Greeting-Variant} response header
+     */
+    public String getId() {
+        return id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "GreetingVariant [id=" + id + ", text=" + text + "]";
+    }
+}
@@ -0,0 +1,158 @@
+package cz.trask.vaclavek.greetings.variants;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Compiled {@link VariantSet}s of the greetings and the counters of the served variants.
+ * <p>
+ * Variant sets are read from the catalog by the greetings services on every request, so the definitions<br>
+ * changed in the catalog are used immediately. Every definition is compiled only once, the compiled sets<br>
+ * are cached by the greeting key and the definition text. At most {@code maxSetsPerKey} definitions<br>
+ * are cached for every key, all of them are dropped when the limit is reached.
+ * <p>
+ * Served variants are counted by the {@code greetings.variants.served} counters tagged by the greeting key<br>
+ * and by the variant id. Every counter is resolved when the set is compiled, so the counting costs<br>
+ * no lookup during the request.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingVariants
+{
+    private static final Logger Log = LoggerFactory.getLogger(GreetingVariants.class);
+
+    /**
+     * Suffix of the catalog key of the variant set, appended to the key of the greeting
+     */
+    public static final String VARIANTS_KEY_SUFFIX = ".variants";
+
+    /**
+     * Name of the response header with the id of the served variant
+     */
+    public static final String VARIANT_HEADER = "X-Greeting-Variant";
+
+    /**
+     * Marker of the definitions which cannot be compiled, the cache does not allow null values
+     */
+    private static final CompiledSet INVALID = new CompiledSet(null, null);
+
+    private final ConcurrentMap<String, ConcurrentMap<String, CompiledSet>> compiledSets = new ConcurrentHashMap<>();
+
+    /**
+     * Counters of the served variants keyed by the greeting key and the variant id
+     */
+    private final ConcurrentMap<String, LongAdder> servedCounters = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final int maxSetsPerKey;
+
+
+    /**
+     * @param meterRegistry - registry of the served variants counters, null if the counters are not registered
+     * @param maxSetsPerKey - max. number of the cached definitions of one greeting key
+     */
+    public GreetingVariants(MeterRegistry meterRegistry, int maxSetsPerKey) {
+        super();
+        this.meterRegistry = meterRegistry;
+        this.maxSetsPerKey = maxSetsPerKey;
+    }
+
+    /**
+     * Selects the variant of the greeting.
+     *
+     * @param key - catalog key of the variant set, for example 'greeting.timesensitive.morning.variants'
+     * @param definition - definition of the variant set read from the catalog, null if the greeting has no variants
+     * @param clientId - id of the client, the same client gets always the same variant; random variant if empty
+     * @return selected variant, or null if there is no valid variant set
+     */
+    public GreetingVariant select(String key, String definition, String clientId) {
+
+        if (definition == null) {
+            return null;
+        }
+        ConcurrentMap<String, CompiledSet> keySets = compiledSets.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        CompiledSet compiled = keySets.get(definition);
+        if (compiled == null) {
+            if (keySets.size() >= maxSetsPerKey) {
+                keySets.clear();
+            }
+            compiled = keySets.computeIfAbsent(definition, d -> compile(key, d));
+        }
+        if (compiled == INVALID) {
+            return null;
+        }
+        int index = compiled.variants.select(clientId);
+        compiled.served[index].increment();
+        return compiled.variants.getVariant(index);
+    }
+
+    /**
+     * @param key - catalog key of the variant set
+     * @param variantId - id of the variant
+     * @return number of the served greetings of the variant
+     */
+    public long getServedCount(String key, String variantId) {
+
+        LongAdder served = servedCounters.get(counterKey(key, variantId));
+        return (served == null) ? 0 : served.sum();
+    }
+
+    private CompiledSet compile(String key, String definition) {
+
+        VariantSet variants;
+        try {
+            variants = VariantSet.parse(definition);
+        } catch (IllegalArgumentException ex) {
+            Log.error("Greeting variants of the key {} ignored: {}", key, ex.getMessage());
+            return INVALID;
+        }
+        LongAdder[] served = new LongAdder[variants.size()];
+        for (int i = 0; i < served.length; i++) {
+            served[i] = servedCounter(key, variants.getVariant(i).getId());
+        }
+        Log.info("Greeting variants of the key {} compiled: {} variants", key, variants.size());
+        return new CompiledSet(variants, served);
+    }
+
+    private LongAdder servedCounter(String key, String variantId) {
+
+        return servedCounters.computeIfAbsent(counterKey(key, variantId), k -> {
+            LongAdder served = new LongAdder();
+            if (meterRegistry != null) {
+                FunctionCounter.builder("greetings.variants.served", served, LongAdder::sum)
+                               .description("Number of the served greetings of the variant")
+                               .tag("key", key)
+                               .tag("variant", variantId)
+                               .register(meterRegistry);
+            }
+            return served;
+        });
+    }
+
+    private static String counterKey(String key, String variantId) {
+        return key + '/' + variantId;
+    }
+
+    /**
+     * Variant set with the counters of its variants
+     */
+    private static final class CompiledSet
+    {
+        private final VariantSet variants;
+        private final LongAdder[] served;
+
+        private CompiledSet(VariantSet variants, LongAdder[] served) {
+            this.variants = variants;
+            this.served = served;
+        }
+    }
+}
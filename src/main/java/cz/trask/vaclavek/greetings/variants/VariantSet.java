@@ -0,0 +1,121 @@
+package cz.trask.vaclavek.greetings.variants;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted variants of one greeting compiled into the {@link AliasTable}.
+ * <p>
+ * Variant set is defined in the catalog under the key of the greeting with the {@code .variants} suffix,<br>
+ * as the {@code id:weight:text} items separated by {@code |}, for example:<br>
+ * {@code greeting.timesensitive.morning.variants=a:3:Good morning|b:1:Morning, sunshine!}
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public final class VariantSet
+{
+    private static final String ITEM_SEPARATOR = "|";
+
+    private final GreetingVariant[] variants;
+
+    private final AliasTable aliasTable;
+
+
+    /**
+     * @param variants - variants of the greeting
+     * @param weights - weights of the variants, positive and finite
+     * @throws IllegalArgumentException if there is no variant or any weight is not valid
+     */
+    public VariantSet(List<GreetingVariant> variants, double[] weights) {
+        super();
+        this.variants = variants.toArray(new GreetingVariant[0]);
+        this.aliasTable = new AliasTable(weights);
+    }
+
+    /**
+     * @param definition - variants as the {@code id:weight:text} items separated by {@code |}
+     * @return compiled variant set
+     * @throws IllegalArgumentException if the definition is not valid
+     */
+    public static VariantSet parse(String definition) {
+
+        List<GreetingVariant> variants = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        int start = 0;
+        while (start <= definition.length()) {
+            int end = definition.indexOf(ITEM_SEPARATOR, start);
+            if (end < 0) {
+                end = definition.length();
+            }
+            String[] parts = definition.substring(start, end).split(":", 3);
+            if (parts.length < 3 || parts[0].trim().isEmpty() || !ids.add(parts[0].trim())) {
+                throw new IllegalArgumentException("Invalid greeting variant '" + definition.substring(start, end)
+                                                   + "', expected unique id:weight:text.");
+            }
+            try {
+                weights.add(Double.valueOf(parts[1].trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid weight of the greeting variant '" + parts[0] + "'.", ex);
+            }
+            variants.add(new GreetingVariant(parts[0].trim(), parts[2]));
+            start = end + ITEM_SEPARATOR.length();
+        }
+
+        double[] weightsArray = new double[weights.size()];
+        for (int i = 0; i < weightsArray.length; i++) {
+            weightsArray[i] = weights.get(i);
+        }
+        return new VariantSet(variants, weightsArray);
+    }
+
+    /**
+     * Selects the variant of the client, or the random variant if the client is not known.
+     *
+     * @param clientId - id of the client, the same client gets always the same variant; random variant if empty
+     * @return index of the selected variant
+     */
+    public int select(String clientId) {
+
+        long random = (clientId == null || clientId.isEmpty()) ? ThreadLocalRandom.current().nextLong() : hash(clientId);
+        return aliasTable.select(random);
+    }
+
+    /**
+     * @param index - index of the variant, see {@link #select(String)}
+     * @return variant of the index
+     */
+    public GreetingVariant getVariant(int index) {
+        return variants[index];
+    }
+
+    /**
+     * @return number of the variants
+     */
+    public int size() {
+        return variants.length;
+    }
+
+    /**
+     * @param index - index of the variant
+     * @return probability of the variant's selection
+     */
+    public double getProbability(int index) {
+        return aliasTable.getProbability(index);
+    }
+
+    /**
+     * Spreads the {@link String#hashCode()}, which is the same in every JVM, over the 64 bits (SplitMix64 finalizer).
+     */
+    static long hash(String clientId) {
+
+        long hash = clientId.hashCode() * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,48 @@
+package cz.trask.vaclavek.greetings.warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admin endpoint reporting, if the application is ready to serve the traffic i.e. if the startup warm-up is finished.
+ * <p>
+ * {@code GET /actuator/readiness} returns HTTP status 200 when ready and 503 SERVICE UNAVAILABLE during the warm-up,<br>
+ * so it can be used as the readiness probe of the load balancer or container orchestrator.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Component
+@Endpoint(id = "readiness")
+public class ReadinessEndpoint
+{
+    private final WarmupState warmupState;
+
+    public ReadinessEndpoint(WarmupState warmupState) {
+        super();
+        this.warmupState = warmupState;
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<Map<String, Object>> readiness() {
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", warmupState.getState());
+
+        Map<String, Object> warmup = new LinkedHashMap<>();
+        warmup.put("iterations", warmupState.getIterations());
+        warmup.put("requests", warmupState.getRequests());
+        warmup.put("failedRequests", warmupState.getFailedRequests());
+        warmup.put("durationMillis", warmupState.getDurationMillis());
+        warmup.put("compilationMillis", warmupState.getCompilationMillis());
+        result.put("warmup", warmup);
+
+        return new WebEndpointResponse<>(result, warmupState.isReady() ? WebEndpointResponse.STATUS_OK
+                                                                      : WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+    }
+}
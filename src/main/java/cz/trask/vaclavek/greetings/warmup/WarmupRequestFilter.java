@@ -0,0 +1,74 @@
+package cz.trask.vaclavek.greetings.warmup;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Servlet filter tagging the synthetic requests of the {@link WarmupRunner}, so they do not pollute the logs of the real traffic.
+ * <p>
+ * The warm-up requests carry the {@value #WARMUP_HEADER} header with the random token of this filter, other values<br>
+ * of the header are ignored, so the clients cannot hide their requests. The tagged request has the {@value #WARMUP_ATTRIBUTE}<br>
+ * request attribute, checked by the access log, and the {@value #WARMUP_MDC_KEY} MDC key, the log lines of the request<br>
+ * are dropped by the {@code MDCFilter} of the {@code logback-spring.xml}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class WarmupRequestFilter extends OncePerRequestFilter
+{
+    /**
+     * Header of the warm-up requests, its value is the {@link #getToken()}
+     */
+    public static final String WARMUP_HEADER = "X-Greetings-Warmup";
+
+    /**
+     * Request attribute set to {@code Boolean.TRUE} for the warm-up requests
+     */
+    public static final String WARMUP_ATTRIBUTE = WarmupRequestFilter.class.getName() + ".warmup";
+
+    /**
+     * MDC key set to "true" while the warm-up request is processed
+     */
+    public static final String WARMUP_MDC_KEY = "warmup";
+
+    private final String token = UUID.randomUUID().toString();
+
+
+    /**
+     * @return token of the warm-up requests, generated at startup
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return true if the request was tagged as the warm-up request
+     */
+    public static boolean isWarmupRequest(HttpServletRequest request) {
+        return Boolean.TRUE.equals(request.getAttribute(WARMUP_ATTRIBUTE));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        if (!token.equals(request.getHeader(WARMUP_HEADER))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        request.setAttribute(WARMUP_ATTRIBUTE, Boolean.TRUE);
+        MDC.put(WARMUP_MDC_KEY, "true");
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(WARMUP_MDC_KEY);
+        }
+    }
+}
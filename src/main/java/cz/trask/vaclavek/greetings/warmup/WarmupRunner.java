@@ -0,0 +1,345 @@
+package cz.trask.vaclavek.greetings.warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import cz.trask.vaclavek.greetings.allocation.AllocationStatistics;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
+
+/**
+ * Optional startup warm-up phase of the application.
+ * <p>
+ * When the application is started, synthetic requests are sent to the own greetings endpoints via loopback HTTP,<br>
+ * so the whole real path (filters, controller, {@link TimePeriodService}, {@code GreetingsService} and error handling)<br>
+ * is executed and compiled by the JIT before the real traffic comes. One iteration of the warm-up covers every<br>
+ * locale having its messages file, every {@link TimePeriodService.TimePeriod} and the error paths (missing<br>
+ * and invalid parameters, unsupported language).
+ * <p>
+ * Warm-up ends, when no new JIT compilation is done during the {@code greetings.warmup.stable-iterations}<br>
+ * consecutive iterations (after {@code greetings.warmup.min-iterations} at least), or when<br>
+ * the {@code greetings.warmup.max-iterations} or {@code greetings.warmup.max-duration} is reached.<br>
+ * Until then, the {@link ReadinessEndpoint} reports the application as not ready.
+ * <p>
+ * The warm-up requests are tagged by the {@link WarmupRequestFilter}, so they are not written to the access log<br>
+ * and their log lines are dropped. The latency histograms of the {@link StageTracer} and the allocation statistics<br>
+ * are reset when the warm-up ends. The greetings cache is filled by the warm-up on purpose, its hit and miss<br>
+ * counters include the warm-up requests.
+ * <p>
+ * The warm-up is switched on by the {@code greetings.warmup.enabled=true} property.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "greetings.warmup.enabled", havingValue = "true")
+public class WarmupRunner implements ApplicationListener<ApplicationReadyEvent>
+{
+    private static final Logger Log = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private static final DateTimeFormatter USERS_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    // ****** INSTANCE FIELDS ******
+
+    private final WarmupState warmupState;
+
+    private final TimePeriodService timePeriodService;
+
+    private final MessageSource messageSource;
+
+    private final WarmupRequestFilter requestFilter;
+
+    private final ObjectProvider<AllocationStatistics> allocationStatistics;
+
+    private final int threads;
+
+    private final int minIterations;
+
+    private final int maxIterations;
+
+    private final int stableIterations;
+
+    private final Duration maxDuration;
+
+
+    // ****** INSTANCE CONSTRUCTORS ******
+
+    /**
+     * @param warmupState - state of the warm-up reported by the {@link ReadinessEndpoint}
+     * @param timePeriodService - used to find the times of all time periods
+     * @param messageSource - used to find the locales having their messages file
+     * @param requestFilter - provides the token of the warm-up requests
+     * @param allocationStatistics - statistics reset after the warm-up, if the allocation accounting is enabled
+     * @param threads - number of threads sending the warm-up requests
+     * @param minIterations - min. number of the warm-up iterations
+     * @param maxIterations - max. number of the warm-up iterations
+     * @param stableIterations - number of consecutive iterations without JIT compilation, which finish the warm-up
+     * @param maxDuration - max. duration of the warm-up
+     */
+    public WarmupRunner(WarmupState warmupState,
+                        TimePeriodService timePeriodService,
+                        MessageSource messageSource,
+                        WarmupRequestFilter requestFilter,
+                        ObjectProvider<AllocationStatistics> allocationStatistics,
+                        @Value("${greetings.warmup.threads:2}") int threads,
+                        @Value("${greetings.warmup.min-iterations:200}") int minIterations,
+                        @Value("${greetings.warmup.max-iterations:2000}") int maxIterations,
+                        @Value("${greetings.warmup.stable-iterations:20}") int stableIterations,
+                        @Value("${greetings.warmup.max-duration:30s}") Duration maxDuration) {
+        super();
+        this.warmupState = warmupState;
+        this.timePeriodService = timePeriodService;
+        this.messageSource = messageSource;
+        this.requestFilter = requestFilter;
+        this.allocationStatistics = allocationStatistics;
+        this.threads = Math.max(threads, 1);
+        this.minIterations = minIterations;
+        this.maxIterations = Math.max(maxIterations, minIterations);
+        this.stableIterations = stableIterations;
+        this.maxDuration = maxDuration;
+    }
+
+    // ****** INSTANCE PUBLIC METHODS ******
+
+    /**
+     * Starts the warm-up in the background thread, when the web server is running.
+     */
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+
+        if (!(event.getApplicationContext() instanceof WebServerApplicationContext)) {
+            Log.warn("Warm-up skipped, the application does not run in the web server.");
+            warmupState.ready();
+            return;
+        }
+        int port = ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+        List<WarmupRequest> requests = createRequests("http://localhost:" + port);
+
+        Thread warmupThread = new Thread(() -> warmUp(requests), "greetings-warmup");
+        warmupThread.setDaemon(true);
+        warmupThread.start();
+    }
+
+    // ****** INSTANCE PRIVATE METHODS ******
+
+    private void warmUp(List<WarmupRequest> requests) {
+
+        Log.info("Warm-up started, {} requests per iteration, {} threads.", requests.size(), threads);
+
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        boolean compilationMonitored = (compilation != null) && compilation.isCompilationTimeMonitoringSupported();
+        long compilationStart = compilationMonitored ? compilation.getTotalCompilationTime() : -1;
+        long lastCompilation = compilationStart;
+
+        List<WarmupClient> clients = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            clients.add(new WarmupClient(requests, requestFilter.getToken()));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "greetings-warmup-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        long iterations = 0;
+        long sentRequests = 0;
+        long failedRequests = 0;
+        int quietIterations = 0;
+        try {
+            while (iterations < maxIterations && System.nanoTime() < deadline) {
+
+                for (Future<Integer> failed : executor.invokeAll(clients)) {
+                    failedRequests += failed.get();
+                }
+                iterations++;
+                sentRequests += (long) requests.size() * threads;
+
+                long currentCompilation = compilationMonitored ? compilation.getTotalCompilationTime() : -1;
+                quietIterations = (currentCompilation == lastCompilation) ? quietIterations + 1 : 0;
+                lastCompilation = currentCompilation;
+
+                warmupState.update(iterations, sentRequests, failedRequests, (System.nanoTime() - start) / 1_000_000,
+                                   compilationMonitored ? currentCompilation - compilationStart : -1);
+
+                if (compilationMonitored && iterations >= minIterations && quietIterations >= stableIterations) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException ex) {
+            Log.error("Warm-up failed.", ex);
+        } finally {
+            executor.shutdownNow();
+            // warm-up requests must not distort the latency histograms and the allocation statistics of the real traffic
+            StageTracer.reset();
+            allocationStatistics.ifAvailable(AllocationStatistics::reset);
+            warmupState.ready();
+        }
+
+        Log.info("Warm-up finished after {} iterations, {} requests ({} failed) in {} ms, JIT compilation time {} ms.",
+                 iterations, sentRequests, failedRequests, warmupState.getDurationMillis(), warmupState.getCompilationMillis());
+    }
+
+    /**
+     * Creates requests of one warm-up iteration.
+     */
+    private List<WarmupRequest> createRequests(String baseUrl) {
+
+        Set<Locale> locales = (messageSource instanceof LocaleGuardMessageSource)
+                                    ? ((LocaleGuardMessageSource) messageSource).getCatalogLocales()
+                                    : Collections.emptySet();
+        if (locales.isEmpty()) {
+            Log.warn("Locales of the messages files not known, only error paths are warmed up.");
+        }
+
+        List<WarmupRequest> requests = new ArrayList<>();
+        for (Locale locale : locales) {
+            String lang = locale.toLanguageTag();
+            for (LocalTime usersTime : findPeriodStarts()) {
+                requests.add(new WarmupRequest(baseUrl + "/api/greeting/timesensitive?usersTime=" + usersTime.format(USERS_TIME_FORMATTER)
+                                               + "&lang=" + lang, HttpStatus.OK));
+            }
+            requests.add(new WarmupRequest(baseUrl + "/api/greeting/timeinsensitive?lang=" + lang, HttpStatus.OK));
+        }
+
+        // error paths
+        requests.add(new WarmupRequest(baseUrl + "/api/greeting/timesensitive?usersTime=12:00&lang=zz", HttpStatus.NOT_FOUND));
+        requests.add(new WarmupRequest(baseUrl + "/api/greeting/timeinsensitive?lang=zz", HttpStatus.NOT_FOUND));
+        requests.add(new WarmupRequest(baseUrl + "/api/greeting/timesensitive?usersTime=25:99&lang=en-GB", HttpStatus.BAD_REQUEST));
+        requests.add(new WarmupRequest(baseUrl + "/api/greeting/timesensitive?lang=en-GB", HttpStatus.BAD_REQUEST));
+        requests.add(new WarmupRequest(baseUrl + "/api/greeting/timeinsensitive", HttpStatus.BAD_REQUEST));
+        return requests;
+    }
+
+    /**
+     * @return start times of all time periods of the day
+     */
+    private Set<LocalTime> findPeriodStarts() {
+
+        Set<LocalTime> starts = new LinkedHashSet<>();
+        LocalTime time = LocalTime.MIDNIGHT;
+        while (starts.add(time)) {
+            time = timePeriodService.getNextTimePeriodStart(time);
+        }
+        return starts;
+    }
+
+    /**
+     * Warm-up request with its expected response status
+     */
+    private static final class WarmupRequest
+    {
+        private final URL url;
+        private final int expectedStatus;
+
+        private WarmupRequest(String url, HttpStatus expectedStatus) {
+            try {
+                this.url = new URL(url);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException(ex);
+            }
+            this.expectedStatus = expectedStatus.value();
+        }
+    }
+
+    /**
+     * Sends all warm-up requests of one iteration, tagged by the {@link WarmupRequestFilter#WARMUP_HEADER}.<br>
+     * Keeps the session cookie, so the warm-up requests do not create new HTTP session for every request.
+     */
+    private static final class WarmupClient implements Callable<Integer>
+    {
+        private final List<WarmupRequest> requests;
+
+        private final String token;
+
+        private final byte[] buffer = new byte[1024];
+
+        private String sessionCookie;
+
+        private WarmupClient(List<WarmupRequest> requests, String token) {
+            this.requests = requests;
+            this.token = token;
+        }
+
+        /**
+         * @return number of failed requests
+         */
+        @Override
+        public Integer call() {
+
+            int failed = 0;
+            for (WarmupRequest request : requests) {
+                if (!send(request)) {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+
+        private boolean send(WarmupRequest request) {
+
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) request.url.openConnection();
+                connection.setRequestProperty(WarmupRequestFilter.WARMUP_HEADER, token);
+                if (sessionCookie != null) {
+                    connection.setRequestProperty("Cookie", sessionCookie);
+                }
+                int status = connection.getResponseCode();
+                String setCookie = connection.getHeaderField("Set-Cookie");
+                if (setCookie != null) {
+                    sessionCookie = setCookie.split(";", 2)[0];
+                }
+                // the body has to be read, so the connection can be reused
+                try (InputStream body = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+                    if (body != null) {
+                        while (body.read(buffer) >= 0) {
+                            // discard
+                        }
+                    }
+                }
+                return status == request.expectedStatus;
+            } catch (IOException ex) {
+                Log.debug("Warm-up request {} failed: {}", request.url, ex.getMessage());
+                if (connection != null) {
+                    connection.disconnect();
+                }
+                return false;
+            }
+        }
+    }
+}
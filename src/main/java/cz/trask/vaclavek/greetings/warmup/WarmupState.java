@@ -0,0 +1,94 @@
+package cz.trask.vaclavek.greetings.warmup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the state and statistics of the startup warm-up phase, see {@link WarmupRunner}.
+ * <p>
+ * If the warm-up is not enabled, the application is ready immediately.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@Component
+public class WarmupState
+{
+    /**
+     * States of the warm-up phase
+     */
+    public enum State
+    {
+        WARMING_UP, READY
+    }
+
+    private volatile State state;
+
+    private volatile long iterations;
+
+    private volatile long requests;
+
+    private volatile long failedRequests;
+
+    private volatile long durationMillis;
+
+    private volatile long compilationMillis;
+
+
+    /**
+     * @param warmupEnabled - true if the warm-up runs at startup, false if the application is ready immediately
+     */
+    public WarmupState(@Value("${greetings.warmup.enabled:false}") boolean warmupEnabled) {
+        super();
+        this.state = warmupEnabled ? State.WARMING_UP : State.READY;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getFailedRequests() {
+        return failedRequests;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return JIT compilation time spent during the warm-up in milliseconds, -1 if not supported by the JVM
+     */
+    public long getCompilationMillis() {
+        return compilationMillis;
+    }
+
+    /**
+     * Updates the statistics of the running warm-up.
+     */
+    void update(long iterations, long requests, long failedRequests, long durationMillis, long compilationMillis) {
+        this.iterations = iterations;
+        this.requests = requests;
+        this.failedRequests = failedRequests;
+        this.durationMillis = durationMillis;
+        this.compilationMillis = compilationMillis;
+    }
+
+    /**
+     * Marks the application as ready to serve the traffic.
+     */
+    void ready() {
+        state = State.READY;
+    }
+}
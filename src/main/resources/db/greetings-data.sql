@@ -0,0 +1,32 @@
+-- Initial greetings of the JDBC catalog, same as the messages_xx_XX.properties files
+INSERT INTO greeting (locale_tag, greeting_key, greeting_text, version) VALUES
+    ('cs', 'greeting.timesensitive.morning', 'Dobré ráno', 1),
+    ('cs', 'greeting.timesensitive.afternoon', 'Dobré odpoledne', 2),
+    ('cs', 'greeting.timesensitive.evening', 'Dobrý večer', 3),
+    ('cs', 'greeting.timesensitive.general', 'Ahoj', 4),
+    ('cs', 'greeting.timesinensitive.general', 'Ahoj', 5),
+    ('cs-CS', 'greeting.timesensitive.morning', 'Dobré ráno', 6),
+    ('cs-CS', 'greeting.timesensitive.afternoon', 'Dobré odpoledne', 7),
+    ('cs-CS', 'greeting.timesensitive.evening', 'Dobrý večer', 8),
+    ('cs-CS', 'greeting.timesensitive.general', 'Ahoj', 9),
+    ('cs-CS', 'greeting.timesinensitive.general', 'Ahoj', 10),
+    ('en-GB', 'greeting.timesensitive.morning', 'Good morning GB', 11),
+    ('en-GB', 'greeting.timesensitive.afternoon', 'Good afternoon GB', 12),
+    ('en-GB', 'greeting.timesensitive.evening', 'Good evening GB', 13),
+    ('en-GB', 'greeting.timesensitive.general', 'Hello GB', 14),
+    ('en-GB', 'greeting.timesinensitive.general', 'Hello GB', 15),
+    ('en-US', 'greeting.timesensitive.morning', 'Good morning US', 16),
+    ('en-US', 'greeting.timesensitive.afternoon', 'Good afternoon US', 17),
+    ('en-US', 'greeting.timesensitive.evening', 'Good evening US', 18),
+    ('en-US', 'greeting.timesensitive.general', 'Hello US', 19),
+    ('en-US', 'greeting.timesinensitive.general', 'Hello US', 20),
+    ('es', 'greeting.timesensitive.morning', 'Buenos días', 21),
+    ('es', 'greeting.timesensitive.afternoon', 'Buenas tardes', 22),
+    ('es', 'greeting.timesensitive.evening', 'Buenas noces', 23),
+    ('es', 'greeting.timesensitive.general', 'Hola', 24),
+    ('es', 'greeting.timesinensitive.general', 'Hola', 25),
+    ('es-ES', 'greeting.timesensitive.morning', 'Buenos días', 26),
+    ('es-ES', 'greeting.timesensitive.afternoon', 'Buenas tardes', 27),
+    ('es-ES', 'greeting.timesensitive.evening', 'Buenas noces', 28),
+    ('es-ES', 'greeting.timesensitive.general', 'Hola', 29),
+    ('es-ES', 'greeting.timesinensitive.general', 'Hola', 30);
@@ -0,0 +1,15 @@
+-- Greetings catalog table of the JDBC catalog (greetings.catalog.source=jdbc).
+-- Every change of a row must set the 'version' to the new value greater than all existing ones,
+-- removed rows are marked as 'deleted', so the changes can be read incrementally by the version.
+CREATE TABLE IF NOT EXISTS greeting (
+    locale_tag    VARCHAR(35)   NOT NULL,
+    greeting_key  VARCHAR(100)  NOT NULL,
+    greeting_text VARCHAR(500)  NOT NULL,
+    version       BIGINT        NOT NULL,
+    deleted       BOOLEAN       DEFAULT FALSE NOT NULL,
+    PRIMARY KEY (locale_tag, greeting_key)
+);
+
+CREATE INDEX IF NOT EXISTS greeting_version_idx ON greeting (version);
+
+CREATE SEQUENCE IF NOT EXISTS greeting_version_seq START WITH 100;
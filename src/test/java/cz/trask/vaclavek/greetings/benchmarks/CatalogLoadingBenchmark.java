@@ -0,0 +1,63 @@
+package cz.trask.vaclavek.greetings.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cz.trask.vaclavek.greetings.messages.CatalogValidator;
+import cz.trask.vaclavek.greetings.messages.ParallelCatalogLoader;
+import cz.trask.vaclavek.greetings.messages.PreloadedCatalog;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+
+/**
+ * Loading time of a large messages catalog by the {@link ParallelCatalogLoader} with the growing number of threads.
+ * <p>
+ * The catalog of {@code benchmark.locales} generated locales (5000 by default) is loaded by 1, 2, 4, ... threads up to<br>
+ * the number of the CPU cores. Run by {@code mvn test -Pbenchmark}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class CatalogLoadingBenchmark
+{
+    @Test
+    public void compareCatalogLoadingTimeByThreads(@TempDir Path directory) throws Exception {
+
+        int locales = Integer.getInteger("benchmark.locales", 5000);
+        Files.write(directory.resolve("messages.properties"), "greeting.error=Error\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < locales; i++) {
+            String language = "l" + Integer.toString(i, 36);
+            StringBuilder messages = new StringBuilder();
+            for (String key : new String[] {GreetingsServiceImpl.GREETING_MORNING_KEY, GreetingsServiceImpl.GREETING_AFTERNOON_KEY,
+                                            GreetingsServiceImpl.GREETING_EVENING_KEY, GreetingsServiceImpl.GREETING_GENERAL_TIMESENSITIVE_KEY,
+                                            GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY}) {
+                messages.append(key).append('=').append(key).append(' ').append(language).append('\n');
+            }
+            messages.append("greeting.personalized={0}, {1}!\n");
+            Files.write(directory.resolve("messages_" + language + ".properties"), messages.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        CatalogValidator validator = new CatalogValidator(Collections.singleton(GreetingsServiceImpl.GREETING_GENERAL_TIMESENSITIVE_KEY),
+                                                          Collections.singleton(GreetingsServiceImpl.GREETING_ERROR_KEY),
+                                                          Collections.singletonMap("greeting.personalized", 2));
+        String basename = "file:" + directory.resolve("messages");
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // two rounds, so the first measurement is not penalized by the cold JVM and page cache
+        for (int round = 1; round <= 2; round++) {
+            for (int threads = 1; threads <= cores; threads = (threads == cores || threads * 2 <= cores) ? threads * 2 : cores) {
+                long start = System.nanoTime();
+                PreloadedCatalog catalog = new ParallelCatalogLoader(validator, threads).load(basename);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("Round %d, %2d threads: %d files loaded in %,d ms%n", round, threads, catalog.getFilesCount(), millis);
+                assertThat(catalog.getFilesCount()).isEqualTo(locales + 1);
+            }
+        }
+    }
+}
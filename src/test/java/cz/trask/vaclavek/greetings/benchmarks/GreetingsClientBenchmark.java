@@ -0,0 +1,118 @@
+package cz.trask.vaclavek.greetings.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import cz.trask.vaclavek.greetings.GreetingsApplication;
+import cz.trask.vaclavek.greetings.client.GreetingRequest;
+import cz.trask.vaclavek.greetings.client.GreetingResult;
+import cz.trask.vaclavek.greetings.client.GreetingsClient;
+
+/**
+ * Throughput comparison of the greetings requested by the plain HTTP calls and by the {@link GreetingsClient}.
+ * <p>
+ * Both are measured against the same locally started {@code GreetingsApplication}. The plain calls are sent<br>
+ * by the {@link HttpLoadGenerator}, the client is measured with the same requests and then with every tenth<br>
+ * request of the locale without greetings, which is always sent to the service by the batch call.<br>
+ * Run by {@code mvn test -Pbenchmark}, duration and number of the clients are set by the {@code benchmark.seconds}<br>
+ * and {@code benchmark.threads} system properties.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingsClientBenchmark
+{
+    /**
+     * Same requests as the {@link HttpLoadGenerator#GREETING_PATHS}
+     */
+    private static final List<GreetingRequest> REQUESTS = Arrays.asList(
+        new GreetingRequest("cs", "05:01", null),
+        new GreetingRequest("en-GB", "18:01", null),
+        new GreetingRequest("es", null, null),
+        new GreetingRequest("en-US", null, null));
+
+    private static final GreetingRequest MISS = new GreetingRequest("pt", null, null);
+
+    @Test
+    public void compareHttpCallsAndClientThroughput() throws Exception {
+
+        int seconds = Integer.getInteger("benchmark.seconds", 10);
+        int threads = Integer.getInteger("benchmark.threads", 4);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GreetingsApplication.class)
+                .properties("server.port=0",
+                            "spring.profiles.active=default",
+                            "logging.level.cz.trask.vaclavek=WARN",
+                            "greetings.concurrency-limit.enabled=false")
+                .run()) {
+
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpLoadGenerator loadGenerator = new HttpLoadGenerator(baseUrl, HttpLoadGenerator.GREETING_PATHS, threads);
+
+            try (GreetingsClient client = new GreetingsClient(baseUrl, threads, Duration.ofSeconds(1))) {
+                client.refresh();
+
+                // two rounds, so the first mode is not penalized by the cold JVM
+                for (int round = 1; round <= 2; round++) {
+                    HttpLoadGenerator.Result result = loadGenerator.run(Duration.ofSeconds(seconds / 2), Duration.ofSeconds(seconds));
+                    System.out.printf("Round %d, %-22s %s%n", round, "HTTP calls:", result);
+                    assertThat(result.getErrors()).isZero();
+
+                    for (int missEvery : new int[] {0, 10}) {
+                        long remoteCalls = client.getRemoteCalls();
+                        long requests = measure(client, threads, seconds, missEvery);
+                        System.out.printf("Round %d, %-22s %,d requests/s, %,d remote calls%n", round,
+                                          (missEvery == 0) ? "client:" : "client, 10% misses:", requests / seconds,
+                                          client.getRemoteCalls() - remoteCalls);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of the requests answered by the client in the {@code seconds}
+     */
+    private static long measure(GreetingsClient client, int threads, int seconds, int missEvery) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long requests = 0;
+                    while (System.nanoTime() < end) {
+                        for (int i = 0; i < 100; i++) {
+                            boolean miss = missEvery > 0 && i % missEvery == 0;
+                            GreetingResult result = client.getGreeting(miss ? MISS : REQUESTS.get(i & 3));
+                            assertThat(result.getStatus()).isEqualTo(miss ? 404 : 200);
+                        }
+                        requests += 100;
+                    }
+                    return requests;
+                }));
+            }
+            long requests = 0;
+            for (Future<Long> result : results) {
+                requests += result.get();
+            }
+            return requests;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
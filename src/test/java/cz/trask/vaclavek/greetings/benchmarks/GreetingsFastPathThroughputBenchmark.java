@@ -0,0 +1,56 @@
+package cz.trask.vaclavek.greetings.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import cz.trask.vaclavek.greetings.GreetingsApplication;
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathFilter;
+
+/**
+ * Throughput comparison of the greetings requests served by the Spring MVC and by the {@link GreetingsFastPathFilter}.
+ * <p>
+ * Both modes are measured in the same application, the fast path is switched at runtime. Logging of the served<br>
+ * greetings and the concurrency limiter are switched off, so only the request processing is compared.<br>
+ * Run by {@code mvn test -Pbenchmark}, duration and number of the clients are set by the {@code benchmark.seconds}<br>
+ * and {@code benchmark.threads} system properties.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingsFastPathThroughputBenchmark
+{
+    @Test
+    public void compareSpringMvcAndFastPathThroughput() throws Exception {
+        
+        int seconds = Integer.getInteger("benchmark.seconds", 10);
+        int threads = Integer.getInteger("benchmark.threads", 4);
+        
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GreetingsApplication.class)
+                .properties("server.port=0",
+                            "spring.profiles.active=default",
+                            "logging.level.cz.trask.vaclavek=WARN",
+                            "greetings.concurrency-limit.enabled=false")
+                .run()) {
+            
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            GreetingsFastPathFilter fastPathFilter = context.getBean(GreetingsFastPathFilter.class);
+            HttpLoadGenerator loadGenerator = new HttpLoadGenerator("http://localhost:" + port, HttpLoadGenerator.GREETING_PATHS, threads);
+            
+            // two rounds, so the first mode is not penalized by the cold JVM
+            for (int round = 1; round <= 2; round++) {
+                for (boolean fastPath : new boolean[] {false, true}) {
+                    fastPathFilter.setEnabled(fastPath);
+                    HttpLoadGenerator.Result result = loadGenerator.run(Duration.ofSeconds(seconds / 2), Duration.ofSeconds(seconds));
+                    System.out.printf("Round %d, %-12s %s%n", round, fastPath ? "fast path:" : "Spring MVC:", result);
+                    assertThat(result.getErrors()).isZero();
+                }
+            }
+        }
+    }
+}
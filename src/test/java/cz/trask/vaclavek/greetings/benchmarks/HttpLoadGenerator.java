@@ -0,0 +1,207 @@
+package cz.trask.vaclavek.greetings.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cz.trask.vaclavek.greetings.accesslog.LatencyHistogram;
+
+/**
+ * Simple closed-loop HTTP load generator used by the benchmarks.
+ * <p>
+ * Every client thread sends the requests of the {@code paths} in the round robin order over the keep-alive<br>
+ * connection, next request is sent after the response of the previous one is read. Requests of the warm-up<br>
+ * period are not counted.
+ * <p>
+ * Can be run also from the command line against already running server, see {@link #main(String[])}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class HttpLoadGenerator
+{
+    /**
+     * Time sensitive and time insensitive requests of several languages
+     */
+    public static final List<String> GREETING_PATHS = Arrays.asList(
+        "/api/greeting/timesensitive?usersTime=05:01&lang=cs",
+        "/api/greeting/timesensitive?usersTime=18:01&lang=en-GB",
+        "/api/greeting/timeinsensitive?lang=es",
+        "/api/greeting/timeinsensitive?lang=en-US");
+    
+    private final String baseUrl;
+    
+    private final List<String> paths;
+    
+    private final int threads;
+    
+    /**
+     * @param baseUrl - URL of the server, for example {@code http://localhost:8080}
+     * @param paths - paths and query strings of the sent requests
+     * @param threads - number of the concurrent clients
+     */
+    public HttpLoadGenerator(String baseUrl, List<String> paths, int threads) {
+        this.baseUrl = baseUrl;
+        this.paths = paths;
+        this.threads = threads;
+    }
+    
+    /**
+     * Runs the load of the {@link #GREETING_PATHS} against running server and prints the results.
+     * <p>
+     * Arguments: {@code baseUrl [seconds [threads]]}, default 10 seconds of measurement (after half as long warm-up)<br>
+     * and 4 threads. Waits max. 60 seconds until the server accepts the requests.
+     */
+    public static void main(String[] args) throws Exception {
+        
+        String baseUrl = args[0];
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+        
+        awaitServer(baseUrl, Duration.ofSeconds(60));
+        HttpLoadGenerator loadGenerator = new HttpLoadGenerator(baseUrl, GREETING_PATHS, threads);
+        System.out.println(loadGenerator.run(Duration.ofSeconds(seconds / 2), Duration.ofSeconds(seconds)));
+    }
+    
+    private static void awaitServer(String baseUrl, Duration timeout) throws IOException, InterruptedException {
+        
+        long deadline = System.nanoTime() + timeout.toNanos();
+        URL url = new URL(baseUrl + GREETING_PATHS.get(0));
+        while (true) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.getResponseCode();
+                connection.getInputStream().close();
+                return;
+            } catch (IOException ex) {
+                if (System.nanoTime() > deadline) {
+                    throw ex;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+    
+    /**
+     * Sends the requests during the {@code warmup} and {@code measurement} periods.
+     * 
+     * @return results of the measurement period
+     */
+    public Result run(Duration warmup, Duration measurement) throws InterruptedException, ExecutionException {
+        
+        long start = System.nanoTime();
+        long measurementStart = start + warmup.toNanos();
+        long end = measurementStart + measurement.toNanos();
+        
+        List<Callable<Result>> clients = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int offset = i;
+            clients.add(() -> runClient(offset, measurementStart, end));
+        }
+        
+        Result total = new Result();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Result> client : executor.invokeAll(clients)) {
+                total.add(client.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        total.durationNanos = measurement.toNanos();
+        return total;
+    }
+    
+    private Result runClient(int offset, long measurementStart, long end) throws IOException {
+        
+        List<URL> urls = new ArrayList<>();
+        for (String path : paths) {
+            urls.add(new URL(baseUrl + path));
+        }
+        byte[] buffer = new byte[4096];
+        Result result = new Result();
+        
+        for (int i = offset; ; i++) {
+            long requestStart = System.nanoTime();
+            if (requestStart >= end) {
+                break;
+            }
+            HttpURLConnection connection = (HttpURLConnection) urls.get(i % urls.size()).openConnection();
+            connection.setRequestProperty("Accept", "*/*");
+            boolean ok;
+            try {
+                int status = connection.getResponseCode();
+                try (InputStream body = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+                    while (body != null && body.read(buffer) >= 0) {
+                        // discard
+                    }
+                }
+                ok = (status < 500);
+            } catch (IOException ex) {
+                connection.disconnect();
+                ok = false;
+            }
+            if (requestStart >= measurementStart) {
+                result.requests++;
+                if (!ok) {
+                    result.errors++;
+                }
+                result.latency.record((System.nanoTime() - requestStart) / 1000);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Results of the load
+     */
+    public static class Result
+    {
+        private long requests;
+        private long errors;
+        private long durationNanos;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        
+        public long getRequests() {
+            return requests;
+        }
+        
+        public long getErrors() {
+            return errors;
+        }
+        
+        public double getThroughput() {
+            return requests * 1_000_000_000.0 / durationNanos;
+        }
+        
+        /**
+         * @return latency histogram in microseconds
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+        
+        private void add(Result other) {
+            requests += other.requests;
+            errors += other.errors;
+            latency.add(other.latency);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%10.0f req/s, %d requests, %d errors, latency [us] p50 %d, p99 %d, p99.9 %d, max %d",
+                                 getThroughput(), requests, errors, latency.getPercentile(50), latency.getPercentile(99),
+                                 latency.getPercentile(99.9), latency.getMax());
+        }
+    }
+}
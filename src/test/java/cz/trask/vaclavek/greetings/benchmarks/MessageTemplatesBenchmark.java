@@ -0,0 +1,110 @@
+package cz.trask.vaclavek.greetings.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.MessageSource;
+
+import cz.trask.vaclavek.greetings.controller.GreetingsController;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.messages.RecordingMessageSource;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+
+/**
+ * Throughput comparison of the parameterized messages formatted by the {@code MessageSource} ({@code MessageFormat}<br>
+ * shared and locked by the threads) and by the compiled {@link MessageTemplates}.
+ * <p>
+ * Both are measured on the same message source as configured by the application, with the personalized greeting<br>
+ * and the 'language not supported' error messages of several locales. Run by {@code mvn test -Pbenchmark}, duration<br>
+ * and number of the threads are set by the {@code benchmark.seconds} and {@code benchmark.threads} system properties.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class MessageTemplatesBenchmark
+{
+    private static final Locale[] LOCALES = {new Locale("cs"), new Locale("en", "GB"), new Locale("es", "ES"), new Locale("en", "US")};
+
+    private static final String[] NAMES = {"Jan", "John", "Juan", "Jack"};
+
+    @Test
+    public void compareMessageFormatAndTemplatesThroughput() throws Exception {
+
+        int seconds = Integer.getInteger("benchmark.seconds", 10);
+        int threads = Integer.getInteger("benchmark.threads", 4);
+
+        RecordingMessageSource delegate = new RecordingMessageSource();
+        delegate.setBasenames("classpath:/messages");
+        delegate.setDefaultEncoding("UTF-8");
+        delegate.setUseCodeAsDefaultMessage(true);
+        delegate.setFallbackToSystemLocale(false);
+        MessageSource messages = new LocaleGuardMessageSource(delegate, "classpath:/messages", 256);
+        MessageTemplates templates = new MessageTemplates(messages);
+
+        BiFunction<Integer, Locale, String> messageFormat = (i, locale) -> {
+            String greeting = messages.getMessage(GreetingsController.GREETING_PERSONALIZED_KEY, new Object[] {"Hello", NAMES[i & 3]}, locale);
+            String error = messages.getMessage(GreetingsServiceImpl.GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, new Object[] {locale.getLanguage()}, locale);
+            return greeting + error;
+        };
+        BiFunction<Integer, Locale, String> compiled = (i, locale) -> {
+            String greeting = templates.format(GreetingsController.GREETING_PERSONALIZED_KEY, locale, "Hello", NAMES[i & 3]);
+            String error = templates.format(GreetingsServiceImpl.GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, locale, locale.getLanguage());
+            return greeting + error;
+        };
+
+        for (int i = 0; i < LOCALES.length; i++) {
+            assertThat(compiled.apply(i, LOCALES[i])).isEqualTo(messageFormat.apply(i, LOCALES[i]));
+        }
+
+        // two rounds, so the first variant is not penalized by the cold JVM
+        for (int round = 1; round <= 2; round++) {
+            long formatOps = measure(messageFormat, threads, seconds);
+            long templateOps = measure(compiled, threads, seconds);
+            System.out.printf("Round %d, %d threads: MessageFormat %,d ops/s, templates %,d ops/s (%.1fx)%n",
+                              round, threads, formatOps / seconds, templateOps / seconds, (double) templateOps / Math.max(formatOps, 1));
+        }
+    }
+
+    /**
+     * @return number of the operations done by all threads in the {@code seconds}
+     */
+    private static long measure(BiFunction<Integer, Locale, String> operation, int threads, int seconds) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long ops = 0;
+                    int length = 0;
+                    while (System.nanoTime() < end) {
+                        for (int i = 0; i < 100; i++) {
+                            length += operation.apply(i, LOCALES[i & 3]).length();
+                        }
+                        ops += 100;
+                    }
+                    // the rendered messages have to be used
+                    return (length == 0) ? 0 : ops;
+                }));
+            }
+            long ops = 0;
+            for (Future<Long> result : results) {
+                ops += result.get();
+            }
+            return ops;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
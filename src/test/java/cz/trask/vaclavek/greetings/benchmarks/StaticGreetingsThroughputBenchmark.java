@@ -0,0 +1,64 @@
+package cz.trask.vaclavek.greetings.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import cz.trask.vaclavek.greetings.GreetingsApplication;
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathFilter;
+import cz.trask.vaclavek.greetings.staticexport.StaticGreetingsFilter;
+
+/**
+ * Throughput comparison of the greetings requests served by the Spring MVC, by the {@link GreetingsFastPathFilter}<br>
+ * and by the pre-rendered files of the {@link StaticGreetingsFilter}.
+ * <p>
+ * All modes are measured in the same application, the filters are switched at runtime. Logging of the served<br>
+ * greetings and the concurrency limiter are switched off, so only the request processing is compared.<br>
+ * Run by {@code mvn test -Pbenchmark}, duration and number of the clients are set by the {@code benchmark.seconds}<br>
+ * and {@code benchmark.threads} system properties.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class StaticGreetingsThroughputBenchmark
+{
+    private static final String[] MODES = {"Spring MVC:", "fast path:", "static files:"};
+
+    @Test
+    public void compareSpringMvcFastPathAndStaticGreetingsThroughput() throws Exception {
+
+        int seconds = Integer.getInteger("benchmark.seconds", 10);
+        int threads = Integer.getInteger("benchmark.threads", 4);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GreetingsApplication.class)
+                .properties("server.port=0",
+                            "spring.profiles.active=default",
+                            "logging.level.cz.trask.vaclavek=WARN",
+                            "greetings.concurrency-limit.enabled=false",
+                            "greetings.static-export.enabled=true")
+                .run()) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            GreetingsFastPathFilter fastPathFilter = context.getBean(GreetingsFastPathFilter.class);
+            StaticGreetingsFilter staticGreetingsFilter = context.getBean(StaticGreetingsFilter.class);
+            HttpLoadGenerator loadGenerator = new HttpLoadGenerator("http://localhost:" + port, HttpLoadGenerator.GREETING_PATHS, threads);
+
+            // two rounds, so the first mode is not penalized by the cold JVM
+            for (int round = 1; round <= 2; round++) {
+                for (int mode = 0; mode < MODES.length; mode++) {
+                    fastPathFilter.setEnabled(mode == 1);
+                    staticGreetingsFilter.setEnabled(mode == 2);
+                    HttpLoadGenerator.Result result = loadGenerator.run(Duration.ofSeconds(seconds / 2), Duration.ofSeconds(seconds));
+                    System.out.printf("Round %d, %-14s %s%n", round, MODES[mode], result);
+                    assertThat(result.getErrors()).isZero();
+                }
+            }
+            assertThat(staticGreetingsFilter.getServed()).isPositive();
+        }
+    }
+}
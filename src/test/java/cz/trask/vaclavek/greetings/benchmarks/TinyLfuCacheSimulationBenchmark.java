@@ -0,0 +1,189 @@
+package cz.trask.vaclavek.greetings.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import cz.trask.vaclavek.greetings.cache.TinyLfuCache;
+
+/**
+ * Trace-driven simulation of the {@link TinyLfuCache} and the throughput of its concurrent reads.
+ * <p>
+ * The simulation reports the hit ratio of the W-TinyLFU and LRU caches of the same size. The trace is generated<br>
+ * (Zipf distributed locales interleaved by the scans of rare locales), unless the file with the recorded request paths<br>
+ * (one per line, for example {@code /api/greeting/timesensitive?usersTime=05:01&lang=cs}) is set by {@code -Dsimulator.trace=<file>}.<br>
+ * The throughput is measured by {@code benchmark.threads} threads (the number of the CPU cores by default) replaying<br>
+ * the generated trace for {@code benchmark.seconds} seconds (5 by default). Run by {@code mvn test -Pbenchmark}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class TinyLfuCacheSimulationBenchmark
+{
+    private static final int TRACE_LENGTH = 200_000;
+
+    private static final int TRACE_LOCALES = 10_000;
+
+    private static final int SIMULATED_CACHE_SIZE = 500;
+
+    /**
+     * Replays the trace in the W-TinyLFU and LRU caches of the same size and reports their hit ratios
+     */
+    @Test
+    public void compareTinyLfuAndLruHitRatio() throws IOException {
+
+        String traceFile = System.getProperty("simulator.trace");
+        List<String> trace = (traceFile == null) ? generatedTrace() : recordedTrace(traceFile);
+
+        TinyLfuCache<String, String> tinyLfu = new TinyLfuCache<>(SIMULATED_CACHE_SIZE, (key, value) -> 1);
+        Map<String, String> lru = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > SIMULATED_CACHE_SIZE;
+            }
+        };
+        long lruHits = 0;
+        for (String key : trace) {
+            getOrLoad(tinyLfu, key);
+            if (lru.get(key) != null) {
+                lruHits++;
+            } else {
+                lru.put(key, key);
+            }
+        }
+        double lruHitRatio = (double) lruHits / trace.size();
+
+        System.out.printf("Trace %s: %,d requests, cache of %d greetings, hit ratio W-TinyLFU %.1f %%, LRU %.1f %%, evictions %,d, rejections %,d%n",
+                          (traceFile == null) ? "generated" : traceFile, trace.size(), SIMULATED_CACHE_SIZE,
+                          100 * tinyLfu.getHitRatio(), 100 * lruHitRatio, tinyLfu.getEvictions(), tinyLfu.getRejections());
+        if (traceFile == null) {
+            assertThat(tinyLfu.getHitRatio()).isGreaterThan(lruHitRatio);
+        }
+    }
+
+    /**
+     * Replays the generated trace by the concurrent threads and reports the number of the gets per second
+     */
+    @Test
+    public void measureConcurrentGetThroughput() throws Exception {
+
+        int seconds = Integer.getInteger("benchmark.seconds", 5);
+        int threads = Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors());
+        List<String> trace = generatedTrace();
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(SIMULATED_CACHE_SIZE, (key, value) -> 1);
+
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * (TRACE_LENGTH / threads);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long gets = 0;
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        getOrLoad(cache, trace.get(i % trace.size()));
+                        gets++;
+                    }
+                    return gets;
+                }));
+            }
+            start.countDown();
+            long gets = 0;
+            for (Future<Long> result : results) {
+                gets += result.get();
+            }
+            System.out.printf("%d threads: %,d gets per second, hit ratio %.1f %%, %d greetings cached%n",
+                              threads, gets / seconds, 100 * cache.getHitRatio(), cache.size());
+            assertThat(cache.size()).isLessThanOrEqualTo(SIMULATED_CACHE_SIZE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String getOrLoad(TinyLfuCache<String, String> cache, String key) {
+
+        String value = cache.get(key);
+        if (value == null) {
+            value = key;
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Zipf distributed keys of the locales, every 10 000 requests interrupted by the scan of 2 000 rare locales.
+     */
+    private static List<String> generatedTrace() {
+
+        double[] cumulative = new double[TRACE_LOCALES];
+        double sum = 0;
+        for (int i = 0; i < TRACE_LOCALES; i++) {
+            sum += 1 / Math.pow(i + 1, 0.9);
+            cumulative[i] = sum;
+        }
+
+        Random random = new Random(42);
+        List<String> trace = new ArrayList<>(TRACE_LENGTH);
+        int scanned = 0;
+        while (trace.size() < TRACE_LENGTH) {
+            if (trace.size() % 10_000 == 9_999) {
+                for (int i = 0; i < 2_000; i++) {
+                    trace.add("scan-" + scanned++);
+                }
+            }
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace.add("locale-" + ((index < 0) ? -index - 1 : index));
+        }
+        return trace;
+    }
+
+    /**
+     * Keys of the greetings of the recorded request paths: the endpoint, the {@code lang} and the part of the day of the {@code usersTime}.
+     */
+    private static List<String> recordedTrace(String traceFile) throws IOException {
+
+        List<String> trace = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(traceFile), StandardCharsets.UTF_8)) {
+            String path = line.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            int query = path.indexOf('?');
+            String key = (query < 0) ? path : path.substring(0, query);
+            String lang = "";
+            String period = "";
+            if (query >= 0) {
+                for (String parameter : path.substring(query + 1).split("&")) {
+                    if (parameter.startsWith("lang=")) {
+                        lang = parameter.substring(5);
+                    } else if (parameter.startsWith("usersTime=") && parameter.length() >= 12) {
+                        int hour = Integer.parseInt(parameter.substring(10, 12));
+                        period = (hour < 12) ? "am" : (hour < 18) ? "pm" : "night";
+                    }
+                }
+            }
+            trace.add(key + "|" + lang + "|" + period);
+        }
+        return trace;
+    }
+}
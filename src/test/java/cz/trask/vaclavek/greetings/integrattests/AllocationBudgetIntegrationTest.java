@@ -0,0 +1,156 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+import cz.trask.vaclavek.greetings.allocation.AllocationAccountingFilter;
+import cz.trask.vaclavek.greetings.allocation.AllocationStatistics;
+import cz.trask.vaclavek.greetings.allocation.RequestOutcome;
+import cz.trask.vaclavek.greetings.controller.GreetingsController;
+
+/**
+ * Allocation regression test of the {@link GreetingsController} endpoints.
+ * <p>
+ * Bytes allocated by the requests are measured by the {@link AllocationAccountingFilter}, the mean bytes per request<br>
+ * of every endpoint and outcome must not exceed the measured baseline of the {@code allocation-budgets.properties} file<br>
+ * by more than the {@code allocation.margin} percent.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class AllocationBudgetIntegrationTest
+{
+    private static final Logger Log = LoggerFactory.getLogger(AllocationBudgetIntegrationTest.class);
+
+    private static final String TIMESENSITIVE = "/api/greeting/timesensitive";
+
+    private static final String TIMEINSENSITIVE = "/api/greeting/timeinsensitive";
+
+    private static final String[][] REQUESTS = {
+        {TIMESENSITIVE + "?usersTime=05:01&lang=en-GB", TIMESENSITIVE, RequestOutcome.OK.name()},
+        {TIMESENSITIVE + "?usersTime=12:30&lang=es&name=Juan", TIMESENSITIVE, RequestOutcome.OK.name()},
+        {TIMESENSITIVE + "?usersTime=25:99&lang=en-GB", TIMESENSITIVE, RequestOutcome.INVALID_PARAMETER.name()},
+        {TIMESENSITIVE + "?usersTime=05:01&lang=de", TIMESENSITIVE, RequestOutcome.LANGUAGE_NOT_SUPPORTED.name()},
+        {TIMEINSENSITIVE + "?lang=cs_CS", TIMEINSENSITIVE, RequestOutcome.OK.name()},
+        {TIMEINSENSITIVE + "?lang=en-US&name=John", TIMEINSENSITIVE, RequestOutcome.OK.name()},
+        {TIMEINSENSITIVE + "?lang=", TIMEINSENSITIVE, RequestOutcome.INVALID_PARAMETER.name()},
+        {TIMEINSENSITIVE + "?lang=aa", TIMEINSENSITIVE, RequestOutcome.LANGUAGE_NOT_SUPPORTED.name()}
+    };
+
+    private static final int WARMUP_ROUNDS = 100;
+
+    private static final int MEASURED_ROUNDS = 100;
+
+    /**
+     * Max. time of the recording of the sent requests, the filter records the request after its response is sent
+     */
+    private static final long RECORDING_TIMEOUT_MILLIS = 5_000;
+
+    private static final String MARGIN_KEY = "allocation.margin";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private AllocationAccountingFilter allocationFilter;
+
+    @Autowired
+    private AllocationStatistics allocationStatistics;
+
+    /**
+     * Tests if the mean bytes allocated by the requests of every endpoint and outcome are within the margin of the baseline.
+     */
+    @Test
+    public void givenWarmedUpEndpoints_whenRequested_thenAllocationsWithinBudget() throws Exception {
+
+        assertThat(allocationFilter.isSupported()).isTrue();
+        Properties budgets = loadBudgets();
+        long margin = Long.parseLong(System.getProperty(MARGIN_KEY, budgets.getProperty(MARGIN_KEY)));
+
+        // first requests allocate the lazily created objects of the Spring MVC and of the caches
+        send(WARMUP_ROUNDS);
+        awaitRecorded(WARMUP_ROUNDS);
+        allocationStatistics.reset();
+        send(MEASURED_ROUNDS);
+        awaitRecorded(MEASURED_ROUNDS);
+
+        for (Map.Entry<String, List<String[]>> measured : getRequestsByKey().entrySet()) {
+            String key = measured.getKey();
+            String endpoint = measured.getValue().get(0)[1];
+            RequestOutcome outcome = RequestOutcome.valueOf(measured.getValue().get(0)[2]);
+
+            long baseline = Long.parseLong(System.getProperty("allocation.budget." + key, budgets.getProperty(key)));
+            long budget = baseline + baseline * margin / 100;
+            long meanBytes = allocationStatistics.getMeanBytes(endpoint, outcome);
+            Log.info("Allocated bytes per request {}: {} (baseline {}, budget {})", key, meanBytes, baseline, budget);
+
+            assertThat(allocationStatistics.getCount(endpoint, outcome)).as("requests of %s", key)
+                 .isEqualTo((long) MEASURED_ROUNDS * measured.getValue().size());
+            assertThat(meanBytes).as("mean allocated bytes of %s", key).isBetween(1L, budget);
+        }
+        assertThat(allocationStatistics.getCount(TIMESENSITIVE, RequestOutcome.OTHER_ERROR)).isZero();
+        assertThat(allocationStatistics.getCount(TIMEINSENSITIVE, RequestOutcome.OTHER_ERROR)).isZero();
+    }
+
+    private void send(int rounds) {
+
+        for (int i = 0; i < rounds; i++) {
+            for (String[] request : REQUESTS) {
+                restTemplate.getForEntity(request[0], String.class);
+            }
+        }
+    }
+
+    /**
+     * Waits until the requests of all {@code rounds} are recorded for every endpoint and outcome
+     */
+    private void awaitRecorded(int rounds) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RECORDING_TIMEOUT_MILLIS);
+        for (List<String[]> requests : getRequestsByKey().values()) {
+            String endpoint = requests.get(0)[1];
+            RequestOutcome outcome = RequestOutcome.valueOf(requests.get(0)[2]);
+            long expected = (long) rounds * requests.size();
+            while (allocationStatistics.getCount(endpoint, outcome) < expected && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * @return requests of every endpoint and outcome, keyed by {@code <endpoint path>.<RequestOutcome>}
+     */
+    private static Map<String, List<String[]>> getRequestsByKey() {
+
+        Map<String, List<String[]>> requests = new LinkedHashMap<>();
+        for (String[] request : REQUESTS) {
+            requests.computeIfAbsent(request[1] + "." + request[2], key -> new ArrayList<>()).add(request);
+        }
+        return requests;
+    }
+
+    private static Properties loadBudgets() throws Exception {
+
+        Properties budgets = new Properties();
+        try (InputStream in = AllocationBudgetIntegrationTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(in);
+        }
+        return budgets;
+    }
+}
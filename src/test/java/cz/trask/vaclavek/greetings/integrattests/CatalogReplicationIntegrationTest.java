@@ -0,0 +1,192 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+
+import cz.trask.vaclavek.greetings.GreetingsApplication;
+import cz.trask.vaclavek.greetings.controller.GreetingsController;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.messages.MessageTemplates;
+import cz.trask.vaclavek.greetings.messages.ParallelCatalogLoader;
+import cz.trask.vaclavek.greetings.replication.CatalogDelta;
+import cz.trask.vaclavek.greetings.replication.CatalogPublisher;
+import cz.trask.vaclavek.greetings.replication.CatalogReplica;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * Integration test of the catalog replication: one publisher and several replicas started on localhost.
+ * <p>
+ * The publisher reads the messages files copied into the temporary directory, the replicas have to serve<br>
+ * its changes, which are not in their own (classpath) files. Convergence time of every change is logged.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class CatalogReplicationIntegrationTest
+{
+    private static final Logger Log = LoggerFactory.getLogger(CatalogReplicationIntegrationTest.class);
+
+    private static final int REPLICAS = 3;
+
+    private static final long CONVERGENCE_TIMEOUT_MILLIS = 10_000;
+
+    private static final Locale EN_GB = new Locale("en", "GB");
+
+    /**
+     * Tests if the replicas bootstrap from the publisher's snapshot and converge to every published version
+     */
+    @Test
+    public void givenPublisherAndReplicas_whenCatalogChanged_thenAllReplicasConverge(@TempDir Path directory) throws Exception {
+
+        for (Resource file : ParallelCatalogLoader.findCatalogFiles("classpath:/messages").values()) {
+            try (InputStream input = file.getInputStream()) {
+                Files.copy(input, directory.resolve(file.getFilename()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Path enGbFile = directory.resolve("messages_en_GB.properties");
+        append(enGbFile, "greeting.timesensitive.morning=Good morning from the publisher\n");
+
+        List<ConfigurableApplicationContext> replicas = new ArrayList<>();
+        try (ConfigurableApplicationContext publisherContext = start("greetings.replication.role=publisher",
+                                                                     "greetings.replication.reload-interval=0s",
+                                                                     "greetings.messages.basename=file:" + directory.resolve("messages"))) {
+
+            CatalogPublisher publisher = publisherContext.getBean(CatalogPublisher.class);
+            String publisherUrl = "http://localhost:" + ((WebServerApplicationContext) publisherContext).getWebServer().getPort();
+            for (int i = 0; i < REPLICAS; i++) {
+                replicas.add(start("greetings.replication.role=replica",
+                                   "greetings.replication.publisher-url=" + publisherUrl,
+                                   "greetings.replication.wait=10s",
+                                   "greetings.replication.retry-interval=200ms"));
+            }
+
+            for (ConfigurableApplicationContext replica : replicas) {
+                assertThat(replica.getBean(CatalogReplica.class).getVersion()).isEqualTo(publisher.getVersion());
+                assertThat(morningGreeting(replica, EN_GB)).isEqualTo("Good morning from the publisher");
+                // the snapshot of the bootstrap is not measured
+                assertThat(replica.getBean(CatalogReplica.class).getLastConvergenceMillis()).isEqualTo(-1);
+            }
+            long firstVersion = publisher.getVersion();
+
+            // changed message
+            append(enGbFile, "greeting.timesensitive.morning=Morning, replicas\n");
+            converge("changed message", publisher, replicas, replica -> "Morning, replicas".equals(morningGreeting(replica, EN_GB)));
+
+            // changed template of the personalized greetings, already compiled from the previous catalog
+            for (ConfigurableApplicationContext context : replicas) {
+                assertThat(personalizedGreeting(context, EN_GB)).isEqualTo("Hello, Alice");
+            }
+            assertThat(personalizedGreeting(publisherContext, EN_GB)).isEqualTo("Hello, Alice");
+            append(enGbFile, "greeting.personalized={0}, dear {1}\n");
+            converge("changed template", publisher, replicas, replica -> "Hello, dear Alice".equals(personalizedGreeting(replica, EN_GB)));
+            assertThat(personalizedGreeting(publisherContext, EN_GB)).isEqualTo("Hello, dear Alice");
+
+            // new locale
+            Files.write(directory.resolve("messages_de.properties"),
+                        ("greeting.timesensitive.general=Guten Tag\ngreeting.timesinensitive.general=Hallo\n"
+                         + "greeting.timesensitive.morning=Guten Morgen\n").getBytes(StandardCharsets.UTF_8));
+            converge("new locale", publisher, replicas, replica -> "Guten Morgen".equals(servedGreeting(replica, Locale.GERMAN)));
+
+            for (ConfigurableApplicationContext replica : replicas) {
+                CatalogReplica catalogReplica = replica.getBean(CatalogReplica.class);
+                assertThat(catalogReplica.getVersion()).isEqualTo(publisher.getVersion());
+                assertThat(catalogReplica.getSnapshots()).isEqualTo(1);
+                assertThat(catalogReplica.getDeltas()).isEqualTo(3);
+                assertThat(replica.getBean(GreetingsService.class).getCatalogLocales()).contains(Locale.GERMAN, EN_GB);
+            }
+
+            CatalogDelta composed = publisher.getChangesSince(publisher.getEpoch(), firstVersion);
+            assertThat(composed.isFull()).isFalse();
+            assertThat(composed.getChanges()).containsOnlyKeys("en_GB", "de");
+            assertThat(composed.getChanges().get("en_GB")).hasSize(2);
+            assertThat(publisher.getChangesSince("another-epoch", firstVersion).isFull()).isTrue();
+        } finally {
+            replicas.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    /**
+     * Publishes the changed files and waits until every replica serves them.
+     */
+    private static void converge(String change, CatalogPublisher publisher, List<ConfigurableApplicationContext> replicas,
+                                 Predicate<ConfigurableApplicationContext> converged) throws InterruptedException {
+
+        long start = System.nanoTime();
+        assertThat(publisher.reload()).isTrue();
+
+        List<Long> convergence = new ArrayList<>();
+        for (ConfigurableApplicationContext replica : replicas) {
+            long deadline = System.currentTimeMillis() + CONVERGENCE_TIMEOUT_MILLIS;
+            while (!converged.test(replica) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(converged.test(replica)).as("replica converged after the %s", change).isTrue();
+            long convergenceMillis = replica.getBean(CatalogReplica.class).getLastConvergenceMillis();
+            assertThat(convergenceMillis).as("convergence of the delta after the %s", change).isNotNegative();
+            convergence.add(convergenceMillis);
+        }
+        Log.info("Catalog replication, {}: {} replicas converged in {} ms, per replica {} ms", change, replicas.size(),
+                 (System.nanoTime() - start) / 1_000_000, convergence);
+    }
+
+    /**
+     * Starts the application, the properties are passed as the command line arguments to override the application.properties.
+     */
+    private static ConfigurableApplicationContext start(String... properties) {
+
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--logging.level.cz.trask.vaclavek=WARN");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(GreetingsApplication.class).run(args.toArray(new String[0]));
+    }
+
+    private static String morningGreeting(ConfigurableApplicationContext context, Locale locale) {
+        return context.getBean(GreetingsService.class).getTimeSensitiveGreeting(TimePeriod.MORNING, locale);
+    }
+
+    private static String personalizedGreeting(ConfigurableApplicationContext context, Locale locale) {
+        return context.getBean(MessageTemplates.class).format(GreetingsController.GREETING_PERSONALIZED_KEY, locale, "Hello", "Alice");
+    }
+
+    /**
+     * @return morning greeting, null while the locale is not served yet
+     */
+    private static String servedGreeting(ConfigurableApplicationContext context, Locale locale) {
+        try {
+            return morningGreeting(context, locale);
+        } catch (LanguageNotSupportedException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends the line, the copied files do not have to end by the line separator.
+     */
+    private static void append(Path file, String line) throws IOException {
+        Files.write(file, ("\n" + line).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
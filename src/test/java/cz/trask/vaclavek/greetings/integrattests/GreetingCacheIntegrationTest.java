@@ -0,0 +1,90 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import cz.trask.vaclavek.greetings.cache.CachingGreetingsService;
+import cz.trask.vaclavek.greetings.cache.GreetingCachePostProcessor;
+import cz.trask.vaclavek.greetings.cache.TinyLfuCache;
+import cz.trask.vaclavek.greetings.configuration.GreetingCacheConfiguration;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Integration test of the {@link GreetingCacheConfiguration} switched on by the {@code greetings.cache.enabled=true} property.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(properties = "greetings.cache.enabled=true")
+@AutoConfigureMockMvc
+public class GreetingCacheIntegrationTest
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GreetingsService greetingsService;
+
+    @Autowired
+    private TinyLfuCache<?, ?> greetingCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Tests if the service is wrapped by the {@link GreetingCachePostProcessor}, the cache bean is the cache of the wrapping<br>
+     * service and the repeated greeting requests are served by it
+     */
+    @Test
+    public void givenCacheEnabled_whenGreetingRequestedRepeatedly_thenServedByCache() throws Exception {
+
+        assertThat(greetingsService).isInstanceOf(CachingGreetingsService.class);
+        assertThat(((CachingGreetingsService) greetingsService).getDelegate()).isInstanceOf(GreetingsServiceImpl.class);
+        assertThat(greetingCache).isSameAs(((CachingGreetingsService) greetingsService).getCache());
+
+        long hits = greetingCache.getHits();
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/greeting/timesensitive").param("usersTime", "05:01").param("lang", "en-GB"))
+                   .andExpect(status().isOk())
+                   .andExpect(content().string("Good morning GB"));
+        }
+        assertThat(greetingCache.getHits()).isGreaterThanOrEqualTo(hits + 2);
+        assertThat(greetingCache.size()).isPositive();
+        assertThat(meterRegistry.get("greetings.cache.gets").tag("result", "hit").functionCounter().count())
+            .isEqualTo(greetingCache.getHits());
+    }
+
+    /**
+     * Tests if the requested locales of the same catalog locale and the user's dates without the holiday greeting<br>
+     * share the cached greeting
+     */
+    @Test
+    public void givenLocaleSuffixes_and_dates_whenGreetingRequested_thenOneEntryCached() throws Exception {
+
+        mockMvc.perform(get("/api/greeting/timesensitive").param("usersTime", "12:30").param("lang", "en-GB"))
+               .andExpect(status().isOk());
+        long size = greetingCache.size();
+        long hits = greetingCache.getHits();
+
+        String[] langs = {"en-GB-x-abc", "en_GB_POSIX", "en-GB-u-ca-buddhist"};
+        String[] dates = {"2020-01-02", "2021-03-04", "2022-05-06"};
+        for (int i = 0; i < langs.length; i++) {
+            mockMvc.perform(get("/api/greeting/timesensitive").param("usersTime", "12:30").param("lang", langs[i]).param("date", dates[i]))
+                   .andExpect(status().isOk())
+                   .andExpect(content().string("Good afternoon GB"));
+        }
+        assertThat(greetingCache.size()).isEqualTo(size);
+        assertThat(greetingCache.getHits()).isEqualTo(hits + langs.length);
+    }
+}
@@ -0,0 +1,133 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+import cz.trask.vaclavek.greetings.client.GreetingRequest;
+import cz.trask.vaclavek.greetings.client.GreetingResult;
+import cz.trask.vaclavek.greetings.client.GreetingsClient;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+
+/**
+ * Integration test of the weighted greeting variants of the test catalog {@code variants/messages*.properties}.<br>
+ * The {@code en} catalog has the variants of the morning and time insensitive greetings, the {@code en_GB} catalog<br>
+ * has its own time insensitive greeting without variants and the evening variants without its own evening greeting.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "greetings.messages.basename=classpath:/variants/messages")
+public class GreetingVariantsIntegrationTest
+{
+    private static final List<GreetingRequest> REQUESTS = Arrays.asList(
+        new GreetingRequest("en", null, null, "client-1"),
+        new GreetingRequest("en", null, "John", "client-2"),
+        new GreetingRequest("en", "05:01", null, "client-3"),
+        new GreetingRequest("en-GB", "05:01", null, "client-4"),
+        new GreetingRequest("en-GB", null, null, "client-5"),
+        new GreetingRequest("en-GB", "18:01", null, "client-6"),
+        new GreetingRequest("en-US", "12:30", null, "client-7"));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    /**
+     * Tests if the variant is sent in the {@value GreetingVariants#VARIANT_HEADER} header, if the same client gets always<br>
+     * the same variant and if the clients are spread over all variants
+     */
+    @Test
+    public void givenClientId_whenGreetingRequested_thenSameVariantSentToClient() {
+
+        Set<String> variants = new HashSet<>();
+        for (int client = 0; client < 30; client++) {
+            ResponseEntity<String> first = get("/api/greeting/timeinsensitive?lang=en&clientId={clientId}", "client-" + client);
+            String variant = first.getHeaders().getFirst(GreetingVariants.VARIANT_HEADER);
+            assertThat(variant).isNotNull();
+            for (int i = 0; i < 3; i++) {
+                ResponseEntity<String> again = get("/api/greeting/timeinsensitive?lang=en&clientId={clientId}", "client-" + client);
+                assertThat(again.getHeaders().getFirst(GreetingVariants.VARIANT_HEADER)).isEqualTo(variant);
+                assertThat(again.getBody()).isEqualTo(first.getBody());
+            }
+            variants.add(variant);
+        }
+        assertThat(variants).containsExactlyInAnyOrder("a", "b", "c");
+    }
+
+    /**
+     * Tests if the variants are taken from the catalog supplying the greeting only
+     */
+    @Test
+    public void givenVariantsOfOtherLocale_whenGreetingRequested_thenOnlyVariantsOfGreetingLocaleServed() {
+
+        // own greeting of en_GB, the variants of en are not used
+        ResponseEntity<String> own = get("/api/greeting/timeinsensitive?lang=en-GB&clientId={clientId}", "client-1");
+        assertThat(own.getBody()).isEqualTo("Hello GB");
+        assertThat(own.getHeaders().containsKey(GreetingVariants.VARIANT_HEADER)).isFalse();
+
+        // variants of en_GB without its own greeting are not used
+        ResponseEntity<String> inherited = get("/api/greeting/timesensitive?lang=en-GB&usersTime=18:01&clientId={clientId}", "client-1");
+        assertThat(inherited.getBody()).isEqualTo("Good evening");
+        assertThat(inherited.getHeaders().containsKey(GreetingVariants.VARIANT_HEADER)).isFalse();
+
+        // greeting inherited together with its variants
+        ResponseEntity<String> morning = get("/api/greeting/timesensitive?lang=en-GB&usersTime=05:01&clientId={clientId}", "client-1");
+        assertThat(morning.getHeaders().getFirst(GreetingVariants.VARIANT_HEADER)).isNotNull();
+    }
+
+    /**
+     * Tests if the batch call and the client selecting the variants locally return the same greetings and variants<br>
+     * as the GET requests
+     */
+    @Test
+    public void givenClientIds_whenRequestedByBatchAndClient_thenSameVariantsAsService() {
+
+        ResponseEntity<List<GreetingResult>> batch = restTemplate.exchange("/api/greeting/batch", HttpMethod.POST, new HttpEntity<>(REQUESTS),
+                                                                           new ParameterizedTypeReference<List<GreetingResult>>() {});
+        try (GreetingsClient client = new GreetingsClient("http://localhost:" + port, 2, Duration.ZERO)) {
+            client.refresh();
+            List<GreetingResult> local = client.getGreetings(REQUESTS);
+            assertThat(client.getLocalHits()).isEqualTo(REQUESTS.size());
+
+            for (int i = 0; i < REQUESTS.size(); i++) {
+                GreetingRequest request = REQUESTS.get(i);
+                ResponseEntity<String> expected = (request.getUsersTime() == null)
+                        ? get("/api/greeting/timeinsensitive?lang={lang}&name={name}&clientId={clientId}",
+                              request.getLang(), (request.getName() == null) ? "" : request.getName(), request.getClientId())
+                        : get("/api/greeting/timesensitive?lang={lang}&usersTime={usersTime}&clientId={clientId}",
+                              request.getLang(), request.getUsersTime(), request.getClientId());
+                String variant = expected.getHeaders().getFirst(GreetingVariants.VARIANT_HEADER);
+
+                for (GreetingResult result : Arrays.asList(batch.getBody().get(i), local.get(i))) {
+                    assertThat(result.getGreeting()).as("greeting of %s", request).isEqualTo(expected.getBody());
+                    assertThat(result.getVariant()).as("variant of %s", request).isEqualTo(variant);
+                }
+            }
+        }
+    }
+
+    private ResponseEntity<String> get(String uri, Object... values) {
+
+        ResponseEntity<String> response = restTemplate.getForEntity(uri, String.class, values);
+        assertThat(response.getStatusCodeValue()).as("status of %s", uri).isEqualTo(200);
+        return response;
+    }
+}
@@ -0,0 +1,131 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+import cz.trask.vaclavek.greetings.admin.AdminTokenFilter;
+import cz.trask.vaclavek.greetings.admin.GreetingChange;
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.catalog.JdbcGreetingCatalog;
+
+/**
+ * Integration test of the admin API changing the greetings of the database catalog.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+                properties = {"greetings.catalog.source=jdbc",
+                              "greetings.catalog.jdbc.initialize=true",
+                              "greetings.catalog.jdbc.refresh-interval=0s",
+                              "greetings.admin.token=" + GreetingsAdminIntegrationTest.TOKEN,
+                              "spring.datasource.url=jdbc:h2:mem:greetings-admin-it;DB_CLOSE_DELAY=-1"})
+public class GreetingsAdminIntegrationTest
+{
+    static final String TOKEN = "test-admin-token";
+
+    private static final String ADMIN_URL = "/api/admin/greetings";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcGreetingCatalog catalog;
+
+    /**
+     * Tests if the requests without the admin token are rejected
+     */
+    @Test
+    public void givenNoToken_whenAdminApiCalled_thenUnauthorizedIsReturned() {
+
+        ResponseEntity<String> response = restTemplate.getForEntity(ADMIN_URL + "?lang=cs", String.class);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(401);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE)).isEqualTo("Bearer");
+        assertThat(response.getBody()).contains(AdminTokenFilter.UNAUTHORIZED_MESSAGE);
+    }
+
+    /**
+     * Tests if the batch of the changes is visible immediately after the response and if it is applied
+     * by one snapshot update, and if the batch with an outdated version is rejected without any change.
+     */
+    @Test
+    public void givenBatch_whenPosted_thenAppliedByOneSnapshotUpdate() {
+
+        Map<GreetingKey, Long> versions = getVersions("es");
+        long snapshotUpdates = catalog.getSnapshotUpdates();
+
+        List<GreetingChange> batch = Arrays.asList(change("es", GreetingKey.MORNING, "Buen día", versions.get(GreetingKey.MORNING)),
+                                                   change("es", GreetingKey.EVENING, null, versions.get(GreetingKey.EVENING)),
+                                                   change("es-AR", GreetingKey.MORNING, "Buen día che", 0));
+        ResponseEntity<Map<String, Long>> response = post(batch);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).containsEntry("changed", 3L);
+        assertThat(catalog.getSnapshotUpdates()).isEqualTo(snapshotUpdates + 1);
+        assertThat(restTemplate.getForObject("/api/greeting/timesensitive?usersTime=05:01&lang=es", String.class)).isEqualTo("Buen día");
+        assertThat(restTemplate.getForObject("/api/greeting/timesensitive?usersTime=05:01&lang=es-AR", String.class)).isEqualTo("Buen día che");
+        assertThat(getVersions("es")).doesNotContainKey(GreetingKey.EVENING)
+                                     .containsEntry(GreetingKey.MORNING, response.getBody().get("version"));
+
+        // the same batch again, the versions are outdated now
+        ResponseEntity<String> conflict = restTemplate.exchange(ADMIN_URL, HttpMethod.POST, new HttpEntity<>(batch, authHeaders()), String.class);
+
+        assertThat(conflict.getStatusCodeValue()).isEqualTo(409);
+        // the new 'es-AR' locale was not in the snapshot, it was read as a whole by its first request
+        assertThat(catalog.getSnapshotUpdates()).isEqualTo(snapshotUpdates + 2);
+        assertThat(restTemplate.getForObject("/api/greeting/timesensitive?usersTime=05:01&lang=es", String.class)).isEqualTo("Buen día");
+    }
+
+    private Map<GreetingKey, Long> getVersions(String lang) {
+
+        ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(ADMIN_URL + "?lang=" + lang, HttpMethod.GET,
+                                                                                   new HttpEntity<>(authHeaders()),
+                                                                                   new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+
+        Map<GreetingKey, Long> versions = new HashMap<>();
+        for (Map<String, Object> greeting : response.getBody()) {
+            versions.put(GreetingKey.valueOf((String) greeting.get("key")), ((Number) greeting.get("version")).longValue());
+        }
+        return versions;
+    }
+
+    private ResponseEntity<Map<String, Long>> post(List<GreetingChange> batch) {
+        return restTemplate.exchange(ADMIN_URL, HttpMethod.POST, new HttpEntity<>(batch, authHeaders()),
+                                     new ParameterizedTypeReference<Map<String, Long>>() {});
+    }
+
+    private static HttpHeaders authHeaders() {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(TOKEN);
+        return headers;
+    }
+
+    private static GreetingChange change(String lang, GreetingKey key, String text, long expectedVersion) {
+
+        GreetingChange change = new GreetingChange();
+        change.setLang(lang);
+        change.setKey(key);
+        change.setText(text);
+        change.setDelete(text == null);
+        change.setExpectedVersion(expectedVersion);
+        return change;
+    }
+}
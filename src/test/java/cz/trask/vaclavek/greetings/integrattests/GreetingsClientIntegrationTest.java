@@ -0,0 +1,139 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cz.trask.vaclavek.greetings.client.GreetingRequest;
+import cz.trask.vaclavek.greetings.client.GreetingResult;
+import cz.trask.vaclavek.greetings.client.GreetingsClient;
+import cz.trask.vaclavek.greetings.client.GreetingsClientException;
+
+/**
+ * Integration test of the {@link GreetingsClient} against the running service.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class GreetingsClientIntegrationTest
+{
+    private static final List<GreetingRequest> REQUESTS = Arrays.asList(
+        new GreetingRequest("cs", "05:01", null),
+        new GreetingRequest("en-GB", "18:01", "John"),
+        new GreetingRequest("es_ES", "12:30", "Juan"),
+        new GreetingRequest("es-MX", "23:59", null),
+        new GreetingRequest("en-US", null, null),
+        new GreetingRequest("cs_CS", null, "Jan"),
+        new GreetingRequest("en-GB", "00:00", null),
+        new GreetingRequest("de", "05:01", null),
+        new GreetingRequest("aa", null, null),
+        new GreetingRequest("en-GB", "", null),
+        new GreetingRequest("en-GB", "25:99", null),
+        new GreetingRequest("", null, null),
+        new GreetingRequest("xx", "10:00", null),
+        new GreetingRequest("en-GB", null, new String(new char[65]).replace('\0', 'x')),
+        new GreetingRequest("en-GB", "05:01", "<b>John</b>"),
+        new GreetingRequest("cs", null, "Jiří O'Neil-Novák Jr."));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Tests if the client returns the same results as the GET requests of the service, with the valid requests
+     * of the known locales answered locally and all the other requests sent in one batch.
+     */
+    @Test
+    public void givenMatrix_whenGreetingsRequested_thenSameResultsAsService() throws Exception {
+
+        try (GreetingsClient client = new GreetingsClient("http://localhost:" + port, 4, Duration.ZERO)) {
+            assertThat(client.refresh()).isTrue();
+            assertThat(client.refresh()).isFalse();
+            assertThat(client.getMatrixDownloads()).isEqualTo(1);
+            long remoteCalls = client.getRemoteCalls();
+
+            List<GreetingResult> results = client.getGreetings(REQUESTS);
+
+            for (int i = 0; i < REQUESTS.size(); i++) {
+                GreetingResult expected = get(REQUESTS.get(i));
+                assertThat(results.get(i).getStatus()).as("status of %s", REQUESTS.get(i)).isEqualTo(expected.getStatus());
+                assertThat(results.get(i).getGreeting()).as("greeting of %s", REQUESTS.get(i)).isEqualTo(expected.getGreeting());
+                assertThat(results.get(i).getMessage()).as("message of %s", REQUESTS.get(i)).isEqualTo(expected.getMessage());
+            }
+            assertThat(client.getLocalHits()).isEqualTo(8);
+            assertThat(client.getRemoteCalls()).isEqualTo(remoteCalls + 1);
+
+            assertThat(client.getTimeSensitiveGreeting("es", "05:01", "Juan")).isEqualTo("¡Buenos días, Juan!");
+            assertThatThrownBy(() -> client.getTimeInsensitiveGreeting("de", null))
+                .isInstanceOfSatisfying(GreetingsClientException.class, ex -> assertThat(ex.getStatus()).isEqualTo(404));
+        }
+    }
+
+    /**
+     * Tests if the idle client with one connection downloads the matrix and sends the batch, the connection<br>
+     * is not held by the dispatcher of the batched misses while no miss is queued.
+     */
+    @Test
+    public void givenOneConnection_and_noTraffic_whenMatrixRefreshed_thenMatrixLoaded() throws Exception {
+
+        try (GreetingsClient client = new GreetingsClient("http://localhost:" + port, 1, Duration.ZERO)) {
+            CompletableFuture<Boolean> refreshed = CompletableFuture.supplyAsync(client::refresh);
+            assertThat(refreshed.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(client.getMatrixDownloads()).isEqualTo(1);
+
+            CompletableFuture<List<GreetingResult>> results = CompletableFuture.supplyAsync(() -> client.getGreetings(REQUESTS));
+            assertThat(results.get(5, TimeUnit.SECONDS)).hasSize(REQUESTS.size());
+
+            assertThat(client.getTimeInsensitiveGreeting("en-GB", "John")).isEqualTo("Hello GB, John");
+            assertThatThrownBy(() -> client.getTimeInsensitiveGreeting("de", null)).isInstanceOf(GreetingsClientException.class);
+        }
+    }
+
+    /**
+     * @return result of the request sent as the GET request of the service
+     */
+    private GreetingResult get(GreetingRequest request) throws Exception {
+
+        UriComponentsBuilder uri = UriComponentsBuilder.fromPath((request.getUsersTime() == null) ? "/api/greeting/timeinsensitive"
+                                                                                                   : "/api/greeting/timesensitive");
+        List<Object> values = new ArrayList<>();
+        uri.queryParam("lang", "{lang}");
+        values.add(request.getLang());
+        if (request.getUsersTime() != null) {
+            uri.queryParam("usersTime", "{usersTime}");
+            values.add(request.getUsersTime());
+        }
+        if (request.getName() != null) {
+            uri.queryParam("name", "{name}");
+            values.add(request.getName());
+        }
+
+        ResponseEntity<String> response = restTemplate.getForEntity(uri.build().toUriString(), String.class, values.toArray());
+        if (response.getStatusCode().is2xxSuccessful()) {
+            return GreetingResult.greeting(response.getBody());
+        }
+        return GreetingResult.error(response.getStatusCodeValue(), objectMapper.readTree(response.getBody()).get("message").asText());
+    }
+}
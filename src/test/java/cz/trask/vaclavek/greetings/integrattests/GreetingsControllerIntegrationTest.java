@@ -20,7 +20,11 @@ import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -245,6 +249,86 @@ public class GreetingsControllerIntegrationTest
     }
     
     
+    /**
+     * Tests if the greeting is personalized by the template of the locale, when the name parameter is set
+     */
+    @Test
+    public void givenLang_and_name_whenGreetingRequested_thenPersonalizedGreetingIsReturned() {
+        
+        String baseURL = "http://localhost:" + port + "/api/greeting/timesensitive";
+        URI targetUrl= UriComponentsBuilder.fromUriString(baseURL)
+                                           .queryParam("usersTime", "05:01")
+                                           .queryParam("lang", "es-ES")
+                                           .queryParam("name", "Juan")
+                                           .build()
+                                           .encode()
+                                           .toUri();
+        
+        ResponseEntity<String> response = testRestTemplate.getForEntity(targetUrl, String.class);
+        
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("¡Buenos días, Juan!");
+        
+        baseURL = "http://localhost:" + port + "/api/greeting/timeinsensitive";
+        targetUrl= UriComponentsBuilder.fromUriString(baseURL)
+                                       .queryParam("lang", "en-GB")
+                                       .queryParam("name", "John")
+                                       .build()
+                                       .encode()
+                                       .toUri();
+        
+        response = testRestTemplate.getForEntity(targetUrl, String.class);
+        
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("Hello GB, John");
+    }
+    
+    /**
+     * Tests if the name with the HTML markup is refused, and if the greeting is always sent as {@code text/plain},<br>
+     * even if the client accepts the HTML or the JSON only.
+     */
+    @Test
+    public void givenMarkupInName_whenGreetingRequested_thenNoHtmlIsReturned() {
+        
+        String baseURL = "http://localhost:" + port + "/api/greeting/timeinsensitive";
+        URI targetUrl= UriComponentsBuilder.fromUriString(baseURL)
+                                           .queryParam("lang", "en-GB")
+                                           .queryParam("name", "<script>alert(1)</script>")
+                                           .build()
+                                           .encode()
+                                           .toUri();
+        
+        for (String accept : new String[] {"*/*", MediaType.TEXT_HTML_VALUE + "," + MediaType.ALL_VALUE + ";q=0.8"}) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.ACCEPT, accept);
+            try {
+                testRestTemplate.exchange(targetUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+                fail("HttpClientErrorException because of InvalidParameterException");
+            } catch (HttpClientErrorException ex) {
+                assertThat(ex.getRawStatusCode()).isEqualTo(400);
+                assertThat(ex.getResponseHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+            }
+        }
+        
+        // greeting is never negotiated to the HTML
+        targetUrl= UriComponentsBuilder.fromUriString(baseURL)
+                                       .queryParam("lang", "en-GB")
+                                       .queryParam("name", "John")
+                                       .build()
+                                       .encode()
+                                       .toUri();
+        for (String accept : new String[] {MediaType.TEXT_HTML_VALUE, MediaType.TEXT_HTML_VALUE + "," + MediaType.ALL_VALUE + ";q=0.8",
+                                           MediaType.APPLICATION_JSON_VALUE}) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.ACCEPT, accept);
+            ResponseEntity<String> response = testRestTemplate.exchange(targetUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.TEXT_PLAIN)).isTrue();
+            assertThat(response.getBody()).isEqualTo("Hello GB, John");
+        }
+    }
+    
     /**
      * Testing of the error situation, missing lang parameter of the time sensitive operation
      */
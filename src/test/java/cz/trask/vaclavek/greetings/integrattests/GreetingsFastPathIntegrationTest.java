@@ -0,0 +1,134 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathFilter;
+
+/**
+ * Integration test comparing responses of the {@link GreetingsFastPathFilter} with the responses of the Spring MVC
+ * {@code GreetingsController} and {@code RestExceptionHandler}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class GreetingsFastPathIntegrationTest
+{
+    private static final String[] REQUESTS = {
+        "/api/greeting/timesensitive?usersTime=05:01&lang=cs",
+        "/api/greeting/timesensitive?usersTime=18:01&lang=en-GB",
+        "/api/greeting/timesensitive?usersTime=12:30&lang=es_ES",
+        "/api/greeting/timeinsensitive?lang=en-US",
+        "/api/greeting/timeinsensitive?lang=cs_CS",
+        "/api/greeting/timesensitive?usersTime=05:01&lang=de",
+        "/api/greeting/timeinsensitive?lang=aa",
+        "/api/greeting/timesensitive?usersTime=05:01",
+        "/api/greeting/timesensitive?lang=en-GB",
+        "/api/greeting/timesensitive?usersTime=25:99&lang=en-GB",
+        "/api/greeting/timesensitive?usersTime=10:00&lang=xx",
+        "/api/greeting/timeinsensitive?lang=",
+        "/api/greeting/timeinsensitive?lang=%22%3Cscript%3E",
+        "/api/greeting/timesensitive?usersTime=05:01&lang=es&name=Juan",
+        "/api/greeting/timeinsensitive?lang=en-GB&name=John%20Smith",
+        "/api/greeting/timeinsensitive?lang=en-GB&name=" + new String(new char[65]).replace('\0', 'x'),
+        "/api/greeting/timeinsensitive?lang=en-GB&name=%3Cscript%3Ealert(1)%3C%2Fscript%3E",
+        "/api/greeting/timeinsensitive?lang=cs&name=Ji%C5%99%C3%AD%20O'Brien-Nov%C3%A1k",
+        "/api/greeting/timeinsensitive",
+        "/api/greeting/timesensitive?usersTime=21:30&lang=en-GB&lat=60&lon=10&date=2020-06-21&utcOffset=%2B02:00",
+        "/api/greeting/timesensitive?usersTime=21:30&lang=en-GB&lat=91"
+    };
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private GreetingsFastPathFilter fastPathFilter;
+    
+    @AfterEach
+    public void disableFastPath() {
+        fastPathFilter.setEnabled(false);
+    }
+    
+    /**
+     * Tests if the fast path returns the same status, Content-Type and body as the Spring MVC for valid and invalid requests.
+     */
+    @Test
+    public void givenRequests_whenServedByFastPath_thenSameResponsesAsSpringMvc() throws Exception {
+        
+        for (String accept : new String[] {"*/*", "application/json", "text/html", "text/html,application/xhtml+xml,*/*;q=0.8"}) {
+            for (String request : REQUESTS) {
+                fastPathFilter.setEnabled(false);
+                Response mvc = send(request, accept);
+                fastPathFilter.setEnabled(true);
+                Response fastPath = send(request, accept);
+                
+                assertThat(fastPath.status).as("status of %s", request).isEqualTo(mvc.status);
+                assertThat(fastPath.contentType).as("Content-Type of %s", request).isEqualToIgnoringCase(mvc.contentType);
+                assertThat(fastPath.body).as("body of %s", request).isEqualTo(mvc.body);
+            }
+        }
+    }
+    
+    /**
+     * Tests if the greeting is served without Spring MVC i.e. without the session created by the locale resolver.
+     */
+    @Test
+    public void givenFastPathEnabled_whenGreetingRequested_thenSessionNotCreated() throws Exception {
+        
+        fastPathFilter.setEnabled(true);
+        Response fastPath = send(REQUESTS[0], "*/*");
+        fastPathFilter.setEnabled(false);
+        Response mvc = send(REQUESTS[0], "*/*");
+        
+        assertThat(fastPath.status).isEqualTo(200);
+        assertThat(fastPath.setCookie).isNull();
+        assertThat(mvc.setCookie).startsWith("JSESSIONID");
+    }
+    
+    private Response send(String request, String accept) throws IOException {
+        
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + request).openConnection();
+        connection.setRequestProperty("Accept", accept);
+        try {
+            Response response = new Response();
+            response.status = connection.getResponseCode();
+            response.contentType = String.valueOf(connection.getContentType());
+            response.setCookie = connection.getHeaderField("Set-Cookie");
+            try (InputStream body = (response.status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[256];
+                int read;
+                while (body != null && (read = body.read(buffer)) >= 0) {
+                    bytes.write(buffer, 0, read);
+                }
+                // error timestamps can differ by a second
+                response.body = new String(bytes.toByteArray(), StandardCharsets.UTF_8).replaceAll("\"timestamp\":\"[^\"]*\"", "\"timestamp\":\"\"");
+            }
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+    
+    private static class Response
+    {
+        private int status;
+        private String contentType;
+        private String setCookie;
+        private String body;
+    }
+}
@@ -0,0 +1,102 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+import cz.trask.vaclavek.greetings.jfr.CatalogLoadEvent;
+import cz.trask.vaclavek.greetings.jfr.GreetingServedEvent;
+import cz.trask.vaclavek.greetings.jfr.InvalidParameterEvent;
+import cz.trask.vaclavek.greetings.jfr.LanguageNotSupportedEvent;
+import cz.trask.vaclavek.greetings.messages.RecordingMessageSource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Integration test of the Flight Recorder events emitted by the Greetings REST service.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class GreetingsFlightRecorderEventsIntegrationTest
+{
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    /**
+     * Tests if the served greetings, rejected requests and catalog loads are recorded when the events are enabled.
+     */
+    @Test
+    public void whenEventsEnabled_thenGreetingsEventsAreRecorded() throws Exception {
+
+        Path recordingFile = Files.createTempFile("greetings", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(GreetingServedEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(InvalidParameterEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(LanguageNotSupportedEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(CatalogLoadEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            restTemplate.getForEntity("/api/greeting/timesensitive?usersTime=18:36&lang=en-US", String.class);
+            restTemplate.getForEntity("/api/greeting/timeinsensitive?lang=en-GB", String.class);
+            restTemplate.getForEntity("/api/greeting/timesensitive?lang=en-US", String.class);
+            restTemplate.getForEntity("/api/greeting/timeinsensitive?lang=aa", String.class);
+
+            RecordingMessageSource messageSource = new RecordingMessageSource();
+            messageSource.setBasenames("classpath:/messages");
+            messageSource.getMessage("greeting.timesinensitive.general", null, "", new Locale("es"));
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        Files.delete(recordingFile);
+
+        List<RecordedEvent> served = eventsOf(events, GreetingServedEvent.class);
+        assertThat(served).hasSize(2);
+        assertThat(served).anySatisfy(event -> {
+            assertThat(event.getString("endpoint")).isEqualTo(GreetingServedEvent.ENDPOINT_TIMESENSITIVE);
+            assertThat(event.getString("locale")).isEqualTo("en_US");
+            assertThat(event.getString("period")).isEqualTo("EVENING");
+        });
+        assertThat(served).anySatisfy(event -> {
+            assertThat(event.getString("endpoint")).isEqualTo(GreetingServedEvent.ENDPOINT_TIMEINSENSITIVE);
+            assertThat(event.getString("locale")).isEqualTo("en_GB");
+        });
+
+        List<RecordedEvent> invalid = eventsOf(events, InvalidParameterEvent.class);
+        assertThat(invalid).hasSize(1);
+        assertThat(invalid.get(0).getString("parameterName")).isEqualTo("usersTime");
+
+        List<RecordedEvent> notSupported = eventsOf(events, LanguageNotSupportedEvent.class);
+        assertThat(notSupported).hasSize(1);
+        assertThat(notSupported.get(0).getString("message")).isEqualTo("Language 'aa' not supported.");
+
+        assertThat(eventsOf(events, CatalogLoadEvent.class)).anySatisfy(event -> {
+            assertThat(event.getString("fileName")).isEqualTo("classpath:/messages_es");
+            assertThat(event.getBoolean("found")).isTrue();
+            assertThat(event.getInt("entries")).isEqualTo(6);
+        });
+    }
+
+    private static List<RecordedEvent> eventsOf(List<RecordedEvent> events, Class<?> eventClass) {
+        String name = eventClass.getAnnotation(jdk.jfr.Name.class).value();
+        return events.stream()
+                     .filter(event -> event.getEventType().getName().equals(name))
+                     .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,94 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import cz.trask.vaclavek.greetings.service.GreetingsPushService;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+
+/**
+ * Integration test class for Server-Sent Events subscription of the Greetings REST service.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class GreetingsPushControllerIntegrationTest
+{
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private GreetingsService greetingsService;
+
+    @Autowired
+    private TimePeriodService timePeriodService;
+
+    @Autowired
+    private GreetingsPushService greetingsPushService;
+
+    /**
+     * Tests if the subscribed client receives current greeting as the first event of the stream
+     * and if the subscription is registered into the group of its zone and locale.
+     */
+    @Test
+    public void givenLang_and_zone_whenSubscribed_thenCurrentGreetingIsPushed() throws Exception {
+
+        ZoneId zone = ZoneId.of("UTC");
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        String greetingExpected = greetingsService.getTimeSensitiveGreeting(timePeriodService.getTimePeriod(now.toLocalTime()),
+                                                                            new Locale("en", "GB"), now.toLocalDate());
+
+        URL url = new URL("http://localhost:" + port + "/api/greeting/subscribe?zone=UTC&lang=en-GB");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        connection.setReadTimeout(5000);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            assertThat(connection.getContentType()).startsWith("text/event-stream");
+
+            String data = null;
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                if (line.startsWith("data:")) {
+                    data = line.substring("data:".length());
+                }
+            }
+            assertThat(data).isEqualTo(greetingExpected);
+            assertThat(greetingsPushService.getGroupsCount()).isGreaterThanOrEqualTo(1);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Testing of the error situation, invalid zone parameter of the subscription
+     */
+    @Test
+    public void invalidZone_whenSubscribed_thenBadRequestIsReturned() throws Exception {
+
+        URL url = new URL("http://localhost:" + port + "/api/greeting/subscribe?zone=Mars/Olympus&lang=en-GB");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            assertThat(connection.getResponseCode()).isEqualTo(400);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathFilter;
+
+/**
+ * Integration test of the {@link HolidayCalendar} switched on by the {@code greetings.calendar.enabled=true} property,<br>
+ * which is switched off for the other tests. The requests send the user's date, so the results do not depend<br>
+ * on the current date of the server.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(properties = "greetings.calendar.enabled=true")
+@AutoConfigureMockMvc
+public class HolidayGreetingsIntegrationTest
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HolidayCalendar holidayCalendar;
+
+    @Autowired
+    private GreetingsFastPathFilter fastPathFilter;
+
+    /**
+     * Tests if the holiday greeting of the user's date is served by the Spring MVC and by the {@link GreetingsFastPathFilter}
+     */
+    @Test
+    public void givenUsersDate_whenTimeSensitiveGreetingRequested_thenHolidayOfUsersDateServed() throws Exception {
+
+        assertThat(holidayCalendar.isEmpty()).isFalse();
+        try {
+            for (boolean fastPath : new boolean[] {false, true}) {
+                fastPathFilter.setEnabled(fastPath);
+
+                assertThat(send(greeting("en-GB").param("date", "2021-12-24"))).isEqualTo("Merry Christmas!");
+                assertThat(send(greeting("en-GB").param("date", "2021-06-01"))).isEqualTo("Good morning GB");
+                assertThat(send(greeting("en-US").param("date", "2021-07-04"))).isEqualTo("Happy Fourth of July!");
+                assertThat(send(greeting("cs").param("date", "2021-12-31").param("lat", "50").param("lon", "14.4")))
+                     .isEqualTo("Šťastný nový rok!");
+            }
+        } finally {
+            fastPathFilter.setEnabled(false);
+        }
+    }
+
+    /**
+     * Tests if the invalid user's date is refused even without the location
+     */
+    @Test
+    public void givenInvalidUsersDate_whenTimeSensitiveGreetingRequested_thenBadRequest() throws Exception {
+
+        MockHttpServletResponse response = mockMvc.perform(greeting("en-GB").param("date", "2021-13-01")).andReturn().getResponse();
+        assertThat(response.getStatus()).isEqualTo(400);
+        response = mockMvc.perform(greeting("en-GB").param("utcOffset", "+25:00")).andReturn().getResponse();
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    private static MockHttpServletRequestBuilder greeting(String lang) {
+        return get("/api/greeting/timesensitive").param("usersTime", "05:01").param("lang", lang);
+    }
+
+    private String send(MockHttpServletRequestBuilder request) throws Exception {
+
+        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        assertThat(response.getStatus()).isEqualTo(200);
+        return response.getContentAsString();
+    }
+}
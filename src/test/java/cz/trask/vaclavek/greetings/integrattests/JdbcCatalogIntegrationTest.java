@@ -0,0 +1,56 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+
+import cz.trask.vaclavek.greetings.catalog.JdbcGreetingCatalog;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.serviceimpl.JdbcGreetingsServiceImpl;
+
+/**
+ * Integration test of the greetings served from the database catalog in the embedded H2 database.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+                properties = {"greetings.catalog.source=jdbc",
+                              "greetings.catalog.jdbc.initialize=true",
+                              "greetings.catalog.jdbc.refresh-interval=0s",
+                              "spring.datasource.url=jdbc:h2:mem:greetings-it;DB_CLOSE_DELAY=-1"})
+public class JdbcCatalogIntegrationTest
+{
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private GreetingsService greetingsService;
+
+    @Autowired
+    private JdbcGreetingCatalog catalog;
+
+    /**
+     * Tests if the greetings and errors of the database catalog are the same as of the messages files
+     * and if the greetings of the loaded locales are served without queries.
+     */
+    @Test
+    public void givenJdbcCatalog_whenGreetingsRequested_thenServedFromDatabaseCatalog() {
+
+        assertThat(greetingsService).isInstanceOf(JdbcGreetingsServiceImpl.class);
+
+        assertThat(restTemplate.getForObject("/api/greeting/timesensitive?usersTime=05:01&lang=cs", String.class)).isEqualTo("Dobré ráno");
+        assertThat(restTemplate.getForObject("/api/greeting/timesensitive?usersTime=18:01&lang=en-GB", String.class)).isEqualTo("Good evening GB");
+        assertThat(restTemplate.getForObject("/api/greeting/timeinsensitive?lang=es_ES", String.class)).isEqualTo("Hola");
+        assertThat(catalog.getLocaleQueries()).isZero();
+
+        ResponseEntity<String> notSupported = restTemplate.getForEntity("/api/greeting/timeinsensitive?lang=de", String.class);
+        assertThat(notSupported.getStatusCodeValue()).isEqualTo(404);
+        assertThat(notSupported.getBody()).contains("Language 'de' not supported.");
+    }
+}
@@ -0,0 +1,191 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.MessageSource;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import cz.trask.vaclavek.greetings.fastpath.GreetingsFastPathFilter;
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+
+/**
+ * Integration test of the {@link DeadlineMessageSource} in front of the messages files loaded on demand, which stall<br>
+ * until they are released. Checks the {@value DeadlineMessageSource#SOURCE_HEADER} header and the 503 status<br>
+ * of the Spring MVC and of the {@link GreetingsFastPathFilter}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(properties = "greetings.messages.preload.enabled=false")
+@Import(MessageDeadlineIntegrationTest.StallingCatalogConfiguration.class)
+@AutoConfigureMockMvc
+public class MessageDeadlineIntegrationTest
+{
+    private static final long TIMEOUT_MILLIS = 1_000;
+
+    private static final long OPEN_MILLIS = 60_000;
+
+    /**
+     * Gate of the messages files, they stall while it is closed
+     */
+    private static volatile CountDownLatch catalogGate = new CountDownLatch(0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GreetingsFastPathFilter fastPathFilter;
+
+    /**
+     * Replaces the deadline of the message source by the one in front of the stalling messages files.<br>
+     * Imported instead of annotated by {@code @TestConfiguration}, so it is not found by the component scan of the applications<br>
+     * started by the other tests.
+     */
+    static class StallingCatalogConfiguration {
+
+        @Bean
+        public static StallingCatalogPostProcessor stallingCatalogPostProcessor() {
+            return new StallingCatalogPostProcessor();
+        }
+    }
+
+    /**
+     * Registered with the first post processors, so it is applied to the message source created by the other ones
+     */
+    static class StallingCatalogPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+            if (!"messageSource".equals(beanName)) {
+                return bean;
+            }
+            LocaleGuardMessageSource guard = (LocaleGuardMessageSource) bean;
+            DeadlineMessageSource deadline = (DeadlineMessageSource) guard.getDelegate();
+            deadline.close();
+            return new LocaleGuardMessageSource(new DeadlineMessageSource(new StallingMessageSource(deadline.getDelegate()),
+                                                                          TIMEOUT_MILLIS, 4, 1, OPEN_MILLIS),
+                                                guard.getCatalogLocales(), 256);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+
+    @AfterAll
+    public static void releaseCatalog() {
+        catalogGate.countDown();
+    }
+
+    /**
+     * Tests if the source of the messages is sent by both paths, if the last-known-good greetings and errors are served<br>
+     * while the breaker is open and if the never looked up greeting is refused by the same 503 response by both paths
+     */
+    @Test
+    public void givenStalledCatalog_whenGreetingRequested_thenSourceSentAndUnknownGreetingUnavailable() throws Exception {
+
+        try {
+            MockHttpServletResponse greeting = send("en-GB", false);
+            assertThat(greeting.getStatus()).isEqualTo(200);
+            assertThat(greeting.getHeader(DeadlineMessageSource.SOURCE_HEADER)).isEqualTo("catalog");
+            assertThat(send("en-GB", true).getHeader(DeadlineMessageSource.SOURCE_HEADER)).isEqualTo("catalog");
+            assertThat(send("de", false).getStatus()).isEqualTo(404);
+
+            catalogGate = new CountDownLatch(1);
+
+            for (boolean fastPath : new boolean[] {false, true}) {
+                MockHttpServletResponse lastKnownGood = send("en-GB", fastPath);
+                assertThat(lastKnownGood.getStatus()).isEqualTo(200);
+                assertThat(lastKnownGood.getContentAsString()).isEqualTo(greeting.getContentAsString());
+                assertThat(lastKnownGood.getHeader(DeadlineMessageSource.SOURCE_HEADER)).isEqualTo("last-known-good");
+
+                MockHttpServletResponse notSupported = send("de", fastPath);
+                assertThat(notSupported.getStatus()).isEqualTo(404);
+                assertThat(notSupported.getHeader(DeadlineMessageSource.SOURCE_HEADER)).isEqualTo("last-known-good");
+            }
+
+            MockHttpServletResponse mvc = send("es", false);
+            MockHttpServletResponse fastPath = send("es", true);
+            assertThat(mvc.getStatus()).isEqualTo(503);
+            assertThat(mvc.getHeader(DeadlineMessageSource.SOURCE_HEADER)).isEqualTo("none");
+            assertThat(fastPath.getStatus()).isEqualTo(mvc.getStatus());
+            assertThat(fastPath.getHeader(DeadlineMessageSource.SOURCE_HEADER)).isEqualTo("none");
+            assertThat(fastPath.getContentType()).isEqualToIgnoringCase(mvc.getContentType());
+            assertThat(body(fastPath)).isEqualTo(body(mvc));
+        } finally {
+            fastPathFilter.setEnabled(false);
+        }
+    }
+
+    private MockHttpServletResponse send(String lang, boolean fastPath) throws Exception {
+
+        fastPathFilter.setEnabled(fastPath);
+        return mockMvc.perform(get("/api/greeting/timeinsensitive").param("lang", lang)).andReturn().getResponse();
+    }
+
+    /**
+     * @return body of the response, error timestamps can differ by a second
+     */
+    private static String body(MockHttpServletResponse response) {
+        return new String(response.getContentAsByteArray(), StandardCharsets.UTF_8).replaceAll("\"timestamp\":\"[^\"]*\"", "\"timestamp\":\"\"");
+    }
+
+    /**
+     * Message source waiting for the gate of the messages files
+     */
+    private static final class StallingMessageSource implements MessageSource
+    {
+        private final MessageSource delegate;
+
+        private StallingMessageSource(MessageSource delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getMessage(String code, Object[] args, String defaultMessage, Locale locale) {
+            awaitGate();
+            return delegate.getMessage(code, args, defaultMessage, locale);
+        }
+
+        @Override
+        public String getMessage(String code, Object[] args, Locale locale) throws NoSuchMessageException {
+            awaitGate();
+            return delegate.getMessage(code, args, locale);
+        }
+
+        @Override
+        public String getMessage(MessageSourceResolvable resolvable, Locale locale) throws NoSuchMessageException {
+            awaitGate();
+            return delegate.getMessage(resolvable, locale);
+        }
+
+        private static void awaitGate() {
+            try {
+                catalogGate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
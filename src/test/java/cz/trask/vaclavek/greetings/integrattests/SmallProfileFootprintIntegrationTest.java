@@ -0,0 +1,175 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import cz.trask.vaclavek.greetings.GreetingsApplication;
+import cz.trask.vaclavek.greetings.benchmarks.HttpLoadGenerator;
+
+/**
+ * Footprint test of the low-footprint 'small' profile.
+ * <p>
+ * The application is started in the separate JVM with the options of the {@code jvm/small.options} file, loaded by<br>
+ * the fixed number of clients for the fixed time and then its resident set size and the heap occupied after the full GC<br>
+ * are compared with the ceilings. Runs on Linux only, the RSS is read from {@code /proc}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class SmallProfileFootprintIntegrationTest
+{
+    private static final long RSS_CEILING_KB = 160 * 1024;
+    
+    private static final long HEAP_AFTER_GC_CEILING_BYTES = 24 * 1024 * 1024;
+    
+    private static final Pattern PID_PATTERN = Pattern.compile("Starting GreetingsApplication .* with PID (\\d+)");
+    private static final Pattern PORT_PATTERN = Pattern.compile("started on port\\(s\\):? (\\d+)");
+    private static final Pattern HISTOGRAM_TOTAL_PATTERN = Pattern.compile("^Total\\s+\\d+\\s+(\\d+)\\s*$", Pattern.MULTILINE);
+    
+    private volatile String pid;
+    private volatile int port;
+    
+    /**
+     * Tests if the application of the 'small' profile fits into the RSS and heap ceilings after the load
+     * and if it does not create HTTP sessions.
+     */
+    @Test
+    public void givenSmallProfile_whenLoaded_thenFootprintIsUnderCeilings() throws Exception {
+        
+        Path jcmd = findJdkTool("jcmd");
+        assumeTrue(Files.isReadable(Paths.get("/proc/self/status")), "RSS is read from /proc");
+        assumeTrue(jcmd != null, "jcmd is needed to get the heap after GC");
+        
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String line : Files.readAllLines(Paths.get("jvm", "small.options"))) {
+            if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                command.add(line.trim());
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")));
+        command.add(GreetingsApplication.class.getName());
+        command.add("--server.port=0");
+        command.add("--spring.profiles.active=default,small");
+        
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Thread outputReader = new Thread(() -> readOutput(process, started), "footprint-app-output");
+            outputReader.setDaemon(true);
+            outputReader.start();
+            assertThat(started.await(90, TimeUnit.SECONDS)).as("application started").isTrue();
+            
+            String baseUrl = "http://localhost:" + port;
+            HttpLoadGenerator.Result result = new HttpLoadGenerator(baseUrl, HttpLoadGenerator.GREETING_PATHS, 4)
+                                                  .run(Duration.ofSeconds(2), Duration.ofSeconds(5));
+            assertThat(result.getRequests()).isPositive();
+            assertThat(result.getErrors()).isZero();
+            
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/api/greeting/timeinsensitive?lang=cs").openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            assertThat(connection.getHeaderField("Set-Cookie")).isNull();
+            connection.disconnect();
+            
+            long heapAfterGc = heapAfterFullGc(jcmd);
+            long rssKb = residentSetSizeKb();
+            System.out.printf("Small profile footprint: %s, RSS %d kB, heap after GC %d bytes%n", result, rssKb, heapAfterGc);
+            
+            assertThat(rssKb).isLessThan(RSS_CEILING_KB);
+            assertThat(heapAfterGc).isLessThan(HEAP_AFTER_GC_CEILING_BYTES);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(20, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+    
+    private void readOutput(Process process, CountDownLatch started) {
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher pidMatcher = PID_PATTERN.matcher(line);
+                if (pidMatcher.find()) {
+                    pid = pidMatcher.group(1);
+                }
+                Matcher portMatcher = PORT_PATTERN.matcher(line);
+                if (portMatcher.find()) {
+                    port = Integer.parseInt(portMatcher.group(1));
+                    started.countDown();
+                }
+            }
+        } catch (IOException ex) {
+            // process finished
+        }
+    }
+    
+    /**
+     * Class histogram of the live objects triggers full GC, its total is the heap occupied after the GC.
+     */
+    private long heapAfterFullGc(Path jcmd) throws IOException, InterruptedException {
+        
+        Process histogram = new ProcessBuilder(jcmd.toString(), pid, "GC.class_histogram").redirectErrorStream(true).start();
+        String output;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(histogram.getInputStream(), StandardCharsets.UTF_8))) {
+            StringBuilder lines = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.append(line).append('\n');
+            }
+            output = lines.toString();
+        }
+        histogram.waitFor(30, TimeUnit.SECONDS);
+        
+        Matcher total = HISTOGRAM_TOTAL_PATTERN.matcher(output);
+        assertThat(total.find()).as("class histogram total of:%n%s", output).isTrue();
+        return Long.parseLong(total.group(1));
+    }
+    
+    private long residentSetSizeKb() throws IOException {
+        
+        for (String line : Files.readAllLines(Paths.get("/proc", pid, "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        throw new IllegalStateException("VmRSS not found for the process " + pid);
+    }
+    
+    /**
+     * @return the JDK tool of the running JVM, from the {@code bin} directory of the JDK or of its parent (JDK 8)
+     */
+    private static Path findJdkTool(String name) {
+        
+        Path javaHome = Paths.get(System.getProperty("java.home"));
+        String executable = File.separatorChar == '\\' ? name + ".exe" : name;
+        for (Path home : new Path[] {javaHome, javaHome.getParent()}) {
+            if (home != null && Files.isExecutable(home.resolve("bin").resolve(executable))) {
+                return home.resolve("bin").resolve(executable);
+            }
+        }
+        return null;
+    }
+}
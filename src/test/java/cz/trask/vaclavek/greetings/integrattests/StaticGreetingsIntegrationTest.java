@@ -0,0 +1,191 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.staticexport.ExportedGreetings;
+import cz.trask.vaclavek.greetings.staticexport.StaticGreetingExport;
+import cz.trask.vaclavek.greetings.staticexport.StaticGreetingsFilter;
+
+/**
+ * Integration test comparing responses of the {@link StaticGreetingsFilter} with the responses of the Spring MVC
+ * {@code GreetingsController} and {@code RestExceptionHandler}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "greetings.static-export.enabled=true")
+public class StaticGreetingsIntegrationTest
+{
+    /**
+     * Requests served by the exported greetings
+     */
+    private static final String[] STATIC_REQUESTS = {
+        "/api/greeting/timesensitive?usersTime=05:01&lang=cs",
+        "/api/greeting/timesensitive?usersTime=18:01&lang=en-GB",
+        "/api/greeting/timesensitive?usersTime=12:30&lang=es_ES",
+        "/api/greeting/timesensitive?usersTime=23:59&lang=cs-CZ",
+        "/api/greeting/timesensitive?usersTime=00:00&lang=en_US",
+        "/api/greeting/timeinsensitive?lang=en-US",
+        "/api/greeting/timeinsensitive?lang=cs_CS",
+        "/api/greeting/timeinsensitive?lang=es"
+    };
+
+    /**
+     * Requests passed to the Spring MVC
+     */
+    private static final String[] DYNAMIC_REQUESTS = {
+        "/api/greeting/timesensitive?usersTime=05:01&lang=de",
+        "/api/greeting/timeinsensitive?lang=aa",
+        "/api/greeting/timesensitive?usersTime=05:01",
+        "/api/greeting/timesensitive?lang=en-GB",
+        "/api/greeting/timesensitive?usersTime=25:99&lang=en-GB",
+        "/api/greeting/timesensitive?usersTime=5:01&lang=en-GB",
+        "/api/greeting/timesensitive?usersTime=10:00&lang=xx",
+        "/api/greeting/timeinsensitive?lang=%22%3Cscript%3E",
+        "/api/greeting/timesensitive?usersTime=05:01&lang=es&name=Juan",
+        "/api/greeting/timesensitive?usersTime=21:30&lang=en-GB&lat=60&lon=10&date=2020-06-21&utcOffset=%2B02:00"
+    };
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StaticGreetingsFilter staticGreetingsFilter;
+
+    @Autowired
+    private StaticGreetingExport staticGreetingExport;
+
+    @Autowired
+    private GreetingsService greetingsService;
+
+    @Autowired
+    private TimePeriodService timePeriodService;
+
+    @Autowired
+    private HolidayCalendar holidayCalendar;
+
+    @AfterEach
+    public void disableStaticGreetings() {
+        staticGreetingsFilter.setEnabled(false);
+    }
+
+    /**
+     * Tests if the exported greetings are the same responses as the responses of the Spring MVC,<br>
+     * and if the other requests are passed to the Spring MVC.
+     */
+    @Test
+    public void givenRequests_whenServedByExportedGreetings_thenSameResponsesAsSpringMvc() throws Exception {
+
+        staticGreetingsFilter.setEnabled(true);
+        ExportedGreetings exported = staticGreetingExport.getCurrent();
+        assertThat(exported.getFilesCount()).isGreaterThanOrEqualTo(6 * 5 - 1);
+        assertThat(Files.readAllLines(exported.getDirectory().resolve("cs").resolve("morning.txt"), StandardCharsets.UTF_8))
+            .containsExactly("Dobré ráno");
+
+        compare(STATIC_REQUESTS, "*/*", STATIC_REQUESTS.length);
+        compare(STATIC_REQUESTS, "application/json", 0);
+        compare(DYNAMIC_REQUESTS, "*/*", 0);
+        assertThat(staticGreetingsFilter.getSentByContainer()).isGreaterThanOrEqualTo(STATIC_REQUESTS.length);
+    }
+
+    /**
+     * Tests if the replaced generation of the files is deleted after the delay, not when it is replaced,<br>
+     * and if all files and the temporary directory are deleted when the export is closed.
+     */
+    @Test
+    public void givenCatalogChanged_whenExportedAgain_thenReplacedFilesDeletedLater() throws Exception {
+
+        GreetingsService changingCatalog = mock(GreetingsService.class, delegatesTo(greetingsService));
+        doReturn("v1").doReturn("v2").when(changingCatalog).getCatalogVersion();
+        Path root = Files.createTempDirectory("greetings-export");
+        StaticGreetingExport export = new StaticGreetingExport(changingCatalog, timePeriodService, holidayCalendar, root,
+                                                               true, Duration.ofMillis(200));
+        try {
+            Path replaced = export.refresh().getDirectory();
+            Path current = export.refresh().getDirectory();
+            assertThat(current).isNotEqualTo(replaced);
+            assertThat(replaced).exists();
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (Files.exists(replaced) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(replaced).doesNotExist();
+            assertThat(current).exists();
+        } finally {
+            export.close();
+        }
+        assertThat(export.getCurrent()).isNull();
+        assertThat(root).doesNotExist();
+    }
+
+    private void compare(String[] requests, String accept, int expectedServed) throws IOException {
+
+        long served = staticGreetingsFilter.getServed();
+        for (String request : requests) {
+            staticGreetingsFilter.setEnabled(false);
+            Response mvc = send(request, accept);
+            staticGreetingsFilter.setEnabled(true);
+            Response exported = send(request, accept);
+
+            assertThat(exported.status).as("status of %s", request).isEqualTo(mvc.status);
+            assertThat(exported.contentType).as("Content-Type of %s", request).isEqualToIgnoringCase(mvc.contentType);
+            assertThat(exported.body).as("body of %s", request).isEqualTo(mvc.body);
+        }
+        assertThat(staticGreetingsFilter.getServed() - served).isEqualTo(expectedServed);
+    }
+
+    private Response send(String request, String accept) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + request).openConnection();
+        connection.setRequestProperty("Accept", accept);
+        try {
+            Response response = new Response();
+            response.status = connection.getResponseCode();
+            response.contentType = String.valueOf(connection.getContentType());
+            try (InputStream body = (response.status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[256];
+                int read;
+                while (body != null && (read = body.read(buffer)) >= 0) {
+                    bytes.write(buffer, 0, read);
+                }
+                // error timestamps can differ by a second
+                response.body = new String(bytes.toByteArray(), StandardCharsets.UTF_8).replaceAll("\"timestamp\":\"[^\"]*\"", "\"timestamp\":\"\"");
+            }
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static class Response
+    {
+        private int status;
+        private String contentType;
+        private String body;
+    }
+}
@@ -0,0 +1,73 @@
+package cz.trask.vaclavek.greetings.integrattests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import cz.trask.vaclavek.greetings.allocation.AllocationStatistics;
+import cz.trask.vaclavek.greetings.allocation.RequestOutcome;
+import cz.trask.vaclavek.greetings.warmup.WarmupRequestFilter;
+import cz.trask.vaclavek.greetings.warmup.WarmupState;
+
+/**
+ * Integration test of the startup warm-up and the readiness endpoint.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+                properties = {"greetings.warmup.enabled=true",
+                              "greetings.warmup.min-iterations=2",
+                              "greetings.warmup.max-iterations=5",
+                              "greetings.warmup.max-duration=20s"})
+public class WarmupReadinessIntegrationTest
+{
+    @Autowired
+    private TestRestTemplate restTemplate;
+    
+    @Autowired
+    private WarmupState warmupState;
+    
+    @Autowired
+    private AllocationStatistics allocationStatistics;
+    
+    /**
+     * Tests if the warm-up sends requests of all paths without unexpected responses
+     * and if the readiness endpoint reports 503 until the warm-up is finished and 200 after that.
+     * The allocation statistics of the warm-up requests are reset, the warm-up header without the token is ignored.
+     */
+    @Test
+    public void whenWarmupFinished_thenReadinessReportsReady() throws Exception {
+        
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!warmupState.isReady() && System.currentTimeMillis() < deadline) {
+            assertThat(restTemplate.getForEntity("/actuator/readiness", String.class).getStatusCodeValue()).isIn(200, 503);
+            Thread.sleep(50);
+        }
+        
+        assertThat(warmupState.isReady()).isTrue();
+        assertThat(warmupState.getIterations()).isBetween(2L, 5L);
+        assertThat(warmupState.getRequests()).isPositive();
+        assertThat(warmupState.getFailedRequests()).isZero();
+        assertThat(restTemplate.getForEntity("/actuator/readiness", String.class).getStatusCodeValue()).isEqualTo(200);
+        
+        assertThat(allocationStatistics.getSummary()).isEmpty();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(WarmupRequestFilter.WARMUP_HEADER, "true");
+        assertThat(restTemplate.exchange("/api/greeting/timeinsensitive?lang=en-GB", HttpMethod.GET, new HttpEntity<>(headers), String.class)
+                               .getStatusCodeValue()).isEqualTo(200);
+        // the request is recorded after its response is sent
+        deadline = System.currentTimeMillis() + 5_000;
+        while (allocationStatistics.getCount("/api/greeting/timeinsensitive", RequestOutcome.OK) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(allocationStatistics.getCount("/api/greeting/timeinsensitive", RequestOutcome.OK)).isEqualTo(1);
+    }
+}
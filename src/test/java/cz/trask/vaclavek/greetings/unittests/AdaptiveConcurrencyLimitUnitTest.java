@@ -0,0 +1,138 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import cz.trask.vaclavek.greetings.errors.ApiErrorTemplates;
+import cz.trask.vaclavek.greetings.limiter.AdaptiveConcurrencyLimitFilter;
+import cz.trask.vaclavek.greetings.limiter.GradientConcurrencyLimit;
+
+/**
+ * Unit tests of the {@link GradientConcurrencyLimit} and {@link AdaptiveConcurrencyLimitFilter}
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class AdaptiveConcurrencyLimitUnitTest
+{
+    private static final long RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    /**
+     * Tests if the limit grows when the limit is used and the latency does not change
+     */
+    @Test
+    public void givenSteadyLatency_whenLimitUsed_thenLimitIsIncreased() {
+        
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 4, 100, 1.5, 0.2);
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(RTT_NANOS, limit.getLimit());
+        }
+        assertThat(limit.getLimit()).isEqualTo(100);
+    }
+    
+    /**
+     * Tests if the limit is not increased when less than half of it is used
+     */
+    @Test
+    public void givenSteadyLatency_whenLimitNotUsed_thenLimitIsNotChanged() {
+        
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 4, 100, 1.5, 0.2);
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(RTT_NANOS, 2);
+        }
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+    
+    /**
+     * Tests if the limit is reduced when the requests start to queue i.e. the latency increases
+     */
+    @Test
+    public void givenIncreasingLatency_thenLimitIsReduced() {
+        
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 4, 100, 1.5, 0.2);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(RTT_NANOS, 25);
+        }
+        int limitBefore = limit.getLimit();
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(RTT_NANOS * 10, limit.getLimit());
+        }
+        assertThat(limit.getLimit()).isLessThan(limitBefore);
+        assertThat(limit.getLimit()).isGreaterThanOrEqualTo(4);
+    }
+    
+    /**
+     * Tests if the samples of the concurrent requests, folded in windows without blocking, still raise the limit
+     */
+    @Test
+    public void givenConcurrentSamples_whenLimitUsed_thenLimitIsIncreased() throws InterruptedException {
+        
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 4, 100, 1.5, 0.2);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000 && limit.getLimit() < 100; i++) {
+                    limit.onSample(RTT_NANOS, limit.getLimit());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+        assertThat(limit.getLimit()).isEqualTo(100);
+    }
+    
+    /**
+     * Tests if the request over the limit is rejected by 503 with the error JSON body without calling the filter chain
+     */
+    @Test
+    public void givenLimitReached_whenRequestArrives_thenRejectedWith503() throws Exception {
+        
+        AdaptiveConcurrencyLimitFilter filter = new AdaptiveConcurrencyLimitFilter(new GradientConcurrencyLimit(1, 1, 1, 1.5, 0.2), new ApiErrorTemplates(16));
+        
+        CountDownLatch inProgress = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (req, res) -> {
+                    inProgress.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        first.start();
+        assertThat(inProgress.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(filter.getInFlight()).isEqualTo(1);
+        
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest(), rejected, chain);
+        
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getContentType()).isEqualTo("application/json");
+        assertThat(rejected.getContentAsString(StandardCharsets.UTF_8))
+            .startsWith("{\"status\":\"SERVICE_UNAVAILABLE\"")
+            .endsWith("\"message\":\"" + AdaptiveConcurrencyLimitFilter.REJECTED_MESSAGE + "\",\"debugMessage\":\"\"}");
+        assertThat(chain.getRequest()).isNull();
+        assertThat(filter.getRejected()).isEqualTo(1);
+        
+        release.countDown();
+        first.join(5000);
+        assertThat(filter.getInFlight()).isZero();
+    }
+}
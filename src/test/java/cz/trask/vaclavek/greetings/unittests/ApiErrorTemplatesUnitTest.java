@@ -0,0 +1,70 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cz.trask.vaclavek.greetings.errors.ApiError;
+import cz.trask.vaclavek.greetings.errors.ApiErrorTemplates;
+
+/**
+ * Unit tests of the {@link ApiErrorTemplates}
+ * <p>
+ * Rendered bodies are compared with the {@link ApiError} serialized by Jackson,<br>
+ * only the timestamps are compared separately as they can differ by a second.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class ApiErrorTemplatesUnitTest
+{
+    private static final String TIMESTAMP_REGEX = "\"timestamp\":\"\\d{2}-\\d{2}-\\d{4} \\d{2}:\\d{2}:\\d{2}\"";
+    
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    
+    private ApiErrorTemplates apiErrorTemplates = new ApiErrorTemplates(2);
+    
+    /**
+     * Tests if the rendered bodies are same as the bodies serialized by Jackson for typical and special messages
+     */
+    @Test
+    public void whenErrorRendered_thenBodyIsSameAsSerializedApiError() throws Exception {
+        
+        assertSameAsJackson(HttpStatus.NOT_FOUND, "Language 'aa' not supported.");
+        assertSameAsJackson(HttpStatus.BAD_REQUEST, "Invalid value '' or missing parameter 'lang'.");
+        // rendered twice to use cached template
+        assertSameAsJackson(HttpStatus.BAD_REQUEST, "Invalid value '' or missing parameter 'lang'.");
+        assertSameAsJackson(HttpStatus.BAD_REQUEST, "Quotes \" and backslash \\ and / slash");
+        assertSameAsJackson(HttpStatus.BAD_REQUEST, "Control \n\r\t\b\f\u0001\u001f characters");
+        assertSameAsJackson(HttpStatus.SERVICE_UNAVAILABLE, "Unicode Dobrý večer   😀");
+        assertSameAsJackson(HttpStatus.BAD_REQUEST, null);
+    }
+    
+    /**
+     * Tests if the timestamp of the rendered body has the {@link ApiError} format
+     */
+    @Test
+    public void whenErrorRendered_thenTimestampHasApiErrorFormat() {
+        
+        String body = new String(apiErrorTemplates.render(HttpStatus.NOT_FOUND, "message", ""), StandardCharsets.UTF_8);
+        assertThat(body).containsPattern(TIMESTAMP_REGEX);
+    }
+    
+    private void assertSameAsJackson(HttpStatus status, String message) throws Exception {
+        
+        ApiError apiError = new ApiError(status);
+        apiError.setMessage(message);
+        String expected = objectMapper.writeValueAsString(apiError);
+        
+        String rendered = new String(apiErrorTemplates.render(status, message, ""), StandardCharsets.UTF_8);
+        
+        assertThat(rendered).containsPattern(TIMESTAMP_REGEX);
+        assertThat(rendered.replaceAll(TIMESTAMP_REGEX, "")).isEqualTo(expected.replaceAll(TIMESTAMP_REGEX, ""));
+    }
+}
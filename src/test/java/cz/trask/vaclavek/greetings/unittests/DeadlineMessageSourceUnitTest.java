@@ -0,0 +1,212 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import cz.trask.vaclavek.greetings.errors.CatalogUnavailableException;
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource;
+import cz.trask.vaclavek.greetings.messages.DeadlineMessageSource.LookupSource;
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+
+/**
+ * Unit tests of the {@link DeadlineMessageSource} in front of the message source, which stalls until it is released.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class DeadlineMessageSourceUnitTest
+{
+    private static final String MORNING_KEY = "greeting.timesensitive.morning";
+
+    private static final String NOT_SUPPORTED_KEY = "greeting.error.language.notsupported";
+
+    private static final String NOT_FOUND = "Not_found";
+
+    private static final long TIMEOUT_MILLIS = 50;
+
+    private static final long OPEN_MILLIS = 300;
+
+    /**
+     * Tests if the last-known-good text is served within the deadline when the catalog stalls,<br>
+     * and the source of the request's messages is kept for the response header
+     */
+    @Test
+    public void givenStalledCatalog_whenLookedUp_thenLastKnownGoodServedInTime() {
+
+        StallingMessageSource catalog = new StallingMessageSource();
+        try (DeadlineMessageSource deadline = new DeadlineMessageSource(catalog, TIMEOUT_MILLIS, 4, 3, OPEN_MILLIS)) {
+            assertThat(deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH)).isEqualTo("Good morning");
+
+            catalog.stall();
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            long start = System.nanoTime();
+            assertThat(deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH)).isEqualTo("Good morning");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(TIMEOUT_MILLIS + 1_000);
+
+            assertThat(request.getAttribute(DeadlineMessageSource.SOURCE_ATTRIBUTE)).isEqualTo(LookupSource.LAST_KNOWN_GOOD);
+            assertThat(deadline.getLookups(LookupSource.CATALOG)).isEqualTo(1);
+            assertThat(deadline.getLookups(LookupSource.LAST_KNOWN_GOOD)).isEqualTo(1);
+            assertThat(deadline.getTimeouts()).isEqualTo(1);
+
+            // never answered message
+            assertThatThrownBy(() -> deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.GERMAN))
+                 .isInstanceOf(CatalogUnavailableException.class);
+            assertThat(request.getAttribute(DeadlineMessageSource.SOURCE_ATTRIBUTE)).isEqualTo(LookupSource.NONE);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            catalog.release();
+        }
+    }
+
+    /**
+     * Tests if the breaker opens after the consecutive timeouts, so the catalog is not called,<br>
+     * and if it closes after the open duration by the answered probe lookup
+     */
+    @Test
+    public void givenRepeatedTimeouts_whenBreakerOpen_thenCatalogNotWaitedFor() throws InterruptedException {
+
+        StallingMessageSource catalog = new StallingMessageSource();
+        try (DeadlineMessageSource deadline = new DeadlineMessageSource(catalog, TIMEOUT_MILLIS, 8, 3, OPEN_MILLIS)) {
+            deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH);
+
+            catalog.stall();
+            for (int i = 0; i < 3; i++) {
+                deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH);
+            }
+            assertThat(deadline.isBreakerOpen()).isTrue();
+            assertThat(deadline.getBreakerOpenings()).isEqualTo(1);
+
+            int calls = catalog.calls.get();
+            long start = System.nanoTime();
+            for (int i = 0; i < 1_000; i++) {
+                assertThat(deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH)).isEqualTo("Good morning");
+            }
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(TIMEOUT_MILLIS * 10);
+            assertThat(catalog.calls.get()).isEqualTo(calls);
+
+            // probe lookup after the open duration times out, the breaker opens again
+            Thread.sleep(OPEN_MILLIS + 50);
+            deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH);
+            assertThat(deadline.getBreakerOpenings()).isEqualTo(2);
+
+            // answered probe lookup closes the breaker
+            catalog.release();
+            catalog.addMessage(MORNING_KEY, Locale.ENGLISH, "Morning");
+            Thread.sleep(OPEN_MILLIS + 50);
+            assertThat(deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH)).isEqualTo("Morning");
+            assertThat(deadline.isBreakerOpen()).isFalse();
+        } finally {
+            catalog.release();
+        }
+    }
+
+    /**
+     * Tests if the last-known-good text of the message with the arguments is kept by its code and locale<br>
+     * and formatted with the arguments of the request served while the breaker is open
+     */
+    @Test
+    public void givenMessageWithArguments_whenBreakerOpen_thenLastKnownGoodFormattedWithArguments() {
+
+        StallingMessageSource catalog = new StallingMessageSource();
+        try (DeadlineMessageSource deadline = new DeadlineMessageSource(catalog, TIMEOUT_MILLIS, 4, 1, OPEN_MILLIS)) {
+            assertThat(deadline.getMessage(NOT_SUPPORTED_KEY, new Object[] {"de"}, NOT_FOUND, Locale.ENGLISH))
+                 .isEqualTo("Language 'de' not supported.");
+            deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH);
+
+            catalog.stall();
+            deadline.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH);
+            assertThat(deadline.isBreakerOpen()).isTrue();
+
+            assertThat(deadline.getMessage(NOT_SUPPORTED_KEY, new Object[] {"fr"}, NOT_FOUND, Locale.ENGLISH))
+                 .isEqualTo("Language 'fr' not supported.");
+            assertThat(deadline.getMessage(NOT_SUPPORTED_KEY, new Object[] {"it"}, NOT_FOUND, Locale.ENGLISH))
+                 .isEqualTo("Language 'it' not supported.");
+            assertThat(deadline.getLookups(LookupSource.LAST_KNOWN_GOOD)).isEqualTo(3);
+        } finally {
+            catalog.release();
+        }
+    }
+
+    /**
+     * Tests if closing the guard stops the lookup threads, the lookups are then served from the last-known-good texts
+     */
+    @Test
+    public void givenClosedGuard_whenLookedUp_thenCatalogNotCalled() throws Exception {
+
+        StallingMessageSource catalog = new StallingMessageSource();
+        DeadlineMessageSource deadline = new DeadlineMessageSource(catalog, TIMEOUT_MILLIS, 4, 3, OPEN_MILLIS);
+        LocaleGuardMessageSource guard = new LocaleGuardMessageSource(deadline, Collections.singleton(Locale.ENGLISH), 16);
+        assertThat(guard.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH)).isEqualTo("Good morning");
+
+        guard.close();
+
+        assertThat(guard.getMessage(MORNING_KEY, null, NOT_FOUND, Locale.ENGLISH)).isEqualTo("Good morning");
+        assertThat(deadline.getRejections()).isEqualTo(1);
+        assertThat(catalog.calls.get()).isEqualTo(1);
+    }
+
+    /**
+     * Tests if the answers of the catalog without the message are passed through and do not open the breaker
+     */
+    @Test
+    public void givenMissingMessage_whenLookedUp_thenCatalogAnswerPassed() {
+
+        StallingMessageSource catalog = new StallingMessageSource();
+        try (DeadlineMessageSource deadline = new DeadlineMessageSource(catalog, TIMEOUT_MILLIS, 4, 1, OPEN_MILLIS)) {
+            assertThat(deadline.getMessage("greeting.unknown", null, NOT_FOUND, Locale.ENGLISH)).isEqualTo(NOT_FOUND);
+            assertThatThrownBy(() -> deadline.getMessage("greeting.unknown", null, Locale.ENGLISH))
+                 .isInstanceOf(NoSuchMessageException.class);
+            assertThat(deadline.isBreakerOpen()).isFalse();
+            assertThat(deadline.getTimeouts()).isZero();
+        }
+    }
+
+    /**
+     * Message source waiting for the release while it is stalled
+     */
+    private static final class StallingMessageSource extends StaticMessageSource
+    {
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private StallingMessageSource() {
+            addMessage(MORNING_KEY, Locale.ENGLISH, "Good morning");
+            addMessage(NOT_SUPPORTED_KEY, Locale.ENGLISH, "Language ''{0}'' not supported.");
+        }
+
+        private void stall() {
+            gate = new CountDownLatch(1);
+        }
+
+        private void release() {
+            gate.countDown();
+        }
+
+        @Override
+        protected String resolveCodeWithoutArguments(String code, Locale locale) {
+
+            calls.incrementAndGet();
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.resolveCodeWithoutArguments(code, locale);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import static org.mockito.BDDMockito.given;
 
 import java.util.Locale;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -14,6 +15,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.MessageSource;
 import org.springframework.http.ResponseEntity;
 
+import cz.trask.vaclavek.greetings.controller.GreetingRequestHandler;
 import cz.trask.vaclavek.greetings.controller.GreetingsController;
 import cz.trask.vaclavek.greetings.service.GreetingsService;
 import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
@@ -46,12 +48,19 @@ public class GreetingControllerUnitTest
     private MessageSource messages;
     
     @InjectMocks
+    GreetingRequestHandler greetingRequestHandler;
+    
     GreetingsController greetingsController;
     
     
+    @BeforeEach
+    public void createController() {
+        greetingsController = new GreetingsController(greetingRequestHandler);
+    }
+    
     /**
      * Tests if the correct greeting text is returned according given user's time, language code and {@code locale} 
-     * by {@link GreetingsController#getGreetingTimeSensitive(String, String, locale)} method
+     * by {@link GreetingsController#getGreetingTimeSensitive(String, String, String, String, String, String, String, String, Locale)} method
      */
     @Test
     public void givenLocale_and_usersTime_whenTimeSensitive_thenCorrectGreetingShouldReturn() throws Exception {
@@ -61,9 +70,9 @@ public class GreetingControllerUnitTest
         
         String greetingExpected = messages.getMessage(GreetingsServiceImpl.GREETING_MORNING_KEY, null, locale);
         given(timePeriodService.getTimePeriod(Mockito.contains("05:01"))).willReturn(TimePeriod.MORNING);
-        given(greetingsService.getTimeSensitiveGreeting(Mockito.eq(TimePeriod.MORNING), Mockito.eq(locale))).willReturn(greetingExpected);
+        given(greetingsService.getTimeSensitiveGreeting(Mockito.eq(TimePeriod.MORNING), Mockito.eq(locale), Mockito.isNull())).willReturn(greetingExpected);
         
-        ResponseEntity<String> responseEntity = greetingsController.getGreetingTimeSensitive("05:01", "cs", locale);
+        ResponseEntity<String> responseEntity = greetingsController.getGreetingTimeSensitive("05:01", "cs", "", "", "", "", "", "", locale);
         
         
         assertThat(responseEntity.getStatusCodeValue()).isEqualTo(200);
@@ -74,9 +83,9 @@ public class GreetingControllerUnitTest
         
         greetingExpected = messages.getMessage(GreetingsServiceImpl.GREETING_EVENING_KEY, null, locale);
         given(timePeriodService.getTimePeriod(Mockito.contains("18:01"))).willReturn(TimePeriod.EVENING);
-        given(greetingsService.getTimeSensitiveGreeting(Mockito.eq(TimePeriod.EVENING), Mockito.eq(locale))).willReturn(greetingExpected);
+        given(greetingsService.getTimeSensitiveGreeting(Mockito.eq(TimePeriod.EVENING), Mockito.eq(locale), Mockito.isNull())).willReturn(greetingExpected);
         
-        responseEntity = greetingsController.getGreetingTimeSensitive("18:01", "en", locale);
+        responseEntity = greetingsController.getGreetingTimeSensitive("18:01", "en", "", "", "", "", "", "", locale);
         
         assertThat(responseEntity.getStatusCodeValue()).isEqualTo(200);
         assertThat(responseEntity.getBody().toString()).isEqualTo(greetingExpected);
@@ -86,9 +95,9 @@ public class GreetingControllerUnitTest
         
         greetingExpected = messages.getMessage(GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY, null, locale);
         given(timePeriodService.getTimePeriod(Mockito.contains("05:01"))).willReturn(TimePeriod.GENERAL_PURPOSE);
-        given(greetingsService.getTimeSensitiveGreeting(Mockito.eq(TimePeriod.GENERAL_PURPOSE), Mockito.eq(locale))).willReturn(greetingExpected);
+        given(greetingsService.getTimeSensitiveGreeting(Mockito.eq(TimePeriod.GENERAL_PURPOSE), Mockito.eq(locale), Mockito.isNull())).willReturn(greetingExpected);
         
-        responseEntity = greetingsController.getGreetingTimeSensitive("05:01", "es", locale);
+        responseEntity = greetingsController.getGreetingTimeSensitive("05:01", "es", "", "", "", "", "", "", locale);
         
         assertThat(responseEntity.getStatusCodeValue()).isEqualTo(200);
         assertThat(responseEntity.getBody().toString()).isEqualTo(greetingExpected);
@@ -96,7 +105,7 @@ public class GreetingControllerUnitTest
     
     /**
      * Tests if the correct greeting text is returned according given language code and {@code locale} 
-     * by {@link GreetingsController#getGreetingTimeInsensitive(String, locale)} method
+     * by {@link GreetingsController#getGreetingTimeInsensitive(String, String, String, Locale)} method
      */
     @Test
     public void givenLocale_and_usersTime_whenTimeInSensitive_thenCorrectGreetingShouldReturn() throws Exception {
@@ -107,7 +116,7 @@ public class GreetingControllerUnitTest
         String greetingExpected = messages.getMessage(GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY, null, locale);
         given(greetingsService.getTimeInsensitiveGreeting(Mockito.eq(locale))).willReturn(greetingExpected);
         
-        ResponseEntity<String> responseEntity = greetingsController.getGreetingTimeInsensitive("es", locale);
+        ResponseEntity<String> responseEntity = greetingsController.getGreetingTimeInsensitive("es", "", "", locale);
         
         assertThat(responseEntity.getStatusCodeValue()).isEqualTo(200);
         assertThat(responseEntity.getBody().toString()).isEqualTo(greetingExpected);
@@ -118,7 +127,7 @@ public class GreetingControllerUnitTest
         greetingExpected = messages.getMessage(GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY, null, locale);
         given(greetingsService.getTimeInsensitiveGreeting(Mockito.eq(locale))).willReturn(greetingExpected);
         
-        responseEntity = greetingsController.getGreetingTimeInsensitive("en", locale);
+        responseEntity = greetingsController.getGreetingTimeInsensitive("en", "", "", locale);
         
         assertThat(responseEntity.getStatusCodeValue()).isEqualTo(200);
         assertThat(responseEntity.getBody().toString()).isEqualTo(greetingExpected);
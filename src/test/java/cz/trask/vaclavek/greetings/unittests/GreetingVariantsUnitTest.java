@@ -0,0 +1,133 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+import cz.trask.vaclavek.greetings.variants.AliasTable;
+import cz.trask.vaclavek.greetings.variants.GreetingVariant;
+import cz.trask.vaclavek.greetings.variants.GreetingVariants;
+import cz.trask.vaclavek.greetings.variants.VariantSet;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests of the weighted greeting variants, see {@link GreetingVariants}
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class GreetingVariantsUnitTest
+{
+    private static final String MORNING_VARIANTS = "a:3:Good morning|b:1:Morning, sunshine!|c:0.5:Rise and shine!";
+
+    private static final String MORNING_VARIANTS_KEY = "greeting.timesensitive.morning.variants";
+
+    /**
+     * Tests if the compiled alias tables select the items with the probabilities of their weights
+     */
+    @Test
+    public void givenRandomWeights_whenAliasTableCompiled_thenProbabilitiesFollowWeights() {
+
+        Random random = new Random(42);
+        for (int size = 1; size <= 50; size++) {
+            double[] weights = new double[size];
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                weights[i] = (random.nextInt(4) == 0) ? 1 + random.nextInt(1000) : random.nextDouble() + 0.001;
+                sum += weights[i];
+            }
+            AliasTable table = new AliasTable(weights);
+            for (int i = 0; i < size; i++) {
+                assertThat(table.getProbability(i)).as("probability of %d of %d", i, size).isCloseTo(weights[i] / sum, within(1e-6));
+            }
+        }
+
+        AliasTable table = new AliasTable(new double[] {3, 1, 0.5});
+        int[] selected = new int[3];
+        for (int i = 0; i < 450_000; i++) {
+            selected[table.select(random.nextLong())]++;
+        }
+        assertThat(selected[0]).isCloseTo(300_000, within(3_000));
+        assertThat(selected[1]).isCloseTo(100_000, within(3_000));
+        assertThat(selected[2]).isCloseTo(50_000, within(3_000));
+
+        assertThatThrownBy(() -> new AliasTable(new double[0])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AliasTable(new double[] {1, 0})).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AliasTable(new double[] {1, Double.NaN})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Tests if the same client gets always the same variant and if the clients are spread by the weights
+     */
+    @Test
+    public void givenClientId_whenVariantSelected_thenSameVariantForSameClient() {
+
+        VariantSet variants = VariantSet.parse(MORNING_VARIANTS);
+        assertThat(variants.size()).isEqualTo(3);
+        assertThat(variants.getVariant(1).getText()).isEqualTo("Morning, sunshine!");
+
+        int[] selected = new int[3];
+        for (int client = 0; client < 90_000; client++) {
+            int variant = variants.select("client-" + client);
+            assertThat(variants.select("client-" + client)).isEqualTo(variant);
+            selected[variant]++;
+        }
+        assertThat(selected[0]).isCloseTo(60_000, within(1_500));
+        assertThat(selected[1]).isCloseTo(20_000, within(1_500));
+        assertThat(selected[2]).isCloseTo(10_000, within(1_500));
+
+        assertThatThrownBy(() -> VariantSet.parse("a:1:Hello|a:1:Hi")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> VariantSet.parse("a:x:Hello")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> VariantSet.parse("Hello")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Tests if the variants of the catalog are served and counted, and if the holiday greetings take priority over them
+     */
+    @Test
+    public void givenVariantsInCatalog_whenGreetingRequested_thenVariantServedAndCounted() {
+
+        StaticMessageSource messages = new StaticMessageSource();
+        messages.setUseCodeAsDefaultMessage(true);
+        messages.addMessage(GreetingsServiceImpl.GREETING_MORNING_KEY, Locale.ENGLISH, "Good morning");
+        messages.addMessage(MORNING_VARIANTS_KEY, Locale.ENGLISH, MORNING_VARIANTS);
+        messages.addMessage(GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY + GreetingVariants.VARIANTS_KEY_SUFFIX,
+                            Locale.ENGLISH, "broken");
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GreetingVariants greetingVariants = new GreetingVariants(meterRegistry, 16);
+        GreetingsService greetingsService = new GreetingsServiceImpl(messages, HolidayCalendar.empty(Clock.systemUTC()), greetingVariants);
+
+        GreetingVariant variant = greetingsService.getTimeSensitiveVariant(TimePeriod.MORNING, Locale.ENGLISH, "client-1");
+        for (int i = 0; i < 9; i++) {
+            assertThat(greetingsService.getTimeSensitiveVariant(TimePeriod.MORNING, Locale.ENGLISH, "client-1")).isSameAs(variant);
+        }
+        assertThat(greetingVariants.getServedCount(MORNING_VARIANTS_KEY, variant.getId())).isEqualTo(10);
+        assertThat(meterRegistry.get("greetings.variants.served").tag("key", MORNING_VARIANTS_KEY).tag("variant", variant.getId())
+                                .functionCounter().count()).isEqualTo(10);
+
+        assertThat(greetingsService.getTimeSensitiveVariant(TimePeriod.EVENING, Locale.ENGLISH, "client-1")).isNull();
+        assertThat(greetingsService.getTimeInsensitiveVariant(Locale.ENGLISH, "client-1")).isNull();
+
+        Map<Locale, Map<String, String>> holidays = new HashMap<>();
+        holidays.put(Locale.ENGLISH, Collections.singletonMap("01-01..12-31", "Happy holidays!"));
+        GreetingsService holidayService = new GreetingsServiceImpl(messages, new HolidayCalendar(holidays, Clock.systemUTC(), 16),
+                                                                   greetingVariants);
+        assertThat(holidayService.getTimeSensitiveVariant(TimePeriod.MORNING, Locale.ENGLISH, "client-1")).isNull();
+    }
+}
@@ -121,4 +121,18 @@ public class GreetingsServiceUnitTest
                                  .isInstanceOf(LanguageNotSupportedException.class);
      }
     
+    /**
+     * Tests if the catalog version depends only on the catalog content, so every instance of the service has the same version
+     */
+    @Test
+    public void givenSameMessages_whenCatalogVersionRequested_thenSameVersionReturned() {
+        
+        String version = greetingsService.getCatalogVersion();
+        
+        assertThat(version).startsWith("messages-");
+        assertThat(new GreetingsServiceImpl(messages).getCatalogVersion()).isEqualTo(version);
+        assertThat(greetingsService.getCatalogVersion()).isSameAs(version);
+    }
+    
+
 }
@@ -0,0 +1,65 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import cz.trask.vaclavek.greetings.scheduling.HashedTimerWheel;
+
+/**
+ * Unit tests of the {@link HashedTimerWheel}
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class HashedTimerWheelUnitTest
+{
+    
+    private HashedTimerWheel timerWheel = new HashedTimerWheel("test-timer", 10, TimeUnit.MILLISECONDS, 8, Runnable::run);
+    
+    @AfterEach
+    public void tearDown() {
+        timerWheel.stop();
+    }
+    
+    /**
+     * Tests if the scheduled tasks are executed after their delay, including tasks with delay longer than one wheel round
+     */
+    @Test
+    public void whenTaskScheduled_thenTaskIsExecutedAfterDelay() throws Exception {
+        
+        CountDownLatch latch = new CountDownLatch(2);
+        long start = System.nanoTime();
+        
+        timerWheel.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+        // longer than one round of the wheel (8 * 10 ms)
+        timerWheel.schedule(latch::countDown, 200, TimeUnit.MILLISECONDS);
+        
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+        assertThat(timerWheel.getPendingTimeouts()).isEqualTo(0);
+    }
+    
+    /**
+     * Tests if the cancelled task is not executed
+     */
+    @Test
+    public void whenTaskCancelled_thenTaskIsNotExecuted() throws Exception {
+        
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        
+        HashedTimerWheel.Timeout timeout = timerWheel.schedule(executions::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        timerWheel.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executions.get()).isEqualTo(0);
+        assertThat(timeout.cancel()).isFalse();
+    }
+}
@@ -0,0 +1,234 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+import cz.trask.vaclavek.greetings.calendar.HolidayCalendar;
+import cz.trask.vaclavek.greetings.calendar.HolidayRule;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+
+/**
+ * Unit tests of the {@link HolidayCalendar}
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class HolidayCalendarUnitTest
+{
+    private static final Locale CS = new Locale("cs");
+
+    private static final Locale CS_CS = new Locale("cs", "CS");
+
+    /**
+     * Tests the priority of the overlapping rules and the fallback to the rules of the parent locales
+     */
+    @Test
+    public void givenOverlappingRules_whenSearched_thenMostSpecificGreetingReturned() {
+
+        Map<Locale, Map<String, String>> rules = new HashMap<>();
+        rules.put(Locale.ROOT, rules("12-01..12-31", "Season's greetings", "01-01", "Happy New Year"));
+        rules.put(CS, rules("12-24..12-26", "Veselé Vánoce!", "12-30..01-02", "PF", "2020-12-25", "Vánoce 2020"));
+        rules.put(CS_CS, rules("12-01..12-31", "Advent"));
+        HolidayCalendar calendar = new HolidayCalendar(rules, Clock.systemUTC(), 16);
+
+        // shorter rule wins, dated rule wins over the yearly one
+        assertThat(calendar.getGreeting(CS, LocalDate.of(2021, 12, 24))).isEqualTo("Veselé Vánoce!");
+        assertThat(calendar.getGreeting(CS, LocalDate.of(2020, 12, 25))).isEqualTo("Vánoce 2020");
+        assertThat(calendar.getGreeting(CS, LocalDate.of(2020, 12, 26))).isEqualTo("Veselé Vánoce!");
+        assertThat(calendar.getGreeting(CS, LocalDate.of(2021, 12, 10))).isEqualTo("Season's greetings");
+        // range over the new year, locale rule wins over the root rule
+        assertThat(calendar.getGreeting(CS, LocalDate.of(2021, 12, 31))).isEqualTo("PF");
+        assertThat(calendar.getGreeting(CS, LocalDate.of(2022, 1, 1))).isEqualTo("PF");
+        assertThat(calendar.getGreeting(CS, LocalDate.of(2022, 1, 3))).isNull();
+        // more specific locale wins, its parents are used for the other days
+        assertThat(calendar.getGreeting(CS_CS, LocalDate.of(2021, 12, 24))).isEqualTo("Advent");
+        assertThat(calendar.getGreeting(CS_CS, LocalDate.of(2022, 1, 1))).isEqualTo("PF");
+        // locales without own rules use the most specific parent
+        assertThat(calendar.getGreeting(new Locale("cs", "CZ"), LocalDate.of(2021, 12, 24))).isEqualTo("Veselé Vánoce!");
+        assertThat(calendar.getGreeting(new Locale("de", "DE"), LocalDate.of(2021, 12, 24))).isEqualTo("Season's greetings");
+        assertThat(calendar.getGreeting(new Locale("de", "DE"), LocalDate.of(2021, 6, 1))).isNull();
+    }
+
+    /**
+     * Tests if the indexed calendar of thousands of random rules returns the same greetings as the linear search
+     */
+    @Test
+    public void givenRandomRules_whenSearched_thenSameGreetingsAsLinearSearch() {
+
+        Random random = new Random(42);
+        Map<String, String> localeRules = new LinkedHashMap<>();
+        while (localeRules.size() < 5000) {
+            if (random.nextBoolean()) {
+                LocalDate from = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(5 * 365));
+                LocalDate to = from.plusDays(random.nextInt(20));
+                localeRules.put(from + ".." + to, "dated " + localeRules.size());
+            } else {
+                LocalDate from = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(366));
+                LocalDate to = from.plusDays(random.nextInt(40));
+                localeRules.put(String.format("%02d-%02d..%02d-%02d", from.getMonthValue(), from.getDayOfMonth(),
+                                              to.getMonthValue(), to.getDayOfMonth()), "yearly " + localeRules.size());
+            }
+        }
+        HolidayCalendar calendar = new HolidayCalendar(Collections.singletonMap(CS, localeRules), Clock.systemUTC(), 16);
+        assertThat(calendar.getRulesCount()).isEqualTo(5000);
+
+        List<HolidayRule> rules = new ArrayList<>();
+        localeRules.forEach((range, greeting) -> rules.add(HolidayRule.parse(range, greeting)));
+        for (LocalDate date = LocalDate.of(2019, 12, 1); date.isBefore(LocalDate.of(2025, 3, 1)); date = date.plusDays(1)) {
+            assertThat(calendar.getGreeting(CS, date)).as("greeting of %s", date).isEqualTo(linearSearch(rules, date));
+        }
+    }
+
+    /**
+     * Tests if the greetings of the current day change with the day of the clock
+     */
+    @Test
+    public void givenClock_whenDayChanges_thenGreetingOfNewDayReturned() {
+
+        MutableClock clock = new MutableClock(Instant.parse("2021-12-23T22:59:59Z"), ZoneId.of("Europe/Prague"));
+        HolidayCalendar calendar = new HolidayCalendar(Collections.singletonMap(CS, rules("12-24..12-26", "Veselé Vánoce!")), clock, 16);
+
+        assertThat(calendar.getGreeting(CS)).isNull();
+        assertThat(calendar.getGreeting(CS)).isNull();
+        clock.instant = Instant.parse("2021-12-23T23:00:00Z");
+        assertThat(calendar.getGreeting(CS)).isEqualTo("Veselé Vánoce!");
+        assertThat(calendar.getGreeting(new Locale("en"))).isNull();
+        clock.instant = Instant.parse("2021-12-26T23:00:00Z");
+        assertThat(calendar.getGreeting(CS)).isNull();
+        assertThat(calendar.getCurrentDate()).isEqualTo(LocalDate.of(2021, 12, 27));
+    }
+
+    /**
+     * Tests if the holiday files are loaded and their greetings take priority over the time sensitive greetings
+     */
+    @Test
+    public void givenHolidayFiles_whenGreetingRequested_thenHolidayGreetingReturned() {
+
+        MutableClock clock = new MutableClock(Instant.parse("2021-12-24T10:00:00Z"), ZoneOffset.UTC);
+        HolidayCalendar calendar = HolidayCalendar.load("classpath:/holidays", clock, 16);
+        assertThat(calendar.isEmpty()).isFalse();
+
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.setBasenames("classpath:/messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+        GreetingsService greetingsService = new GreetingsServiceImpl(messageSource, calendar);
+
+        assertThat(greetingsService.getTimeSensitiveGreeting(TimePeriod.MORNING, new Locale("en", "GB"))).isEqualTo("Merry Christmas!");
+        assertThat(greetingsService.getTimeSensitiveGreeting(TimePeriod.EVENING, CS_CS)).isEqualTo("Veselé Vánoce!");
+        assertThat(greetingsService.getTimeInsensitiveGreeting(CS_CS)).isNotEqualTo("Veselé Vánoce!");
+        String christmasVersion = greetingsService.getCatalogVersion();
+
+        clock.instant = Instant.parse("2021-07-04T10:00:00Z");
+        assertThat(greetingsService.getTimeSensitiveGreeting(TimePeriod.MORNING, new Locale("en", "US"))).isEqualTo("Happy Fourth of July!");
+        assertThat(greetingsService.getTimeSensitiveGreeting(TimePeriod.MORNING, new Locale("en", "GB"))).isEqualTo("Good morning GB");
+        assertThat(greetingsService.getCatalogVersion()).isNotEqualTo(christmasVersion);
+
+        // holiday of the user's date, not of the server's one
+        assertThat(greetingsService.getTimeSensitiveGreeting(TimePeriod.MORNING, new Locale("en", "GB"), LocalDate.of(2021, 12, 25)))
+             .isEqualTo("Merry Christmas!");
+        assertThat(greetingsService.getTimeSensitiveGreeting(TimePeriod.MORNING, new Locale("en", "US"), LocalDate.of(2021, 7, 5)))
+             .isNotEqualTo("Happy Fourth of July!");
+        assertThat(greetingsService.getTimeSensitiveGreeting(TimePeriod.MORNING, new Locale("en", "US"), LocalDate.of(2021, 7, 4)))
+             .isEqualTo("Happy Fourth of July!");
+    }
+
+    /**
+     * Tests if the invalid rules are rejected
+     */
+    @Test
+    public void whenInvalidRule_thenIllegalArgumentException() {
+
+        assertThatThrownBy(() -> HolidayRule.parse("12-32", "x")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HolidayRule.parse("2021-12-26..2021-12-24", "x")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HolidayRule.parse("christmas", "x")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(HolidayRule.parse("02-29", "x").getFrom()).isEqualTo(59);
+        assertThat(HolidayRule.parse("12-31..01-01", "x").getLength()).isEqualTo(2);
+    }
+
+    private static Map<String, String> rules(String... rangesAndGreetings) {
+
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (int i = 0; i < rangesAndGreetings.length; i += 2) {
+            rules.put(rangesAndGreetings[i], rangesAndGreetings[i + 1]);
+        }
+        return rules;
+    }
+
+    /**
+     * @return greeting of the shortest rule of the date, dated rules first, same order of the equal rules as the calendar
+     */
+    private static String linearSearch(List<HolidayRule> rules, LocalDate date) {
+
+        int dayOfYear = HolidayRule.dayOfYear(date.getMonthValue(), date.getDayOfMonth());
+        HolidayRule best = null;
+        for (HolidayRule rule : rules) {
+            boolean valid = rule.isYearly() ? Math.floorMod(dayOfYear - rule.getFrom(), HolidayRule.DAYS_PER_YEAR) < rule.getLength()
+                                            : date.toEpochDay() >= rule.getFrom() && date.toEpochDay() <= rule.getTo();
+            if (valid && (best == null || isBetter(rule, best))) {
+                best = rule;
+            }
+        }
+        return (best == null) ? null : best.getGreeting();
+    }
+
+    private static boolean isBetter(HolidayRule rule, HolidayRule best) {
+
+        if (rule.isYearly() != best.isYearly()) {
+            return !rule.isYearly();
+        }
+        if (rule.getLength() != best.getLength()) {
+            return rule.getLength() < best.getLength();
+        }
+        if (rule.getFrom() != best.getFrom()) {
+            return rule.getFrom() > best.getFrom();
+        }
+        return rule.getGreeting().compareTo(best.getGreeting()) > 0;
+    }
+
+    private static final class MutableClock extends Clock
+    {
+        private volatile Instant instant;
+
+        private final ZoneId zone;
+
+        private MutableClock(Instant instant, ZoneId zone) {
+            this.instant = instant;
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new MutableClock(instant, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import cz.trask.vaclavek.greetings.catalog.CatalogChange;
+import cz.trask.vaclavek.greetings.catalog.CatalogEntry;
+import cz.trask.vaclavek.greetings.catalog.GreetingCatalogSnapshot;
+import cz.trask.vaclavek.greetings.catalog.JdbcGreetingCatalog;
+
+/**
+ * Unit tests of the {@link JdbcGreetingCatalog} against the embedded H2 database
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class JdbcGreetingCatalogUnitTest
+{
+    private static final String MORNING_KEY = "greeting.timesensitive.morning";
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcGreetingCatalog catalog;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                                                .generateUniqueName(true)
+                                                .setScriptEncoding("UTF-8")
+                                                .addScripts("db/greetings-schema.sql", "db/greetings-data.sql")
+                                                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        catalog = new JdbcGreetingCatalog(jdbcTemplate, 16);
+        catalog.loadAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        catalog.close();
+        database.shutdown();
+    }
+
+    /**
+     * Tests if the loaded catalog serves the greetings with the same locale fallback as the message source
+     * and without any query for the loaded locales and for the repeatedly requested missing locales
+     */
+    @Test
+    public void givenLoadedCatalog_whenGreetingsRequested_thenServedFromSnapshot() {
+
+        assertThat(catalog.getSnapshot().getVersion()).isEqualTo(30);
+        assertThat(catalog.getText(new Locale("en", "GB"), MORNING_KEY)).isEqualTo("Good morning GB");
+        assertThat(catalog.getText(new Locale("cs"), MORNING_KEY)).isEqualTo("Dobré ráno");
+        assertThat(catalog.getText(new Locale("es", "MX"), MORNING_KEY)).isEqualTo("Buenos días");
+        assertThat(catalog.getText(new Locale("en", "GB"), "greeting.unknown")).isNull();
+        // 'es-MX' and 'en' are not in the catalog
+        assertThat(catalog.getLocaleQueries()).isEqualTo(2);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(catalog.getText(new Locale("de", "DE"), MORNING_KEY)).isNull();
+            assertThat(catalog.getText(new Locale("es", "MX"), MORNING_KEY)).isEqualTo("Buenos días");
+        }
+        // 'de-DE' and 'de' queried only once
+        assertThat(catalog.getLocaleQueries()).isEqualTo(4);
+    }
+
+    /**
+     * Tests if the refresh applies changed and deleted rows only
+     */
+    @Test
+    public void givenChangedRows_whenRefreshed_thenChangesApplied() {
+
+        jdbcTemplate.update("UPDATE greeting SET greeting_text = 'Dobré jitro', version = NEXT VALUE FOR greeting_version_seq"
+                            + " WHERE locale_tag = 'cs' AND greeting_key = ?", MORNING_KEY);
+        jdbcTemplate.update("UPDATE greeting SET deleted = TRUE, version = NEXT VALUE FOR greeting_version_seq"
+                            + " WHERE locale_tag = 'en-US' AND greeting_key = ?", MORNING_KEY);
+
+        assertThat(catalog.getText(new Locale("cs"), MORNING_KEY)).isEqualTo("Dobré ráno");
+        assertThat(catalog.refresh()).isEqualTo(2);
+        assertThat(catalog.refresh()).isZero();
+
+        assertThat(catalog.getSnapshot().getVersion()).isEqualTo(101);
+        assertThat(catalog.getText(new Locale("cs"), MORNING_KEY)).isEqualTo("Dobré jitro");
+        assertThat(catalog.getText(new Locale("cs", "CS"), MORNING_KEY)).isEqualTo("Dobré ráno");
+        assertThat(catalog.getText(new Locale("en", "US"), MORNING_KEY)).isNull();
+        assertThat(catalog.getText(new Locale("en", "US"), "greeting.timesensitive.evening")).isEqualTo("Good evening US");
+        // deleted greeting of 'en-US' is searched in 'en' too
+        assertThat(catalog.getLocaleQueries()).isEqualTo(1);
+    }
+
+    /**
+     * Tests if the change committed after the change with a higher version, which was already read by the refresh,<br>
+     * is read by the next refresh within the version window
+     */
+    @Test
+    public void givenChangeCommittedOutOfOrder_whenRefreshed_thenChangeReadWithinWindow() {
+
+        long earlierVersion = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR greeting_version_seq", Long.class);
+        jdbcTemplate.update("UPDATE greeting SET greeting_text = 'Dobrý večer!', version = NEXT VALUE FOR greeting_version_seq"
+                            + " WHERE locale_tag = 'cs' AND greeting_key = 'greeting.timesensitive.evening'");
+        assertThat(catalog.refresh()).isEqualTo(1);
+
+        // the transaction holding the lower version commits now
+        jdbcTemplate.update("UPDATE greeting SET greeting_text = 'Dobré jitro', version = ? WHERE locale_tag = 'cs' AND greeting_key = ?",
+                            earlierVersion, MORNING_KEY);
+        assertThat(catalog.refresh()).isEqualTo(1);
+        assertThat(catalog.refresh()).isZero();
+        assertThat(catalog.getText(new Locale("cs"), MORNING_KEY)).isEqualTo("Dobré jitro");
+        assertThat(catalog.getText(new Locale("cs"), "greeting.timesensitive.evening")).isEqualTo("Dobrý večer!");
+        assertThat(catalog.getSnapshot().getVersion()).isEqualTo(earlierVersion + 1);
+    }
+
+    /**
+     * Tests if the change of the locale not contained in the snapshot does not hide its other greetings,<br>
+     * the locale is read as a whole by the first request
+     */
+    @Test
+    public void givenChangeOfNotLoadedLocale_whenApplied_thenWholeLocaleReadOnDemand() {
+
+        jdbcTemplate.update("INSERT INTO greeting (locale_tag, greeting_key, greeting_text, version)"
+                            + " VALUES ('de', ?, 'Guten Morgen', NEXT VALUE FOR greeting_version_seq)", MORNING_KEY);
+        catalog.applyChanges(Collections.singletonList(new CatalogChange("de", "greeting.timesensitive.evening", "Guten Abend", 0)));
+
+        assertThat(catalog.getSnapshot().getLocaleTags()).doesNotContain("de");
+        assertThat(catalog.getText(new Locale("de"), MORNING_KEY)).isEqualTo("Guten Morgen");
+        assertThat(catalog.getText(new Locale("de"), "greeting.timesensitive.evening")).isEqualTo("Guten Abend");
+        assertThat(catalog.getLocaleQueries()).isEqualTo(1);
+
+        // both rows were read with the locale, the refresh does not apply them again
+        assertThat(catalog.refresh()).isZero();
+        assertThat(catalog.getText(new Locale("de"), MORNING_KEY)).isEqualTo("Guten Morgen");
+        assertThat(catalog.getLocaleQueries()).isEqualTo(1);
+    }
+
+    /**
+     * Tests if the row read before the newer change of the same greeting, for example by a refresh running concurrently<br>
+     * with a write, does not overwrite the newer text
+     */
+    @Test
+    public void givenOlderRow_whenAppliedAfterNewerChange_thenNewerTextKept() {
+
+        GreetingCatalogSnapshot snapshot = GreetingCatalogSnapshot.of(Collections.singletonList(new CatalogEntry("cs", MORNING_KEY, "Dobré ráno", 10, false)), 10);
+        GreetingCatalogSnapshot written = snapshot.withChanges(Collections.singletonList(new CatalogEntry("cs", MORNING_KEY, "Dobré jitro", 12, false)), 10);
+        GreetingCatalogSnapshot refreshed = written.withChanges(Arrays.asList(new CatalogEntry("cs", MORNING_KEY, "Ráno", 11, false),
+                                                                              new CatalogEntry("cs", "greeting.timesensitive.evening", "Dobrý večer", 11, false)), 11);
+
+        assertThat(refreshed.getEntries("cs")).containsEntry(MORNING_KEY, "Dobré jitro")
+                                              .containsEntry("greeting.timesensitive.evening", "Dobrý večer");
+        assertThat(refreshed.getVersion()).isEqualTo(11);
+
+        GreetingCatalogSnapshot deleted = refreshed.withChanges(Collections.singletonList(new CatalogEntry("cs", MORNING_KEY, null, 13, true)), 13);
+        assertThat(deleted.withChanges(Collections.singletonList(new CatalogEntry("cs", MORNING_KEY, "Dobré jitro", 12, false)), 13)
+                          .getEntries("cs")).doesNotContainKey(MORNING_KEY);
+    }
+
+    /**
+     * Tests if the optional text is read from the catalog supplying the greeting only, not from its parent<br>
+     * and not from a more specific catalog without the greeting
+     */
+    @Test
+    public void givenVariantsOfParentLocale_whenSiblingTextRequested_thenOnlyTextOfGreetingCatalogFound() {
+
+        String variantsKey = MORNING_KEY + ".variants";
+        jdbcTemplate.update("INSERT INTO greeting (locale_tag, greeting_key, greeting_text, version)"
+                            + " VALUES ('cs', ?, 'a:1:Dobré ráno|b:1:Krásné ráno', NEXT VALUE FOR greeting_version_seq)", variantsKey);
+        jdbcTemplate.update("INSERT INTO greeting (locale_tag, greeting_key, greeting_text, version)"
+                            + " VALUES ('es-ES', ?, 'a:1:Buenas noches', NEXT VALUE FOR greeting_version_seq)", "greeting.timesensitive.night.variants");
+        catalog.refresh();
+
+        assertThat(catalog.getSnapshotSiblingText(new Locale("cs"), MORNING_KEY, variantsKey)).isEqualTo("a:1:Dobré ráno|b:1:Krásné ráno");
+        // own greeting of 'cs-CS' without variants
+        assertThat(catalog.getSnapshotSiblingText(new Locale("cs", "CS"), MORNING_KEY, variantsKey)).isNull();
+        // variants of 'es-ES' without its own greeting
+        assertThat(catalog.getSnapshotSiblingText(new Locale("es", "ES"), "greeting.timesensitive.night",
+                                                  "greeting.timesensitive.night.variants")).isNull();
+    }
+
+    /**
+     * Tests if the concurrent requests of the locale added after the load are served by one query
+     */
+    @Test
+    public void givenNewLocale_whenRequestedConcurrently_thenLoadedByOneQuery() throws Exception {
+
+        jdbcTemplate.update("INSERT INTO greeting (locale_tag, greeting_key, greeting_text, version)"
+                            + " VALUES ('de', ?, 'Guten Morgen', NEXT VALUE FOR greeting_version_seq)", MORNING_KEY);
+
+        int threads = 32;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    barrier.await();
+                    return catalog.getText(new Locale("de"), MORNING_KEY);
+                }));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo("Guten Morgen");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(catalog.getLocaleQueries()).isEqualTo(1);
+        assertThat(catalog.getSnapshot().getLocaleTags()).contains("de");
+        assertThat(catalog.getSnapshot().getVersion()).isEqualTo(30);
+    }
+}
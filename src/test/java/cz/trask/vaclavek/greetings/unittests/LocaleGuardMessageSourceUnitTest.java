@@ -0,0 +1,142 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+import cz.trask.vaclavek.greetings.messages.LocaleGuardMessageSource;
+
+/**
+ * Unit tests of the {@link LocaleGuardMessageSource}
+ * <p>
+ * The soak test sends messages requests with random locales, as created by the {@code LocaleChangeInterceptor}<br>
+ * from random {@code lang} values, and checks that neither the number of the locales reaching the delegate<br>
+ * nor the number of the cached mappings grows with the number of the distinct requested locales.
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class LocaleGuardMessageSourceUnitTest
+{
+    private static final String BASENAME = "classpath:/messages";
+    
+    private static final int SOAK_REQUESTS = 200_000;
+    
+    /**
+     * Tests if the catalog locales are found and unsupported locales are mapped onto the most specific catalog
+     */
+    @Test
+    public void givenLocale_whenGuarded_thenMappedOntoCatalogLocale() {
+        
+        LocaleGuardMessageSource guard = new LocaleGuardMessageSource(createMessageSource(), BASENAME, 16);
+        
+        assertThat(guard.getCatalogLocales()).contains(new Locale("cs"), new Locale("cs", "CS"), new Locale("en", "GB"),
+                                                       new Locale("en", "US"), new Locale("es"), new Locale("es", "ES"));
+        assertThat(guard.guard(new Locale("en", "GB"))).isEqualTo(new Locale("en", "GB"));
+        assertThat(guard.guard(new Locale("en", "GB", "POSIX"))).isEqualTo(new Locale("en", "GB"));
+        assertThat(guard.guard(Locale.forLanguageTag("es-MX"))).isEqualTo(new Locale("es"));
+        assertThat(guard.guard(new Locale("en", "AU"))).isEqualTo(Locale.ROOT);
+        assertThat(guard.guard(new Locale("de", "DE"))).isEqualTo(Locale.ROOT);
+        assertThat(guard.guard(null)).isNull();
+    }
+    
+    /**
+     * Tests if the guarded message source returns the same messages as the unguarded one
+     */
+    @Test
+    public void givenLocale_whenMessageRequested_thenSameMessageAsWithoutGuard() {
+        
+        ReloadableResourceBundleMessageSource messageSource = createMessageSource();
+        LocaleGuardMessageSource guard = new LocaleGuardMessageSource(createMessageSource(), BASENAME, 16);
+        
+        for (String tag : new String[] {"cs-CS", "cs", "cs-SK", "en-GB", "en-US", "en-AU", "es", "es-ES", "es-MX", "de-DE", "zz"}) {
+            Locale locale = Locale.forLanguageTag(tag);
+            for (String code : new String[] {"greeting.timesensitive.morning", "greeting.timesinensitive.general", "greeting.error"}) {
+                assertThat(guard.getMessage(code, null, "Not_found", locale))
+                    .as("%s of %s", code, tag)
+                    .isEqualTo(messageSource.getMessage(code, null, "Not_found", locale));
+            }
+        }
+    }
+    
+    /**
+     * Soak test with random locales. Number of the locales reaching the delegate and number of the guard's cached
+     * mappings must stay flat, from one thread and from the concurrent threads.
+     */
+    @Test
+    public void givenRandomLocales_whenMessagesRequested_thenCachesStayBounded() throws InterruptedException {
+        
+        CountingMessageSource messageSource = createMessageSource();
+        LocaleGuardMessageSource guard = new LocaleGuardMessageSource(messageSource, BASENAME, 64);
+        Random random = new Random(42);
+        
+        for (int i = 0; i < SOAK_REQUESTS; i++) {
+            guard.getMessage("greeting.timesensitive.morning", null, "Not_found", randomLocale(random));
+            assertThat(guard.getCachedLocalesCount()).isLessThanOrEqualTo(64);
+        }
+        
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            Random threadRandom = new Random(t);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < SOAK_REQUESTS / threads.length; i++) {
+                    guard.getMessage("greeting.timesensitive.morning", null, "Not_found", randomLocale(threadRandom));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60_000);
+        }
+        
+        assertThat(messageSource.requestedLocales).hasSizeLessThanOrEqualTo(guard.getCatalogLocales().size() + 1);
+        assertThat(guard.getCachedLocalesCount()).isLessThanOrEqualTo(64);
+    }
+    
+    private static Locale randomLocale(Random random) {
+        
+        String language = randomLetters(random, 2 + random.nextInt(2), 'a');
+        String country = randomLetters(random, 2, 'A');
+        return random.nextBoolean() ? new Locale(language, country) : new Locale(language, country, randomLetters(random, 5, 'a'));
+    }
+    
+    private static String randomLetters(Random random, int length, char first) {
+        
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (char) (first + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+    
+    private static CountingMessageSource createMessageSource() {
+        
+        CountingMessageSource messageSource = new CountingMessageSource();
+        messageSource.setBasenames(BASENAME);
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setUseCodeAsDefaultMessage(true);
+        messageSource.setFallbackToSystemLocale(false);
+        return messageSource;
+    }
+    
+    /**
+     * Message source recording all locales, for which the catalog file names are cached
+     */
+    private static class CountingMessageSource extends ReloadableResourceBundleMessageSource
+    {
+        private final Set<Locale> requestedLocales = ConcurrentHashMap.newKeySet();
+        
+        @Override
+        protected List<String> calculateAllFilenames(String basename, Locale locale) {
+            requestedLocales.add(locale);
+            return super.calculateAllFilenames(basename, locale);
+        }
+    }
+}
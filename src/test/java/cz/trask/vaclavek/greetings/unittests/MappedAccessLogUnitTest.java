@@ -0,0 +1,148 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cz.trask.vaclavek.greetings.accesslog.AccessLogAnalyzer;
+import cz.trask.vaclavek.greetings.accesslog.AccessLogFilter;
+import cz.trask.vaclavek.greetings.accesslog.AccessLogFormat;
+import cz.trask.vaclavek.greetings.accesslog.AccessLogSummary;
+import cz.trask.vaclavek.greetings.accesslog.LatencyHistogram;
+import cz.trask.vaclavek.greetings.accesslog.MappedAccessLog;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * Unit tests of the {@link MappedAccessLog} and {@link AccessLogAnalyzer}
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class MappedAccessLogUnitTest
+{
+    private static final int THREADS = 4;
+    
+    private static final int RECORDS_PER_THREAD = 25_000;
+    
+    @TempDir
+    Path directory;
+    
+    /**
+     * Records written concurrently by several threads into rolling files are all found by the analyzer
+     */
+    @Test
+    public void givenRecordsWrittenConcurrently_whenAnalyzed_thenAllRecordsCounted() throws Exception {
+        
+        List<String> localeTags = AccessLogFilter.createLocaleTags(Arrays.asList(new Locale("en", "GB"), new Locale("cs"), Locale.ROOT));
+        assertThat(localeTags).containsExactly("", "cs", "en-GB");
+        
+        // small files, so the log is rolled several times
+        MappedAccessLog accessLog = new MappedAccessLog(directory, 256 * 1024, 64, 100, localeTags);
+        
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    int status = (i % 10 == 0) ? 404 : 200;
+                    byte period = (byte) (status == 200 ? TimePeriod.MORNING.ordinal() + 1 : 0);
+                    accessLog.append(1_600_000_000_000L + i, 100 + (i % 100), status, i % 3, AccessLogFormat.ENDPOINT_TIMESENSITIVE, period);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        accessLog.close();
+        
+        AccessLogSummary summary = AccessLogAnalyzer.analyze(listFiles(), 4);
+        
+        long total = (long) THREADS * RECORDS_PER_THREAD;
+        assertThat(listFiles().size()).isGreaterThan(1);
+        assertThat(summary.getRecords()).isEqualTo(total);
+        assertThat(summary.getStatuses()).containsEntry(200, total * 9 / 10).containsEntry(404, total / 10);
+        assertThat(summary.getEndpoints()).containsOnlyKeys("timesensitive");
+        assertThat(summary.getPeriods()).containsEntry(TimePeriod.MORNING.name(), total * 9 / 10);
+        assertThat(summary.getLocaleLatencies()).containsOnlyKeys("", "cs", "en-GB");
+        assertThat(summary.getLatency().getPercentile(50)).isBetween(140L, 155L);
+        assertThat(summary.getLatency().getMax()).isEqualTo(199);
+        assertThat(summary.getFirstTimestamp()).isEqualTo(1_600_000_000_000L);
+    }
+    
+    /**
+     * Record of the thread, which claimed its chunk before the log was rolled by another thread, is written into the new file
+     */
+    @Test
+    public void givenLogRolledByAnotherThread_whenAppended_thenRecordWrittenIntoCurrentFile() throws Exception {
+        
+        List<String> localeTags = AccessLogFilter.createLocaleTags(Arrays.asList(new Locale("cs"), Locale.ROOT));
+        // two chunks per file
+        MappedAccessLog accessLog = new MappedAccessLog(directory, AccessLogFormat.HEADER_SIZE + 128 * AccessLogFormat.RECORD_SIZE,
+                                                        64, 100, localeTags);
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+        try {
+            otherThread.submit(() -> accessLog.append(1_600_000_000_000L, 100, 200, 1, AccessLogFormat.ENDPOINT_TIMESENSITIVE, (byte) 0)).get();
+            // second chunk of the first file and the first record of the second file
+            for (int i = 0; i <= 64; i++) {
+                accessLog.append(1_600_000_001_000L + i, 100, 200, 1, AccessLogFormat.ENDPOINT_TIMESENSITIVE, (byte) 0);
+            }
+            otherThread.submit(() -> accessLog.append(1_600_000_002_000L, 100, 200, 1, AccessLogFormat.ENDPOINT_TIMESENSITIVE, (byte) 0)).get();
+        } finally {
+            otherThread.shutdown();
+        }
+        accessLog.close();
+        
+        List<Path> files = listFiles();
+        assertThat(files).hasSize(2);
+        assertThat(AccessLogAnalyzer.analyze(files.subList(0, 1), 1).getRecords()).isEqualTo(65);
+        assertThat(AccessLogAnalyzer.analyze(files.subList(1, 2), 1).getRecords()).isEqualTo(2);
+        
+        // appended after the close
+        accessLog.append(1_600_000_003_000L, 100, 200, 1, AccessLogFormat.ENDPOINT_TIMESENSITIVE, (byte) 0);
+        assertThat(AccessLogAnalyzer.analyze(listFiles(), 1).getRecords()).isEqualTo(67);
+    }
+    
+    /**
+     * Tests the percentiles of the histogram with the log-linear buckets
+     */
+    @Test
+    public void givenLatencies_whenPercentileRequested_thenWithinBucketError() {
+        
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getPercentile(50)).isBetween(5000L, 5000L * 103 / 100);
+        assertThat(histogram.getPercentile(99)).isBetween(9900L, 10_000L);
+        assertThat(histogram.getPercentile(100)).isEqualTo(10_000L);
+        assertThat(histogram.getMean()).isEqualTo(5000.5);
+    }
+    
+    private List<Path> listFiles() throws Exception {
+        
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import cz.trask.vaclavek.greetings.messages.MessageTemplate;
+
+/**
+ * Unit tests of the {@link MessageTemplate}
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class MessageTemplateUnitTest
+{
+    /**
+     * Tests if the compiled templates render the same messages as the {@link MessageFormat}
+     */
+    @Test
+    public void givenPatterns_whenRendered_thenSameAsMessageFormat() {
+
+        String[] patterns = {
+            "Language ''{0}'' not supported.",
+            "{0}, {1}",
+            "¡{0}, {1}!",
+            "'{0}' is {0}, {1} and {1}{0}",
+            "It''s '{quoted}' {1}",
+            "No placeholders",
+            "{2} missing"
+        };
+        String[] args = {"Hola", "Juan"};
+
+        for (String pattern : patterns) {
+            String expected = new MessageFormat(pattern, Locale.ROOT).format(args);
+            assertThat(MessageTemplate.compile(pattern).render(args)).as(pattern).isEqualTo(expected);
+        }
+        assertThat(MessageTemplate.compile("{0}, {1}").render("Hello", null)).isEqualTo("Hello, null");
+    }
+
+    /**
+     * Tests if the patterns with format types or invalid braces are rejected
+     */
+    @Test
+    public void givenUnsupportedPatterns_whenCompiled_thenRejected() {
+
+        assertThatThrownBy(() -> MessageTemplate.compile("{0,number}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MessageTemplate.compile("Hello {name}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MessageTemplate.compile("Hello {0")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,167 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+import cz.trask.vaclavek.greetings.catalog.GreetingKey;
+import cz.trask.vaclavek.greetings.controller.GreetingsController;
+import cz.trask.vaclavek.greetings.messages.CatalogValidator;
+import cz.trask.vaclavek.greetings.messages.ParallelCatalogLoader;
+import cz.trask.vaclavek.greetings.messages.PreloadedCatalog;
+import cz.trask.vaclavek.greetings.messages.PreloadedMessageSource;
+import cz.trask.vaclavek.greetings.serviceimpl.GreetingsServiceImpl;
+
+/**
+ * Unit tests of the {@link ParallelCatalogLoader} and {@link PreloadedMessageSource}
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class ParallelCatalogLoaderUnitTest
+{
+    private static final String BASENAME = "classpath:/messages";
+
+    private static final String[] CODES = {
+        GreetingsServiceImpl.GREETING_MORNING_KEY, GreetingsServiceImpl.GREETING_AFTERNOON_KEY, GreetingsServiceImpl.GREETING_EVENING_KEY,
+        GreetingsServiceImpl.GREETING_GENERAL_TIMESENSITIVE_KEY, GreetingsServiceImpl.GREETING_GENERAL_TIMEINSENSITIVE_KEY,
+        GreetingsServiceImpl.GREETING_ERROR_KEY, GreetingsServiceImpl.GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY,
+        GreetingsController.GREETING_PERSONALIZED_KEY, "greeting.unknown"
+    };
+
+    private static final Locale[] LOCALES = {
+        new Locale("cs"), new Locale("cs", "CS"), new Locale("cs", "CZ"), new Locale("en", "GB"), new Locale("en", "GB", "POSIX"),
+        new Locale("en", "US"), new Locale("en"), new Locale("es"), new Locale("es", "ES"), new Locale("es", "MX"), new Locale("de"),
+        Locale.ROOT
+    };
+
+    private static final int GENERATED_LANGUAGES = 500;
+
+    private static final String[] GENERATED_COUNTRIES = {"AA", "BB", "CC"};
+
+    /**
+     * Tests if the preloaded catalog resolves the same messages as the message source loading the files lazily
+     */
+    @Test
+    public void givenCatalogFiles_whenPreloaded_thenSameMessagesAsReloadableMessageSource() {
+
+        PreloadedCatalog catalog = new ParallelCatalogLoader(validator(), 4).load(BASENAME);
+        assertThat(catalog.getLocales()).contains(Locale.ROOT, new Locale("cs"), new Locale("cs", "CS"), new Locale("en", "GB"),
+                                                  new Locale("en", "US"), new Locale("es"), new Locale("es", "ES"));
+        assertThat(catalog.getFilesCount()).isEqualTo(catalog.getLocales().size());
+
+        PreloadedMessageSource preloaded = new PreloadedMessageSource(catalog);
+        preloaded.setUseCodeAsDefaultMessage(true);
+        ReloadableResourceBundleMessageSource reloadable = new ReloadableResourceBundleMessageSource();
+        reloadable.setBasenames(BASENAME);
+        reloadable.setDefaultEncoding("UTF-8");
+        reloadable.setUseCodeAsDefaultMessage(true);
+        reloadable.setFallbackToSystemLocale(false);
+
+        Object[] args = {"Hello", "John"};
+        for (Locale locale : LOCALES) {
+            for (String code : CODES) {
+                assertThat(preloaded.getMessage(code, null, "Not_found", locale)).as("%s of %s", code, locale)
+                                                                                 .isEqualTo(reloadable.getMessage(code, null, "Not_found", locale));
+                assertThat(preloaded.getMessage(code, args, locale)).as("%s of %s with arguments", code, locale)
+                                                                    .isEqualTo(reloadable.getMessage(code, args, locale));
+            }
+        }
+    }
+
+    /**
+     * Tests if the catalog of thousands of locales is loaded and the messages are inherited along the fallback chain
+     */
+    @Test
+    public void givenThousandsOfLocales_whenLoadedInParallel_thenAllLocalesMerged(@TempDir Path directory) throws IOException {
+
+        writeGeneratedCatalog(directory, GENERATED_LANGUAGES, GENERATED_COUNTRIES);
+
+        PreloadedCatalog catalog = new ParallelCatalogLoader(validator(), 0).load("file:" + directory.resolve("messages"));
+        assertThat(catalog.getFilesCount()).isEqualTo(1 + GENERATED_LANGUAGES * (1 + GENERATED_COUNTRIES.length));
+
+        for (int i = 0; i < GENERATED_LANGUAGES; i++) {
+            Locale language = new Locale(language(i));
+            Locale country = new Locale(language(i), GENERATED_COUNTRIES[i % GENERATED_COUNTRIES.length]);
+            assertThat(catalog.getMessage(GreetingsServiceImpl.GREETING_MORNING_KEY, country)).isEqualTo("Morning " + country);
+            assertThat(catalog.getMessage(GreetingsServiceImpl.GREETING_GENERAL_TIMESENSITIVE_KEY, country)).isEqualTo("Hello " + language);
+            assertThat(catalog.getMessage(GreetingsServiceImpl.GREETING_ERROR_KEY, country)).isEqualTo("Error");
+            assertThat(catalog.getMessage(GreetingsServiceImpl.GREETING_MORNING_KEY, new Locale(language(i), "ZZ"))).isNull();
+            assertThat(catalog.getMessage(GreetingsServiceImpl.GREETING_GENERAL_TIMESENSITIVE_KEY, new Locale(language(i), "ZZ")))
+                .isEqualTo("Hello " + language);
+        }
+    }
+
+    /**
+     * Tests if all problems of all files are reported together
+     */
+    @Test
+    public void givenBrokenFiles_whenLoaded_thenAllProblemsReported(@TempDir Path directory) throws IOException {
+
+        writeGeneratedCatalog(directory, 3, GENERATED_COUNTRIES);
+        write(directory.resolve("messages_xa.properties"), "greeting.timesensitive.general=Hello\n");
+        write(directory.resolve("messages_xb.properties"), "greeting.timesensitive.general=Hello\n"
+                                                          + "greeting.timesinensitive.general=Hello\n"
+                                                          + "greeting.personalized={0}, {1} and {2}\n"
+                                                          + "greeting.error.language.notsupported=Language {0\n"
+                                                          + "greeting.timesensitive.morning.variants=a:x:Morning\n");
+        Files.write(directory.resolve("messages_xc.properties"), new byte[] {'a', '=', (byte) 0xC3, (byte) 0x28});
+
+        assertThatThrownBy(() -> new ParallelCatalogLoader(validator(), 2).load("file:" + directory.resolve("messages")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("locale 'xa': missing required key 'greeting.timesinensitive.general'")
+            .hasMessageContaining("messages_xb.properties: 'greeting.personalized' uses 3 arguments, only 2 are passed")
+            .hasMessageContaining("messages_xb.properties: invalid pattern 'greeting.error.language.notsupported'")
+            .hasMessageContaining("messages_xb.properties: invalid variants 'greeting.timesensitive.morning.variants'")
+            .hasMessageContaining("messages_xc.properties: not valid UTF-8 text");
+    }
+
+    private static CatalogValidator validator() {
+
+        Map<String, Integer> argumentsCounts = new HashMap<>();
+        argumentsCounts.put(GreetingsServiceImpl.GREETING_ERROR_LANGUAGENOTSUPPORTED_KEY, 1);
+        argumentsCounts.put(GreetingsController.GREETING_PERSONALIZED_KEY, 2);
+        return new CatalogValidator(new HashSet<>(Arrays.asList(GreetingKey.GENERAL_PURPOSE.getCatalogKey(),
+                                                                GreetingKey.TIME_INSENSITIVE.getCatalogKey())),
+                                    Collections.singleton(GreetingsServiceImpl.GREETING_ERROR_KEY), argumentsCounts);
+    }
+
+    /**
+     * Writes the base file, the language files with the general greetings and the country files with the morning greetings only.
+     */
+    private static void writeGeneratedCatalog(Path directory, int languages, String[] countries) throws IOException {
+
+        write(directory.resolve("messages.properties"), "greeting.error=Error\n");
+        for (int i = 0; i < languages; i++) {
+            String language = language(i);
+            write(directory.resolve("messages_" + language + ".properties"),
+                  "greeting.timesensitive.general=Hello " + language + "\ngreeting.timesinensitive.general=Hi " + language + "\n");
+            for (String country : countries) {
+                write(directory.resolve("messages_" + language + "_" + country + ".properties"),
+                      "greeting.timesensitive.morning=Morning " + language + "_" + country + "\n");
+            }
+        }
+    }
+
+    private static String language(int i) {
+        return "l" + Integer.toString(i, 36);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
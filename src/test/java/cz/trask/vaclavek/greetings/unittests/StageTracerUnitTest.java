@@ -0,0 +1,82 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cz.trask.vaclavek.greetings.service.TimePeriodService;
+import cz.trask.vaclavek.greetings.serviceimpl.TimePeriodServiceImpl;
+import cz.trask.vaclavek.greetings.tracing.PipelineStage;
+import cz.trask.vaclavek.greetings.tracing.StageHistogram;
+import cz.trask.vaclavek.greetings.tracing.StageTracer;
+
+/**
+ * Unit tests of the {@link StageTracer} and {@link StageHistogram}
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class StageTracerUnitTest
+{
+    
+    private TimePeriodService timePeriodService = new TimePeriodServiceImpl();
+    
+    @BeforeEach
+    public void setUp() {
+        StageTracer.reset();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        StageTracer.setSamplingRate(0);
+        StageTracer.reset();
+    }
+    
+    /**
+     * Tests if the percentiles of the histogram are within the expected precision
+     */
+    @Test
+    public void whenDurationsRecorded_thenPercentilesShouldReturn() {
+        
+        StageHistogram histogram = new StageHistogram();
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+        
+        assertThat(histogram.getCount()).isEqualTo(10_000);
+        assertThat(histogram.getMaxNanos()).isEqualTo(10_000_000);
+        assertThat(histogram.getPercentileNanos(50)).isBetween(5_000_000L, 5_000_000L + 5_000_000L / 8);
+        assertThat(histogram.getPercentileNanos(99)).isBetween(9_900_000L, 10_000_000L);
+        assertThat(histogram.getPercentileNanos(100)).isEqualTo(10_000_000);
+    }
+    
+    /**
+     * Tests if the stages of the sampled request are recorded and nothing is recorded when the tracing is switched off
+     */
+    @Test
+    public void whenTracingSwitched_thenStagesAreRecordedOnlyWhenSampled() {
+        
+        StageTracer.setSamplingRate(0);
+        StageTracer.beginRequest();
+        timePeriodService.getTimePeriod("10:00");
+        StageTracer.endRequest();
+        
+        assertThat(StageTracer.getHistogram(PipelineStage.TIME_PERIOD).getCount()).isEqualTo(0);
+        assertThat(StageTracer.getHistogram(PipelineStage.TOTAL).getCount()).isEqualTo(0);
+        
+        StageTracer.setSamplingRate(1);
+        StageTracer.beginRequest();
+        timePeriodService.getTimePeriod("10:00");
+        timePeriodService.getTimePeriod("18:00");
+        StageTracer.endRequest();
+        
+        // both calls are accumulated into one record of the request
+        assertThat(StageTracer.getHistogram(PipelineStage.TIME_PERIOD).getCount()).isEqualTo(1);
+        assertThat(StageTracer.getHistogram(PipelineStage.TOTAL).getCount()).isEqualTo(1);
+        assertThat(StageTracer.getHistogram(PipelineStage.GREETING_LOOKUP).getCount()).isEqualTo(0);
+        assertThat(StageTracer.getHistogram(PipelineStage.TOTAL).getMaxNanos())
+                  .isGreaterThanOrEqualTo(StageTracer.getHistogram(PipelineStage.TIME_PERIOD).getMaxNanos());
+    }
+}
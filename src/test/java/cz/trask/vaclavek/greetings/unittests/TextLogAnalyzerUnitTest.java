@@ -0,0 +1,86 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cz.trask.vaclavek.greetings.loganalysis.TextLogAnalyzer;
+import cz.trask.vaclavek.greetings.loganalysis.TextLogSummary;
+
+/**
+ * Unit tests of the {@link TextLogAnalyzer}
+ * 
+ * @author Michal Vaclavek
+ *
+ */
+public class TextLogAnalyzerUnitTest
+{
+    /**
+     * Number of the lines of the generated file, the file is bigger than several parsed slices
+     */
+    private static final int LINES = 300_000;
+    
+    @TempDir
+    Path directory;
+    
+    /**
+     * Events of the file parsed by several parallel slices are counted exactly once, including
+     * the multi-line entries and lines crossing the slice boundaries.
+     */
+    @Test
+    public void givenLogFiles_whenAnalyzed_thenEventsCountedByTextTypeAndMinute() throws Exception {
+        
+        Path rolled = directory.resolve("app_greetings.27-03-2020.0.log");
+        try (BufferedWriter writer = Files.newBufferedWriter(rolled, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < LINES; i++) {
+                String timestamp = String.format("2020-03-27 12:%02d:%02d,%03d", (i / 10_000) % 60, (i / 100) % 60, i % 1000);
+                switch (i % 4) {
+                    case 0:
+                        writer.write(timestamp + " INFO c.t.v.g.c.GreetingsController [http-nio-8080-exec-1] Time sensitive greeting retrieved: Dobré ráno\n");
+                        break;
+                    case 1:
+                        writer.write(timestamp + " INFO c.t.v.g.c.GreetingsController [http-nio-8080-exec-2] Time insensitive greeting retrieved: Hola\r\n");
+                        break;
+                    case 2:
+                        writer.write(timestamp + " ERROR c.t.v.g.s.GreetingsServiceImpl [http-nio-8080-exec-3] Language '" + (char) ('a' + i % 26) + "b' not supported.\n");
+                        break;
+                    default:
+                        writer.write(timestamp + " INFO o.a.c.c.C.[Tomcat].[localhost].[/] [main] Initializing Spring embedded WebApplicationContext\n");
+                        writer.write("\tat some.stack.Trace(Trace.java:1)\n");
+                }
+            }
+        }
+        Path current = directory.resolve("app_greetings.log");
+        Files.write(current, Arrays.asList("2020-03-28 08:00:00,000 ERROR c.t.v.g.c.GreetingsController [http-nio-8080-exec-1] Missing 'lang' parameter in REST request.",
+                                           "2020-03-28 08:00:01,000 ERROR c.t.v.g.s.TimePeriodServiceImpl [http-nio-8080-exec-1] Failed to parse the usersTime=25:99 in HH:mm format"),
+                    StandardCharsets.UTF_8);
+        assertThat(Files.size(rolled)).isGreaterThan(2L * 8 * 1024 * 1024);
+        
+        List<Path> files = Arrays.asList(rolled, current);
+        TextLogSummary summary = TextLogAnalyzer.analyze(files, 4);
+        
+        assertThat(summary.getLines()).isEqualTo(LINES + LINES / 4 + 2);
+        assertThat(summary.getGreetings()).containsOnlyKeys("Dobré ráno", "Hola")
+                                          .containsEntry("Dobré ráno", (long) LINES / 4)
+                                          .containsEntry("Hola", (long) LINES / 4);
+        assertThat(summary.getErrors()).containsEntry("Language '*' not supported.", (long) LINES / 4)
+                                       .containsEntry("Missing 'lang' parameter in REST request.", 1L)
+                                       .containsEntry("Failed to parse the usersTime=* in HH:mm format", 1L)
+                                       .hasSize(3);
+        assertThat(summary.getMinutes()).hasSize(LINES / 10_000 + 1);
+        assertThat(summary.getMinutes().get("2020-03-27 12:00")).containsExactly(5000L, 2500L);
+        
+        // same results by one thread
+        TextLogSummary sequential = TextLogAnalyzer.analyze(files, 1);
+        assertThat(sequential.getGreetings()).isEqualTo(summary.getGreetings());
+        assertThat(sequential.getErrors()).isEqualTo(summary.getErrors());
+    }
+}
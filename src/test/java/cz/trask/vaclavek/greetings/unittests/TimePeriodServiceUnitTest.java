@@ -3,11 +3,15 @@ package cz.trask.vaclavek.greetings.unittests;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+
 import org.junit.jupiter.api.Test;
 
 import cz.trask.vaclavek.greetings.errors.InvalidParameterException;
 import cz.trask.vaclavek.greetings.service.TimePeriodService;
 import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+import cz.trask.vaclavek.greetings.service.UsersLocation;
 import cz.trask.vaclavek.greetings.serviceimpl.TimePeriodServiceImpl;
 
 /**
@@ -53,4 +57,66 @@ public class TimePeriodServiceUnitTest
                                                                           .isInstanceOf(InvalidParameterException.class);
      }
     
+    /**
+     * Tests if the start of the next {@link TimePeriod} is returned according given time
+     */
+    @Test
+    public void givenTime_thenNextTimePeriodStartShouldReturn() {
+        
+        assertThat(timePeriodService.getNextTimePeriodStart(LocalTime.of(5, 0))).isEqualTo(LocalTime.of(12, 0));
+        assertThat(timePeriodService.getNextTimePeriodStart(LocalTime.of(16, 59))).isEqualTo(LocalTime.of(17, 0));
+        assertThat(timePeriodService.getNextTimePeriodStart(LocalTime.of(21, 0))).isEqualTo(LocalTime.of(22, 0));
+        
+        // general purpose period continues after midnight
+        assertThat(timePeriodService.getNextTimePeriodStart(LocalTime.of(23, 30))).isEqualTo(LocalTime.of(5, 0));
+        assertThat(timePeriodService.getTimePeriod(LocalTime.of(0, 0))).isEqualTo(TimePeriod.GENERAL_PURPOSE);
+     }
+    
+    /**
+     * Tests if the {@link TimePeriod}s follow the local sunrise and sunset, when the user's location is given
+     */
+    @Test
+    public void givenLocation_thenTimePeriodFollowsSunriseAndSunset() {
+        
+        // Oslo, summer solstice - sunset 22:44 of the local time, still daylight at 21:30
+        UsersLocation oslo = UsersLocation.parse("60", "10.75", "2020-06-21", "+02:00");
+        assertThat(timePeriodService.getTimePeriod("21:30")).isEqualTo(TimePeriod.EVENING);
+        assertThat(timePeriodService.getTimePeriod("21:30", oslo)).isEqualTo(TimePeriod.AFTERNOON);
+        assertThat(timePeriodService.getTimePeriod("22:30", oslo)).isEqualTo(TimePeriod.EVENING);
+        
+        // Oslo, winter solstice - sunset 15:12 of the local time
+        oslo = UsersLocation.parse("60", "10.75", "2020-12-21", "+01:00");
+        assertThat(timePeriodService.getTimePeriod("16:30")).isEqualTo(TimePeriod.AFTERNOON);
+        assertThat(timePeriodService.getTimePeriod("16:30", oslo)).isEqualTo(TimePeriod.EVENING);
+        assertThat(timePeriodService.getTimePeriod("08:30", oslo)).isEqualTo(TimePeriod.GENERAL_PURPOSE);
+        assertThat(timePeriodService.getTimePeriod("10:00", oslo)).isEqualTo(TimePeriod.MORNING);
+        
+        // Tromso, polar day - morning and evening still bounded
+        UsersLocation tromso = UsersLocation.parse("69.6", "19", "2020-06-21", "+02:00");
+        assertThat(timePeriodService.getTimePeriod("23:30", tromso)).isEqualTo(TimePeriod.EVENING);
+        assertThat(timePeriodService.getTimePeriod("02:00", tromso)).isEqualTo(TimePeriod.GENERAL_PURPOSE);
+        assertThat(timePeriodService.getTimePeriod("14:00", tromso)).isEqualTo(TimePeriod.AFTERNOON);
+        
+        // no longitude, user's time is the local solar time
+        UsersLocation equator = new UsersLocation(0, LocalDate.of(2020, 3, 20), 0);
+        assertThat(timePeriodService.getTimePeriod("06:30", equator)).isEqualTo(TimePeriod.MORNING);
+        assertThat(timePeriodService.getTimePeriod("17:30", equator)).isEqualTo(TimePeriod.EVENING);
+        assertThat(timePeriodService.getTimePeriod("05:30", equator)).isEqualTo(TimePeriod.GENERAL_PURPOSE);
+        
+        assertThat(UsersLocation.parse("", "10", "", "")).isNull();
+    }
+    
+    /**
+     * Tests if the {@link InvalidParameterException} is thrown for invalid location parameters
+     */
+    @Test
+    public void whenInvalidLocation_thenInvalidParameterException() {
+        
+        assertThatThrownBy(() -> UsersLocation.parse("91", "", "", "")).isInstanceOf(InvalidParameterException.class);
+        assertThatThrownBy(() -> UsersLocation.parse("north", "", "", "")).isInstanceOf(InvalidParameterException.class);
+        assertThatThrownBy(() -> UsersLocation.parse("50", "181", "", "")).isInstanceOf(InvalidParameterException.class);
+        assertThatThrownBy(() -> UsersLocation.parse("50", "14", "2020-13-01", "")).isInstanceOf(InvalidParameterException.class);
+        assertThatThrownBy(() -> UsersLocation.parse("50", "14", "", "CET")).isInstanceOf(InvalidParameterException.class);
+    }
+    
 }
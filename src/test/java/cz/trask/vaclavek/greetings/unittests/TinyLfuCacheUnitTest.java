@@ -0,0 +1,196 @@
+package cz.trask.vaclavek.greetings.unittests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import cz.trask.vaclavek.greetings.cache.CachingGreetingsService;
+import cz.trask.vaclavek.greetings.cache.FrequencySketch;
+import cz.trask.vaclavek.greetings.cache.TinyLfuCache;
+import cz.trask.vaclavek.greetings.errors.LanguageNotSupportedException;
+import cz.trask.vaclavek.greetings.service.GreetingsService;
+import cz.trask.vaclavek.greetings.service.TimePeriodService.TimePeriod;
+
+/**
+ * Unit tests of the {@link TinyLfuCache}, its {@link FrequencySketch} and the {@link CachingGreetingsService}.<br>
+ * The trace-driven simulation of the hit ratio is the {@code TinyLfuCacheSimulationBenchmark}.
+ *
+ * @author Michal Vaclavek
+ *
+ */
+public class TinyLfuCacheUnitTest
+{
+    /**
+     * Tests if the total weight of the entries stays within the maximum weight and the too heavy entries are rejected
+     */
+    @Test
+    public void givenWeightedEntries_whenPut_thenWeightBounded() {
+
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(1_000, (key, value) -> value.length());
+        for (int i = 0; i < 1_000; i++) {
+            cache.get(i);
+            cache.put(i, repeat('x', 1 + i % 50));
+            assertThat(cache.getWeightedSize()).isLessThanOrEqualTo(1_000);
+        }
+        assertThat(cache.getEvictions()).isPositive();
+        assertThat(cache.getEvictedWeight()).isPositive();
+
+        long rejections = cache.getRejections();
+        cache.put(-1, repeat('x', 1_001));
+        assertThat(cache.get(-1)).isNull();
+        assertThat(cache.getRejections()).isEqualTo(rejections + 1);
+    }
+
+    /**
+     * Tests if the scan of keys accessed once does not evict the frequently accessed keys, which fit into the protected segment
+     */
+    @Test
+    public void givenHotKeys_whenScanned_thenHotKeysKept() {
+
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, (key, value) -> 1);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 70; i++) {
+                getOrLoad(cache, "hot" + i);
+            }
+        }
+        for (int i = 0; i < 10_000; i++) {
+            getOrLoad(cache, "scan" + i);
+        }
+
+        int kept = 0;
+        for (int i = 0; i < 70; i++) {
+            kept += (cache.get("hot" + i) != null) ? 1 : 0;
+        }
+        // the last hot key was in the window only, it competes with the equally frequent protected entries
+        assertThat(kept).isGreaterThanOrEqualTo(69);
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+    }
+
+    /**
+     * Tests if the concurrent gets of the cached keys, which are not serialized by the lock, are all counted as hits<br>
+     * and their drained accesses keep the entries and their weight consistent
+     */
+    @Test
+    public void givenCachedKeys_whenReadConcurrently_thenHitsCountedAndEntriesKept() throws Exception {
+
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, (key, value) -> 1);
+        for (int i = 0; i < 50; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+
+        int threads = 8;
+        int gets = 20_000;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    barrier.await();
+                    int found = 0;
+                    for (int i = 0; i < gets; i++) {
+                        int key = (offset + i) % 50;
+                        found += ("value" + key).equals(cache.get("key" + key)) ? 1 : 0;
+                    }
+                    return found;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get()).isEqualTo(gets);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.getHits()).isEqualTo((long) threads * gets);
+        assertThat(cache.getMisses()).isZero();
+        assertThat(cache.size()).isEqualTo(50);
+        assertThat(cache.getWeightedSize()).isEqualTo(50);
+        // the write drains the buffered reads
+        cache.put("key50", "value50");
+        assertThat(cache.getWeightedSize()).isEqualTo(51);
+    }
+
+    /**
+     * Tests if the sketch estimates the frequency and halves it when the sample size is reached
+     */
+    @Test
+    public void givenSketch_whenIncremented_thenFrequencyEstimatedAndAged() {
+
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+        assertThat(sketch.frequency("hot")).isEqualTo(8);
+        assertThat(sketch.frequency("cold")).isEqualTo(1);
+        assertThat(sketch.frequency("never")).isLessThanOrEqualTo(1);
+
+        for (int i = 0; sketch.getResets() == 0; i++) {
+            sketch.increment(i);
+        }
+        assertThat(sketch.frequency("hot")).isEqualTo(4);
+        assertThat(sketch.frequency("cold")).isLessThan(sketch.frequency("hot"));
+    }
+
+    /**
+     * Tests if the cached greetings are served until the catalog version changes and the exceptions are not cached
+     */
+    @Test
+    public void givenCachingService_whenCatalogVersionChanges_thenCacheInvalidated() {
+
+        GreetingsService delegate = mock(GreetingsService.class);
+        when(delegate.getCatalogVersion()).thenReturn("1");
+        when(delegate.getCatalogLocale(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(delegate.getTimeSensitiveGreeting(TimePeriod.MORNING, Locale.ENGLISH)).thenReturn("Good morning", "Morning");
+        when(delegate.getTimeInsensitiveGreeting(Locale.GERMAN)).thenThrow(new LanguageNotSupportedException("de"));
+
+        CachingGreetingsService service = new CachingGreetingsService(delegate, 10_000, 0);
+        assertThat(service.getTimeSensitiveGreeting(TimePeriod.MORNING, Locale.ENGLISH)).isEqualTo("Good morning");
+        assertThat(service.getTimeSensitiveGreeting(TimePeriod.MORNING, Locale.ENGLISH)).isEqualTo("Good morning");
+        verify(delegate, times(1)).getTimeSensitiveGreeting(any(), any());
+        assertThat(service.getCache().getHits()).isEqualTo(1);
+
+        when(delegate.getCatalogVersion()).thenReturn("2");
+        assertThat(service.getTimeSensitiveGreeting(TimePeriod.MORNING, Locale.ENGLISH)).isEqualTo("Morning");
+        assertThat(service.getCache().getInvalidations()).isEqualTo(1);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> service.getTimeInsensitiveGreeting(Locale.GERMAN)).isInstanceOf(LanguageNotSupportedException.class);
+        }
+        verify(delegate, times(2)).getTimeInsensitiveGreeting(Locale.GERMAN);
+    }
+
+    private static String getOrLoad(TinyLfuCache<String, String> cache, String key) {
+
+        String value = cache.get(key);
+        if (value == null) {
+            value = key;
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    private static String repeat(char c, int count) {
+
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}